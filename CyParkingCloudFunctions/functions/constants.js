@@ -2,6 +2,12 @@
 // Constant variables
 
 module.exports.MAXIMUM_DISTANCE_FROM_USER = 1000;
+// The widest area a client may request lot summaries for
+module.exports.MAXIMUM_SUMMARY_RADIUS = 2000;
+module.exports.STORED_GEOHASH_PRECISION = 9;
+module.exports.GEOHASH = 'geohash';
+// Sorts after every geohash character. Used as the upper bound of prefix-range queries.
+module.exports.GEOHASH_RANGE_END = '~';
 
 module.exports.PARKING_LOTS = 'parking_lots';
 module.exports.FEEDBACK = 'feedback';
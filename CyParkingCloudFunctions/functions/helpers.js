@@ -1,5 +1,6 @@
 
-const MAXIMUM_DISTANCE_FROM_USER = require('./constants').MAXIMUM_DISTANCE_FROM_USER;
+const constants = require('./constants');
+const MAXIMUM_DISTANCE_FROM_USER = constants.MAXIMUM_DISTANCE_FROM_USER;
 
 //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~//
 
@@ -32,6 +33,32 @@ const logError = (error, title) => {
 module.exports.logError = logError;
 
 
+/**
+ * Calculates the distance between the two given points, in metres.
+ * Reference: http://www.movable-type.co.uk/scripts/latlong.html
+ *
+ * @param lat1 The latitude of the first point.
+ * @param lon1 The longitude of the first point.
+ * @param lat2 The latitude of the second point.
+ * @param lon2 The longitude of the second point.
+ */
+const distanceBetween = function (lat1, lon1, lat2, lon2) {
+    var R = 6371e3; // metres
+    var φ1 = lat1 * Math.PI / 180; // φ, λ in radians
+    var φ2 = lat2 * Math.PI / 180;
+    var Δφ = (lat2 - lat1) * Math.PI / 180;
+    var Δλ = (lon2 - lon1) * Math.PI / 180;
+
+    var a = Math.sin(Δφ / 2) * Math.sin(Δφ / 2) +
+        Math.cos(φ1) * Math.cos(φ2) *
+        Math.sin(Δλ / 2) * Math.sin(Δλ / 2);
+
+    var c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    return R * c; // the total distance in metres
+}
+module.exports.distanceBetween = distanceBetween;
+
+
 /**
  * Determines whether the given location is inside the range.
  * 
@@ -41,32 +68,105 @@ module.exports.logError = logError;
  */
 const nearbyUser = function (parking, userLatitude, userLongitude) {
     try {
-        // User's lat lng
-        var lat1 = userLatitude
-        var lon1 = userLongitude;
-
-        // Parking's lat lng
-        var lat2 = parking.coordinates.latitude;
-        var lon2 = parking.coordinates.longitude;
-
-        // Calculate the distance between the two points (User and current parking)
-        // Reference: http://www.movable-type.co.uk/scripts/latlong.html
-        var R = 6371e3; // metres
-        var φ1 = lat1 * Math.PI / 180; // φ, λ in radians
-        var φ2 = lat2 * Math.PI / 180;
-        var Δφ = (lat2 - lat1) * Math.PI / 180;
-        var Δλ = (lon2 - lon1) * Math.PI / 180;
-
-        var a = Math.sin(Δφ / 2) * Math.sin(Δφ / 2) +
-            Math.cos(φ1) * Math.cos(φ2) *
-            Math.sin(Δλ / 2) * Math.sin(Δλ / 2);
-
-        var c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        var d = R * c; // d is the total distance in metres
-
-        return (d <= MAXIMUM_DISTANCE_FROM_USER);
+        return distanceBetween(userLatitude, userLongitude,
+            parking.coordinates.latitude, parking.coordinates.longitude) <= MAXIMUM_DISTANCE_FROM_USER;
     } catch (error) {
         return false;
     }
 }
-module.exports.nearbyUser = nearbyUser;
\ No newline at end of file
+module.exports.nearbyUser = nearbyUser;
+
+
+/**
+ * Looks for the most beneficial offer of the given ones,
+ * i.e. the one with the smallest price per hour.
+ * Must pick the same offer as the client's `ParkingLot.getBestOffer`.
+ *
+ * @param slotOfferList The offers of a parking lot.
+ * @returns The best offer, or null if there are no offers.
+ */
+const bestOfferOf = function (slotOfferList) {
+    if (!Array.isArray(slotOfferList) || slotOfferList.length === 0) return null;
+    var bestOffer = slotOfferList[0];
+    for (var i = 1; i < slotOfferList.length; i++) {
+        var offer = slotOfferList[i];
+        if (offer.price / offer.duration < bestOffer.price / bestOffer.duration) bestOffer = offer;
+    }
+    return { duration: bestOffer.duration, price: bestOffer.price };
+}
+module.exports.bestOfferOf = bestOfferOf;
+
+
+const BASE_32 = '0123456789bcdefghjkmnpqrstuvwxyz';
+const METERS_PER_DEGREE = 111320;
+
+/**
+ * Encodes the given coordinates into a geohash of the given precision.
+ * Must produce the same geohashes as the client's `GeoHash.encode`.
+ *
+ * @param latitude The latitude in the range [-90..90].
+ * @param longitude The longitude in the range [-180..180].
+ * @param precision The number of characters of the geohash.
+ */
+const encodeGeohash = function (latitude, longitude, precision) {
+    var minLat = -90, maxLat = 90, minLng = -180, maxLng = 180;
+    var hash = '';
+    var isEvenBit = true; // Longitude first
+    var bit = 0, index = 0;
+    while (hash.length < precision) {
+        var mid;
+        if (isEvenBit) {
+            mid = (minLng + maxLng) / 2;
+            if (longitude >= mid) { index = (index << 1) | 1; minLng = mid; }
+            else { index = index << 1; maxLng = mid; }
+        } else {
+            mid = (minLat + maxLat) / 2;
+            if (latitude >= mid) { index = (index << 1) | 1; minLat = mid; }
+            else { index = index << 1; maxLat = mid; }
+        }
+        isEvenBit = !isEvenBit;
+        if (++bit === 5) { // Every 5 bits make up one base-32 character
+            hash += BASE_32.charAt(index);
+            bit = 0;
+            index = 0;
+        }
+    }
+    return hash;
+}
+module.exports.encodeGeohash = encodeGeohash;
+
+
+/**
+ * Computes the geohashes of the cell that contains the given coordinates and
+ * its 8 neighbours. Together they cover every point that is at most
+ * `radius` metres away from the given coordinates.
+ * Must produce the same cells as the client's `GeoHash.coveringCells`.
+ *
+ * @param latitude The latitude of the circle's centre.
+ * @param longitude The longitude of the circle's centre.
+ * @param radius The radius of the circle in metres.
+ */
+const coveringCells = function (latitude, longitude, radius) {
+    const cellHeight = (precision) => 180 / Math.pow(2, Math.floor(5 * precision / 2));
+    const cellWidth = (precision) => 360 / Math.pow(2, Math.floor((5 * precision + 1) / 2));
+    const metersPerLngDegree = METERS_PER_DEGREE * Math.cos(latitude * Math.PI / 180);
+    var precision = constants.STORED_GEOHASH_PRECISION;
+    while (precision > 1 && !(cellHeight(precision) * METERS_PER_DEGREE >= radius
+        && cellWidth(precision) * metersPerLngDegree >= radius)) {
+        precision--;
+    }
+    const cells = [encodeGeohash(latitude, longitude, precision)]; // Centre first
+    for (var dLat = -1; dLat <= 1; dLat++) {
+        for (var dLng = -1; dLng <= 1; dLng++) {
+            var lat = latitude + dLat * cellHeight(precision);
+            if (lat > 90 || lat < -90) continue; // There is nothing beyond the poles
+            var lng = longitude + dLng * cellWidth(precision);
+            if (lng >= 180) lng -= 360;
+            else if (lng < -180) lng += 360;
+            var cell = encodeGeohash(lat, lng, precision);
+            if (!cells.includes(cell)) cells.push(cell);
+        }
+    }
+    return cells;
+}
+module.exports.coveringCells = coveringCells;
\ No newline at end of file
@@ -16,6 +16,8 @@ const stripeFunctions = require('./stripe/index');
 
 // Functions related to the application's data, exluding payments.
 exports.getNearbyParkingLots = getNearbyParkingLots.getNearbyParkingLots;
+exports.getNearbyParkingLotSummaries = getNearbyParkingLots.getNearbyParkingLotSummaries;
+exports.assignGeohash = getNearbyParkingLots.assignGeohash;
 const cleanupUserFromApplication = cleanupUser.cleanupUser;
 exports.updateEmail = updateEmail.updateEmail;
 
@@ -18,19 +18,26 @@ exports.getNearbyParkingLots = functions.https.onCall(async (data, context) => {
     }
     const userLatitude = data.latitude;
     const userLongitude = data.longitude;
-    // Get all private parking into Cloud Firestore using the Firebase Admin SDK.
+    // Query only the lots of the geohash cells that cover the area around the user
+    // and keep the ones that are actually nearby.
     var nearbyParkingLotDocIds = [];
-    await admin.firestore().collection(constants.PARKING_LOTS)
-        .get()
+    const parkingLots = admin.firestore().collection(constants.PARKING_LOTS);
+    const cellQueries = helpers.coveringCells(userLatitude, userLongitude, constants.MAXIMUM_DISTANCE_FROM_USER)
+        .map((cell) => parkingLots
+            .orderBy(constants.GEOHASH)
+            .startAt(cell)
+            .endAt(cell + constants.GEOHASH_RANGE_END)
+            .get());
+    await Promise.all(cellQueries)
         .then(
-            (querySnapshot) => {
-                querySnapshot.forEach(function (doc) {
-                    if (doc.exists) {
-                        console.log(doc.id, " => ", doc.data());
-                        if (helpers.nearbyUser(doc.data(), userLatitude, userLongitude)) {
+            (querySnapshots) => {
+                querySnapshots.forEach((querySnapshot) => {
+                    querySnapshot.forEach(function (doc) {
+                        if (doc.exists && !nearbyParkingLotDocIds.includes(doc.id)
+                            && helpers.nearbyUser(doc.data(), userLatitude, userLongitude)) {
                             nearbyParkingLotDocIds.push(doc.id);
                         }
-                    }
+                    });
                 });
             }
         ).catch((e) => {
@@ -42,4 +49,84 @@ exports.getNearbyParkingLots = functions.https.onCall(async (data, context) => {
 
     // Send the filtered parking back to the user.
     return JSON.stringify(nearbyParkingLotDocIds);
-});
\ No newline at end of file
+});
+
+
+
+/**
+ * Returns a summary of each parking lot that is nearby the given coordinates,
+ * sorted by its distance from them. The summaries contain everything the client
+ * needs to draw the lots on the map, so that it does not have to query them again:
+ * `{ id, lotName, latitude, longitude, capacity, availableSpaces, bestOffer, distance }`.
+ * `bestOffer` is `{ duration, price }`, or null if the lot has no offers.
+ * The optional `radius` (in metres) widens the search area, up to `MAXIMUM_SUMMARY_RADIUS`,
+ * so that the client can cache the lots of a whole tile and serve every point inside it.
+ */
+exports.getNearbyParkingLotSummaries = functions.https.onCall(async (data, context) => {
+    if (!data.latitude || !data.longitude) { // if at least one of the parameters is empty
+        // Throwing an HttpsError so that the client gets the error details.
+        throw new functions.https.HttpsError('invalid-argument', 'Missing one or both parameters: latitude, longitude.');
+    }
+    const userLatitude = data.latitude;
+    const userLongitude = data.longitude;
+    const radius = (typeof data.radius === 'number' && data.radius > 0)
+        ? Math.min(data.radius, constants.MAXIMUM_SUMMARY_RADIUS)
+        : constants.MAXIMUM_DISTANCE_FROM_USER;
+    const parkingLots = admin.firestore().collection(constants.PARKING_LOTS);
+    const cellQueries = helpers.coveringCells(userLatitude, userLongitude, radius)
+        .map((cell) => parkingLots
+            .orderBy(constants.GEOHASH)
+            .startAt(cell)
+            .endAt(cell + constants.GEOHASH_RANGE_END)
+            .get());
+    var querySnapshots;
+    try {
+        querySnapshots = await Promise.all(cellQueries);
+    } catch (e) {
+        helpers.logError(e, 'getNearbyParkingLotSummaries')
+        throw new functions.https.HttpsError('internal', "Internal server error: " + e)
+    }
+    const summaries = [];
+    const visitedIds = new Set();
+    querySnapshots.forEach((querySnapshot) => {
+        querySnapshot.forEach((doc) => {
+            if (!doc.exists || visitedIds.has(doc.id)) return;
+            visitedIds.add(doc.id);
+            const lot = doc.data();
+            if (!lot.coordinates || !lot.availability) return;
+            const distance = helpers.distanceBetween(userLatitude, userLongitude,
+                lot.coordinates.latitude, lot.coordinates.longitude);
+            if (distance > radius) return;
+            summaries.push({
+                id: doc.id,
+                lotName: lot.lotName,
+                latitude: lot.coordinates.latitude,
+                longitude: lot.coordinates.longitude,
+                capacity: lot.availability.capacity,
+                availableSpaces: lot.availability.availableSpaces,
+                bestOffer: helpers.bestOfferOf(lot.slotOfferList),
+                distance: distance
+            });
+        });
+    });
+    summaries.sort((a, b) => a.distance - b.distance);
+    return summaries;
+});
+
+/**
+ * Keeps the geohash of each parking lot in sync with its coordinates.
+ * Lots that were stored without a geohash (e.g. before it was introduced)
+ * get it assigned the next time they are written, or by the one-off
+ * `scripts/backfillGeohash.js` (`npm run backfill-geohash`).
+ */
+exports.assignGeohash = functions.firestore
+    .document(constants.PARKING_LOTS + '/{lotId}')
+    .onWrite(async (change, context) => {
+        if (!change.after.exists) return null; // Deleted
+        const lot = change.after.data();
+        if (!lot.coordinates) return null;
+        const geohash = helpers.encodeGeohash(lot.coordinates.latitude, lot.coordinates.longitude,
+            constants.STORED_GEOHASH_PRECISION);
+        if (lot[constants.GEOHASH] === geohash) return null; // Already up to date
+        return change.after.ref.update({ [constants.GEOHASH]: geohash });
+    });
\ No newline at end of file
@@ -0,0 +1,51 @@
+// One-off script, which assigns a geohash to every parking lot that was stored
+// without one (e.g. before `assignGeohash` was deployed) or with an outdated one.
+// Until then, the geohash queries of `getNearbyParkingLots` skip those lots.
+// Run once, after deploying the functions, via `npm run backfill-geohash`
+// with GOOGLE_APPLICATION_CREDENTIALS pointing at a service account key of the project.
+// Safe to run again: lots whose geohash is up to date are left untouched.
+
+// The Firebase Admin SDK to access Cloud Firestore.
+const admin = require('firebase-admin');
+admin.initializeApp();
+
+// Import helper functions and constants.
+const helpers = require('../helpers');
+const constants = require('../constants');
+
+// The maximum number of writes of a batch
+const BATCH_SIZE = 500;
+
+const backfillGeohash = async () => {
+    const parkingLots = admin.firestore().collection(constants.PARKING_LOTS);
+    var lastDoc = null;
+    var updatedCount = 0;
+    var scannedCount = 0;
+    for (;;) { // Page through the lots by document id
+        var page = parkingLots.orderBy(admin.firestore.FieldPath.documentId()).limit(BATCH_SIZE);
+        if (lastDoc) page = page.startAfter(lastDoc);
+        const querySnapshot = await page.get();
+        if (querySnapshot.empty) break;
+        const batch = admin.firestore().batch();
+        var batchCount = 0;
+        querySnapshot.forEach((doc) => {
+            const lot = doc.data();
+            if (!lot.coordinates) return;
+            const geohash = helpers.encodeGeohash(lot.coordinates.latitude, lot.coordinates.longitude,
+                constants.STORED_GEOHASH_PRECISION);
+            if (lot[constants.GEOHASH] === geohash) return; // Already up to date
+            batch.update(doc.ref, { [constants.GEOHASH]: geohash });
+            batchCount++;
+        });
+        if (batchCount > 0) await batch.commit();
+        updatedCount += batchCount;
+        scannedCount += querySnapshot.size;
+        lastDoc = querySnapshot.docs[querySnapshot.docs.length - 1];
+    }
+    console.log('Assigned a geohash to ' + updatedCount + ' of ' + scannedCount + ' parking lots.');
+};
+
+backfillGeohash().catch((e) => {
+    helpers.logError(e, 'backfillGeohash');
+    process.exitCode = 1;
+});
@@ -0,0 +1,355 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.Parking;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.SlotOffer;
+
+/**
+ * Purpose: keep many parking lots in memory, in as little heap as possible.
+ * <p>
+ * Instead of a {@link ParkingLot} object per lot, along with its coordinates, availability,
+ * offer list and offers, the lots' fields are kept in parallel arrays and each lot is
+ * identified by an int handle: its index in them. The values that the map reads for every lot
+ * (coordinates, capacity, available spaces, best offer ratio and longest offer) are primitives,
+ * and can be read without any allocation. A lot's offers are packed in a single float array.
+ * <p>
+ * A {@link ParkingLot} object is created only on demand, via {@link #materialize(int)},
+ * e.g. when a lot gets selected. Its geohash is derived from its coordinates.
+ * <p>
+ * The handles of removed lots are reused. The class is not thread-safe.
+ *
+ * @author Charalambos Christou
+ * @version 2.0 18/10/21
+ */
+public class CompactLotStore {
+
+    /**
+     * The handle of a lot that does not exist.
+     */
+    public static final int NO_HANDLE = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, Integer> mHandlesById = new HashMap<>();
+    // Indexed by handle. A null document id marks a free handle.
+    private String[] mDocIds;
+    private double[] mLatitudes;
+    private double[] mLongitudes;
+    private int[] mCapacities;
+    private int[] mAvailableSpaces;
+    private float[] mBestOfferRatios;
+    private float[] mMaxDurations;
+    private int[] mParkingIds;
+    private String[] mLotNames;
+    private String[] mOperatorIds;
+    private String[] mMobileNumbers;
+    private String[] mPhotoUrls;
+    private float[][] mOffers; // Durations and prices, interleaved
+    // The handles that were used once, and the free ones among them
+    private int mHandleLimit = 0;
+    private int[] mFreeHandles = new int[INITIAL_CAPACITY];
+    private int mFreeCount = 0;
+
+    /**
+     * Public Constructor.
+     */
+    public CompactLotStore() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Stores the given lot, replacing the previous contents of its document id.
+     *
+     * @param docId The document id of the lot.
+     * @param lot   The lot's contents.
+     * @return The handle of the lot.
+     */
+    public int put(@NonNull String docId, @NonNull ParkingLot lot) {
+        final int handle = handleFor(docId);
+        final Parking.Coordinates coordinates = lot.getCoordinates();
+        mLatitudes[handle] = coordinates == null ? 0 : coordinates.getLatitude();
+        mLongitudes[handle] = coordinates == null ? 0 : coordinates.getLongitude();
+        final ParkingLot.Availability availability = lot.getAvailability();
+        mCapacities[handle] = availability == null ? 0 : availability.getCapacity();
+        mAvailableSpaces[handle] = availability == null ? 0 : availability.getAvailableSpaces();
+        mParkingIds[handle] = lot.getParkingId();
+        mLotNames[handle] = lot.getLotName();
+        mOperatorIds[handle] = lot.getOperatorId();
+        mMobileNumbers[handle] = lot.getOperatorMobileNumber();
+        mPhotoUrls[handle] = lot.getLotPhotoUrl();
+        final List<SlotOffer> offers = lot.getSlotOfferList();
+        float bestRatio = Float.NaN;
+        float maxDuration = 0f;
+        if (offers == null) {
+            mOffers[handle] = null;
+        } else {
+            final float[] packed = new float[offers.size() * 2];
+            for (int i = 0; i < offers.size(); i++) {
+                final SlotOffer offer = offers.get(i);
+                packed[2 * i] = offer.getDuration();
+                packed[2 * i + 1] = offer.getPrice();
+                if (Float.isNaN(bestRatio) || offer.getRatio() < bestRatio) bestRatio = offer.getRatio();
+                maxDuration = Math.max(maxDuration, offer.getDuration());
+            }
+            mOffers[handle] = packed;
+        }
+        mBestOfferRatios[handle] = bestRatio;
+        mMaxDurations[handle] = maxDuration;
+        return handle;
+    }
+
+    /**
+     * Stores a copy of a lot of another store, replacing the previous contents of its document id.
+     * No {@link ParkingLot} object is created in the process.
+     *
+     * @param docId        The document id of the lot.
+     * @param source       The store that holds the lot.
+     * @param sourceHandle The handle of the lot in the source store.
+     * @return The handle of the lot in this store.
+     */
+    public int put(@NonNull String docId, @NonNull CompactLotStore source, int sourceHandle) {
+        final int handle = handleFor(docId);
+        mLatitudes[handle] = source.mLatitudes[sourceHandle];
+        mLongitudes[handle] = source.mLongitudes[sourceHandle];
+        mCapacities[handle] = source.mCapacities[sourceHandle];
+        mAvailableSpaces[handle] = source.mAvailableSpaces[sourceHandle];
+        mBestOfferRatios[handle] = source.mBestOfferRatios[sourceHandle];
+        mMaxDurations[handle] = source.mMaxDurations[sourceHandle];
+        mParkingIds[handle] = source.mParkingIds[sourceHandle];
+        mLotNames[handle] = source.mLotNames[sourceHandle];
+        mOperatorIds[handle] = source.mOperatorIds[sourceHandle];
+        mMobileNumbers[handle] = source.mMobileNumbers[sourceHandle];
+        mPhotoUrls[handle] = source.mPhotoUrls[sourceHandle];
+        mOffers[handle] = source.mOffers[sourceHandle]; // Never mutated, thus shared
+        return handle;
+    }
+
+    /**
+     * Removes the lot of the given document id. Its handle may be reused by a later lot.
+     *
+     * @param docId The document id of the lot.
+     * @return True, if the lot existed. Otherwise, false.
+     */
+    public boolean remove(@NonNull String docId) {
+        final Integer handle = mHandlesById.remove(docId);
+        if (handle == null) return false;
+        mDocIds[handle] = null;
+        // Drop the references, so that they can be garbage collected
+        mLotNames[handle] = null;
+        mOperatorIds[handle] = null;
+        mMobileNumbers[handle] = null;
+        mPhotoUrls[handle] = null;
+        mOffers[handle] = null;
+        if (mFreeCount == mFreeHandles.length) mFreeHandles = Arrays.copyOf(mFreeHandles, mFreeCount * 2);
+        mFreeHandles[mFreeCount++] = handle;
+        return true;
+    }
+
+    /**
+     * Access the handle of the given document id.
+     *
+     * @param docId The document id of a lot.
+     * @return The handle of the lot. {@link #NO_HANDLE}, if there is no such lot.
+     */
+    public int handleOf(@NonNull String docId) {
+        final Integer handle = mHandlesById.get(docId);
+        return handle == null ? NO_HANDLE : handle;
+    }
+
+    /**
+     * Check whether a lot with the given document id is stored.
+     *
+     * @param docId The document id of a lot.
+     * @return True, if it is stored. Otherwise, false.
+     */
+    public boolean contains(@NonNull String docId) {
+        return mHandlesById.containsKey(docId);
+    }
+
+    /**
+     * Access the document id of the given handle.
+     *
+     * @param handle The handle of a lot.
+     * @return The lot's document id. Null, if the handle is free.
+     */
+    @Nullable
+    public String docIdOf(int handle) {
+        return mDocIds[handle];
+    }
+
+    public double latitudeOf(int handle) {
+        return mLatitudes[handle];
+    }
+
+    public double longitudeOf(int handle) {
+        return mLongitudes[handle];
+    }
+
+    public int capacityOf(int handle) {
+        return mCapacities[handle];
+    }
+
+    public int availableSpacesOf(int handle) {
+        return mAvailableSpaces[handle];
+    }
+
+    /**
+     * Access the price per hour of the given lot's best offer.
+     *
+     * @param handle The handle of a lot.
+     * @return The ratio of the best offer. {@link Float#NaN}, if the lot has no offers.
+     * @see SlotOffer#getRatio()
+     */
+    public float bestOfferRatioOf(int handle) {
+        return mBestOfferRatios[handle];
+    }
+
+    /**
+     * Access the duration of the given lot's longest offer.
+     *
+     * @param handle The handle of a lot.
+     * @return The duration in hours. 0, if the lot has no offers.
+     */
+    public float maxDurationOf(int handle) {
+        return mMaxDurations[handle];
+    }
+
+    /**
+     * Creates a {@link ParkingLot} object with the contents of the given lot.
+     *
+     * @param handle The handle of a lot.
+     * @return A new ParkingLot object. Null, if the handle is free.
+     */
+    @Nullable
+    public ParkingLot materialize(int handle) {
+        if (handle < 0 || handle >= mHandleLimit || mDocIds[handle] == null) return null;
+        final ParkingLot lot = new ParkingLot();
+        lot.setParkingId(mParkingIds[handle]);
+        lot.setCoordinates(new Parking.Coordinates(mLatitudes[handle], mLongitudes[handle]));
+        lot.setAvailability(new ParkingLot.Availability(mCapacities[handle], mAvailableSpaces[handle]));
+        lot.setLotName(mLotNames[handle]);
+        lot.setOperatorId(mOperatorIds[handle]);
+        lot.setOperatorMobileNumber(mMobileNumbers[handle]);
+        lot.setLotPhotoUrl(mPhotoUrls[handle]);
+        final float[] packed = mOffers[handle];
+        if (packed != null) {
+            final List<SlotOffer> offers = new ArrayList<>(packed.length / 2);
+            for (int i = 0; i < packed.length; i += 2) {
+                final SlotOffer offer = new SlotOffer();
+                offer.setDuration(packed[i]);
+                offer.setPrice(packed[i + 1]);
+                offers.add(offer);
+            }
+            lot.setSlotOfferList(offers);
+        } else {
+            lot.setSlotOfferList(null);
+        }
+        return lot.assignGeohash();
+    }
+
+    /**
+     * Creates a {@link ParkingLot} object with the contents of the given document id's lot.
+     *
+     * @param docId The document id of a lot.
+     * @return A new ParkingLot object. Null, if there is no such lot.
+     */
+    @Nullable
+    public ParkingLot materialize(@NonNull String docId) {
+        return materialize(handleOf(docId));
+    }
+
+    /**
+     * Invokes the given consumer with the handle of each stored lot, in ascending handle order.
+     *
+     * @param consumer The consumer of the handles.
+     */
+    public void forEach(@NonNull HandleConsumer consumer) {
+        for (int handle = 0; handle < mHandleLimit; handle++) {
+            if (mDocIds[handle] != null) consumer.accept(handle);
+        }
+    }
+
+    /**
+     * Removes all the lots.
+     */
+    public void clear() {
+        mHandlesById.clear();
+        mHandleLimit = 0;
+        mFreeCount = 0;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Access the number of stored lots.
+     *
+     * @return The number of stored lots.
+     */
+    public int size() {
+        return mHandlesById.size();
+    }
+
+    /**
+     * Access the handle of the given document id, assigning it a free one if it has none.
+     */
+    private int handleFor(@NonNull String docId) {
+        final Integer existing = mHandlesById.get(docId);
+        if (existing != null) return existing;
+        final int handle;
+        if (mFreeCount > 0) {
+            handle = mFreeHandles[--mFreeCount];
+        } else {
+            if (mHandleLimit == mDocIds.length) grow(mHandleLimit * 2);
+            handle = mHandleLimit++;
+        }
+        mDocIds[handle] = docId;
+        mHandlesById.put(docId, handle);
+        return handle;
+    }
+
+    private void allocate(int capacity) {
+        mDocIds = new String[capacity];
+        mLatitudes = new double[capacity];
+        mLongitudes = new double[capacity];
+        mCapacities = new int[capacity];
+        mAvailableSpaces = new int[capacity];
+        mBestOfferRatios = new float[capacity];
+        mMaxDurations = new float[capacity];
+        mParkingIds = new int[capacity];
+        mLotNames = new String[capacity];
+        mOperatorIds = new String[capacity];
+        mMobileNumbers = new String[capacity];
+        mPhotoUrls = new String[capacity];
+        mOffers = new float[capacity][];
+    }
+
+    private void grow(int capacity) {
+        mDocIds = Arrays.copyOf(mDocIds, capacity);
+        mLatitudes = Arrays.copyOf(mLatitudes, capacity);
+        mLongitudes = Arrays.copyOf(mLongitudes, capacity);
+        mCapacities = Arrays.copyOf(mCapacities, capacity);
+        mAvailableSpaces = Arrays.copyOf(mAvailableSpaces, capacity);
+        mBestOfferRatios = Arrays.copyOf(mBestOfferRatios, capacity);
+        mMaxDurations = Arrays.copyOf(mMaxDurations, capacity);
+        mParkingIds = Arrays.copyOf(mParkingIds, capacity);
+        mLotNames = Arrays.copyOf(mLotNames, capacity);
+        mOperatorIds = Arrays.copyOf(mOperatorIds, capacity);
+        mMobileNumbers = Arrays.copyOf(mMobileNumbers, capacity);
+        mPhotoUrls = Arrays.copyOf(mPhotoUrls, capacity);
+        mOffers = Arrays.copyOf(mOffers, capacity);
+    }
+
+    /**
+     * Purpose: receive the handles of the stored lots.
+     */
+    public interface HandleConsumer {
+        void accept(int handle);
+    }
+}
@@ -0,0 +1,200 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Purpose: draw the tiles of a heatmap of the lots' free capacity, in the
+ * Web Mercator tiling of the map.
+ * <p>
+ * Each lot is spread over the pixels within {@link #getRadiusInPixels()} of it, with a weight that
+ * falls smoothly to zero at the radius. A pixel's colour is the ratio of the weighted available
+ * spaces to the weighted capacity around it, from red for full to green for empty.
+ * Its opacity grows with the weighted capacity, so that areas without lots stay clear.
+ * <p>
+ * The weights are summed on a grid twice as coarse as the tile, each cell colouring a 2x2 square.
+ * The radius is constant in pixels, so a tile depends only on the lots within that radius of it.
+ * {@link #visitTilesAround(double, double, int, TileVisitor)} gives the tiles that a change
+ * at a position affects. The class is immutable, thus thread-safe.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public class HeatmapRasterizer {
+
+    /**
+     * The size of a tile's side in pixels.
+     */
+    public static final int TILE_SIZE = 256;
+    // The side of the square of pixels that get the same colour. As the weights vary
+    // smoothly over the radius, they are computed on a grid this many times coarser.
+    private static final int SAMPLING = 2;
+    private static final int GRID_SIZE = TILE_SIZE / SAMPLING;
+    private static final int MAX_ALPHA = 170;
+    // The weighted capacity at which the opacity reaches 63% of its maximum
+    private static final float CAPACITY_SCALE = 25f;
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    private final int mRadius;
+    private final int mGridRadius;
+    private final float[] mKernel; // Row-major, (2r + 1)^2 weights, r being the radius on the grid
+
+    /**
+     * Public Constructor.
+     *
+     * @param radiusInPixels The radius that each lot is spread over.
+     */
+    public HeatmapRasterizer(int radiusInPixels) {
+        mRadius = Math.max(SAMPLING, Math.min(TILE_SIZE, radiusInPixels));
+        mGridRadius = mRadius / SAMPLING;
+        final int side = 2 * mGridRadius + 1;
+        mKernel = new float[side * side];
+        final float radiusSquared = (mGridRadius + 0.5f) * (mGridRadius + 0.5f);
+        for (int dy = -mGridRadius; dy <= mGridRadius; dy++) {
+            for (int dx = -mGridRadius; dx <= mGridRadius; dx++) {
+                final float distance = (dx * dx + dy * dy) / radiusSquared;
+                mKernel[(dy + mGridRadius) * side + dx + mGridRadius] =
+                        distance >= 1f ? 0f : (1f - distance) * (1f - distance);
+            }
+        }
+    }
+
+    public int getRadiusInPixels() {
+        return mRadius;
+    }
+
+    /**
+     * Draws the given tile from the lots of the given index.
+     *
+     * @param x     The tile's column.
+     * @param y     The tile's row.
+     * @param zoom  The tile's zoom level.
+     * @param lots  The lots to draw.
+     * @return The tile's ARGB pixels, row-major. Null, if there are no lots near the tile.
+     */
+    @Nullable
+    public int[] rasterize(int x, int y, int zoom, @NonNull LotSpatialIndex lots) {
+        final double worldSize = worldSizeOf(zoom);
+        final double left = (double) x * TILE_SIZE, top = (double) y * TILE_SIZE;
+        // The tile's bounds, grown by the radius
+        final double south = latitudeOf(top + TILE_SIZE + mRadius, worldSize);
+        final double north = latitudeOf(top - mRadius, worldSize);
+        final double west = longitudeOf(left - mRadius, worldSize);
+        final double east = longitudeOf(left + TILE_SIZE + mRadius, worldSize);
+        final boolean isWholeWorld = TILE_SIZE + 2 * mRadius >= worldSize;
+        final float[] spaces = new float[GRID_SIZE * GRID_SIZE];
+        final float[] capacities = new float[GRID_SIZE * GRID_SIZE];
+        final boolean[] isDrawn = {false};
+        lots.visitInBounds(south, isWholeWorld ? -180 : west, north, isWholeWorld ? 180 : east,
+                (latitude, longitude, availableSpaces, capacity) -> {
+                    if (capacity <= 0) return;
+                    double px = xOf(longitude, worldSize) - left;
+                    // The lots across the antimeridian
+                    if (px < -mRadius) px += worldSize;
+                    else if (px > TILE_SIZE + mRadius) px -= worldSize;
+                    final double py = yOf(latitude, worldSize) - top;
+                    splat((int) Math.floor(px / SAMPLING), (int) Math.floor(py / SAMPLING),
+                            Math.max(0, Math.min(availableSpaces, capacity)), capacity, spaces, capacities);
+                    isDrawn[0] = true;
+                });
+        if (!isDrawn[0]) return null;
+        final int[] pixels = new int[TILE_SIZE * TILE_SIZE];
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int column = 0; column < GRID_SIZE; column++) {
+                final int i = row * GRID_SIZE + column;
+                if (capacities[i] <= 0f) continue; // Transparent
+                final int colour = colourOf(spaces[i] / capacities[i], capacities[i]);
+                for (int dy = 0; dy < SAMPLING; dy++) {
+                    final int start = (row * SAMPLING + dy) * TILE_SIZE + column * SAMPLING;
+                    Arrays.fill(pixels, start, start + SAMPLING, colour);
+                }
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Visits the tiles of the given zoom level that a lot at the given position is drawn on.
+     *
+     * @param latitude  The latitude of the position.
+     * @param longitude The longitude of the position.
+     * @param zoom      The zoom level.
+     * @param visitor   Receives the column and row of each tile.
+     */
+    public void visitTilesAround(double latitude, double longitude, int zoom, @NonNull TileVisitor visitor) {
+        final double worldSize = worldSizeOf(zoom);
+        final int tiles = 1 << zoom;
+        final double px = xOf(longitude, worldSize), py = yOf(latitude, worldSize);
+        final int firstRow = Math.max(0, (int) Math.floor((py - mRadius) / TILE_SIZE));
+        final int lastRow = Math.min(tiles - 1, (int) Math.floor((py + mRadius) / TILE_SIZE));
+        final int firstColumn = (int) Math.floor((px - mRadius) / TILE_SIZE);
+        final int lastColumn = Math.min(firstColumn + tiles - 1, (int) Math.floor((px + mRadius) / TILE_SIZE));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                visitor.visit(Math.floorMod(column, tiles), row);
+            }
+        }
+    }
+
+    /**
+     * Adds the weighted availability of a lot to the cells of the grid around the given one.
+     */
+    private void splat(int cx, int cy, int availableSpaces, int capacity,
+                       @NonNull float[] spaces, @NonNull float[] capacities) {
+        final int side = 2 * mGridRadius + 1;
+        final int fromY = Math.max(-mGridRadius, -cy), toY = Math.min(mGridRadius, GRID_SIZE - 1 - cy);
+        final int fromX = Math.max(-mGridRadius, -cx), toX = Math.min(mGridRadius, GRID_SIZE - 1 - cx);
+        for (int dy = fromY; dy <= toY; dy++) {
+            final int row = (cy + dy) * GRID_SIZE + cx;
+            final int kernelRow = (dy + mGridRadius) * side + mGridRadius;
+            for (int dx = fromX; dx <= toX; dx++) {
+                final float weight = mKernel[kernelRow + dx];
+                spaces[row + dx] += weight * availableSpaces;
+                capacities[row + dx] += weight * capacity;
+            }
+        }
+    }
+
+    /**
+     * Maps the given ratio of free spaces to a colour from red, through yellow, to green.
+     */
+    static int colourOf(float freeRatio, float weightedCapacity) {
+        final float ratio = Math.max(0f, Math.min(1f, freeRatio));
+        final int red = ratio < 0.5f ? 255 : Math.round(255 * (1f - ratio) * 2);
+        final int green = ratio > 0.5f ? 200 : Math.round(200 * ratio * 2);
+        final int alpha = Math.round(MAX_ALPHA * (1f - (float) Math.exp(-weightedCapacity / CAPACITY_SCALE)));
+        return alpha << 24 | red << 16 | green << 8 | 40;
+    }
+
+    private static double worldSizeOf(int zoom) {
+        return (double) TILE_SIZE * (1L << zoom);
+    }
+
+    private static double xOf(double longitude, double worldSize) {
+        return (longitude + 180) / 360 * worldSize;
+    }
+
+    private static double yOf(double latitude, double worldSize) {
+        final double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude))));
+        return (0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * worldSize;
+    }
+
+    private static double longitudeOf(double x, double worldSize) {
+        final double longitude = x / worldSize * 360 - 180;
+        return longitude - 360 * Math.floor((longitude + 180) / 360); // In [-180, 180)
+    }
+
+    private static double latitudeOf(double y, double worldSize) {
+        final double clamped = Math.max(0, Math.min(worldSize, y));
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * clamped / worldSize))));
+    }
+
+    /**
+     * Purpose: receive the tiles of {@link #visitTilesAround(double, double, int, TileVisitor)}.
+     */
+    public interface TileVisitor {
+        void visit(int x, int y);
+    }
+}
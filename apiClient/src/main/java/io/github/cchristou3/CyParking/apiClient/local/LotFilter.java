@@ -0,0 +1,126 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.jetbrains.annotations.Contract;
+
+/**
+ * Purpose: the criteria that the lots shown on the map must meet.
+ * <p>
+ * A lot passes if it has at least {@link #getMinAvailableSpaces()} available spaces,
+ * its best offer costs at most {@link #getMaxPricePerHour()} per hour and
+ * one of its offers lasts at least {@link #getMinDuration()} hours.
+ * A criterion with its default value accepts every lot. The class is immutable.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ * @see LotFilterIndex
+ */
+public final class LotFilter {
+
+    /**
+     * The filter that accepts every lot.
+     */
+    public static final LotFilter NONE = new LotFilter(0, Float.POSITIVE_INFINITY, 0f);
+
+    private final int minAvailableSpaces;
+    private final float maxPricePerHour;
+    private final float minDuration;
+
+    /**
+     * Public Constructor.
+     *
+     * @param minAvailableSpaces The available spaces a lot must have at least. 0, for any.
+     * @param maxPricePerHour    The price per hour that a lot's best offer must not exceed.
+     *                           {@link Float#POSITIVE_INFINITY}, for any.
+     * @param minDuration        The hours that at least one of a lot's offers must last. 0, for any.
+     */
+    public LotFilter(int minAvailableSpaces, float maxPricePerHour, float minDuration) {
+        this.minAvailableSpaces = Math.max(0, minAvailableSpaces);
+        this.maxPricePerHour = maxPricePerHour;
+        this.minDuration = Math.max(0f, minDuration);
+    }
+
+    public int getMinAvailableSpaces() {
+        return minAvailableSpaces;
+    }
+
+    public float getMaxPricePerHour() {
+        return maxPricePerHour;
+    }
+
+    public float getMinDuration() {
+        return minDuration;
+    }
+
+    /**
+     * Check whether the filter constrains the available spaces.
+     */
+    public boolean hasAvailabilityCriterion() {
+        return minAvailableSpaces > 0;
+    }
+
+    /**
+     * Check whether the filter constrains the price per hour.
+     */
+    public boolean hasPriceCriterion() {
+        return maxPricePerHour != Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Check whether the filter constrains the duration of the offers.
+     */
+    public boolean hasDurationCriterion() {
+        return minDuration > 0f;
+    }
+
+    /**
+     * Check whether the filter accepts every lot.
+     *
+     * @return True, if none of the criteria is set. Otherwise, false.
+     */
+    public boolean isEmpty() {
+        return !hasAvailabilityCriterion() && !hasPriceCriterion() && !hasDurationCriterion();
+    }
+
+    /**
+     * Check whether a lot with the given attributes passes the filter.
+     *
+     * @param availableSpaces The lot's available spaces.
+     * @param bestRatio       The price per hour of the lot's best offer. {@link Float#NaN}, if it has no offers.
+     * @param maxDuration     The duration of the lot's longest offer. 0, if it has no offers.
+     * @return True, if it passes. Otherwise, false.
+     */
+    @Contract(pure = true)
+    public boolean accepts(int availableSpaces, float bestRatio, float maxDuration) {
+        return availableSpaces >= minAvailableSpaces
+                && (!hasPriceCriterion() || bestRatio <= maxPricePerHour) // False for NaN
+                && maxDuration >= minDuration;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof LotFilter)) return false;
+        final LotFilter other = (LotFilter) obj;
+        return minAvailableSpaces == other.minAvailableSpaces
+                && Float.compare(maxPricePerHour, other.maxPricePerHour) == 0
+                && Float.compare(minDuration, other.minDuration) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = minAvailableSpaces;
+        result = 31 * result + Float.floatToIntBits(maxPricePerHour);
+        result = 31 * result + Float.floatToIntBits(minDuration);
+        return result;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "LotFilter{minAvailableSpaces: " + minAvailableSpaces + ", maxPricePerHour: "
+                + maxPricePerHour + ", minDuration: " + minDuration + "}";
+    }
+}
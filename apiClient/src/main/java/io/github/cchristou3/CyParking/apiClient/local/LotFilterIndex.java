@@ -0,0 +1,296 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Purpose: find the lots that pass a {@link LotFilter}, without visiting each lot.
+ * <p>
+ * Each lot's attributes are precomputed once, when it is added or updated:
+ * its available spaces, the price per hour of its best offer and the duration of its longest one.
+ * <ul>
+ *     <li>The available spaces are bucketed in bitmaps, one per range of {@link #SPACE_BUCKETS}.
+ *     Only the lots of the bucket that contains the filter's bound get checked one by one.</li>
+ *     <li>The best prices and the longest durations are kept sorted. A filter's bound is
+ *     binary searched and the lots on the passing side of it are taken as a range.</li>
+ * </ul>
+ * The bitmaps of the criteria are then intersected. The sorted orders are rebuilt lazily,
+ * only if the offers of a lot changed since the last query. Updates of the availability,
+ * the most frequent ones, merely move a lot between buckets.
+ * <p>
+ * <strong>Note:</strong> the class is not thread-safe. It is meant to be confined
+ * to a single thread.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public class LotFilterIndex {
+
+    /**
+     * The lower bounds of the ranges of available spaces that get bucketed together.
+     */
+    static final int[] SPACE_BUCKETS = {0, 1, 2, 5, 10, 20, 50};
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, Integer> mHandlesById = new HashMap<>();
+    private final BitSet mLive = new BitSet();
+    private final BitSet[] mSpaceBuckets = new BitSet[SPACE_BUCKETS.length];
+    // Indexed by handle
+    private String[] mDocIds = new String[INITIAL_CAPACITY];
+    private int[] mAvailableSpaces = new int[INITIAL_CAPACITY];
+    private float[] mBestRatios = new float[INITIAL_CAPACITY];
+    private float[] mMaxDurations = new float[INITIAL_CAPACITY];
+    private int mHandleLimit = 0;
+    private int[] mFreeHandles = new int[INITIAL_CAPACITY];
+    private int mFreeCount = 0;
+    // The live handles, sorted by their best ratio and by their longest duration
+    private final SortedOrder mByRatio = new SortedOrder();
+    private final SortedOrder mByDuration = new SortedOrder();
+
+    /**
+     * Public Constructor.
+     */
+    public LotFilterIndex() {
+        for (int i = 0; i < mSpaceBuckets.length; i++) mSpaceBuckets[i] = new BitSet();
+    }
+
+    /**
+     * Adds the given lot, or updates its attributes if it already exists.
+     *
+     * @param docId           The document id of the lot.
+     * @param availableSpaces The lot's available spaces.
+     * @param bestRatio       The price per hour of the lot's best offer. {@link Float#NaN}, if it has no offers.
+     * @param maxDuration     The duration of the lot's longest offer. 0, if it has no offers.
+     */
+    public void upsert(@NonNull String docId, int availableSpaces, float bestRatio, float maxDuration) {
+        final Integer existing = mHandlesById.get(docId);
+        final int handle;
+        if (existing != null) {
+            handle = existing;
+            mSpaceBuckets[bucketOf(mAvailableSpaces[handle])].clear(handle);
+            if (Float.compare(mBestRatios[handle], bestRatio) != 0) mByRatio.invalidate();
+            if (Float.compare(mMaxDurations[handle], maxDuration) != 0) mByDuration.invalidate();
+        } else {
+            handle = newHandle(docId);
+            mByRatio.invalidate();
+            mByDuration.invalidate();
+        }
+        mAvailableSpaces[handle] = availableSpaces;
+        mBestRatios[handle] = bestRatio;
+        mMaxDurations[handle] = maxDuration;
+        mSpaceBuckets[bucketOf(availableSpaces)].set(handle);
+    }
+
+    /**
+     * Removes the lot of the given document id.
+     *
+     * @param docId The document id of the lot.
+     * @return True, if the lot existed. Otherwise, false.
+     */
+    public boolean remove(@NonNull String docId) {
+        final Integer handle = mHandlesById.remove(docId);
+        if (handle == null) return false;
+        mLive.clear(handle);
+        mSpaceBuckets[bucketOf(mAvailableSpaces[handle])].clear(handle);
+        mDocIds[handle] = null;
+        mByRatio.invalidate();
+        mByDuration.invalidate();
+        if (mFreeCount == mFreeHandles.length) mFreeHandles = Arrays.copyOf(mFreeHandles, mFreeCount * 2);
+        mFreeHandles[mFreeCount++] = handle;
+        return true;
+    }
+
+    /**
+     * Check whether the lot of the given document id passes the given filter.
+     *
+     * @param docId  The document id of a lot.
+     * @param filter The filter.
+     * @return True, if it passes. False, if it does not or there is no such lot.
+     */
+    public boolean matches(@NonNull String docId, @NonNull LotFilter filter) {
+        final Integer handle = mHandlesById.get(docId);
+        return handle != null && filter.accepts(
+                mAvailableSpaces[handle], mBestRatios[handle], mMaxDurations[handle]);
+    }
+
+    /**
+     * Evaluates the given filter over every lot.
+     *
+     * @param filter  The filter.
+     * @param visitor Receives each lot along with whether it passes the filter.
+     */
+    public void match(@NonNull LotFilter filter, @NonNull Visitor visitor) {
+        final BitSet matches = matchingHandles(filter);
+        for (int handle = mLive.nextSetBit(0); handle >= 0; handle = mLive.nextSetBit(handle + 1)) {
+            visitor.visit(mDocIds[handle], matches.get(handle));
+        }
+    }
+
+    /**
+     * Access the number of lots that pass the given filter.
+     *
+     * @param filter The filter.
+     * @return The number of lots that pass it.
+     */
+    public int count(@NonNull LotFilter filter) {
+        return matchingHandles(filter).cardinality();
+    }
+
+    /**
+     * Access the number of lots.
+     *
+     * @return The number of lots.
+     */
+    public int size() {
+        return mHandlesById.size();
+    }
+
+    /**
+     * Computes the bitmap of the handles of the lots that pass the given filter.
+     */
+    @NonNull
+    private BitSet matchingHandles(@NonNull LotFilter filter) {
+        final BitSet matches = (BitSet) mLive.clone();
+        if (filter.hasAvailabilityCriterion()) matches.and(withAvailableSpaces(filter.getMinAvailableSpaces()));
+        if (filter.hasPriceCriterion()) {
+            // The lots without offers have a NaN ratio, sorted last, thus never in the range
+            final int end = mByRatio.sorted(mBestRatios).upperBound(filter.getMaxPricePerHour());
+            matches.and(mByRatio.toBitSet(0, end));
+        }
+        if (filter.hasDurationCriterion()) {
+            final SortedOrder byDuration = mByDuration.sorted(mMaxDurations);
+            matches.and(byDuration.toBitSet(byDuration.lowerBound(filter.getMinDuration()), byDuration.size()));
+        }
+        return matches;
+    }
+
+    /**
+     * Computes the bitmap of the lots with at least the given available spaces.
+     * The buckets above the one of the bound pass as a whole.
+     */
+    @NonNull
+    private BitSet withAvailableSpaces(int min) {
+        final int boundBucket = bucketOf(min);
+        final BitSet result = new BitSet(mHandleLimit);
+        for (int i = boundBucket + 1; i < mSpaceBuckets.length; i++) result.or(mSpaceBuckets[i]);
+        final BitSet partial = mSpaceBuckets[boundBucket];
+        for (int handle = partial.nextSetBit(0); handle >= 0; handle = partial.nextSetBit(handle + 1)) {
+            if (mAvailableSpaces[handle] >= min) result.set(handle);
+        }
+        return result;
+    }
+
+    /**
+     * Access the bucket of the given available spaces.
+     */
+    static int bucketOf(int availableSpaces) {
+        int bucket = SPACE_BUCKETS.length - 1;
+        while (bucket > 0 && availableSpaces < SPACE_BUCKETS[bucket]) bucket--;
+        return bucket;
+    }
+
+    private int newHandle(@NonNull String docId) {
+        final int handle;
+        if (mFreeCount > 0) {
+            handle = mFreeHandles[--mFreeCount];
+        } else {
+            if (mHandleLimit == mDocIds.length) {
+                final int capacity = mHandleLimit * 2;
+                mDocIds = Arrays.copyOf(mDocIds, capacity);
+                mAvailableSpaces = Arrays.copyOf(mAvailableSpaces, capacity);
+                mBestRatios = Arrays.copyOf(mBestRatios, capacity);
+                mMaxDurations = Arrays.copyOf(mMaxDurations, capacity);
+            }
+            handle = mHandleLimit++;
+        }
+        mDocIds[handle] = docId;
+        mHandlesById.put(docId, handle);
+        mLive.set(handle);
+        return handle;
+    }
+
+    /**
+     * Purpose: receive the lots of {@link #match(LotFilter, Visitor)}.
+     */
+    public interface Visitor {
+        void visit(@NonNull String docId, boolean matches);
+    }
+
+    /**
+     * Purpose: the live handles, sorted in ascending order of an attribute.
+     * Each entry packs the attribute's sortable bits with the handle, so that
+     * a single primitive sort orders both.
+     */
+    private final class SortedOrder {
+        private long[] mEntries = new long[0];
+        private boolean mIsValid = false;
+
+        void invalidate() {
+            mIsValid = false;
+        }
+
+        /**
+         * Rebuilds the order from the given attribute, if it was invalidated.
+         */
+        @NonNull
+        SortedOrder sorted(@NonNull float[] attribute) {
+            if (mIsValid) return this;
+            mEntries = new long[mLive.cardinality()];
+            int i = 0;
+            for (int handle = mLive.nextSetBit(0); handle >= 0; handle = mLive.nextSetBit(handle + 1)) {
+                mEntries[i++] = ((long) sortableBitsOf(attribute[handle]) << 32) | handle;
+            }
+            Arrays.sort(mEntries);
+            mIsValid = true;
+            return this;
+        }
+
+        int size() {
+            return mEntries.length;
+        }
+
+        /**
+         * @return The index of the first entry whose attribute is greater than the given value.
+         */
+        int upperBound(float value) {
+            return search(((long) sortableBitsOf(value) << 32) | 0xFFFFFFFFL);
+        }
+
+        /**
+         * @return The index of the first entry whose attribute is at least the given value.
+         */
+        int lowerBound(float value) {
+            return search((long) sortableBitsOf(value) << 32);
+        }
+
+        private int search(long key) {
+            int low = 0, high = mEntries.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (mEntries[mid] < key) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+
+        @NonNull
+        BitSet toBitSet(int from, int to) {
+            final BitSet result = new BitSet(mHandleLimit);
+            for (int i = from; i < to; i++) result.set((int) mEntries[i]);
+            return result;
+        }
+    }
+
+    /**
+     * Maps the given non-negative value, or NaN, to bits that sort in the same order,
+     * with NaN last.
+     */
+    private static int sortableBitsOf(float value) {
+        if (Float.isNaN(value)) return Integer.MAX_VALUE;
+        return Float.floatToIntBits(Math.max(0f, value)); // Monotonic for non-negative floats
+    }
+}
@@ -0,0 +1,526 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.jetbrains.annotations.Contract;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+import io.github.cchristou3.CyParking.geo.GeoDistance;
+
+/**
+ * Purpose: search the lots that have been loaded on the device by a prefix of their name,
+ * without any network access.
+ * <p>
+ * The names are folded with {@link #fold(String)}, so that a query matches regardless of
+ * accents, case and punctuation. Each word of a folded name starts a suffix of it,
+ * kept in a sorted array as a packed (handle, offset) entry. The suffixes that start with
+ * a query are thus a contiguous range, found with two binary searches. A query matches a lot
+ * whether it starts its whole name, or any of its words.
+ * <p>
+ * The matches are ranked by the kind of match (the name's start first), then by their distance
+ * from the given origin. New and renamed lots are buffered and merged into the sorted array
+ * on {@link #flush()} or the next search, whichever comes first. The entries of removed lots are
+ * skipped and dropped in bulk. Updates that leave the name as is, the most frequent ones, only
+ * touch the lot's coordinates. The class is thread-safe.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public class LotNameIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MIN_STALE_TO_COMPACT = 64;
+
+    private final Map<String, Integer> mHandlesById = new HashMap<>();
+    // Indexed by handle. A null document id marks a free or stale handle.
+    private String[] mDocIds = new String[INITIAL_CAPACITY];
+    private String[] mNames = new String[INITIAL_CAPACITY];
+    private String[] mFoldedNames = new String[INITIAL_CAPACITY];
+    // Each handle's latitude and longitude, side by side. A NaN latitude marks a stale handle.
+    private double[] mCoordinates = new double[INITIAL_CAPACITY * 2];
+    private int mHandleLimit = 0;
+    private int[] mFreeHandles = new int[INITIAL_CAPACITY];
+    private int mFreeCount = 0;
+    // The suffixes that start a word, sorted, and those not merged yet
+    private long[] mEntries = new long[0];
+    private int mEntryCount = 0;
+    private long[] mPending = new long[INITIAL_CAPACITY];
+    private int mPendingCount = 0;
+    // The handles of the removed and renamed lots. Skipped by the searches and freed once their entries get dropped.
+    private final BitSet mStale = new BitSet();
+
+    private final Comparator<Long> mEntryComparator = (a, b) -> compareEntries(a, b);
+
+    /**
+     * Adds the name of the given lot to the index, or updates it if it already exists.
+     *
+     * @param docId The document id of the lot.
+     * @param lot   The lot's contents.
+     */
+    public void upsert(@NonNull String docId, @NonNull ParkingLot lot) {
+        if (lot.getCoordinates() == null) {
+            remove(docId);
+            return;
+        }
+        upsert(docId, lot.getLotName(), lot.getLatitude(), lot.getLongitude());
+    }
+
+    /**
+     * Adds the name of the given lot to the index, or updates it if it already exists.
+     * A lot without any letters or digits in its name gets removed, as no query could match it.
+     *
+     * @param docId     The document id of the lot.
+     * @param name      The lot's name.
+     * @param latitude  The lot's latitude.
+     * @param longitude The lot's longitude.
+     */
+    public synchronized void upsert(@NonNull String docId, @Nullable String name,
+                                    double latitude, double longitude) {
+        final Integer existing = mHandlesById.get(docId);
+        if (existing != null && name != null && name.equals(mNames[existing])) { // Skips the folding
+            mCoordinates[2 * existing] = latitude;
+            mCoordinates[2 * existing + 1] = longitude;
+            return;
+        }
+        final String folded = fold(name);
+        if (folded.isEmpty()) {
+            remove(docId);
+            return;
+        }
+        final int handle;
+        if (existing != null && folded.equals(mFoldedNames[existing])) {
+            handle = existing;
+        } else {
+            // A renamed lot takes a new handle, as the entries of its old name are sorted by it
+            if (existing != null) release(existing);
+            handle = newHandle(docId);
+            mFoldedNames[handle] = folded;
+            addEntries(handle, folded);
+        }
+        mNames[handle] = name;
+        mCoordinates[2 * handle] = latitude;
+        mCoordinates[2 * handle + 1] = longitude;
+    }
+
+    /**
+     * Removes the lot of the given document id from the index.
+     *
+     * @param docId The document id of the lot.
+     * @return True, if the lot was indexed. Otherwise, false.
+     */
+    public synchronized boolean remove(@NonNull String docId) {
+        final Integer handle = mHandlesById.get(docId);
+        if (handle == null) return false;
+        release(handle);
+        return true;
+    }
+
+    /**
+     * Removes every lot from the index.
+     */
+    public synchronized void clear() {
+        mHandlesById.clear();
+        Arrays.fill(mDocIds, 0, mHandleLimit, null);
+        Arrays.fill(mNames, 0, mHandleLimit, null);
+        Arrays.fill(mFoldedNames, 0, mHandleLimit, null);
+        mHandleLimit = 0;
+        mFreeCount = 0;
+        mEntryCount = 0;
+        mPendingCount = 0;
+        mStale.clear();
+    }
+
+    /**
+     * Access the number of indexed lots.
+     *
+     * @return The number of lots.
+     */
+    public synchronized int size() {
+        return mHandlesById.size();
+    }
+
+    /**
+     * Finds the lots whose name, or one of its words, starts with the given query.
+     * The lots whose name starts with it come first. Ties are broken by the distance
+     * from the given origin, if any, then by name.
+     *
+     * @param query     The text typed by the user.
+     * @param latitude  The latitude of the origin. {@link Double#NaN}, to rank only by name.
+     * @param longitude The longitude of the origin.
+     * @param limit     The maximum number of results.
+     * @return The matching lots, the best first.
+     */
+    @NonNull
+    public synchronized List<Match> search(@Nullable String query, double latitude, double longitude, int limit) {
+        final String prefix = fold(query);
+        if (prefix.isEmpty() || limit <= 0) return Collections.emptyList();
+        mergePending();
+        final boolean hasOrigin = !Double.isNaN(latitude) && !Double.isNaN(longitude);
+        final double cosOfLatitude = hasOrigin ? Math.cos(Math.toRadians(latitude)) : 0;
+        final Best best = new Best(limit);
+        final int end = bound(prefix, true);
+        for (int i = bound(prefix, false); i < end; i++) {
+            final int handle = handleOf(mEntries[i]);
+            final int kind = offsetOf(mEntries[i]) == 0 ? 0 : 1;
+            if (!best.admits(kind)) continue; // Ranks below the kept ones, wherever it is
+            final double lotLatitude = mCoordinates[2 * handle];
+            if (Double.isNaN(lotLatitude)) continue; // Stale
+            double proximity = 0;
+            if (hasOrigin) { // An equirectangular approximation ranks as the exact distance does, nearby
+                final double deltaLat = lotLatitude - latitude;
+                final double deltaLng = wrap(mCoordinates[2 * handle + 1] - longitude) * cosOfLatitude;
+                proximity = deltaLat * deltaLat + deltaLng * deltaLng;
+            }
+            best.offer(handle, kind, proximity);
+        }
+        final List<Match> matches = new ArrayList<>(best.size);
+        for (int i = 0; i < best.size; i++) {
+            final int handle = best.handles[i];
+            final double lotLatitude = mCoordinates[2 * handle], lotLongitude = mCoordinates[2 * handle + 1];
+            matches.add(new Match(mDocIds[handle], mNames[handle], lotLatitude, lotLongitude,
+                    hasOrigin ? GeoDistance.haversine(latitude, longitude, lotLatitude, lotLongitude)
+                            : Double.NaN,
+                    best.kinds[i] == 0));
+        }
+        return matches;
+    }
+
+    /**
+     * Folds the given text for matching: lower-cases it, strips its accents and
+     * replaces every run of characters other than letters and digits with a single space.
+     *
+     * @param text The text to fold.
+     * @return The folded text. Empty, if it has no letters or digits.
+     */
+    @NonNull
+    static String fold(@Nullable String text) {
+        if (text == null || text.isEmpty()) return "";
+        final String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        final StringBuilder folded = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            final char c = decomposed.charAt(i);
+            final int type = Character.getType(c);
+            if (type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK
+                    || type == Character.COMBINING_SPACING_MARK) continue; // An accent
+            if (!Character.isLetterOrDigit(c)) {
+                pendingSpace = folded.length() > 0;
+                continue;
+            }
+            if (pendingSpace) folded.append(' ');
+            pendingSpace = false;
+            folded.append(c);
+        }
+        // The Greek final sigma folds to the plain one, so that a prefix may end with it
+        return folded.toString().replace('ς', 'σ');
+    }
+
+    /**
+     * Adds an entry for each word of the given folded name to the pending ones.
+     */
+    private void addEntries(int handle, @NonNull String folded) {
+        for (int offset = 0; offset < folded.length(); offset++) {
+            if (offset > 0 && folded.charAt(offset - 1) != ' ') continue;
+            if (mPendingCount == mPending.length) mPending = Arrays.copyOf(mPending, mPendingCount * 2);
+            mPending[mPendingCount++] = ((long) handle << 32) | offset;
+        }
+    }
+
+    /**
+     * Merges the pending entries into the sorted array. Meant to be called after a batch
+     * of updates, off the main thread, so that the next search does not have to.
+     */
+    public synchronized void flush() {
+        mergePending();
+    }
+
+    /**
+     * Merges the pending entries into the sorted array. Each one is binary searched,
+     * so that the array is only moved in blocks. Once a fair share of the handles are stale,
+     * their entries are dropped and the handles become free.
+     */
+    private void mergePending() {
+        final int staleCount = mStale.cardinality();
+        final boolean compacts = staleCount > Math.max(MIN_STALE_TO_COMPACT, mHandlesById.size() / 8);
+        if (mPendingCount == 0 && !compacts) return;
+        if (compacts) {
+            int size = 0;
+            for (int i = 0; i < mEntryCount; i++) {
+                if (!mStale.get(handleOf(mEntries[i]))) mEntries[size++] = mEntries[i];
+            }
+            mEntryCount = size;
+        }
+        final Long[] pending = new Long[mPendingCount];
+        int pendingCount = 0;
+        for (int i = 0; i < mPendingCount; i++) {
+            if (!mStale.get(handleOf(mPending[i]))) pending[pendingCount++] = mPending[i];
+        }
+        Arrays.sort(pending, 0, pendingCount, mEntryComparator);
+        final long[] merged = mEntryCount + pendingCount <= mEntries.length ? mEntries
+                : new long[Math.max(mEntryCount + pendingCount, mEntries.length * 3 / 2)];
+        // From the end, so that the array can be merged in place
+        int from = mEntryCount, to = mEntryCount + pendingCount;
+        for (int p = pendingCount - 1; p >= 0; p--) {
+            final int position = insertionPoint(pending[p], from);
+            final int moved = from - position;
+            to -= moved;
+            System.arraycopy(mEntries, position, merged, to, moved);
+            merged[--to] = pending[p];
+            from = position;
+        }
+        if (merged != mEntries) System.arraycopy(mEntries, 0, merged, 0, from);
+        mEntries = merged;
+        mEntryCount += pendingCount;
+        mPendingCount = 0;
+        if (mPending.length > INITIAL_CAPACITY * 64) mPending = new long[INITIAL_CAPACITY];
+        if (!compacts) return;
+        for (int handle = mStale.nextSetBit(0); handle >= 0; handle = mStale.nextSetBit(handle + 1)) {
+            mFoldedNames[handle] = null;
+            if (mFreeCount == mFreeHandles.length) mFreeHandles = Arrays.copyOf(mFreeHandles, mFreeCount * 2);
+            mFreeHandles[mFreeCount++] = handle;
+        }
+        mStale.clear();
+    }
+
+    /**
+     * @return The index, among the first given number of sorted entries, that the given entry goes to.
+     */
+    private int insertionPoint(long entry, int count) {
+        int low = 0, high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (compareEntries(mEntries[mid], entry) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * @param isUpper Whether to find the end of the range, rather than its start.
+     * @return The index of the first entry whose suffix is not less than the given prefix
+     * or, if upper, greater than it and not starting with it.
+     */
+    private int bound(@NonNull String prefix, boolean isUpper) {
+        int low = 0, high = mEntryCount;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            final int comparison = compareToPrefix(mEntries[mid], prefix);
+            if (comparison < 0 || (isUpper && comparison == 0)) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Compares the suffix of the given entry with the given prefix.
+     *
+     * @return 0, if the suffix starts with the prefix. Otherwise, the order of the suffix to the prefix.
+     */
+    private int compareToPrefix(long entry, @NonNull String prefix) {
+        final String name = mFoldedNames[handleOf(entry)];
+        final int offset = offsetOf(entry);
+        final int length = Math.min(name.length() - offset, prefix.length());
+        for (int i = 0; i < length; i++) {
+            final int difference = name.charAt(offset + i) - prefix.charAt(i);
+            if (difference != 0) return difference;
+        }
+        return name.length() - offset >= prefix.length() ? 0 : -1;
+    }
+
+    /**
+     * Orders the entries by their suffix, then by their handle and offset.
+     */
+    private int compareEntries(long a, long b) {
+        final String nameA = mFoldedNames[handleOf(a)], nameB = mFoldedNames[handleOf(b)];
+        final int offsetA = offsetOf(a), offsetB = offsetOf(b);
+        final int lengthA = nameA.length() - offsetA, lengthB = nameB.length() - offsetB;
+        final int length = Math.min(lengthA, lengthB);
+        for (int i = 0; i < length; i++) {
+            final int difference = nameA.charAt(offsetA + i) - nameB.charAt(offsetB + i);
+            if (difference != 0) return difference;
+        }
+        if (lengthA != lengthB) return lengthA - lengthB;
+        return Long.compare(a, b);
+    }
+
+    /**
+     * Marks the given handle as stale. Its entries are dropped on the next merge.
+     */
+    private void release(int handle) {
+        mHandlesById.remove(mDocIds[handle]);
+        mDocIds[handle] = null;
+        mNames[handle] = null;
+        mCoordinates[2 * handle] = Double.NaN;
+        mStale.set(handle);
+        // Its folded name stays, until its entries are dropped
+    }
+
+    private int newHandle(@NonNull String docId) {
+        final int handle;
+        if (mFreeCount > 0) {
+            handle = mFreeHandles[--mFreeCount];
+        } else {
+            if (mHandleLimit == mDocIds.length) {
+                final int capacity = mHandleLimit * 2;
+                mDocIds = Arrays.copyOf(mDocIds, capacity);
+                mNames = Arrays.copyOf(mNames, capacity);
+                mFoldedNames = Arrays.copyOf(mFoldedNames, capacity);
+                mCoordinates = Arrays.copyOf(mCoordinates, capacity * 2);
+            }
+            handle = mHandleLimit++;
+        }
+        mDocIds[handle] = docId;
+        mHandlesById.put(docId, handle);
+        return handle;
+    }
+
+    private static int handleOf(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    private static int offsetOf(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Wraps the given difference of longitudes in [-180, 180].
+     */
+    private static double wrap(double deltaLng) {
+        if (deltaLng > 180) return deltaLng - 360;
+        if (deltaLng < -180) return deltaLng + 360;
+        return deltaLng;
+    }
+
+    /**
+     * Purpose: keep the best ranked handles seen so far, sorted.
+     */
+    private final class Best {
+        final int[] handles;
+        final int[] kinds;
+        final double[] proximities;
+        int size = 0;
+
+        Best(int limit) {
+            handles = new int[limit];
+            kinds = new int[limit];
+            proximities = new double[limit];
+        }
+
+        /**
+         * @return False, if a lot of the given kind of match cannot rank among the kept ones.
+         */
+        boolean admits(int kind) {
+            return size < handles.length || kind <= kinds[size - 1];
+        }
+
+        /**
+         * Keeps the given handle, if it ranks among the best. A handle matched by more than one
+         * of its words keeps its best kind of match.
+         */
+        void offer(int handle, int kind, double proximity) {
+            for (int i = 0; i < size; i++) {
+                if (handles[i] != handle) continue;
+                if (kinds[i] <= kind) return;
+                // Ranks better now. Removed, to be inserted again.
+                size--;
+                System.arraycopy(handles, i + 1, handles, i, size - i);
+                System.arraycopy(kinds, i + 1, kinds, i, size - i);
+                System.arraycopy(proximities, i + 1, proximities, i, size - i);
+                break;
+            }
+            int i = size;
+            // Find the insertion point from the end, as most candidates rank too low
+            while (i > 0 && ranksBefore(handle, kind, proximity, i - 1)) i--;
+            if (i == handles.length) return;
+            final int moved = Math.min(size, handles.length - 1) - i;
+            System.arraycopy(handles, i, handles, i + 1, moved);
+            System.arraycopy(kinds, i, kinds, i + 1, moved);
+            System.arraycopy(proximities, i, proximities, i + 1, moved);
+            handles[i] = handle;
+            kinds[i] = kind;
+            proximities[i] = proximity;
+            if (size < handles.length) size++;
+        }
+
+        private boolean ranksBefore(int handle, int kind, double proximity, int i) {
+            if (kind != kinds[i]) return kind < kinds[i];
+            if (proximity != proximities[i]) return proximity < proximities[i];
+            return mFoldedNames[handle].compareTo(mFoldedNames[handles[i]]) < 0;
+        }
+    }
+
+    /**
+     * Purpose: a lot that matched a search.
+     */
+    public static final class Match {
+        private final String docId;
+        private final String name;
+        private final double latitude;
+        private final double longitude;
+        private final double distanceInMeters;
+        private final boolean isNamePrefix;
+
+        Match(@NonNull String docId, @NonNull String name, double latitude, double longitude,
+              double distanceInMeters, boolean isNamePrefix) {
+            this.docId = docId;
+            this.name = name;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.distanceInMeters = distanceInMeters;
+            this.isNamePrefix = isNamePrefix;
+        }
+
+        @NonNull
+        public String getDocId() {
+            return docId;
+        }
+
+        @NonNull
+        public String getName() {
+            return name;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        /**
+         * Access the distance of the lot from the search's origin.
+         *
+         * @return The distance in meters. {@link Double#NaN}, if the search had no origin.
+         */
+        public double getDistanceInMeters() {
+            return distanceInMeters;
+        }
+
+        /**
+         * Check whether the query matched the start of the lot's name, rather than one of its words.
+         */
+        public boolean isNamePrefix() {
+            return isNamePrefix;
+        }
+
+        @NonNull
+        @Contract(pure = true)
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
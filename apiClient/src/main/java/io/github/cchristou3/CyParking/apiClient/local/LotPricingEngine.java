@@ -0,0 +1,465 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.SlotOffer;
+
+/**
+ * Purpose: find the cheapest way to park for a given number of hours,
+ * in each lot and across the lots that have been loaded on the device.
+ * <p>
+ * A lot's {@link SlotOffer}s may be booked any number of times each. The cheapest combination
+ * that covers a stay is found with an unbounded knapsack over durations of
+ * {@link #BUCKET_IN_HOURS} each: the cost of covering n buckets is the least, over the offers,
+ * of an offer's price plus the cost of covering the rest. Hence, {@link ParkingLot#getBestOffer()},
+ * the lowest price per hour, is not necessarily part of it.
+ * <p>
+ * The costs of an offer set are memoized in a table, which grows only as longer stays get asked.
+ * The lots with the same offers, after dropping the offers that another one beats in both price
+ * and duration, share a table. Ranking the lots keeps the cheapest ones in a bounded heap and
+ * may split the lots among the threads of an {@link Executor}. The class is thread-safe.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public class LotPricingEngine {
+
+    /**
+     * The granularity of the durations. Offers are rounded down to it and stays up to it.
+     */
+    public static final float BUCKET_IN_HOURS = 0.25f;
+
+    /**
+     * Orders the quotes from the cheapest. Ties go to the longest covered stay.
+     */
+    public static final Comparator<Quote> CHEAPEST_FIRST = (a, b) -> {
+        if (a.totalPrice != b.totalPrice) return Double.compare(a.totalPrice, b.totalPrice);
+        if (a.coveredHours != b.coveredHours) return Float.compare(b.coveredHours, a.coveredHours);
+        return a.docId.compareTo(b.docId);
+    };
+    // The order of the heaps, whose head is the quote to be dropped first
+    private static final Comparator<Quote> MOST_EXPENSIVE_FIRST = (a, b) -> CHEAPEST_FIRST.compare(b, a);
+
+    private static final int MIN_LOTS_PER_TASK = 256;
+    private static final int MAX_CACHED_TABLES = 1_024;
+
+    private final Map<String, OfferSet> mOffersById = new HashMap<>();
+    private final ConcurrentHashMap<OfferSet, Table> mTables = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the offers of the given lot, or updates them if it already exists.
+     *
+     * @param docId The document id of the lot.
+     * @param lot   The lot's contents.
+     */
+    public void upsert(@NonNull String docId, @NonNull ParkingLot lot) {
+        upsert(docId, lot.getSlotOfferList());
+    }
+
+    /**
+     * Adds the given offers of a lot, or updates them if it already exists.
+     * A lot without any valid offers gets removed, as it cannot be priced.
+     *
+     * @param docId  The document id of the lot.
+     * @param offers The lot's offers.
+     */
+    public synchronized void upsert(@NonNull String docId, @Nullable List<SlotOffer> offers) {
+        final OfferSet offerSet = OfferSet.of(offers);
+        if (offerSet == null) mOffersById.remove(docId);
+        else mOffersById.put(docId, offerSet);
+    }
+
+    /**
+     * Removes the lot of the given document id.
+     *
+     * @param docId The document id of the lot.
+     * @return True, if the lot existed. Otherwise, false.
+     */
+    public synchronized boolean remove(@NonNull String docId) {
+        return mOffersById.remove(docId) != null;
+    }
+
+    /**
+     * Removes every lot. The memoized tables are kept.
+     */
+    public synchronized void clear() {
+        mOffersById.clear();
+    }
+
+    /**
+     * Access the number of lots.
+     *
+     * @return The number of lots.
+     */
+    public synchronized int size() {
+        return mOffersById.size();
+    }
+
+    /**
+     * Finds the cheapest combination of the offers of the given lot that covers the given stay.
+     *
+     * @param docId The document id of the lot.
+     * @param hours The duration of the stay.
+     * @return The lot's quote. Null, if there is no such lot.
+     */
+    @Nullable
+    public Quote quote(@NonNull String docId, float hours) {
+        final OfferSet offerSet;
+        synchronized (this) {
+            offerSet = mOffersById.get(docId);
+        }
+        return offerSet == null ? null : tableOf(offerSet).quote(docId, bucketsOf(hours));
+    }
+
+    /**
+     * Finds the cheapest combination of the given offers that covers the given stay.
+     *
+     * @param offers The offers of a lot.
+     * @param hours  The duration of the stay.
+     * @return The combination's quote, with a null document id. Null, if there are no valid offers.
+     */
+    @Nullable
+    public static Quote quote(@Nullable List<SlotOffer> offers, float hours) {
+        final OfferSet offerSet = OfferSet.of(offers);
+        return offerSet == null ? null : new Table(offerSet).quote(null, bucketsOf(hours));
+    }
+
+    /**
+     * Ranks the lots by the total price of covering the given stay, on the calling thread.
+     *
+     * @param hours The duration of the stay.
+     * @param count The maximum number of lots to return.
+     * @return The quotes of the cheapest lots, the cheapest first.
+     */
+    @NonNull
+    public List<Quote> rankCheapest(float hours, int count) {
+        final Snapshot snapshot = snapshot();
+        return toSortedList(snapshot.cheapest(0, snapshot.size(), bucketsOf(hours), count));
+    }
+
+    /**
+     * Ranks the lots by the total price of covering the given stay, in the background.
+     * The lots are split in up to the given number of tasks, run on the given executor.
+     * The last task to finish merges the partial rankings and hands them to the callback,
+     * on its own thread.
+     *
+     * @param hours       The duration of the stay.
+     * @param count       The maximum number of lots to return.
+     * @param executor    The executor to run the tasks on.
+     * @param parallelism The maximum number of tasks.
+     * @param callback    Receives the quotes of the cheapest lots, the cheapest first.
+     */
+    public void rankCheapest(float hours, int count, @NonNull Executor executor, int parallelism,
+                             @NonNull Callback callback) {
+        final Snapshot snapshot = snapshot();
+        final int buckets = bucketsOf(hours);
+        final int tasks = Math.max(1, Math.min(parallelism, snapshot.size() / MIN_LOTS_PER_TASK));
+        final List<PriorityQueue<Quote>> partials = Collections.synchronizedList(new ArrayList<>(tasks));
+        final AtomicInteger remaining = new AtomicInteger(tasks);
+        for (int task = 0; task < tasks; task++) {
+            final int from = (int) ((long) snapshot.size() * task / tasks);
+            final int to = (int) ((long) snapshot.size() * (task + 1) / tasks);
+            executor.execute(() -> {
+                partials.add(snapshot.cheapest(from, to, buckets, count));
+                if (remaining.decrementAndGet() != 0) return;
+                // The last one to finish
+                final PriorityQueue<Quote> merged = new PriorityQueue<>(Math.max(1, count), MOST_EXPENSIVE_FIRST);
+                synchronized (partials) {
+                    for (PriorityQueue<Quote> partial : partials) {
+                        for (Quote quote : partial) offer(merged, quote, count);
+                    }
+                }
+                callback.onRanked(toSortedList(merged));
+            });
+        }
+    }
+
+    /**
+     * Copies the lots and their offers, so that they can be ranked without holding the lock.
+     */
+    @NonNull
+    private synchronized Snapshot snapshot() {
+        final String[] docIds = new String[mOffersById.size()];
+        final OfferSet[] offerSets = new OfferSet[docIds.length];
+        int i = 0;
+        for (Map.Entry<String, OfferSet> entry : mOffersById.entrySet()) {
+            docIds[i] = entry.getKey();
+            offerSets[i++] = entry.getValue();
+        }
+        return new Snapshot(docIds, offerSets);
+    }
+
+    @NonNull
+    private Table tableOf(@NonNull OfferSet offerSet) {
+        Table table = mTables.get(offerSet);
+        if (table != null) return table;
+        if (mTables.size() >= MAX_CACHED_TABLES) mTables.clear();
+        table = new Table(offerSet);
+        final Table existing = mTables.putIfAbsent(offerSet, table);
+        return existing != null ? existing : table;
+    }
+
+    /**
+     * Adds the given quote to the given heap, whose head is its most expensive quote,
+     * keeping at most the given number of them.
+     */
+    private static void offer(@NonNull PriorityQueue<Quote> heap, @NonNull Quote quote, int count) {
+        if (heap.size() < count) {
+            heap.add(quote);
+        } else if (CHEAPEST_FIRST.compare(quote, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(quote);
+        }
+    }
+
+    @NonNull
+    private static List<Quote> toSortedList(@NonNull PriorityQueue<Quote> heap) {
+        final List<Quote> quotes = new ArrayList<>(heap);
+        Collections.sort(quotes, CHEAPEST_FIRST);
+        return quotes;
+    }
+
+    /**
+     * Access the number of buckets that the given stay takes up, rounded up.
+     */
+    static int bucketsOf(float hours) {
+        if (!(hours > 0)) return 0; // Also for NaN
+        return Math.max(1, (int) Math.ceil(hours / BUCKET_IN_HOURS - 1e-4));
+    }
+
+    /**
+     * Purpose: receive the ranking of
+     * {@link #rankCheapest(float, int, Executor, int, Callback)}.
+     */
+    public interface Callback {
+        void onRanked(@NonNull List<Quote> cheapest);
+    }
+
+    /**
+     * Purpose: the lots at the time of a ranking.
+     */
+    private final class Snapshot {
+        private final String[] docIds;
+        private final OfferSet[] offerSets;
+
+        Snapshot(@NonNull String[] docIds, @NonNull OfferSet[] offerSets) {
+            this.docIds = docIds;
+            this.offerSets = offerSets;
+        }
+
+        int size() {
+            return docIds.length;
+        }
+
+        /**
+         * Ranks the lots of the given range. A lot's quote, along with its combination,
+         * is created only if its price ranks among the cheapest so far.
+         */
+        @NonNull
+        PriorityQueue<Quote> cheapest(int from, int to, int buckets, int count) {
+            final PriorityQueue<Quote> heap = new PriorityQueue<>(Math.max(1, count), MOST_EXPENSIVE_FIRST);
+            if (count <= 0) return heap;
+            for (int i = from; i < to; i++) {
+                final Table table = tableOf(offerSets[i]);
+                if (heap.size() == count && table.costOf(buckets) > heap.peek().totalPrice) continue;
+                offer(heap, table.quote(docIds[i], buckets), count);
+            }
+            return heap;
+        }
+    }
+
+    /**
+     * Purpose: the valid offers of a lot, rounded to buckets. The offers that another one
+     * beats, or matches, in both price and duration are dropped, as they are never needed.
+     * Two sets with the same buckets and prices are equal.
+     */
+    static final class OfferSet {
+        private final int[] buckets;
+        private final float[] prices;
+        private final SlotOffer[] offers;
+
+        private OfferSet(@NonNull int[] buckets, @NonNull float[] prices, @NonNull SlotOffer[] offers) {
+            this.buckets = buckets;
+            this.prices = prices;
+            this.offers = offers;
+        }
+
+        /**
+         * @return The set of the given offers. Null, if none of them is valid.
+         */
+        @Nullable
+        static OfferSet of(@Nullable List<SlotOffer> offers) {
+            if (offers == null || offers.isEmpty()) return null;
+            final List<SlotOffer> valid = new ArrayList<>(offers.size());
+            for (SlotOffer offer : offers) {
+                if (offer != null && bucketsOfOffer(offer) > 0 && offer.getPrice() >= 0) valid.add(offer);
+            }
+            // The longest first, then the cheapest. Each kept offer must be cheaper than the longer ones.
+            Collections.sort(valid, (a, b) -> {
+                final int byBuckets = Integer.compare(bucketsOfOffer(b), bucketsOfOffer(a));
+                return byBuckets != 0 ? byBuckets : Float.compare(a.getPrice(), b.getPrice());
+            });
+            final List<SlotOffer> kept = new ArrayList<>(valid.size());
+            float cheapestLonger = Float.POSITIVE_INFINITY;
+            for (SlotOffer offer : valid) {
+                if (offer.getPrice() >= cheapestLonger) continue; // Dominated
+                kept.add(offer);
+                cheapestLonger = offer.getPrice();
+            }
+            if (kept.isEmpty()) return null;
+            final int[] buckets = new int[kept.size()];
+            final float[] prices = new float[kept.size()];
+            for (int i = 0; i < kept.size(); i++) {
+                buckets[i] = bucketsOfOffer(kept.get(i));
+                prices[i] = kept.get(i).getPrice();
+            }
+            return new OfferSet(buckets, prices, kept.toArray(new SlotOffer[0]));
+        }
+
+        private static int bucketsOfOffer(@NonNull SlotOffer offer) {
+            if (!(offer.getDuration() > 0)) return 0;
+            return (int) Math.floor(offer.getDuration() / BUCKET_IN_HOURS + 1e-4);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof OfferSet)) return false;
+            final OfferSet other = (OfferSet) obj;
+            return Arrays.equals(buckets, other.buckets) && Arrays.equals(prices, other.prices);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(buckets) + Arrays.hashCode(prices);
+        }
+    }
+
+    /**
+     * Purpose: the memoized costs of covering each number of buckets with an offer set,
+     * along with the offer last added to reach each one.
+     */
+    private static final class Table {
+        private final OfferSet offerSet;
+        private double[] costs = {0};
+        private int[] choices = {-1};
+        private int computed = 0;
+
+        Table(@NonNull OfferSet offerSet) {
+            this.offerSet = offerSet;
+        }
+
+        synchronized double costOf(int buckets) {
+            extendTo(buckets);
+            return costs[buckets];
+        }
+
+        synchronized Quote quote(@Nullable String docId, int buckets) {
+            extendTo(buckets);
+            final List<SlotOffer> combination = new ArrayList<>();
+            int covered = 0;
+            for (int left = buckets; left > 0; ) {
+                final int choice = choices[left];
+                combination.add(offerSet.offers[choice]);
+                covered += offerSet.buckets[choice];
+                left = Math.max(0, left - offerSet.buckets[choice]);
+            }
+            return new Quote(docId, costs[buckets], covered * BUCKET_IN_HOURS, combination);
+        }
+
+        /**
+         * Computes the costs up to the given number of buckets, if not already.
+         */
+        private void extendTo(int buckets) {
+            if (buckets <= computed) return;
+            if (buckets >= costs.length) {
+                final int capacity = Math.max(buckets + 1, costs.length * 2);
+                costs = Arrays.copyOf(costs, capacity);
+                choices = Arrays.copyOf(choices, capacity);
+            }
+            final int[] offerBuckets = offerSet.buckets;
+            final float[] prices = offerSet.prices;
+            for (int n = computed + 1; n <= buckets; n++) {
+                double best = Double.POSITIVE_INFINITY;
+                int choice = -1;
+                for (int i = 0; i < offerBuckets.length; i++) {
+                    final double cost = costs[Math.max(0, n - offerBuckets[i])] + prices[i];
+                    if (cost < best) {
+                        best = cost;
+                        choice = i;
+                    }
+                }
+                costs[n] = best;
+                choices[n] = choice;
+            }
+            computed = buckets;
+        }
+    }
+
+    /**
+     * Purpose: the cheapest way to park in a lot for a stay.
+     */
+    public static final class Quote {
+        private final String docId;
+        private final double totalPrice;
+        private final float coveredHours;
+        private final List<SlotOffer> combination;
+
+        Quote(@Nullable String docId, double totalPrice, float coveredHours, @NonNull List<SlotOffer> combination) {
+            this.docId = docId;
+            this.totalPrice = totalPrice;
+            this.coveredHours = coveredHours;
+            this.combination = Collections.unmodifiableList(combination);
+        }
+
+        /**
+         * Access the document id of the lot.
+         *
+         * @return The document id. Null, for the quotes of {@link #quote(List, float)}.
+         */
+        @Nullable
+        public String getDocId() {
+            return docId;
+        }
+
+        public double getTotalPrice() {
+            return totalPrice;
+        }
+
+        /**
+         * Access the hours that the combination covers. At least the requested ones.
+         */
+        public float getCoveredHours() {
+            return coveredHours;
+        }
+
+        /**
+         * Access the offers to be booked. An offer appears once for each time it is booked.
+         */
+        @NonNull
+        public List<SlotOffer> getCombination() {
+            return combination;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Quote{docId: " + docId + ", totalPrice: " + totalPrice
+                    + ", coveredHours: " + coveredHours + ", combination: " + combination + "}";
+        }
+    }
+}
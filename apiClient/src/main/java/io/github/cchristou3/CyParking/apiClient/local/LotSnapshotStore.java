@@ -0,0 +1,344 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.Parking;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.SlotOffer;
+import io.github.cchristou3.CyParking.geo.GeoDistance;
+
+/**
+ * Purpose: persist the last-known parking lots on the device,
+ * so that the map can draw them as soon as it opens, before any network round trip.
+ * <p>
+ * The lots are kept in a single compact binary file, keyed by their document id,
+ * along with the time they were last seen live. The file is read once, on first access,
+ * and rewritten as a whole on {@link #flush()}. It holds at most {@link #MAX_ENTRIES} lots;
+ * the least recently saved ones are dropped first.
+ * <p>
+ * The methods perform disk I/O, thus they should not be invoked on the main thread.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public class LotSnapshotStore {
+
+    // Constants
+    private static final String FILE_NAME = "lot_snapshots.bin";
+    private static final int FORMAT_VERSION = 1;
+    public static final int MAX_ENTRIES = 512;
+
+    // Members
+    private final File mFile;
+    private Map<String, Entry> mEntries; // Lazily loaded, in saving order
+    private boolean mIsDirty = false;
+
+    /**
+     * Public Constructor.
+     * The lots are stored in the app's private files directory.
+     *
+     * @param context The context that will be used to access the files directory.
+     */
+    public LotSnapshotStore(@NonNull Context context) {
+        this(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+    }
+
+    /**
+     * Public Constructor.
+     *
+     * @param file The file to store the lots in.
+     */
+    public LotSnapshotStore(@NonNull File file) {
+        this.mFile = file;
+    }
+
+    /**
+     * Access the stored lots that are at most the given radius away from the given position.
+     *
+     * @param latitude       The latitude of the center of the area.
+     * @param longitude      The longitude of the center of the area.
+     * @param radiusInMeters The radius of the area.
+     * @return The stored lots of the area, in the order they were saved.
+     */
+    @NonNull
+    public synchronized List<Entry> getNearby(double latitude, double longitude, double radiusInMeters) {
+        final List<Entry> nearby = new ArrayList<>();
+        for (Entry entry : entries().values()) {
+            if (isWithin(entry.getLot(), latitude, longitude, radiusInMeters)) nearby.add(entry);
+        }
+        return nearby;
+    }
+
+    /**
+     * Stores the given lot, replacing its previous snapshot.
+     *
+     * @param docId         The document id of the lot.
+     * @param lot           The lot's latest contents.
+     * @param savedAtMillis The time the lot was seen live.
+     */
+    public synchronized void put(@NonNull String docId, @NonNull ParkingLot lot, long savedAtMillis) {
+        final Map<String, Entry> entries = entries();
+        entries.remove(docId); // Move it to the end
+        entries.put(docId, new Entry(docId, lot, savedAtMillis));
+        final Iterator<String> oldest = entries.keySet().iterator();
+        while (entries.size() > MAX_ENTRIES) {
+            oldest.next();
+            oldest.remove();
+        }
+        mIsDirty = true;
+    }
+
+    /**
+     * Removes the snapshot of the given lot, if there is one.
+     *
+     * @param docId The document id of the lot.
+     */
+    public synchronized void remove(@NonNull String docId) {
+        if (entries().remove(docId) != null) mIsDirty = true;
+    }
+
+    /**
+     * Replaces the stored lots of the given area with the given live ones.
+     * The stored lots of the area that are not among them no longer exist,
+     * or are no longer nearby, and get removed.
+     *
+     * @param latitude       The latitude of the center of the area.
+     * @param longitude      The longitude of the center of the area.
+     * @param radiusInMeters The radius of the area.
+     * @param liveLots       The lots of the area, keyed by their document id.
+     * @param savedAtMillis  The time the lots were retrieved.
+     */
+    public synchronized void replaceNearby(double latitude, double longitude, double radiusInMeters,
+                                           @NonNull Map<String, ParkingLot> liveLots, long savedAtMillis) {
+        retainNearby(latitude, longitude, radiusInMeters, liveLots.keySet());
+        for (Map.Entry<String, ParkingLot> lot : liveLots.entrySet()) {
+            put(lot.getKey(), lot.getValue(), savedAtMillis);
+        }
+    }
+
+    /**
+     * Removes the stored lots of the given area, except the ones of the given document ids.
+     * Used when the lots of the area are known, but not their whole contents.
+     *
+     * @param latitude       The latitude of the center of the area.
+     * @param longitude      The longitude of the center of the area.
+     * @param radiusInMeters The radius of the area.
+     * @param liveDocIds     The document ids of the lots of the area.
+     */
+    public synchronized void retainNearby(double latitude, double longitude, double radiusInMeters,
+                                          @NonNull Collection<String> liveDocIds) {
+        final Iterator<Entry> iterator = entries().values().iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (!liveDocIds.contains(entry.getDocId()) && isWithin(entry.getLot(), latitude, longitude, radiusInMeters)) {
+                iterator.remove();
+                mIsDirty = true;
+            }
+        }
+    }
+
+    /**
+     * Writes the stored lots to the file, if they changed since the last write.
+     * The file is replaced atomically; a failed write leaves the previous one intact.
+     *
+     * @return True, if the lots are persisted. Otherwise, false.
+     */
+    public synchronized boolean flush() {
+        if (!mIsDirty) return true;
+        final File temp = new File(mFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(mEntries.size());
+            for (Entry entry : mEntries.values()) writeEntry(out, entry);
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            return false;
+        }
+        if (!temp.renameTo(mFile)) return false;
+        mIsDirty = false;
+        return true;
+    }
+
+    /**
+     * Removes all the stored lots, along with their file.
+     */
+    public synchronized void clear() {
+        entries().clear();
+        mIsDirty = false;
+        //noinspection ResultOfMethodCallIgnored
+        mFile.delete();
+    }
+
+    /**
+     * Access the number of stored lots.
+     *
+     * @return The number of stored lots.
+     */
+    public synchronized int size() {
+        return entries().size();
+    }
+
+    /**
+     * Access the stored lots, reading them from the file on first access.
+     * An unreadable file is treated as empty.
+     */
+    @NonNull
+    private Map<String, Entry> entries() {
+        if (mEntries != null) return mEntries;
+        mEntries = new LinkedHashMap<>();
+        if (!mFile.exists()) return mEntries;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(mFile)))) {
+            if (in.readInt() != FORMAT_VERSION) throw new IOException("Unknown format");
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final Entry entry = readEntry(in);
+                mEntries.put(entry.getDocId(), entry);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Corrupted or outdated, start over
+            mEntries.clear();
+            //noinspection ResultOfMethodCallIgnored
+            mFile.delete();
+        }
+        return mEntries;
+    }
+
+    private static boolean isWithin(@NonNull ParkingLot lot, double latitude, double longitude, double radiusInMeters) {
+        final Parking.Coordinates coordinates = lot.getCoordinates();
+        return coordinates != null && GeoDistance.haversine(latitude, longitude,
+                coordinates.getLatitude(), coordinates.getLongitude()) <= radiusInMeters;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Encoding
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static void writeEntry(@NonNull DataOutputStream out, @NonNull Entry entry) throws IOException {
+        final ParkingLot lot = entry.getLot();
+        out.writeUTF(entry.getDocId());
+        out.writeLong(entry.getSavedAtMillis());
+        out.writeInt(lot.getParkingId());
+        out.writeBoolean(lot.getCoordinates() != null);
+        if (lot.getCoordinates() != null) {
+            out.writeDouble(lot.getCoordinates().getLatitude());
+            out.writeDouble(lot.getCoordinates().getLongitude());
+        }
+        writeString(out, lot.getLotName());
+        writeString(out, lot.getOperatorId());
+        writeString(out, lot.getOperatorMobileNumber());
+        writeString(out, lot.getLotPhotoUrl());
+        writeString(out, lot.getGeohash());
+        out.writeBoolean(lot.getAvailability() != null);
+        if (lot.getAvailability() != null) {
+            out.writeInt(lot.getAvailability().getCapacity());
+            out.writeInt(lot.getAvailability().getAvailableSpaces());
+        }
+        final List<SlotOffer> offers = lot.getSlotOfferList();
+        out.writeInt(offers == null ? -1 : offers.size());
+        if (offers != null) {
+            for (SlotOffer offer : offers) {
+                out.writeFloat(offer.getDuration());
+                out.writeFloat(offer.getPrice());
+            }
+        }
+    }
+
+    @NonNull
+    private static Entry readEntry(@NonNull DataInputStream in) throws IOException {
+        final String docId = in.readUTF();
+        final long savedAtMillis = in.readLong();
+        final ParkingLot lot = new ParkingLot();
+        lot.setParkingId(in.readInt());
+        if (in.readBoolean()) {
+            lot.setCoordinates(new Parking.Coordinates(in.readDouble(), in.readDouble()));
+        }
+        lot.setLotName(readString(in));
+        lot.setOperatorId(readString(in));
+        lot.setOperatorMobileNumber(readString(in));
+        lot.setLotPhotoUrl(readString(in));
+        lot.setGeohash(readString(in));
+        if (in.readBoolean()) {
+            lot.setAvailability(new ParkingLot.Availability(in.readInt(), in.readInt()));
+        }
+        final int offerCount = in.readInt();
+        if (offerCount >= 0) {
+            final List<SlotOffer> offers = new ArrayList<>(offerCount);
+            for (int i = 0; i < offerCount; i++) {
+                final SlotOffer offer = new SlotOffer();
+                offer.setDuration(in.readFloat());
+                offer.setPrice(in.readFloat());
+                offers.add(offer);
+            }
+            lot.setSlotOfferList(offers);
+        } else {
+            lot.setSlotOfferList(null);
+        }
+        return new Entry(docId, lot, savedAtMillis);
+    }
+
+    private static void writeString(@NonNull DataOutputStream out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    @Nullable
+    private static String readString(@NonNull DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Purpose: a stored snapshot of a parking lot.
+     */
+    public static final class Entry {
+
+        private final String docId;
+        private final ParkingLot lot;
+        private final long savedAtMillis;
+
+        private Entry(@NonNull String docId, @NonNull ParkingLot lot, long savedAtMillis) {
+            this.docId = docId;
+            this.lot = lot;
+            this.savedAtMillis = savedAtMillis;
+        }
+
+        @NonNull
+        public String getDocId() {
+            return docId;
+        }
+
+        @NonNull
+        public ParkingLot getLot() {
+            return lot;
+        }
+
+        /**
+         * Access the time the lot was last seen live.
+         *
+         * @return The time in milliseconds since the epoch.
+         */
+        public long getSavedAtMillis() {
+            return savedAtMillis;
+        }
+    }
+}
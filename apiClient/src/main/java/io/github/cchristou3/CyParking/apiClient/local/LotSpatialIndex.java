@@ -0,0 +1,487 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+import io.github.cchristou3.CyParking.geo.GeoDistance;
+
+/**
+ * Purpose: answer spatial queries over the lots that have been loaded on the device,
+ * without any network access.
+ * <p>
+ * The lots are bucketed in a uniform grid of {@link #CELL_SIZE_IN_DEGREES} cells,
+ * which is updated incrementally as lots get added, changed and removed.
+ * A query visits only the cells that overlap its area, or every occupied cell if those are fewer.
+ * The candidates are then checked with their exact distance.
+ * <p>
+ * Supports radius, bounding box and k-nearest queries, each filtered by a {@link Filter}
+ * on the lots' availability. An {@link OnChangeListener} may be notified of where the lots change,
+ * e.g. to redraw only that part of the map. The class is thread-safe.
+ *
+ * @author Charalambos Christou
+ * @version 2.0 18/10/21
+ */
+public class LotSpatialIndex {
+
+    /**
+     * The size of a cell's side in degrees. Roughly 280m of latitude.
+     */
+    public static final double CELL_SIZE_IN_DEGREES = 0.0025;
+
+    /**
+     * Accepts every lot.
+     */
+    public static final Filter ANY = (availableSpaces, capacity) -> true;
+
+    /**
+     * Accepts the lots that have at least one available space.
+     */
+    public static final Filter HAS_AVAILABLE_SPACES = (availableSpaces, capacity) -> availableSpaces > 0;
+
+    private static final int ROWS = (int) Math.round(180 / CELL_SIZE_IN_DEGREES);
+    private static final int COLUMNS = (int) Math.round(360 / CELL_SIZE_IN_DEGREES);
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, Integer> mHandlesById = new HashMap<>();
+    private final Map<Long, Cell> mCells = new HashMap<>();
+    // Indexed by handle. A null document id marks a free handle.
+    private String[] mDocIds = new String[INITIAL_CAPACITY];
+    private double[] mLatitudes = new double[INITIAL_CAPACITY];
+    private double[] mLongitudes = new double[INITIAL_CAPACITY];
+    private int[] mAvailableSpaces = new int[INITIAL_CAPACITY];
+    private int[] mCapacities = new int[INITIAL_CAPACITY];
+    private Cell[] mCellOf = new Cell[INITIAL_CAPACITY];
+    private int[] mSlotInCell = new int[INITIAL_CAPACITY];
+    private int mHandleLimit = 0;
+    private int[] mFreeHandles = new int[INITIAL_CAPACITY];
+    private int mFreeCount = 0;
+    @Nullable
+    private OnChangeListener mOnChangeListener;
+
+    /**
+     * Adds the given lot to the index, or updates it if it already exists.
+     *
+     * @param docId The document id of the lot.
+     * @param lot   The lot's contents.
+     */
+    public void upsert(@NonNull String docId, @NonNull ParkingLot lot) {
+        if (lot.getCoordinates() == null || lot.getAvailability() == null) {
+            remove(docId);
+            return;
+        }
+        upsert(docId, lot.getLatitude(), lot.getLongitude(), lot.getAvailableSpaces(), lot.getCapacity());
+    }
+
+    /**
+     * Adds the given lot to the index, or updates it if it already exists.
+     *
+     * @param docId           The document id of the lot.
+     * @param latitude        The lot's latitude.
+     * @param longitude       The lot's longitude.
+     * @param availableSpaces The lot's available spaces.
+     * @param capacity        The lot's capacity.
+     */
+    public synchronized void upsert(@NonNull String docId, double latitude, double longitude,
+                                    int availableSpaces, int capacity) {
+        final Integer existing = mHandlesById.get(docId);
+        if (existing != null) {
+            final boolean isMoved = mLatitudes[existing] != latitude || mLongitudes[existing] != longitude;
+            if (!isMoved && mAvailableSpaces[existing] == availableSpaces && mCapacities[existing] == capacity) return;
+            if (isMoved && mOnChangeListener != null) {
+                mOnChangeListener.onChanged(mLatitudes[existing], mLongitudes[existing]); // Its old position
+            }
+        }
+        if (mOnChangeListener != null) mOnChangeListener.onChanged(latitude, longitude);
+        final int handle = existing != null ? existing : newHandle(docId);
+        mLatitudes[handle] = latitude;
+        mLongitudes[handle] = longitude;
+        mAvailableSpaces[handle] = availableSpaces;
+        mCapacities[handle] = capacity;
+        final long key = keyOf(rowOf(latitude), columnOf(longitude));
+        if (existing != null && mCellOf[handle].key == key) return; // Same cell
+        if (existing != null) removeFromCell(handle);
+        Cell cell = mCells.get(key);
+        if (cell == null) mCells.put(key, cell = new Cell(key));
+        mCellOf[handle] = cell;
+        mSlotInCell[handle] = cell.add(handle);
+    }
+
+    /**
+     * Removes the lot of the given document id from the index.
+     *
+     * @param docId The document id of the lot.
+     * @return True, if the lot was indexed. Otherwise, false.
+     */
+    public synchronized boolean remove(@NonNull String docId) {
+        final Integer handle = mHandlesById.remove(docId);
+        if (handle == null) return false;
+        if (mOnChangeListener != null) mOnChangeListener.onChanged(mLatitudes[handle], mLongitudes[handle]);
+        removeFromCell(handle);
+        mDocIds[handle] = null;
+        if (mFreeCount == mFreeHandles.length) mFreeHandles = Arrays.copyOf(mFreeHandles, mFreeCount * 2);
+        mFreeHandles[mFreeCount++] = handle;
+        return true;
+    }
+
+    /**
+     * Sets the listener to be notified of the positions where the lots change.
+     * It gets invoked on the updating thread, while the index is locked.
+     *
+     * @param listener The listener. Null, to remove the current one.
+     */
+    public synchronized void setOnChangeListener(@Nullable OnChangeListener listener) {
+        mOnChangeListener = listener;
+    }
+
+    /**
+     * Removes all the lots from the index. The {@link OnChangeListener} is not notified.
+     */
+    public synchronized void clear() {
+        mHandlesById.clear();
+        mCells.clear();
+        Arrays.fill(mDocIds, null);
+        Arrays.fill(mCellOf, null);
+        mHandleLimit = 0;
+        mFreeCount = 0;
+    }
+
+    /**
+     * Access the number of indexed lots.
+     *
+     * @return The number of indexed lots.
+     */
+    public synchronized int size() {
+        return mHandlesById.size();
+    }
+
+    /**
+     * Finds the lots that are at most the given radius away from the given location.
+     *
+     * @param latitude       The latitude of the location.
+     * @param longitude      The longitude of the location.
+     * @param radiusInMeters The radius of the search circle.
+     * @param filter         The filter that the lots must pass.
+     * @return The document ids of the lots, the nearest first.
+     */
+    @NonNull
+    public synchronized List<String> findWithin(double latitude, double longitude, double radiusInMeters,
+                                                @NonNull Filter filter) {
+        // The bounding box of the search circle, in degrees
+        final double angularRadius = radiusInMeters / GeoDistance.EARTH_RADIUS;
+        final double latitudeSpan = Math.toDegrees(angularRadius);
+        final double sinLongitudeSpan = Math.sin(angularRadius) / Math.cos(Math.toRadians(latitude));
+        final double longitudeSpan = (angularRadius >= Math.PI / 2 || sinLongitudeSpan >= 1)
+                ? 180 // Contains a pole
+                : Math.toDegrees(Math.asin(sinLongitudeSpan));
+        final Nearest nearest = new Nearest(Integer.MAX_VALUE);
+        visitBox(latitude - latitudeSpan, longitude - longitudeSpan,
+                latitude + latitudeSpan, longitude + longitudeSpan, handle -> {
+                    if (!filter.accept(mAvailableSpaces[handle], mCapacities[handle])) return;
+                    final double distance = distanceTo(latitude, longitude, handle);
+                    if (distance <= radiusInMeters) nearest.offer(handle, distance);
+                });
+        return nearest.toDocIds();
+    }
+
+    /**
+     * Finds the lots that are inside the given bounding box, e.g. the map's viewport.
+     * If the west edge is greater than the east one, the box crosses the antimeridian.
+     *
+     * @param south  The latitude of the south edge.
+     * @param west   The longitude of the west edge.
+     * @param north  The latitude of the north edge.
+     * @param east   The longitude of the east edge.
+     * @param filter The filter that the lots must pass.
+     * @return The document ids of the lots, in no particular order.
+     */
+    @NonNull
+    public synchronized List<String> findInBounds(double south, double west, double north, double east,
+                                                  @NonNull Filter filter) {
+        final List<String> docIds = new ArrayList<>();
+        visitInBox(south, west, north, east, handle -> {
+            if (filter.accept(mAvailableSpaces[handle], mCapacities[handle])) docIds.add(mDocIds[handle]);
+        });
+        return docIds;
+    }
+
+    /**
+     * Visits the lots that are inside the given bounding box, along with their availability.
+     * If the west edge is greater than the east one, the box crosses the antimeridian.
+     *
+     * @param south   The latitude of the south edge.
+     * @param west    The longitude of the west edge.
+     * @param north   The latitude of the north edge.
+     * @param east    The longitude of the east edge.
+     * @param visitor Receives each lot, in no particular order, while the index is locked.
+     */
+    public synchronized void visitInBounds(double south, double west, double north, double east,
+                                           @NonNull LotVisitor visitor) {
+        visitInBox(south, west, north, east, handle -> visitor.visit(
+                mLatitudes[handle], mLongitudes[handle], mAvailableSpaces[handle], mCapacities[handle]));
+    }
+
+    /**
+     * Finds the given number of lots that are the nearest to the given location.
+     * <p>
+     * The cells are visited in rings of growing size around the location's cell,
+     * until no unvisited lot can be nearer than the furthest of the ones found.
+     *
+     * @param latitude  The latitude of the location.
+     * @param longitude The longitude of the location.
+     * @param count     The number of lots to find at most.
+     * @param filter    The filter that the lots must pass.
+     * @return The document ids of the lots, the nearest first.
+     */
+    @NonNull
+    public synchronized List<String> findNearest(double latitude, double longitude, int count,
+                                                 @NonNull Filter filter) {
+        final Nearest nearest = new Nearest(count);
+        if (count <= 0 || mHandlesById.isEmpty()) return nearest.toDocIds();
+        final HandleVisitor visitor = handle -> {
+            if (filter.accept(mAvailableSpaces[handle], mCapacities[handle])) {
+                nearest.offer(handle, distanceTo(latitude, longitude, handle));
+            }
+        };
+        final int originRow = rowOf(latitude);
+        final int originColumn = columnOf(longitude);
+        int visited = 0;
+        for (int ring = 0; visited < mHandlesById.size(); ring++) {
+            if (nearest.isFull() && minDistanceOfRing(latitude, ring) > nearest.furthestDistance()) break;
+            if (ring * 8L > mCells.size() || 2 * ring + 1 > COLUMNS) { // Cheaper to visit every occupied cell
+                nearest.clear();
+                for (Cell cell : mCells.values()) cell.visit(visitor);
+                break;
+            }
+            for (int row = originRow - ring; row <= originRow + ring; row++) {
+                if (row < 0 || row >= ROWS) continue;
+                final boolean isEdgeRow = Math.abs(row - originRow) == ring;
+                final int step = isEdgeRow ? 1 : Math.max(1, 2 * ring);
+                for (int column = originColumn - ring; column <= originColumn + ring; column += step) {
+                    final Cell cell = mCells.get(keyOf(row, Math.floorMod(column, COLUMNS)));
+                    if (cell == null) continue;
+                    cell.visit(visitor);
+                    visited += cell.size;
+                }
+            }
+        }
+        return nearest.toDocIds();
+    }
+
+    /**
+     * Computes a lower bound of the distance between the given latitude and the lots
+     * of the cells that are the given number of rings away from the latitude's cell.
+     */
+    private static double minDistanceOfRing(double latitude, int ring) {
+        if (ring <= 1) return 0;
+        final double cells = (ring - 1) * CELL_SIZE_IN_DEGREES;
+        final double alongMeridian = cells * GeoDistance.METERS_PER_DEGREE;
+        // Lots nearer in latitude lie in this band, where the parallels are the shortest at its poleward edge
+        final double bandLatitude = Math.min(90, Math.abs(latitude) + (ring + 1) * CELL_SIZE_IN_DEGREES);
+        final double cosine = Math.cos(Math.toRadians(bandLatitude));
+        final double alongParallel = 2 * GeoDistance.EARTH_RADIUS
+                * Math.asin(Math.min(1, cosine * Math.sin(Math.toRadians(Math.min(180, cells) / 2))));
+        return Math.min(alongMeridian, alongParallel);
+    }
+
+    /**
+     * Visits the lots that are inside the given box, which may cross the antimeridian.
+     */
+    private void visitInBox(double south, double west, double north, double east, HandleVisitor visitor) {
+        if (east < west) east += 360;
+        final double width = east - west;
+        visitBox(south, west, north, east, handle -> {
+            final double latitude = mLatitudes[handle];
+            if (latitude < south || latitude > north) return;
+            double offset = (mLongitudes[handle] - west) % 360;
+            if (offset < 0) offset += 360;
+            if (offset <= width) visitor.visit(handle);
+        });
+    }
+
+    /**
+     * Visits the lots of the cells that overlap the given box, or of every occupied cell
+     * if those are fewer. Some of the visited lots may be outside of the box.
+     */
+    private void visitBox(double south, double west, double north, double east, HandleVisitor visitor) {
+        final int firstRow = rowOf(Math.max(-90, south));
+        final int lastRow = rowOf(Math.min(90, north));
+        final long columns = Math.min(COLUMNS, (long) Math.floor((east - west) / CELL_SIZE_IN_DEGREES) + 2);
+        if ((lastRow - firstRow + 1) * columns > mCells.size()) {
+            for (Cell cell : mCells.values()) cell.visit(visitor);
+            return;
+        }
+        final int firstColumn = columnOf(west);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int i = 0; i < columns; i++) {
+                final Cell cell = mCells.get(keyOf(row, (firstColumn + i) % COLUMNS));
+                if (cell != null) cell.visit(visitor);
+            }
+        }
+    }
+
+    private double distanceTo(double latitude, double longitude, int handle) {
+        return GeoDistance.haversine(latitude, longitude, mLatitudes[handle], mLongitudes[handle]);
+    }
+
+    private static int rowOf(double latitude) {
+        return Math.min(ROWS - 1, Math.max(0, (int) Math.floor((latitude + 90) / CELL_SIZE_IN_DEGREES)));
+    }
+
+    private static int columnOf(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / CELL_SIZE_IN_DEGREES), COLUMNS);
+    }
+
+    private static long keyOf(int row, int column) {
+        return ((long) row << 32) | column;
+    }
+
+    private int newHandle(@NonNull String docId) {
+        final int handle;
+        if (mFreeCount > 0) {
+            handle = mFreeHandles[--mFreeCount];
+        } else {
+            if (mHandleLimit == mDocIds.length) grow(mHandleLimit * 2);
+            handle = mHandleLimit++;
+        }
+        mDocIds[handle] = docId;
+        mHandlesById.put(docId, handle);
+        return handle;
+    }
+
+    private void removeFromCell(int handle) {
+        final Cell cell = mCellOf[handle];
+        final int moved = cell.removeAt(mSlotInCell[handle]);
+        if (moved != handle) mSlotInCell[moved] = mSlotInCell[handle];
+        if (cell.size == 0) mCells.remove(cell.key);
+        mCellOf[handle] = null;
+    }
+
+    private void grow(int capacity) {
+        mDocIds = Arrays.copyOf(mDocIds, capacity);
+        mLatitudes = Arrays.copyOf(mLatitudes, capacity);
+        mLongitudes = Arrays.copyOf(mLongitudes, capacity);
+        mAvailableSpaces = Arrays.copyOf(mAvailableSpaces, capacity);
+        mCapacities = Arrays.copyOf(mCapacities, capacity);
+        mCellOf = Arrays.copyOf(mCellOf, capacity);
+        mSlotInCell = Arrays.copyOf(mSlotInCell, capacity);
+    }
+
+    /**
+     * Purpose: decide, based on its availability, whether a lot is part of a query's results.
+     */
+    public interface Filter {
+        boolean accept(int availableSpaces, int capacity);
+    }
+
+    /**
+     * Purpose: receive the lots of {@link #visitInBounds(double, double, double, double, LotVisitor)}.
+     */
+    public interface LotVisitor {
+        void visit(double latitude, double longitude, int availableSpaces, int capacity);
+    }
+
+    /**
+     * Purpose: be notified of the positions where lots get added, changed or removed.
+     * A moved lot is reported at both its old and new position.
+     */
+    public interface OnChangeListener {
+        void onChanged(double latitude, double longitude);
+    }
+
+    private interface HandleVisitor {
+        void visit(int handle);
+    }
+
+    /**
+     * Purpose: hold the handles of the lots that lie in a cell of the grid.
+     */
+    private static final class Cell {
+        final long key;
+        int[] handles = new int[4];
+        int size = 0;
+
+        Cell(long key) {
+            this.key = key;
+        }
+
+        /**
+         * @return The slot of the added handle.
+         */
+        int add(int handle) {
+            if (size == handles.length) handles = Arrays.copyOf(handles, size * 2);
+            handles[size] = handle;
+            return size++;
+        }
+
+        /**
+         * Removes the handle of the given slot, by moving the last handle into it.
+         *
+         * @return The handle that now occupies the slot, or the removed one if it was the last.
+         */
+        int removeAt(int slot) {
+            final int removed = handles[slot];
+            handles[slot] = handles[--size];
+            return slot == size ? removed : handles[slot];
+        }
+
+        void visit(HandleVisitor visitor) {
+            for (int i = 0; i < size; i++) visitor.visit(handles[i]);
+        }
+    }
+
+    /**
+     * Purpose: keep the nearest of the offered lots, up to a maximum number, ordered by distance.
+     */
+    private final class Nearest {
+        private final int mMax;
+        private int[] mHandles = new int[8];
+        private double[] mDistances = new double[8];
+        private int mSize = 0;
+
+        Nearest(int max) {
+            this.mMax = max;
+        }
+
+        void offer(int handle, double distance) {
+            if (isFull() && distance >= furthestDistance()) return;
+            if (mSize == mHandles.length) {
+                mHandles = Arrays.copyOf(mHandles, mSize * 2);
+                mDistances = Arrays.copyOf(mDistances, mSize * 2);
+            }
+            // Insertion into the sorted arrays, dropping the furthest if full
+            int i = isFull() ? mSize - 1 : mSize++;
+            while (i > 0 && mDistances[i - 1] > distance) {
+                mHandles[i] = mHandles[i - 1];
+                mDistances[i] = mDistances[i - 1];
+                i--;
+            }
+            mHandles[i] = handle;
+            mDistances[i] = distance;
+        }
+
+        boolean isFull() {
+            return mSize >= mMax;
+        }
+
+        double furthestDistance() {
+            return mDistances[mSize - 1];
+        }
+
+        void clear() {
+            mSize = 0;
+        }
+
+        List<String> toDocIds() {
+            final List<String> docIds = new ArrayList<>(mSize);
+            for (int i = 0; i < mSize; i++) docIds.add(mDocIds[mHandles[i]]);
+            return docIds;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.PublicParking;
+import io.github.cchristou3.CyParking.apiClient.utils.GeoHash;
+
+/**
+ * Purpose: keep the occupancy of the loaded street segments ({@link PublicParking})
+ * in memory, a bit per space.
+ * <p>
+ * Each segment keeps a {@link BitSet} of its occupied spaces, along with its number of free ones.
+ * When a segment's document changes, its new bitset is XORed with the current one, and only
+ * the spaces that changed are applied, reported as a {@link Diff}. The free spaces of
+ * the segment and of all segments are kept up to date via the popcount of the diff.
+ * Thus, tens of thousands of spaces take a few kilobytes, and an update costs a few words
+ * per segment regardless of its number of spaces.
+ * <p>
+ * The class is thread-safe.
+ *
+ * @author Charalambos Christou
+ * @version 2.0 18/10/21
+ */
+public class StreetOccupancyStore {
+
+    // The loaded segments. Look up: document id -> segment
+    private final Map<String, Segment> mSegments = new HashMap<>();
+    private int mTotalSpaces = 0;
+    private int mTotalFreeSpaces = 0;
+
+    /**
+     * Applies the given segment's document.
+     *
+     * @param docId   The document id of the segment.
+     * @param segment The segment's contents.
+     * @return The spaces that changed. Null, if nothing changed.
+     * @throws IllegalArgumentException if the segment's occupancy is not valid base64.
+     */
+    @Nullable
+    public Diff apply(@NonNull String docId, @NonNull PublicParking segment) throws IllegalArgumentException {
+        return apply(docId, segment.getCoordinates().getLatitude(), segment.getCoordinates().getLongitude(),
+                segment.getSpaceCount(), segment.getOccupiedSpaces());
+    }
+
+    /**
+     * Applies the given occupancy to the segment with the given document id.
+     * A segment that is not loaded yet gets added.
+     *
+     * @param docId      The document id of the segment.
+     * @param latitude   The latitude of the segment.
+     * @param longitude  The longitude of the segment.
+     * @param spaceCount The number of the segment's spaces.
+     * @param occupied   The segment's occupied spaces. Not retained.
+     * @return The spaces that changed. Null, if nothing changed.
+     */
+    @Nullable
+    public synchronized Diff apply(@NonNull String docId, double latitude, double longitude,
+                                   int spaceCount, @NonNull BitSet occupied) {
+        final int count = Math.max(0, spaceCount);
+        Segment segment = mSegments.get(docId);
+        final boolean isNew = segment == null;
+        if (isNew) {
+            segment = new Segment(latitude, longitude);
+            mSegments.put(docId, segment);
+        }
+        final BitSet next = occupied.get(0, count); // Without the bits past the last space
+        // The spaces whose state changed
+        final BitSet changed = (BitSet) segment.occupied.clone();
+        changed.xor(next);
+        final boolean didMove = segment.latitude != latitude || segment.longitude != longitude;
+        if (!isNew && changed.isEmpty() && count == segment.spaceCount && !didMove) return null;
+
+        final BitSet taken = (BitSet) changed.clone();
+        taken.and(next);
+        final BitSet freed = (BitSet) changed.clone();
+        freed.andNot(next);
+        segment.occupied.xor(changed); // Only the words that changed
+        mTotalSpaces += count - segment.spaceCount;
+        final int previousFreeSpaces = segment.freeSpaces;
+        if (count == segment.spaceCount) {
+            segment.freeSpaces += freed.cardinality() - taken.cardinality();
+        } else {
+            segment.spaceCount = count;
+            segment.freeSpaces = count - segment.occupied.cardinality();
+            // The spaces that no longer exist are dropped, rather than freed
+            freed.clear(count, Math.max(count, freed.length()));
+        }
+        mTotalFreeSpaces += segment.freeSpaces - previousFreeSpaces;
+        segment.latitude = latitude;
+        segment.longitude = longitude;
+        return new Diff(docId, segment, freed, taken, isNew);
+    }
+
+    /**
+     * Removes the segment with the given document id.
+     *
+     * @param docId The document id of the segment.
+     * @return True, if the segment was loaded.
+     */
+    public synchronized boolean remove(@NonNull String docId) {
+        final Segment segment = mSegments.remove(docId);
+        if (segment == null) return false;
+        mTotalSpaces -= segment.spaceCount;
+        mTotalFreeSpaces -= segment.freeSpaces;
+        return true;
+    }
+
+    /**
+     * Removes the segments that are outside all the given geohash cells,
+     * e.g. the ones of the area that is no longer listened to.
+     *
+     * @param cells The geohashes of the cells to keep, all of the same precision.
+     * @return The document ids of the removed segments.
+     */
+    @NonNull
+    public synchronized Set<String> retainCells(@NonNull String[] cells) {
+        final Set<String> removed = new HashSet<>();
+        final int precision = cells.length == 0 ? 0 : cells[0].length();
+        final Iterator<Map.Entry<String, Segment>> iterator = mSegments.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Segment> entry = iterator.next();
+            final Segment segment = entry.getValue();
+            final String cell = precision == 0 ? null
+                    : GeoHash.encode(segment.latitude, segment.longitude, precision);
+            boolean isKept = false;
+            for (String kept : cells) {
+                if (kept.equals(cell)) {
+                    isKept = true;
+                    break;
+                }
+            }
+            if (isKept) continue;
+            iterator.remove();
+            mTotalSpaces -= segment.spaceCount;
+            mTotalFreeSpaces -= segment.freeSpaces;
+            removed.add(entry.getKey());
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all segments.
+     */
+    public synchronized void clear() {
+        mSegments.clear();
+        mTotalSpaces = 0;
+        mTotalFreeSpaces = 0;
+    }
+
+    /**
+     * Access the number of loaded segments.
+     *
+     * @return The number of segments.
+     */
+    public synchronized int size() {
+        return mSegments.size();
+    }
+
+    /**
+     * Access the number of spaces of all the loaded segments.
+     *
+     * @return The number of spaces.
+     */
+    public synchronized int getTotalSpaces() {
+        return mTotalSpaces;
+    }
+
+    /**
+     * Access the number of free spaces of all the loaded segments.
+     *
+     * @return The number of free spaces.
+     */
+    public synchronized int getTotalFreeSpaces() {
+        return mTotalFreeSpaces;
+    }
+
+    /**
+     * Access the number of free spaces of the segment with the given document id.
+     *
+     * @param docId The document id of the segment.
+     * @return The number of free spaces. -1, if the segment is not loaded.
+     */
+    public synchronized int getFreeSpaces(@NonNull String docId) {
+        final Segment segment = mSegments.get(docId);
+        return segment == null ? -1 : segment.freeSpaces;
+    }
+
+    /**
+     * Checks whether the given space of the segment with the given document id is occupied.
+     *
+     * @param docId The document id of the segment.
+     * @param space The index of the space in the segment.
+     * @return True, if the segment is loaded and the space is occupied.
+     */
+    public synchronized boolean isOccupied(@NonNull String docId, int space) {
+        final Segment segment = mSegments.get(docId);
+        return segment != null && space >= 0 && segment.occupied.get(space);
+    }
+
+    /**
+     * Visits every loaded segment, e.g. to draw all of them.
+     *
+     * @param visitor Receives each segment.
+     */
+    public synchronized void visitSegments(@NonNull SegmentVisitor visitor) {
+        for (Map.Entry<String, Segment> entry : mSegments.entrySet()) {
+            final Segment segment = entry.getValue();
+            visitor.visit(entry.getKey(), segment.latitude, segment.longitude,
+                    segment.spaceCount, segment.freeSpaces);
+        }
+    }
+
+    /**
+     * Purpose: receive the segments of {@link #visitSegments(SegmentVisitor)}.
+     */
+    public interface SegmentVisitor {
+        void visit(@NonNull String docId, double latitude, double longitude, int spaceCount, int freeSpaces);
+    }
+
+    /**
+     * Purpose: the state of a single segment.
+     */
+    private static class Segment {
+        final BitSet occupied = new BitSet();
+        double latitude;
+        double longitude;
+        int spaceCount = 0;
+        int freeSpaces = 0;
+
+        Segment(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+    }
+
+    /**
+     * Purpose: the spaces of a segment that changed by an {@link #apply(String, PublicParking)}.
+     */
+    public static class Diff {
+        private final String mDocId;
+        private final double mLatitude;
+        private final double mLongitude;
+        private final int mSpaceCount;
+        private final int mFreeSpaces;
+        private final BitSet mFreed;
+        private final BitSet mTaken;
+        private final boolean mIsNew;
+
+        private Diff(@NonNull String docId, @NonNull Segment segment,
+                     @NonNull BitSet freed, @NonNull BitSet taken, boolean isNew) {
+            this.mDocId = docId;
+            this.mLatitude = segment.latitude;
+            this.mLongitude = segment.longitude;
+            this.mSpaceCount = segment.spaceCount;
+            this.mFreeSpaces = segment.freeSpaces;
+            this.mFreed = freed;
+            this.mTaken = taken;
+            this.mIsNew = isNew;
+        }
+
+        @NonNull
+        public String getDocId() {
+            return mDocId;
+        }
+
+        public double getLatitude() {
+            return mLatitude;
+        }
+
+        public double getLongitude() {
+            return mLongitude;
+        }
+
+        public int getSpaceCount() {
+            return mSpaceCount;
+        }
+
+        /**
+         * Access the free spaces of the segment, after the change.
+         *
+         * @return The number of free spaces.
+         */
+        public int getFreeSpaces() {
+            return mFreeSpaces;
+        }
+
+        /**
+         * Access the spaces that got free.
+         *
+         * @return The bitset of the spaces that got free.
+         */
+        @NonNull
+        public BitSet getFreed() {
+            return mFreed;
+        }
+
+        /**
+         * Access the spaces that got occupied.
+         *
+         * @return The bitset of the spaces that got occupied.
+         */
+        @NonNull
+        public BitSet getTaken() {
+            return mTaken;
+        }
+
+        /**
+         * Checks whether the segment was not loaded before the change.
+         *
+         * @return True, if the segment got added.
+         */
+        public boolean isNew() {
+            return mIsNew;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.jetbrains.annotations.Contract;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static io.github.cchristou3.CyParking.apiClient.utils.Utils.getDistanceApart;
+
+/**
+ * Purpose: keep in memory the results of area lookups, per tile of a fixed-size grid.
+ * <p>
+ * Each location is quantized to the tile that contains it. A result that was looked up
+ * for the center of a tile, with the search radius widened by {@link #halfDiagonalInMeters(double)},
+ * covers the search area of every location inside the tile. Thus, it can be served for all of them.
+ * <p>
+ * Results expire after a fixed time. When the cache is full, the least recently used tile is dropped.
+ *
+ * @param <V> The type of the results.
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public class TileCache<V> {
+
+    /**
+     * The size of a tile's side in degrees. Roughly 220m of latitude.
+     */
+    public static final double TILE_SIZE_IN_DEGREES = 0.002;
+
+    // Members
+    private final Map<String, Entry<V>> mEntries;
+    private final long mTtlMillis;
+    private final Clock mClock;
+
+    /**
+     * Public Constructor.
+     *
+     * @param maxTiles  The number of tiles to keep at most.
+     * @param ttlMillis The time after which a tile's result expires.
+     * @param clock     The source of the current time.
+     */
+    public TileCache(int maxTiles, long ttlMillis, @NonNull Clock clock) {
+        this.mTtlMillis = ttlMillis;
+        this.mClock = clock;
+        this.mEntries = new LinkedHashMap<String, Entry<V>>(maxTiles, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                return size() > maxTiles;
+            }
+        };
+    }
+
+    /**
+     * Computes the key of the tile that contains the given location, for the given search radius.
+     *
+     * @param latitude       The latitude of the location.
+     * @param longitude      The longitude of the location.
+     * @param radiusInMeters The radius of the search area.
+     * @return The key of the tile.
+     */
+    @NonNull
+    public static String keyOf(double latitude, double longitude, double radiusInMeters) {
+        return String.format(Locale.US, "%d:%d@%d",
+                tileIndexOf(latitude), tileIndexOf(longitude), Math.round(radiusInMeters));
+    }
+
+    /**
+     * Computes the center of the tile that contains the given location.
+     *
+     * @param latitude  The latitude of the location.
+     * @param longitude The longitude of the location.
+     * @return The center of the tile.
+     */
+    @NonNull
+    @Contract("_, _ -> new")
+    public static LatLng centerOf(double latitude, double longitude) {
+        return new LatLng((tileIndexOf(latitude) + 0.5) * TILE_SIZE_IN_DEGREES,
+                (tileIndexOf(longitude) + 0.5) * TILE_SIZE_IN_DEGREES);
+    }
+
+    /**
+     * Computes the distance between the center of the tile that contains the given latitude
+     * and its corners. A search radius widened by it covers the whole tile.
+     *
+     * @param latitude The latitude of a location.
+     * @return The tile's half diagonal in meters.
+     */
+    public static double halfDiagonalInMeters(double latitude) {
+        final LatLng center = centerOf(latitude, 0);
+        final double half = TILE_SIZE_IN_DEGREES / 2;
+        // The tile is widest at the edge that is closer to the equator
+        final double edgeLatitude = Math.abs(center.latitude - half) < Math.abs(center.latitude + half)
+                ? center.latitude - half : center.latitude + half;
+        return getDistanceApart(center, new LatLng(edgeLatitude, center.longitude + half));
+    }
+
+    private static long tileIndexOf(double degrees) {
+        return (long) Math.floor(degrees / TILE_SIZE_IN_DEGREES);
+    }
+
+    /**
+     * Access the result of the given tile.
+     *
+     * @param key The key of the tile.
+     * @return The tile's result. Null, if there is none or it has expired.
+     * @see #keyOf(double, double, double)
+     */
+    @Nullable
+    public synchronized V get(@NonNull String key) {
+        final Entry<V> entry = mEntries.get(key);
+        if (entry == null) return null;
+        if (mClock.millis() - entry.storedAtMillis > mTtlMillis) {
+            mEntries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Stores the result of the given tile, replacing its previous one.
+     *
+     * @param key   The key of the tile.
+     * @param value The tile's result.
+     */
+    public synchronized void put(@NonNull String key, @NonNull V value) {
+        mEntries.put(key, new Entry<>(value, mClock.millis()));
+    }
+
+    /**
+     * Drops the results of all the tiles.
+     */
+    public synchronized void clear() {
+        mEntries.clear();
+    }
+
+    /**
+     * Access the number of the stored tiles, including the expired ones.
+     *
+     * @return The number of the stored tiles.
+     */
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * Purpose: provide the current time, in milliseconds.
+     */
+    public interface Clock {
+        long millis();
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long storedAtMillis;
+
+        private Entry(V value, long storedAtMillis) {
+            this.value = value;
+            this.storedAtMillis = storedAtMillis;
+        }
+    }
+}
@@ -25,7 +25,9 @@ import java.util.regex.Pattern;
 import io.github.cchristou3.CyParking.apiClient.R;
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.Parking;
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.booking.Booking;
+import io.github.cchristou3.CyParking.apiClient.model.mapper.ParkingLotMapper;
 import io.github.cchristou3.CyParking.apiClient.remote.repository.BookingRepository;
+import io.github.cchristou3.CyParking.apiClient.utils.GeoHash;
 import io.github.cchristou3.CyParking.utils.ShaUtility;
 
 /**
@@ -74,6 +76,12 @@ public class ParkingLot extends Parking implements Parcelable {
     private String lotPhotoUrl;
     @SerializedName("slotOfferList")
     private List<SlotOffer> slotOfferList;
+    @SerializedName("geohash")
+    private String geohash;
+    // The result of getBestOffer, along with the offer list and size it was computed for
+    private transient SlotOffer bestOffer;
+    private transient List<SlotOffer> bestOfferSource;
+    private transient int bestOfferSourceSize;
 
     /* no-argument constructor to be used for deserialization */
     public ParkingLot() {
@@ -159,6 +167,7 @@ public class ParkingLot extends Parking implements Parcelable {
         operatorMobileNumber = in.readString();
         availability = Availability.CREATOR.createFromParcel(in);
         lotPhotoUrl = in.readString();
+        geohash = in.readString();
 
         slotOfferList = new ArrayList<>();
         int size = in.readInt();
@@ -212,12 +221,14 @@ public class ParkingLot extends Parking implements Parcelable {
      * Converts the {@link QueryDocumentSnapshot} of the given
      * {@link DocumentChange} to a {@link ParkingLot} object.
      *
+     * The document is mapped without reflection, via the {@link ParkingLotMapper}.
+     *
      * @param dc The {@link DocumentChange} to get the object from.
      * @return The {@link QueryDocumentSnapshot}'s corresponding {@link ParkingLot} object.
      */
     @NotNull
     public static ParkingLot toParkingLot(@NotNull DocumentChange dc) {
-        return dc.getDocument().toObject(ParkingLot.class);
+        return ParkingLotMapper.toParkingLot(dc.getDocument().getData());
     }
 
     public String getLotPhotoUrl() {
@@ -246,6 +257,7 @@ public class ParkingLot extends Parking implements Parcelable {
         availability.writeToParcel(dest, flags);
 
         dest.writeString(lotPhotoUrl);
+        dest.writeString(geohash);
 
         int size = slotOfferList.size();
         dest.writeInt(size);
@@ -276,6 +288,7 @@ public class ParkingLot extends Parking implements Parcelable {
                 + "operatorMobileNumber: " + operatorMobileNumber + ", "
                 + "availability: " + availability + ", "
                 + "lotPhotoUri: " + lotPhotoUrl + ", "
+                + "geohash: " + geohash + ", "
                 + "slotOfferList: " + slotOfferList;
 
     }
@@ -401,6 +414,7 @@ public class ParkingLot extends Parking implements Parcelable {
     /**
      * Looks for the most beneficial {@link SlotOffer} of the
      * {@link #slotOfferList}.
+     * The result is kept, until the list is replaced or its size changes.
      *
      * @return The {@link SlotOffer} instance with the smallest ratio
      * of {@link #slotOfferList}.
@@ -410,17 +424,20 @@ public class ParkingLot extends Parking implements Parcelable {
         if (!areSlotOffersValid(slotOfferList)) {
             throw new EmptyStackException();
         }
-        if (slotOfferList.size() == 1) {
-            return slotOfferList.get(0);
+        if (bestOffer != null && bestOfferSource == slotOfferList && bestOfferSourceSize == slotOfferList.size()) {
+            return bestOffer;
         }
 
-        SlotOffer bestOffer = slotOfferList.get(0);
+        SlotOffer best = slotOfferList.get(0);
         for (int i = 1; i < slotOfferList.size(); i++) {
-            if (slotOfferList.get(i).smallerOf(bestOffer)) {
-                bestOffer = slotOfferList.get(i);
+            if (slotOfferList.get(i).smallerOf(best)) {
+                best = slotOfferList.get(i);
             }
         }
-        return bestOffer;
+        bestOffer = best;
+        bestOfferSource = slotOfferList;
+        bestOfferSourceSize = slotOfferList.size();
+        return best;
     }
 
     /**
@@ -518,6 +535,40 @@ public class ParkingLot extends Parking implements Parcelable {
         this.slotOfferList = slotOfferList;
     }
 
+    /**
+     * Get the geohash of this parking lot.
+     *
+     * @return The {@link ParkingLot#geohash}.
+     * @see GeoHash
+     */
+    public String getGeohash() {
+        return geohash;
+    }
+
+    /**
+     * Assign the {@link ParkingLot#geohash} with the specified
+     * argument.
+     *
+     * @param geohash The geohash of the lot's coordinates.
+     */
+    public void setGeohash(String geohash) {
+        this.geohash = geohash;
+    }
+
+    /**
+     * Computes the {@link ParkingLot#geohash} based on the lot's {@link #coordinates}.
+     * Must be invoked before the lot gets stored in the database, so that the lot
+     * can be found by the nearby prefix-range queries.
+     *
+     * @return The calling object.
+     * @see GeoHash#STORED_PRECISION
+     */
+    @NotNull
+    public ParkingLot assignGeohash() {
+        this.geohash = GeoHash.encode(getLatitude(), getLongitude(), GeoHash.STORED_PRECISION);
+        return this;
+    }
+
     /**
      * Indicates whether some other object is "equal to" this one.
      * If they have the same {@link #parkingId} and {@link #coordinates},
@@ -0,0 +1,118 @@
+package io.github.cchristou3.CyParking.apiClient.model.data.parking.lot;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.jetbrains.annotations.Contract;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.Parking;
+
+/**
+ * Purpose: the information of a nearby parking lot that is needed to draw it on the map,
+ * as returned by the nearby parking lots cloud function.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ * @see io.github.cchristou3.CyParking.apiClient.remote.repository.ParkingMapRepository#fetchNearbyParkingLotSummaries(double, double)
+ */
+public final class ParkingLotSummary {
+
+    private final String docId;
+    private final String lotName;
+    private final Parking.Coordinates coordinates;
+    private final int capacity;
+    private final int availableSpaces;
+    private final SlotOffer bestOffer;
+    private final double distanceInMeters;
+
+    /**
+     * Public Constructor.
+     *
+     * @param docId            The document id of the lot.
+     * @param lotName          The lot's name.
+     * @param coordinates      The position of the lot.
+     * @param capacity         The lot's capacity.
+     * @param availableSpaces  The lot's available spaces.
+     * @param bestOffer        The lot's best offer. Null, if it has no offers.
+     * @param distanceInMeters The lot's distance from the position it was looked up for.
+     */
+    public ParkingLotSummary(@NonNull String docId, @Nullable String lotName,
+                             @NonNull Parking.Coordinates coordinates, int capacity, int availableSpaces,
+                             @Nullable SlotOffer bestOffer, double distanceInMeters) {
+        this.docId = docId;
+        this.lotName = lotName;
+        this.coordinates = coordinates;
+        this.capacity = capacity;
+        this.availableSpaces = availableSpaces;
+        this.bestOffer = bestOffer;
+        this.distanceInMeters = distanceInMeters;
+    }
+
+    @NonNull
+    public String getDocId() {
+        return docId;
+    }
+
+    @Nullable
+    public String getLotName() {
+        return lotName;
+    }
+
+    @NonNull
+    public Parking.Coordinates getCoordinates() {
+        return coordinates;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getAvailableSpaces() {
+        return availableSpaces;
+    }
+
+    @Nullable
+    public SlotOffer getBestOffer() {
+        return bestOffer;
+    }
+
+    public double getDistanceInMeters() {
+        return distanceInMeters;
+    }
+
+    /**
+     * Creates a copy of the summary, with the given distance.
+     *
+     * @param distanceInMeters The lot's distance from another position.
+     * @return The copy.
+     */
+    @NonNull
+    @Contract("_ -> new")
+    public ParkingLotSummary withDistance(double distanceInMeters) {
+        return new ParkingLotSummary(docId, lotName, coordinates, capacity, availableSpaces,
+                bestOffer, distanceInMeters);
+    }
+
+    /**
+     * Creates a {@link ParkingLot} that contains only the information of the summary.
+     * Its slot offers consist of only the best offer.
+     * To be replaced by the lot's document, once it is received.
+     *
+     * @return A partial {@link ParkingLot}.
+     */
+    @NonNull
+    @Contract(" -> new")
+    public ParkingLot toParkingLot() {
+        final ParkingLot lot = new ParkingLot();
+        lot.setCoordinates(coordinates);
+        lot.setLotName(lotName);
+        lot.setAvailability(new ParkingLot.Availability(capacity, availableSpaces));
+        final List<SlotOffer> offers = new ArrayList<>(1);
+        if (bestOffer != null) offers.add(bestOffer);
+        lot.setSlotOfferList(offers);
+        return lot;
+    }
+}
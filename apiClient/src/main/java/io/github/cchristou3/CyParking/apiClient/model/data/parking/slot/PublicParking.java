@@ -1,37 +1,174 @@
 package io.github.cchristou3.CyParking.apiClient.model.data.parking.slot;
 
+import androidx.annotation.NonNull;
+
+import com.google.firebase.firestore.Exclude;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.BitSet;
+
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.Parking;
+import io.github.cchristou3.CyParking.apiClient.utils.BitSetCodec;
+import io.github.cchristou3.CyParking.apiClient.utils.GeoHash;
+import io.github.cchristou3.CyParking.utils.ShaUtility;
 
 /**
  * Purpose:<p> POJO to be used to transfer and receive data
  * via activities / fragments and HTTP requests.
  * This is a Subclass of Parking.</p>
+ * <p>
+ * A public parking is a street segment with {@link #spaceCount} spaces.
+ * Rather than a document per space, a segment's document stores the occupancy
+ * of all its spaces in {@link #occupancy}: a bitset, encoded in base64 via
+ * the {@link BitSetCodec}, whose bit i is set if the space i is occupied.
+ * Thus, a single document covers hundreds of spaces.
+ *
+ * <p><strong>Note:</strong></p>
+ * A PublicParking object stored inside the FirebaseFirestore database
+ * is uniquely identified by its {@link #coordinates}, its {@link #parkingId}
+ * and its {@link #streetName}.
  *
  * @author Charalambos Christou
- * @version 3.0 20/01/21
+ * @version 4.0 18/10/21
  */
 public class PublicParking extends Parking {
 
-    // TODO: fill out with attributes of a public parking
+    @SerializedName("streetName")
+    private String streetName;
+    @SerializedName("spaceCount")
+    private int spaceCount;
+    @SerializedName("occupancy")
+    private String occupancy;
+    @SerializedName("geohash")
+    private String geohash;
+
+    /* no-argument constructor to be used for deserialization */
+    public PublicParking() {
+        this.coordinates = new Coordinates();
+    }
 
     /**
      * Public Constructor.
      * Initialize all the attributes of the class with the given arguments.
+     * All its spaces are free.
      *
-     * @param coordinates The lot's to be booked coordinates
-     * @param parkingID   The lot's id.
+     * @param coordinates The segment's coordinates.
+     * @param parkingID   The segment's id.
+     * @param streetName  The name of the segment's street.
+     * @param spaceCount  The number of the segment's spaces.
+     * @throws IllegalArgumentException if the number of spaces is negative.
      */
-    public PublicParking(Coordinates coordinates, int parkingID) {
+    public PublicParking(@NonNull Coordinates coordinates, int parkingID, String streetName, int spaceCount)
+            throws IllegalArgumentException {
         super(coordinates, parkingID);
+        if (spaceCount < 0) throw new IllegalArgumentException("The number of spaces cannot be negative.");
+        this.streetName = streetName;
+        this.spaceCount = spaceCount;
+        this.occupancy = "";
+        this.geohash = GeoHash.encode(coordinates.getLatitude(), coordinates.getLongitude(),
+                GeoHash.STORED_PRECISION);
+    }
+
+    public String getStreetName() {
+        return streetName;
+    }
+
+    public void setStreetName(String streetName) {
+        this.streetName = streetName;
+    }
+
+    public int getSpaceCount() {
+        return spaceCount;
+    }
+
+    public void setSpaceCount(int spaceCount) {
+        this.spaceCount = spaceCount;
+    }
+
+    /**
+     * Access the {@link #occupancy} of the segment.
+     *
+     * @return The base64 encoded bitset of the occupied spaces.
+     */
+    public String getOccupancy() {
+        return occupancy;
+    }
+
+    public void setOccupancy(String occupancy) {
+        this.occupancy = occupancy;
+    }
+
+    public String getGeohash() {
+        return geohash;
     }
 
+    public void setGeohash(String geohash) {
+        this.geohash = geohash;
+    }
+
+    /**
+     * Decodes the {@link #occupancy} of the segment.
+     * The bits past the {@link #spaceCount} are dropped.
+     *
+     * @return The bitset of the occupied spaces.
+     * @throws IllegalArgumentException if the occupancy is not valid base64.
+     */
+    @Exclude
+    @NonNull
+    public BitSet getOccupiedSpaces() throws IllegalArgumentException {
+        final BitSet occupied = BitSetCodec.decode(occupancy);
+        if (occupied.length() > spaceCount) occupied.clear(spaceCount, occupied.length());
+        return occupied;
+    }
 
     /**
-     * To be overridden by its subclasses
-     * It should combine the class' attribute values to create a unique id for the object.
+     * Encodes the given bitset into the {@link #occupancy} of the segment.
+     *
+     * @param occupied The bitset of the occupied spaces.
+     */
+    @Exclude
+    public void setOccupiedSpaces(@NonNull BitSet occupied) {
+        this.occupancy = BitSetCodec.encode(occupied);
+    }
+
+    /**
+     * Counts the free spaces of the segment, via the popcount of its {@link #occupancy}.
+     *
+     * @return The number of free spaces.
+     */
+    @Exclude
+    public int getFreeSpaces() {
+        return spaceCount - getOccupiedSpaces().cardinality();
+    }
+
+    /**
+     * Create a new string which consists of the following attributes:
+     * {@link #coordinates}, {@link #parkingId} and {@link #streetName}
+     * Then, hash the generated string and return it.
+     * Used as the DocumentID for the Firestore database's public parking node.
+     *
+     * @return A digest unique to each object
      */
     @Override
     public String generateDocumentId() {
-        return null;
+        // Create a long and unique id
+        String id = super.toString() + streetName;
+        // Hash (SHA256) it to has a fixed length of 32 characters and return its value
+        return ShaUtility.digest(id);
+    }
+
+    /**
+     * Returns a string representation of the object.
+     *
+     * @return a string representation of the object.
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        return super.toString() + ", "
+                + "streetName: " + streetName + ", "
+                + "spaceCount: " + spaceCount + ", "
+                + "occupancy: " + occupancy + ", "
+                + "geohash: " + geohash;
     }
 }
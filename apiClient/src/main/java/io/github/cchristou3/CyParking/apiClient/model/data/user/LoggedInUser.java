@@ -15,7 +15,7 @@ import java.util.List;
  * Also, exposes authenticated user details to the UI.
  *
  * @author Charalambos Christou
- * @version 3.0 10/02/21
+ * @version 4.0 18/10/21
  */
 public class LoggedInUser implements Parcelable {
 
@@ -106,6 +106,11 @@ public class LoggedInUser implements Parcelable {
         return roles;
     }
 
+    public LoggedInUser setRoles(List<String> roles) {
+        this.roles = roles;
+        return this;
+    }
+
     /**
      * Checks whether the instance is a {@link #OPERATOR} of role.
      *
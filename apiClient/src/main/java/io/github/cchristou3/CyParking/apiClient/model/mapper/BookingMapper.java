@@ -0,0 +1,146 @@
+package io.github.cchristou3.CyParking.apiClient.model.mapper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import org.jetbrains.annotations.Contract;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.booking.Booking;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.booking.BookingDetails;
+
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.booleanOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.dateOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.intOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.mapOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.stringOf;
+
+/**
+ * Purpose: convert {@link Booking} objects to and from the maps of Firestore
+ * documents, without reflection.
+ * The maps have the same fields as the ones of Firestore's reflective mapper.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public final class BookingMapper {
+
+    public static final String PARKING_ID = "parkingId";
+    public static final String OPERATOR_ID = "operatorId";
+    public static final String LOT_NAME = Booking.LOT_NAME;
+    public static final String BOOKING_USER_ID = "bookingUserId";
+    public static final String BOOKING_DETAILS = "bookingDetails";
+    public static final String QR_CODE = "qrcode"; // Derived by Firestore from getQRCode()
+    public static final String COMPLETED = "completed";
+    public static final String DATE_OF_BOOKING = "dateOfBooking";
+    public static final String STARTING_TIME = "startingTime";
+    public static final String HOUR = "hour";
+    public static final String MINUTE = "minute";
+    public static final String SLOT_OFFER = "slotOffer";
+
+    private BookingMapper() { /* No instances */ }
+
+    /**
+     * Creates a {@link Booking} out of the given document.
+     *
+     * @param snapshot The document of a booking.
+     * @return The booking. Null, if the document does not exist.
+     */
+    @Nullable
+    public static Booking toBooking(@NonNull DocumentSnapshot snapshot) {
+        final Map<String, Object> data = snapshot.getData();
+        return data == null ? null : toBooking(data);
+    }
+
+    /**
+     * Creates a list of {@link Booking}s out of the documents of the given query snapshot.
+     *
+     * @param snapshot The query snapshot of bookings.
+     * @return The bookings, in the order of the snapshot's documents.
+     */
+    @NonNull
+    public static List<Booking> toBookings(@NonNull QuerySnapshot snapshot) {
+        final List<DocumentSnapshot> documents = snapshot.getDocuments();
+        final List<Booking> bookings = new ArrayList<>(documents.size());
+        for (DocumentSnapshot document : documents) bookings.add(toBooking(document));
+        return bookings;
+    }
+
+    /**
+     * Creates a {@link Booking} out of the given map.
+     *
+     * @param data The map of a booking document.
+     * @return The booking.
+     */
+    @NonNull
+    @Contract("_ -> new")
+    public static Booking toBooking(@NonNull Map<String, Object> data) {
+        final Booking booking = new Booking();
+        booking.setParkingId(intOf(data.get(PARKING_ID)));
+        booking.setOperatorId(stringOf(data.get(OPERATOR_ID)));
+        booking.setLotName(stringOf(data.get(LOT_NAME)));
+        booking.setBookingUserId(stringOf(data.get(BOOKING_USER_ID)));
+        booking.setQRCode(stringOf(data.get(QR_CODE)));
+        final Map<String, Object> details = mapOf(data.get(BOOKING_DETAILS));
+        if (details != null) booking.setBookingDetails(toBookingDetails(details));
+        return booking;
+    }
+
+    @NonNull
+    private static BookingDetails toBookingDetails(@NonNull Map<String, Object> data) {
+        final BookingDetails details = new BookingDetails();
+        details.setCompleted(booleanOf(data.get(COMPLETED)));
+        details.setDateOfBooking(dateOf(data.get(DATE_OF_BOOKING)));
+        final Map<String, Object> time = mapOf(data.get(STARTING_TIME));
+        if (time != null) {
+            details.setStartingTime(new BookingDetails.Time(intOf(time.get(HOUR)), intOf(time.get(MINUTE))));
+        }
+        final Map<String, Object> offer = mapOf(data.get(SLOT_OFFER));
+        if (offer != null) details.setSlotOffer(SlotOfferMapper.toSlotOffer(offer));
+        return details;
+    }
+
+    /**
+     * Creates the map of the given {@link Booking}.
+     *
+     * @param booking The booking.
+     * @return The map to be stored in Firestore.
+     */
+    @NonNull
+    @Contract("_ -> new")
+    public static Map<String, Object> toMap(@NonNull Booking booking) {
+        final Map<String, Object> data = new HashMap<>(8);
+        data.put(PARKING_ID, booking.getParkingId());
+        data.put(OPERATOR_ID, booking.getOperatorId());
+        data.put(LOT_NAME, booking.getLotName());
+        data.put(BOOKING_USER_ID, booking.getBookingUserId());
+        data.put(QR_CODE, booking.getQRCode());
+        final BookingDetails details = booking.getBookingDetails();
+        data.put(BOOKING_DETAILS, details == null ? null : toMap(details));
+        return data;
+    }
+
+    @NonNull
+    private static Map<String, Object> toMap(@NonNull BookingDetails details) {
+        final Map<String, Object> data = new HashMap<>(8);
+        data.put(COMPLETED, details.isCompleted());
+        data.put(DATE_OF_BOOKING, details.getDateOfBooking());
+        if (details.getStartingTime() == null) {
+            data.put(STARTING_TIME, null);
+        } else {
+            final Map<String, Object> time = new HashMap<>(4);
+            time.put(HOUR, details.getStartingTime().getHour());
+            time.put(MINUTE, details.getStartingTime().getMinute());
+            data.put(STARTING_TIME, time);
+        }
+        data.put(SLOT_OFFER, details.getSlotOffer() == null ? null : SlotOfferMapper.toMap(details.getSlotOffer()));
+        return data;
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.cchristou3.CyParking.apiClient.model.mapper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import org.jetbrains.annotations.Contract;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.user.LoggedInUser;
+
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.listOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.stringOf;
+
+/**
+ * Purpose: convert {@link LoggedInUser} objects to and from the maps of Firestore
+ * documents, without reflection.
+ * The maps have the same fields as the ones of Firestore's reflective mapper.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public final class LoggedInUserMapper {
+
+    public static final String USER_ID = "userId";
+    public static final String ROLES = "roles";
+    public static final String DISPLAY_NAME = "displayName";
+    public static final String EMAIL = "email";
+
+    private LoggedInUserMapper() { /* No instances */ }
+
+    /**
+     * Creates a {@link LoggedInUser} out of the given document.
+     *
+     * @param snapshot The document of a user.
+     * @return The user. Null, if the document does not exist.
+     */
+    @Nullable
+    public static LoggedInUser toLoggedInUser(@NonNull DocumentSnapshot snapshot) {
+        final Map<String, Object> data = snapshot.getData();
+        return data == null ? null : toLoggedInUser(data);
+    }
+
+    /**
+     * Creates a {@link LoggedInUser} out of the given map.
+     *
+     * @param data The map of a user document.
+     * @return The user.
+     */
+    @NonNull
+    @Contract("_ -> new")
+    public static LoggedInUser toLoggedInUser(@NonNull Map<String, Object> data) {
+        final LoggedInUser user = new LoggedInUser();
+        user.setUserId(stringOf(data.get(USER_ID)));
+        user.setDisplayName(stringOf(data.get(DISPLAY_NAME)))
+                .setEmail(stringOf(data.get(EMAIL)))
+                .setRoles(toRoles(listOf(data.get(ROLES))));
+        return user;
+    }
+
+    @Nullable
+    private static List<String> toRoles(@Nullable List<?> list) {
+        if (list == null) return null;
+        final List<String> roles = new ArrayList<>(list.size());
+        for (Object role : list) roles.add(stringOf(role));
+        return roles;
+    }
+
+    /**
+     * Creates the map of the given {@link LoggedInUser}.
+     *
+     * @param user The user.
+     * @return The map to be stored in Firestore.
+     */
+    @NonNull
+    @Contract("_ -> new")
+    public static Map<String, Object> toMap(@NonNull LoggedInUser user) {
+        final Map<String, Object> data = new HashMap<>(8);
+        data.put(USER_ID, user.getUserId());
+        data.put(ROLES, user.getRoles());
+        data.put(DISPLAY_NAME, user.getDisplayName());
+        data.put(EMAIL, user.getEmail());
+        return data;
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.cchristou3.CyParking.apiClient.model.mapper;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.Timestamp;
+
+import org.jetbrains.annotations.Contract;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Purpose: convert the values of a document's map into Java types,
+ * the way Firestore's reflective mapper would.
+ * Numbers are stored either as longs or doubles, regardless of their Java type.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+final class MapperUtility {
+
+    private MapperUtility() { /* No instances */ }
+
+    @Contract(pure = true)
+    static int intOf(@Nullable Object value) {
+        return (value instanceof Number) ? ((Number) value).intValue() : 0;
+    }
+
+    @Contract(pure = true)
+    static float floatOf(@Nullable Object value) {
+        return (value instanceof Number) ? ((Number) value).floatValue() : 0f;
+    }
+
+    @Contract(pure = true)
+    static double doubleOf(@Nullable Object value) {
+        return (value instanceof Number) ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    @Contract(pure = true)
+    static boolean booleanOf(@Nullable Object value) {
+        return (value instanceof Boolean) && (Boolean) value;
+    }
+
+    @Nullable
+    @Contract(pure = true)
+    static String stringOf(@Nullable Object value) {
+        return (value instanceof String) ? (String) value : null;
+    }
+
+    @Nullable
+    @Contract(pure = true)
+    static Date dateOf(@Nullable Object value) {
+        if (value instanceof Timestamp) return ((Timestamp) value).toDate();
+        return (value instanceof Date) ? (Date) value : null;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    @Contract(pure = true)
+    static Map<String, Object> mapOf(@Nullable Object value) {
+        return (value instanceof Map) ? (Map<String, Object>) value : null;
+    }
+
+    @Nullable
+    @Contract(pure = true)
+    static List<?> listOf(@Nullable Object value) {
+        return (value instanceof List) ? (List<?>) value : null;
+    }
+}
@@ -0,0 +1,126 @@
+package io.github.cchristou3.CyParking.apiClient.model.mapper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import org.jetbrains.annotations.Contract;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.Parking;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.doubleOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.intOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.listOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.mapOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.stringOf;
+
+/**
+ * Purpose: convert {@link ParkingLot} objects to and from the maps of Firestore
+ * documents, without reflection.
+ * The maps have the same fields as the ones of Firestore's reflective mapper.
+ * Fields missing from a map keep the values of {@link ParkingLot#ParkingLot()}.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public final class ParkingLotMapper {
+
+    public static final String PARKING_ID = "parkingId";
+    public static final String COORDINATES = "coordinates";
+    public static final String LATITUDE = "latitude";
+    public static final String LONGITUDE = "longitude";
+    public static final String LOT_NAME = "lotName";
+    public static final String OPERATOR_ID = "operatorId";
+    public static final String OPERATOR_MOBILE_NUMBER = "operatorMobileNumber";
+    public static final String AVAILABILITY = "availability";
+    public static final String CAPACITY = "capacity";
+    public static final String AVAILABLE_SPACES = "availableSpaces";
+    public static final String LOT_PHOTO_URL = "lotPhotoUrl";
+    public static final String SLOT_OFFER_LIST = "slotOfferList";
+    public static final String GEOHASH = "geohash";
+
+    private ParkingLotMapper() { /* No instances */ }
+
+    /**
+     * Creates a {@link ParkingLot} out of the given document.
+     *
+     * @param snapshot The document of a parking lot.
+     * @return The parking lot. Null, if the document does not exist.
+     */
+    @Nullable
+    public static ParkingLot toParkingLot(@NonNull DocumentSnapshot snapshot) {
+        final Map<String, Object> data = snapshot.getData();
+        return data == null ? null : toParkingLot(data);
+    }
+
+    /**
+     * Creates a {@link ParkingLot} out of the given map.
+     *
+     * @param data The map of a parking lot document.
+     * @return The parking lot.
+     */
+    @NonNull
+    @Contract("_ -> new")
+    public static ParkingLot toParkingLot(@NonNull Map<String, Object> data) {
+        final ParkingLot lot = new ParkingLot();
+        lot.setParkingId(intOf(data.get(PARKING_ID)));
+        final Map<String, Object> coordinates = mapOf(data.get(COORDINATES));
+        if (coordinates != null) {
+            lot.setCoordinates(new Parking.Coordinates(
+                    doubleOf(coordinates.get(LATITUDE)), doubleOf(coordinates.get(LONGITUDE))));
+        }
+        lot.setLotName(stringOf(data.get(LOT_NAME)));
+        lot.setOperatorId(stringOf(data.get(OPERATOR_ID)));
+        lot.setOperatorMobileNumber(stringOf(data.get(OPERATOR_MOBILE_NUMBER)));
+        final Map<String, Object> availability = mapOf(data.get(AVAILABILITY));
+        if (availability != null) {
+            lot.setAvailability(new ParkingLot.Availability(
+                    intOf(availability.get(CAPACITY)), intOf(availability.get(AVAILABLE_SPACES))));
+        }
+        lot.setLotPhotoUrl(stringOf(data.get(LOT_PHOTO_URL)));
+        lot.setSlotOfferList(SlotOfferMapper.toSlotOffers(listOf(data.get(SLOT_OFFER_LIST))));
+        lot.setGeohash(stringOf(data.get(GEOHASH)));
+        return lot;
+    }
+
+    /**
+     * Creates the map of the given {@link ParkingLot}.
+     *
+     * @param lot The parking lot.
+     * @return The map to be stored in Firestore.
+     */
+    @NonNull
+    @Contract("_ -> new")
+    public static Map<String, Object> toMap(@NonNull ParkingLot lot) {
+        final Map<String, Object> data = new HashMap<>(16);
+        data.put(PARKING_ID, lot.getParkingId());
+        if (lot.getCoordinates() == null) {
+            data.put(COORDINATES, null);
+        } else {
+            final Map<String, Object> coordinates = new HashMap<>(4);
+            coordinates.put(LATITUDE, lot.getCoordinates().getLatitude());
+            coordinates.put(LONGITUDE, lot.getCoordinates().getLongitude());
+            data.put(COORDINATES, coordinates);
+        }
+        data.put(LOT_NAME, lot.getLotName());
+        data.put(OPERATOR_ID, lot.getOperatorId());
+        data.put(OPERATOR_MOBILE_NUMBER, lot.getOperatorMobileNumber());
+        if (lot.getAvailability() == null) {
+            data.put(AVAILABILITY, null);
+        } else {
+            final Map<String, Object> availability = new HashMap<>(4);
+            availability.put(CAPACITY, lot.getAvailability().getCapacity());
+            availability.put(AVAILABLE_SPACES, lot.getAvailability().getAvailableSpaces());
+            data.put(AVAILABILITY, availability);
+        }
+        data.put(LOT_PHOTO_URL, lot.getLotPhotoUrl());
+        data.put(SLOT_OFFER_LIST, SlotOfferMapper.toMaps(lot.getSlotOfferList()));
+        data.put(GEOHASH, lot.getGeohash());
+        return data;
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.cchristou3.CyParking.apiClient.model.mapper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.Parking;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLotSummary;
+
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.doubleOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.intOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.listOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.mapOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.stringOf;
+
+/**
+ * Purpose: convert the response of the nearby parking lot summaries
+ * cloud function into {@link ParkingLotSummary} objects.
+ * The response is a list of maps, one per lot, sorted by distance.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public final class ParkingLotSummaryMapper {
+
+    public static final String ID = "id";
+    public static final String LOT_NAME = "lotName";
+    public static final String LATITUDE = "latitude";
+    public static final String LONGITUDE = "longitude";
+    public static final String CAPACITY = "capacity";
+    public static final String AVAILABLE_SPACES = "availableSpaces";
+    public static final String BEST_OFFER = "bestOffer";
+    public static final String DISTANCE = "distance";
+
+    private ParkingLotSummaryMapper() { /* No instances */ }
+
+    /**
+     * Creates the {@link ParkingLotSummary} objects out of the given response,
+     * in the same order. Malformed items are skipped.
+     *
+     * @param data The data of the cloud function's response.
+     * @return The summaries. Empty, if the response is not a list.
+     */
+    @NonNull
+    public static List<ParkingLotSummary> toSummaries(@Nullable Object data) {
+        final List<?> items = listOf(data);
+        if (items == null) return new ArrayList<>(0);
+        final List<ParkingLotSummary> summaries = new ArrayList<>(items.size());
+        for (Object item : items) {
+            final Map<String, Object> map = mapOf(item);
+            final ParkingLotSummary summary = map == null ? null : toSummary(map);
+            if (summary != null) summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    /**
+     * Creates a {@link ParkingLotSummary} out of the given map.
+     *
+     * @param data The map of a single lot's summary.
+     * @return The summary. Null, if it has no document id or coordinates.
+     */
+    @Nullable
+    public static ParkingLotSummary toSummary(@NonNull Map<String, Object> data) {
+        final String docId = stringOf(data.get(ID));
+        if (docId == null || !(data.get(LATITUDE) instanceof Number)
+                || !(data.get(LONGITUDE) instanceof Number)) {
+            return null;
+        }
+        final Map<String, Object> bestOffer = mapOf(data.get(BEST_OFFER));
+        return new ParkingLotSummary(
+                docId,
+                stringOf(data.get(LOT_NAME)),
+                new Parking.Coordinates(doubleOf(data.get(LATITUDE)), doubleOf(data.get(LONGITUDE))),
+                intOf(data.get(CAPACITY)),
+                intOf(data.get(AVAILABLE_SPACES)),
+                bestOffer == null ? null : SlotOfferMapper.toSlotOffer(bestOffer),
+                doubleOf(data.get(DISTANCE))
+        );
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.cchristou3.CyParking.apiClient.model.mapper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.jetbrains.annotations.Contract;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.Parking;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.PublicParking;
+
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.doubleOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.intOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.mapOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.stringOf;
+
+/**
+ * Purpose: convert {@link PublicParking} segments to and from the maps of Firestore
+ * documents, without reflection.
+ * The maps have the same fields as the ones of Firestore's reflective mapper.
+ * Fields of the wrong type are treated as missing, rather than failing the whole segment.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public final class PublicParkingMapper {
+
+    public static final String PARKING_ID = "parkingId";
+    public static final String COORDINATES = "coordinates";
+    public static final String LATITUDE = "latitude";
+    public static final String LONGITUDE = "longitude";
+    public static final String STREET_NAME = "streetName";
+    public static final String SPACE_COUNT = "spaceCount";
+    public static final String OCCUPANCY = "occupancy";
+    public static final String GEOHASH = "geohash";
+
+    private PublicParkingMapper() { /* No instances */ }
+
+    /**
+     * Creates a {@link PublicParking} out of the given map.
+     *
+     * @param data The map of a public parking segment's document.
+     * @return The segment. Null, if it has no coordinates, as it cannot be placed.
+     */
+    @Nullable
+    public static PublicParking toPublicParking(@NonNull Map<String, Object> data) {
+        final Map<String, Object> coordinates = mapOf(data.get(COORDINATES));
+        if (coordinates == null || !(coordinates.get(LATITUDE) instanceof Number)
+                || !(coordinates.get(LONGITUDE) instanceof Number)) {
+            return null;
+        }
+        final PublicParking segment = new PublicParking();
+        segment.setParkingId(intOf(data.get(PARKING_ID)));
+        segment.setCoordinates(new Parking.Coordinates(
+                doubleOf(coordinates.get(LATITUDE)), doubleOf(coordinates.get(LONGITUDE))));
+        segment.setStreetName(stringOf(data.get(STREET_NAME)));
+        segment.setSpaceCount(intOf(data.get(SPACE_COUNT)));
+        segment.setOccupancy(stringOf(data.get(OCCUPANCY)));
+        segment.setGeohash(stringOf(data.get(GEOHASH)));
+        return segment;
+    }
+
+    /**
+     * Creates the map of the given {@link PublicParking} segment.
+     *
+     * @param segment The public parking segment.
+     * @return The map to be stored in Firestore.
+     */
+    @NonNull
+    @Contract("_ -> new")
+    public static Map<String, Object> toMap(@NonNull PublicParking segment) {
+        final Map<String, Object> data = new HashMap<>(8);
+        data.put(PARKING_ID, segment.getParkingId());
+        if (segment.getCoordinates() == null) {
+            data.put(COORDINATES, null);
+        } else {
+            final Map<String, Object> coordinates = new HashMap<>(4);
+            coordinates.put(LATITUDE, segment.getCoordinates().getLatitude());
+            coordinates.put(LONGITUDE, segment.getCoordinates().getLongitude());
+            data.put(COORDINATES, coordinates);
+        }
+        data.put(STREET_NAME, segment.getStreetName());
+        data.put(SPACE_COUNT, segment.getSpaceCount());
+        data.put(OCCUPANCY, segment.getOccupancy());
+        data.put(GEOHASH, segment.getGeohash());
+        return data;
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.cchristou3.CyParking.apiClient.model.mapper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.jetbrains.annotations.Contract;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.SlotOffer;
+
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.floatOf;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.MapperUtility.mapOf;
+
+/**
+ * Purpose: convert {@link SlotOffer} objects to and from the maps of Firestore
+ * documents, without reflection.
+ * The maps have the same fields as the ones of Firestore's reflective mapper.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public final class SlotOfferMapper {
+
+    public static final String DURATION = "duration";
+    public static final String PRICE = "price";
+
+    private SlotOfferMapper() { /* No instances */ }
+
+    /**
+     * Creates a {@link SlotOffer} out of the given map.
+     *
+     * @param data The map of a slot offer.
+     * @return The slot offer.
+     */
+    @NonNull
+    @Contract("_ -> new")
+    public static SlotOffer toSlotOffer(@NonNull Map<String, Object> data) {
+        final SlotOffer offer = new SlotOffer();
+        offer.setDuration(floatOf(data.get(DURATION)));
+        offer.setPrice(floatOf(data.get(PRICE)));
+        return offer;
+    }
+
+    /**
+     * Creates a list of {@link SlotOffer}s out of the given list of maps.
+     *
+     * @param list The list of maps of slot offers.
+     * @return The slot offers. Null, if the given list is null.
+     */
+    @Nullable
+    public static List<SlotOffer> toSlotOffers(@Nullable List<?> list) {
+        if (list == null) return null;
+        final List<SlotOffer> offers = new ArrayList<>(list.size());
+        for (Object item : list) {
+            final Map<String, Object> data = mapOf(item);
+            offers.add(data == null ? null : toSlotOffer(data));
+        }
+        return offers;
+    }
+
+    /**
+     * Creates the map of the given {@link SlotOffer}.
+     *
+     * @param offer The slot offer.
+     * @return The map to be stored in Firestore.
+     */
+    @NonNull
+    @Contract("_ -> new")
+    public static Map<String, Object> toMap(@NonNull SlotOffer offer) {
+        final Map<String, Object> data = new HashMap<>(4);
+        data.put(DURATION, offer.getDuration());
+        data.put(PRICE, offer.getPrice());
+        return data;
+    }
+
+    /**
+     * Creates the list of maps of the given {@link SlotOffer}s.
+     *
+     * @param offers The slot offers.
+     * @return The list of maps to be stored in Firestore. Null, if the given list is null.
+     */
+    @Nullable
+    public static List<Map<String, Object>> toMaps(@Nullable List<SlotOffer> offers) {
+        if (offers == null) return null;
+        final List<Map<String, Object>> list = new ArrayList<>(offers.size());
+        for (SlotOffer offer : offers) list.add(offer == null ? null : toMap(offer));
+        return list;
+    }
+}
@@ -19,6 +19,7 @@ import java.util.List;
 
 import io.github.cchristou3.CyParking.apiClient.local.SharedPreferencesManager;
 import io.github.cchristou3.CyParking.apiClient.model.data.user.LoggedInUser;
+import io.github.cchristou3.CyParking.apiClient.model.mapper.LoggedInUserMapper;
 
 /**
  * Purpose: <p>Class that handles authentication w/ login credentials and retrieves user information.
@@ -97,7 +98,7 @@ public class AuthenticatorRepository implements DataSourceRepository.UserHandler
         // Map users to a document via their autogenerated uid
         getUserRef()
                 .document(user.getUserId())
-                .set(user);
+                .set(LoggedInUserMapper.toMap(user));
     }
 
     /**
@@ -1,19 +1,30 @@
 package io.github.cchristou3.CyParking.apiClient.remote.repository;
 
+import androidx.annotation.Nullable;
+
 import com.google.android.gms.tasks.Task;
 import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.Query;
 
 import org.jetbrains.annotations.NotNull;
 
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.booking.Booking;
+import io.github.cchristou3.CyParking.apiClient.model.mapper.BookingMapper;
+
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.BookingMapper.BOOKING_DETAILS;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.BookingMapper.DATE_OF_BOOKING;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.BookingMapper.HOUR;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.BookingMapper.MINUTE;
+import static io.github.cchristou3.CyParking.apiClient.model.mapper.BookingMapper.STARTING_TIME;
 
 /**
  * Purpose: <p>contain all methods to access the (cloud / local) database's booking node.</p>
  *
  * @author Charalambos Christou
- * @version 10.0 12/03/21
+ * @version 12.0 18/10/21
  */
 public class BookingRepository implements DataSourceRepository.BookingHandler, DataSourceRepository.ParkingLotHandler {
 
@@ -28,6 +39,35 @@ public class BookingRepository implements DataSourceRepository.BookingHandler, D
         return getUserUpcomingBookings(userId);
     }
 
+    /**
+     * Returns a page of the pending bookings of the user with the specified userId,
+     * ordered by their date and starting time. The document id breaks the ties,
+     * thus each booking belongs to exactly one page.
+     * <p>
+     * Requires a composite index on bookingUserId, bookingDetails.completed and the ordered fields,
+     * declared in CyParkingCloudFunctions/firestore.indexes.json. Without it, the query fails with
+     * {@code FAILED_PRECONDITION}.
+     *
+     * @param userId     The is of the Firebase user
+     * @param startAfter The last booking of the previous page. Null, for the first page.
+     * @param endAt      The last booking of the page, to load a page again with the same bounds.
+     *                   Null, to load the next {@code limit} bookings.
+     * @param limit      The maximum number of bookings of the page. Ignored, if endAt is given.
+     * @return A query which returns the bookings of the page.
+     */
+    @NotNull
+    public Query getUserBookingsPage(String userId, @Nullable DocumentSnapshot startAfter,
+                                     @Nullable DocumentSnapshot endAt, int limit) {
+        final String details = BOOKING_DETAILS + ".";
+        Query page = getUserUpcomingBookings(userId)
+                .orderBy(details + DATE_OF_BOOKING)
+                .orderBy(details + STARTING_TIME + "." + HOUR)
+                .orderBy(details + STARTING_TIME + "." + MINUTE)
+                .orderBy(FieldPath.documentId());
+        if (startAfter != null) page = page.startAfter(startAfter);
+        return endAt != null ? page.endAt(endAt) : page.limit(limit);
+    }
+
     /**
      * An observer is attached to the current document, to listen for changes (number of available spaces).
      * Removal of observer is self-managed by the hosting activity.
@@ -52,7 +92,7 @@ public class BookingRepository implements DataSourceRepository.BookingHandler, D
         // Add the booking info to the database
         return getBookingsRef()
                 .document(bookingToBeStored.generateDocumentId())
-                .set(bookingToBeStored);
+                .set(BookingMapper.toMap(bookingToBeStored));
     }
 
     /**
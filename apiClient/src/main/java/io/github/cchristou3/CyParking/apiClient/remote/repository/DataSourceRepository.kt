@@ -19,13 +19,13 @@ import com.google.firebase.storage.StorageReference
  * only the repository classes can access them.
  *
  * @author Charalambos Christou
- * @version 6.0 22/04/21
+ * @version 7.0 18/10/21
  * @see <a href='https://kotlinlang.org/api/latest/jvm/stdlib/kotlin.jvm/-jvm-default/'>Interface default implementation</a>
  */
 internal object DataSourceRepository {
 
     // Cloud functions
-    private const val GET_NEARBY_PARKING_LOTS = "getNearbyParkingLots"
+    private const val GET_NEARBY_PARKING_LOT_SUMMARIES = "getNearbyParkingLotSummaries"
     private const val UPDATE_EMAIL = "updateEmail"
     private const val CREATE_EPHEMERAL_KEY = "createEphemeralKey"
 
@@ -34,6 +34,7 @@ internal object DataSourceRepository {
     private const val FEEDBACK = "feedback"
     private const val USERS = "users"
     private const val PARKING_LOTS = "parking_lots"
+    private const val PUBLIC_PARKING = "public_parking"
 
     // Additional fields for payments...
     private const val STRIPE_CUSTOMERS = "stripe_customers"
@@ -139,6 +140,32 @@ internal object DataSourceRepository {
             const val OPERATOR_ID = "operatorId"
             const val AVAILABLE_SPACES = "availableSpaces"
             const val SLOT_OFFERS_LIST = "slotOfferList"
+            const val GEOHASH = "geohash"
+            const val COORDINATES_LATITUDE = "coordinates.latitude"
+            const val COORDINATES_LONGITUDE = "coordinates.longitude"
+        }
+    }
+
+    /**
+     * Purpose: provide the implementer access to the database's
+     * public parking node, a document per street segment.
+     *
+     * @see .PUBLIC_PARKING
+     */
+    internal interface PublicParkingHandler {
+        /**
+         * Access the public parking node of the database.
+         *
+         * @return A [CollectionReference] of the public parking node.
+         */
+        @JvmDefault
+        val publicParkingRef: CollectionReference
+            get() = getDatabaseNodeByName(PUBLIC_PARKING)
+
+        companion object {
+            // Database fields. The geohash and coordinates fields are the ones of the parking lots
+            const val SPACE_COUNT = "spaceCount"
+            const val OCCUPANCY = "occupancy"
         }
     }
 
@@ -209,21 +236,24 @@ internal object DataSourceRepository {
      */
     internal interface CloudFunctionCaller {
         /**
-         * Call a cloud function that will collect and return
-         * all parking lot document ids that are nearby the given
-         * coordinates.
+         * Call a cloud function that will collect and return a summary
+         * of each parking lot that is at most the given radius away from the given
+         * coordinates, sorted by distance.
          *
          * @param userLatitude the user's latitude.
          * @param userLongitude the user's longitude.
+         * @param radiusInMeters the radius of the search area.
          * @return A [Task] of the above description.
          */
         @JvmDefault
-        fun callNearbyParkingLotsFunction(userLatitude: Double, userLongitude: Double): Task<HttpsCallableResult?> {
-            return getCallableFunctionByName(GET_NEARBY_PARKING_LOTS)
+        fun callNearbyParkingLotSummariesFunction(userLatitude: Double, userLongitude: Double,
+                                                  radiusInMeters: Double): Task<HttpsCallableResult?> {
+            return getCallableFunctionByName(GET_NEARBY_PARKING_LOT_SUMMARIES)
                     .call(object : HashMap<String?, Double?>() {
                         init { // The request's data.
                             put(LATITUDE, userLatitude)
                             put(LONGITUDE, userLongitude)
+                            put(RADIUS, radiusInMeters)
                         }
                     })
         }
@@ -262,6 +292,7 @@ internal object DataSourceRepository {
         companion object {
             const val LATITUDE = "latitude"
             const val LONGITUDE = "longitude"
+            const val RADIUS = "radius"
             const val API_VERSION = "api_version"
             const val NEW_EMAIL = "newEmail"
             const val OLD_EMAIL = "oldEmail"
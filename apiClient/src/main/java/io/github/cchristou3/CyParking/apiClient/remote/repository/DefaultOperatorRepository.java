@@ -13,6 +13,7 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+import io.github.cchristou3.CyParking.apiClient.model.mapper.ParkingLotMapper;
 
 /**
  * Purpose: contain operator-related methods.
@@ -115,18 +116,21 @@ public class DefaultOperatorRepository implements OperatorRepository,
      * Stores to the database's PRIVATE_PARKING node the specified object.
      * The document id used corresponds to the merge of the ParkingLot object's
      * coordinates and the given operator mobile number.
+     * Before storing it, the lot's geohash is assigned so that it can be
+     * looked up by nearby (prefix-range) queries.
      *
      * @param parkingLotToBeStored Stores all necessary info about the private parking
      * @return The task to be handled in the active fragment
      * @throws NullPointerException in case the continuation returns null
      * @see ParkingLot#generateDocumentId()
+     * @see ParkingLot#assignGeohash()
      * @see Task#getException()
      */
     @NotNull
     private Task<Void> registerParkingLot(@NotNull ParkingLot parkingLotToBeStored) {
         return getParkingLotsRef()
                 .document(parkingLotToBeStored.generateDocumentId())
-                .set(parkingLotToBeStored);
+                .set(ParkingLotMapper.toMap(parkingLotToBeStored.assignGeohash()));
     }
 
     /**
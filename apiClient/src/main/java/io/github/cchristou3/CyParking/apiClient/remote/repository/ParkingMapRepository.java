@@ -2,45 +2,233 @@ package io.github.cchristou3.CyParking.apiClient.remote.repository;
 
 import android.util.Log;
 
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.functions.FirebaseFunctionsException;
 
-import io.github.cchristou3.CyParking.apiClient.interfaces.HttpsCallHandler;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import io.github.cchristou3.CyParking.apiClient.local.TileCache;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLotSummary;
+import io.github.cchristou3.CyParking.apiClient.model.mapper.ParkingLotSummaryMapper;
+import io.github.cchristou3.CyParking.apiClient.utils.GeoHash;
+import io.github.cchristou3.CyParking.geo.DistanceKernel;
+import io.github.cchristou3.CyParking.geo.GeoDistance;
+import io.github.cchristou3.CyParking.geo.GeoPoints;
 
 /**
  * Purpose: Provide methods to the ParkingMapViewModel
- * to access the database's parking lots.
+ * to access the database's parking lots and public parking segments.
  *
  * @author Charalambos Christou
- * @version 3.0 06/02/21
+ * @version 8.0 18/10/21
  */
 public class ParkingMapRepository implements
         DataSourceRepository.ParkingLotHandler,
+        DataSourceRepository.PublicParkingHandler,
         DataSourceRepository.CloudFunctionCaller {
 
     private static final String TAG = ParkingMapRepository.class.getCanonicalName();
+    // Same as the server's MAXIMUM_DISTANCE_FROM_USER
+    public static final double NEARBY_RADIUS_IN_METERS = 1000.0;
+    // Summaries of the lots around each recently looked up tile, shared by all instances
+    private static final int MAX_CACHED_TILES = 32;
+    private static final long TILE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final TileCache<List<ParkingLotSummary>> sSummaryCache =
+            new TileCache<>(MAX_CACHED_TILES, TILE_TTL_MILLIS, System::currentTimeMillis);
+    // The calls that are still in progress, by tile. Accessed only on the main thread.
+    private static final Map<String, Task<List<ParkingLotSummary>>> sCallsInFlight = new HashMap<>();
+
+    /**
+     * Retrieves a summary of each parking lot that is at most {@link #NEARBY_RADIUS_IN_METERS}
+     * away from the given coordinates.
+     * The summaries are enough to draw the lots on the map, in a single round trip.
+     * <p>
+     * The summaries are looked up per tile of a {@link TileCache}: the callable cloud-function
+     * is invoked once for the tile that contains the given coordinates, and its result is served
+     * to every location inside the tile until it expires. Concurrent requests for the same tile
+     * share a single call. To be invoked on the main thread.
+     *
+     * @param userLatitude  The user's latest retrieved latitude.
+     * @param userLongitude The user's latest retrieved longitude.
+     * @return A {@link Task} whose result contains the summaries, sorted by distance.
+     * @see ParkingLotSummaryMapper
+     */
+    @NotNull
+    public Task<List<ParkingLotSummary>> fetchNearbyParkingLotSummaries(double userLatitude, double userLongitude) {
+        final String key = TileCache.keyOf(userLatitude, userLongitude, NEARBY_RADIUS_IN_METERS);
+        final List<ParkingLotSummary> cached = sSummaryCache.get(key);
+        if (cached != null) {
+            return Tasks.forResult(nearbyOf(cached, userLatitude, userLongitude));
+        }
+        Task<List<ParkingLotSummary>> tileCall = sCallsInFlight.get(key);
+        if (tileCall == null) {
+            tileCall = fetchTileSummaries(userLatitude, userLongitude);
+            sCallsInFlight.put(key, tileCall);
+            tileCall.addOnCompleteListener(task -> {
+                sCallsInFlight.remove(key);
+                if (task.isSuccessful() && task.getResult() != null) sSummaryCache.put(key, task.getResult());
+            });
+        }
+        return tileCall.continueWith(task -> {
+            if (!task.isSuccessful()) throw task.getException();
+            return nearbyOf(task.getResult(), userLatitude, userLongitude);
+        });
+    }
+
+    /**
+     * Invokes the callable cloud-function for the center of the tile that contains the given
+     * coordinates, with a radius wide enough to cover the search area of any location in the tile.
+     */
+    @NotNull
+    private Task<List<ParkingLotSummary>> fetchTileSummaries(double latitude, double longitude) {
+        final LatLng center = TileCache.centerOf(latitude, longitude);
+        return callNearbyParkingLotSummariesFunction(center.latitude, center.longitude,
+                NEARBY_RADIUS_IN_METERS + TileCache.halfDiagonalInMeters(latitude))
+                .continueWith(task -> {
+                    if (!task.isSuccessful()) {
+                        logError(task.getException());
+                        throw task.getException();
+                    }
+                    return ParkingLotSummaryMapper.toSummaries(
+                            task.getResult() == null ? null : task.getResult().getData());
+                });
+    }
+
+    /**
+     * Keeps the summaries that are at most {@link #NEARBY_RADIUS_IN_METERS} away
+     * from the given coordinates, with their distances from them, sorted by distance.
+     *
+     * @param tileSummaries The summaries of a tile that contains the coordinates.
+     * @param latitude      The user's latitude.
+     * @param longitude     The user's longitude.
+     * @return The summaries of the nearby lots.
+     */
+    @NotNull
+    private static List<ParkingLotSummary> nearbyOf(@NotNull List<ParkingLotSummary> tileSummaries,
+                                                    double latitude, double longitude) {
+        final int size = tileSummaries.size();
+        final double[] latitudes = new double[size], longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            latitudes[i] = tileSummaries.get(i).getCoordinates().getLatitude();
+            longitudes[i] = tileSummaries.get(i).getCoordinates().getLongitude();
+        }
+        final int[] indices = new int[size];
+        final double[] distances = new double[size];
+        final int count = DistanceKernel.within(latitude, longitude, NEARBY_RADIUS_IN_METERS,
+                new GeoPoints(latitudes, longitudes), indices, distances);
+        final List<ParkingLotSummary> nearby = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            nearby.add(tileSummaries.get(indices[i]).withDistance(distances[i]));
+        }
+        Collections.sort(nearby, (a, b) -> Double.compare(a.getDistanceInMeters(), b.getDistanceInMeters()));
+        return nearby;
+    }
 
     /**
-     * Sends an HTTPS request via a callable cloud-function.
-     * The response contains all the parking lots
-     * that are nearby the given coordinates
+     * Retrieves all the parking lots that are at most {@link #NEARBY_RADIUS_IN_METERS}
+     * away from the given coordinates.
+     * A prefix-range query is sent for each of the (up to 9) geohash cells that cover
+     * the search area. Thus, only the lots of the covering cells are read from the database,
+     * instead of the whole parking lot collection. The lots of the cells' corners that are
+     * further than the radius are then filtered out on the client.
      *
      * @param userLatitude  The user's latest retrieved latitude.
      * @param userLongitude The user's latest retrieved longitude.
-     * @param handler       The handler for the cloud function's HTTPS request.
+     * @return A {@link Task} whose result contains the documents of the nearby parking lots.
+     * @see GeoHash#coveringCells(double, double, double)
      */
-    public void fetchParkingLots(double userLatitude, double userLongitude, HttpsCallHandler handler) {
-        callNearbyParkingLotsFunction(userLatitude, userLongitude)
-                .addOnCompleteListener(task -> {
-                    handler.onComplete();
-                    if (task.isSuccessful() && task.getResult().getData() != null) {
-                        handler.onSuccess(task.getResult().getData().toString());
-                    } else {
-                        handler.onFailure(task.getException());
+    @NotNull
+    public Task<List<DocumentSnapshot>> fetchNearbyParkingLots(double userLatitude, double userLongitude) {
+        final String[] cells = GeoHash.coveringCells(userLatitude, userLongitude, NEARBY_RADIUS_IN_METERS);
+        final List<Task<QuerySnapshot>> cellQueries = new ArrayList<>(cells.length);
+        for (String cell : cells) {
+            cellQueries.add(
+                    getParkingLotsRef()
+                            .orderBy(GEOHASH)
+                            .startAt(cell)
+                            .endAt(cell + GeoHash.RANGE_END_SUFFIX)
+                            .get()
+            );
+        }
+        return Tasks.<QuerySnapshot>whenAllSuccess(cellQueries)
+                .continueWith(task -> {
+                    if (!task.isSuccessful()) {
                         logError(task.getException());
+                        throw task.getException();
                     }
+                    return filterNearby(task.getResult(), userLatitude, userLongitude);
                 });
     }
 
+    /**
+     * Creates a prefix-range query for each of the (up to 9) geohash cells that cover
+     * the area of {@link #NEARBY_RADIUS_IN_METERS} around the given coordinates.
+     * Each query returns the public parking segments of its cell, whose documents
+     * hold the occupancy of all their spaces. Thus, the queries can be listened to
+     * for as long as the user stays in the area, at the cost of a document per segment.
+     *
+     * @param userLatitude  The user's latest retrieved latitude.
+     * @param userLongitude The user's latest retrieved longitude.
+     * @return The queries of the cells around the given coordinates.
+     * @see GeoHash#coveringCells(double, double, double)
+     */
+    @NotNull
+    public List<Query> getNearbyPublicParking(double userLatitude, double userLongitude) {
+        final String[] cells = GeoHash.coveringCells(userLatitude, userLongitude, NEARBY_RADIUS_IN_METERS);
+        final List<Query> cellQueries = new ArrayList<>(cells.length);
+        for (String cell : cells) {
+            cellQueries.add(
+                    getPublicParkingRef()
+                            .orderBy(GEOHASH)
+                            .startAt(cell)
+                            .endAt(cell + GeoHash.RANGE_END_SUFFIX)
+            );
+        }
+        return cellQueries;
+    }
+
+    /**
+     * Merges the documents of the given query snapshots and keeps only the ones
+     * that are inside the nearby radius of the given position.
+     *
+     * @param snapshots The results of the cell queries.
+     * @param latitude  The user's latitude.
+     * @param longitude The user's longitude.
+     * @return The documents of the nearby parking lots, without duplicates.
+     */
+    @NotNull
+    private List<DocumentSnapshot> filterNearby(@NotNull List<QuerySnapshot> snapshots,
+                                                double latitude, double longitude) {
+        final List<DocumentSnapshot> nearbyLots = new ArrayList<>();
+        final Set<String> visitedIds = new HashSet<>();
+        for (QuerySnapshot snapshot : snapshots) {
+            for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                if (!visitedIds.add(doc.getId())) continue; // Already checked
+                Double lat = doc.getDouble(COORDINATES_LATITUDE);
+                Double lng = doc.getDouble(COORDINATES_LONGITUDE);
+                if (lat == null || lng == null) continue;
+                if (GeoDistance.haversine(latitude, longitude, lat, lng) <= NEARBY_RADIUS_IN_METERS) {
+                    nearbyLots.add(doc);
+                }
+            }
+        }
+        return nearbyLots;
+    }
+
     /**
      * Reports error to the logcat.
      *
@@ -0,0 +1,102 @@
+package io.github.cchristou3.CyParking.apiClient.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Purpose: <p>encode a {@link BitSet} into a base64 string and back,
+ * to store the state of many spaces in a single document field.</p>
+ * <p>
+ * The bytes are the ones of {@link BitSet#toByteArray()}: bit i is the bit
+ * (i % 8) of byte (i / 8). Thus, a segment of 400 spaces takes 50 bytes, or
+ * 68 characters. The standard base64 alphabet of RFC 4648 is used, with padding.
+ * Decoding accepts a missing padding.
+ * <p>
+ * Neither {@code java.util.Base64} (API 26) nor {@code android.util.Base64}
+ * (not available to unit tests) is used, hence the codec of its own.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ * @see <a href="https://tools.ietf.org/html/rfc4648#section-4">Base 64 Encoding</a>
+ */
+public final class BitSetCodec {
+
+    private static final char[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final char PADDING = '=';
+    // Look up: character -> its 6 bits. -1, if it is not part of the alphabet
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) VALUES[ALPHABET[i]] = (byte) i;
+    }
+
+    private BitSetCodec() { /* Utility class - no instances */ }
+
+    /**
+     * Encodes the given bits into a base64 string.
+     *
+     * @param bits The bits to encode.
+     * @return The base64 string of the bits. Empty, if no bit is set.
+     */
+    @NotNull
+    public static String encode(@NotNull BitSet bits) {
+        final byte[] bytes = bits.toByteArray();
+        final StringBuilder encoded = new StringBuilder((bytes.length + 2) / 3 * 4);
+        for (int i = 0; i < bytes.length; i += 3) {
+            final int remaining = Math.min(3, bytes.length - i);
+            int group = (bytes[i] & 0xFF) << 16;
+            if (remaining > 1) group |= (bytes[i + 1] & 0xFF) << 8;
+            if (remaining > 2) group |= bytes[i + 2] & 0xFF;
+            encoded.append(ALPHABET[group >>> 18 & 0x3F])
+                    .append(ALPHABET[group >>> 12 & 0x3F])
+                    .append(remaining > 1 ? ALPHABET[group >>> 6 & 0x3F] : PADDING)
+                    .append(remaining > 2 ? ALPHABET[group & 0x3F] : PADDING);
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Decodes the given base64 string into bits.
+     *
+     * @param encoded The base64 string of the bits. Null or empty, if no bit is set.
+     * @return The decoded bits.
+     * @throws IllegalArgumentException if the string is not valid base64.
+     */
+    @NotNull
+    public static BitSet decode(String encoded) throws IllegalArgumentException {
+        if (encoded == null) return new BitSet();
+        int length = encoded.length();
+        while (length > 0 && encoded.charAt(length - 1) == PADDING) length--;
+        if (length % 4 == 1) {
+            throw new IllegalArgumentException("The length of a base64 string cannot be " + encoded.length() + ".");
+        }
+        final byte[] bytes = new byte[length * 3 / 4];
+        int group = 0, position = 0;
+        for (int i = 0; i < length; i++) {
+            final char character = encoded.charAt(i);
+            final int value = character < VALUES.length ? VALUES[character] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid base64 character '" + character + "' at " + i + ".");
+            }
+            group = group << 6 | value;
+            if (i % 4 == 3) {
+                bytes[position++] = (byte) (group >>> 16);
+                bytes[position++] = (byte) (group >>> 8);
+                bytes[position++] = (byte) group;
+                group = 0;
+            }
+        }
+        // The last, partial group
+        if (length % 4 == 2) {
+            bytes[position] = (byte) (group >>> 4);
+        } else if (length % 4 == 3) {
+            bytes[position++] = (byte) (group >>> 10);
+            bytes[position] = (byte) (group >>> 2);
+        }
+        return BitSet.valueOf(bytes);
+    }
+}
@@ -0,0 +1,177 @@
+package io.github.cchristou3.CyParking.apiClient.utils;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Purpose: <p>encode coordinates into geohash cell ids and
+ * compute the cells that cover a circular search area.</p>
+ * <p>
+ * A geohash is a base-32 string where each character narrows the
+ * cell down by interleaving longitude and latitude bits. All points
+ * that lie in the same cell share the same prefix, which allows
+ * the database to answer "which lots are in this cell" with a single
+ * prefix-range query on an ordered field.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ * @see <a href="https://en.wikipedia.org/wiki/Geohash">Geohash</a>
+ */
+public final class GeoHash {
+
+    /**
+     * The precision of the geohash stored in each parking lot document.
+     * Nine characters correspond to a cell of roughly 4.8m x 4.8m, which
+     * is enough for any query precision used by the application.
+     */
+    public static final int STORED_PRECISION = 9;
+    /**
+     * Appended to a prefix to form the upper bound of a prefix-range query.
+     * It sorts after every character of the base-32 alphabet.
+     */
+    public static final String RANGE_END_SUFFIX = "~";
+
+    private static final String BASE_32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    private static final int MAX_PRECISION = 12;
+
+    private GeoHash() { /* Utility class - no instances */ }
+
+    /**
+     * Encodes the given coordinates into a geohash of the given precision.
+     *
+     * @param latitude  The latitude in the range [-90..90].
+     * @param longitude The longitude in the range [-180..180].
+     * @param precision The number of characters of the returned geohash.
+     * @return The geohash of the cell that contains the given coordinates.
+     * @throws IllegalArgumentException if the precision is not in the range [1..12].
+     */
+    @NotNull
+    public static String encode(double latitude, double longitude, int precision)
+            throws IllegalArgumentException {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("The precision must be in range of 1.." + MAX_PRECISION + " (inclusive).");
+        }
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        final StringBuilder hash = new StringBuilder(precision);
+        boolean isEvenBit = true; // Longitude first
+        int bit = 0, index = 0;
+        while (hash.length() < precision) {
+            if (isEvenBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (longitude >= mid) {
+                    index = (index << 1) | 1;
+                    minLng = mid;
+                } else {
+                    index = index << 1;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    index = (index << 1) | 1;
+                    minLat = mid;
+                } else {
+                    index = index << 1;
+                    maxLat = mid;
+                }
+            }
+            isEvenBit = !isEvenBit;
+            if (++bit == 5) { // Every 5 bits make up one base-32 character
+                hash.append(BASE_32.charAt(index));
+                bit = 0;
+                index = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Computes the height of a cell of the given precision in degrees of latitude.
+     *
+     * @param precision The number of characters of a geohash.
+     * @return The cell's height in degrees.
+     */
+    @Contract(pure = true)
+    public static double cellHeightInDegrees(int precision) {
+        return 180.0 / (1L << (5 * precision / 2));
+    }
+
+    /**
+     * Computes the width of a cell of the given precision in degrees of longitude.
+     *
+     * @param precision The number of characters of a geohash.
+     * @return The cell's width in degrees.
+     */
+    @Contract(pure = true)
+    public static double cellWidthInDegrees(int precision) {
+        return 360.0 / (1L << ((5 * precision + 1) / 2));
+    }
+
+    /**
+     * Finds the longest precision whose cells are at least as tall and as wide
+     * as the given radius at the given latitude. Querying the cell of the
+     * centre and its 8 neighbours of that precision is then guaranteed to cover
+     * the whole circle of the given radius.
+     *
+     * @param latitude       The latitude of the circle's centre.
+     * @param radiusInMeters The radius of the circle.
+     * @return A precision in the range [1..{@link #STORED_PRECISION}].
+     */
+    @Contract(pure = true)
+    public static int precisionFor(double latitude, double radiusInMeters) {
+        final double metersPerLngDegree = METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+        for (int precision = STORED_PRECISION; precision > 1; precision--) {
+            if (cellHeightInDegrees(precision) * METERS_PER_DEGREE >= radiusInMeters
+                    && cellWidthInDegrees(precision) * metersPerLngDegree >= radiusInMeters) {
+                return precision;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Computes the cell that contains the given coordinates along with its
+     * 8 neighbouring cells. Together they cover every point that is at most
+     * the given radius away from the given coordinates.
+     * Cells are not repeated. Hence, near the poles less than 9 cells may be returned.
+     *
+     * @param latitude       The latitude of the circle's centre.
+     * @param longitude      The longitude of the circle's centre.
+     * @param radiusInMeters The radius of the circle.
+     * @return The geohashes of the covering cells. The first one is the centre's cell.
+     */
+    @NotNull
+    public static String[] coveringCells(double latitude, double longitude, double radiusInMeters) {
+        final int precision = precisionFor(latitude, radiusInMeters);
+        final double height = cellHeightInDegrees(precision);
+        final double width = cellWidthInDegrees(precision);
+        final Set<String> cells = new LinkedHashSet<>(9);
+        cells.add(encode(latitude, longitude, precision)); // Centre first
+        for (int dLat = -1; dLat <= 1; dLat++) {
+            for (int dLng = -1; dLng <= 1; dLng++) {
+                double lat = latitude + dLat * height;
+                if (lat > 90 || lat < -90) continue; // There is nothing beyond the poles
+                cells.add(encode(lat, wrapLongitude(longitude + dLng * width), precision));
+            }
+        }
+        return cells.toArray(new String[0]);
+    }
+
+    /**
+     * Brings the given longitude back into the range [-180..180).
+     *
+     * @param longitude Any longitude.
+     * @return The equivalent longitude in the range [-180..180).
+     */
+    @Contract(pure = true)
+    private static double wrapLongitude(double longitude) {
+        if (longitude >= 180) return longitude - 360;
+        if (longitude < -180) return longitude + 360;
+        return longitude;
+    }
+}
@@ -5,6 +5,7 @@ package io.github.cchristou3.CyParking.apiClient.utils
 
 import com.google.android.gms.maps.model.LatLng
 import com.google.firebase.firestore.QuerySnapshot
+import io.github.cchristou3.CyParking.geo.GeoDistance
 
 /**
  * Create a list of that contains items of type [T]
@@ -25,20 +26,7 @@ fun <T> getListOf(value: QuerySnapshot, tClass: Class<T>): List<T> {
  * @param latLng1 A [LatLng] object.
  * @param latLng2 A [LatLng] object.
  * @return The distance between the two given [LatLng] objects in meters.
+ * @see GeoDistance.haversine
  */
-fun getDistanceApart(latLng1: LatLng, latLng2: LatLng): Double {
-    // Calculate the distance between the two points (User and current parking)
-    // Reference: http://www.movable-type.co.uk/scripts/latlong.html
-    val R = 6371e3 // metres
-    val phi1: Double = latLng1.latitude * Math.PI / 180 // φ, λ in radians
-    val phi2: Double = latLng2.latitude * Math.PI / 180
-    val deltaPhi: Double = (latLng2.latitude - latLng1.latitude) * Math.PI / 180
-    val deltaLambda: Double = (latLng2.longitude - latLng1.longitude) * Math.PI / 180
-    val a = Math.sin(deltaPhi / 2) * Math.sin(deltaPhi / 2) +
-            Math.cos(phi1) * Math.cos(phi2) *
-            Math.sin(deltaLambda / 2) * Math.sin(deltaLambda / 2)
-    val c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a))
-    val d: Double // d is the total distance in metres
-    d = R * c
-    return d
-}
\ No newline at end of file
+fun getDistanceApart(latLng1: LatLng, latLng2: LatLng): Double =
+        GeoDistance.haversine(latLng1.latitude, latLng1.longitude, latLng2.latitude, latLng2.longitude)
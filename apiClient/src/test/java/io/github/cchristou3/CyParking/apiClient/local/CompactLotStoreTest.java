@@ -0,0 +1,104 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.Parking;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.SlotOffer;
+import io.github.cchristou3.CyParking.apiClient.model.mapper.ParkingLotMapper;
+
+/**
+ * Unit tests for the {@link CompactLotStore}.
+ */
+public class CompactLotStoreTest {
+
+    private static final double LAT = 35.18561, LNG = 33.38231;
+
+    private static ParkingLot lotAt(double lat, double lng, int availableSpaces) {
+        ParkingLot lot = new ParkingLot(new Parking.Coordinates(lat, lng), "Lot", "operator@gmail.com",
+                "99999999", 20, "https://photo", Arrays.asList(new SlotOffer(1, 2.5f), new SlotOffer(3, 6f)));
+        lot.setAvailableSpaces(availableSpaces);
+        return lot.assignGeohash();
+    }
+
+    @Test
+    public void materialize_returnsTheSameContents() {
+        ParkingLot lot = lotAt(LAT, LNG, 7);
+        CompactLotStore store = new CompactLotStore();
+        int handle = store.put("doc", lot);
+        Assert.assertEquals(ParkingLotMapper.toMap(lot), ParkingLotMapper.toMap(store.materialize(handle)));
+        Assert.assertEquals(ParkingLotMapper.toMap(lot), ParkingLotMapper.toMap(store.materialize("doc")));
+    }
+
+    @Test
+    public void primitives_areReadWithoutMaterializing() {
+        CompactLotStore store = new CompactLotStore();
+        int handle = store.put("doc", lotAt(LAT, LNG, 7));
+        Assert.assertEquals(LAT, store.latitudeOf(handle), 0.0);
+        Assert.assertEquals(LNG, store.longitudeOf(handle), 0.0);
+        Assert.assertEquals(20, store.capacityOf(handle));
+        Assert.assertEquals(7, store.availableSpacesOf(handle));
+        Assert.assertEquals(2f, store.bestOfferRatioOf(handle), 0f); // 6 per 3 hours
+        Assert.assertEquals(3f, store.maxDurationOf(handle), 0f);
+    }
+
+    @Test
+    public void put_sameDocId_replacesInPlace() {
+        CompactLotStore store = new CompactLotStore();
+        int handle = store.put("doc", lotAt(LAT, LNG, 7));
+        Assert.assertEquals(handle, store.put("doc", lotAt(LAT, LNG, 3)));
+        Assert.assertEquals(1, store.size());
+        Assert.assertEquals(3, store.availableSpacesOf(handle));
+    }
+
+    @Test
+    public void remove_freesTheHandle_forReuse() {
+        CompactLotStore store = new CompactLotStore();
+        int removed = store.put("a", lotAt(LAT, LNG, 1));
+        store.put("b", lotAt(LAT, LNG, 2));
+        Assert.assertTrue(store.remove("a"));
+        Assert.assertFalse(store.remove("a"));
+        Assert.assertNull(store.materialize(removed));
+        Assert.assertEquals(CompactLotStore.NO_HANDLE, store.handleOf("a"));
+        Assert.assertEquals(removed, store.put("c", lotAt(LAT, LNG, 3)));
+        Assert.assertEquals("c", store.docIdOf(removed));
+    }
+
+    @Test
+    public void manyLots_growTheArrays_andForEachVisitsEach() {
+        CompactLotStore store = new CompactLotStore();
+        for (int i = 0; i < 1000; i++) store.put("doc" + i, lotAt(LAT + i * 1e-4, LNG, i));
+        store.remove("doc500");
+        List<String> visited = new ArrayList<>();
+        store.forEach(handle -> visited.add(store.docIdOf(handle)));
+        Assert.assertEquals(999, visited.size());
+        Assert.assertFalse(visited.contains("doc500"));
+        Assert.assertEquals(999, store.availableSpacesOf(store.handleOf("doc999")));
+    }
+
+    @Test
+    public void putFromAnotherStore_copiesTheLot() {
+        ParkingLot lot = lotAt(LAT, LNG, 7);
+        CompactLotStore source = new CompactLotStore();
+        int sourceHandle = source.put("doc", lot);
+        CompactLotStore target = new CompactLotStore();
+        int handle = target.put("doc", source, sourceHandle);
+        Assert.assertEquals(ParkingLotMapper.toMap(lot), ParkingLotMapper.toMap(target.materialize(handle)));
+    }
+
+    @Test
+    public void lotWithoutOffers_hasNoBestOfferRatio() {
+        ParkingLot lot = lotAt(LAT, LNG, 7);
+        lot.setSlotOfferList(null);
+        CompactLotStore store = new CompactLotStore();
+        int handle = store.put("doc", lot);
+        Assert.assertTrue(Float.isNaN(store.bestOfferRatioOf(handle)));
+        Assert.assertEquals(0f, store.maxDurationOf(handle), 0f);
+        Assert.assertNull(store.materialize(handle).getSlotOfferList());
+    }
+}
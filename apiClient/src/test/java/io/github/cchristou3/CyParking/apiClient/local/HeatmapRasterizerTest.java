@@ -0,0 +1,134 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Unit tests for the {@link HeatmapRasterizer}.
+ */
+public class HeatmapRasterizerTest {
+
+    private static final double LAT = 35.18561, LNG = 33.38231;
+    private static final int ZOOM = 12;
+    private static final int RADIUS = 24;
+
+    private HeatmapRasterizer rasterizer;
+    private LotSpatialIndex index;
+
+    @Before
+    public void setUp() {
+        rasterizer = new HeatmapRasterizer(RADIUS);
+        index = new LotSpatialIndex();
+    }
+
+    @Test
+    public void rasterize_colorsByTheFreeRatio() {
+        index.upsert("full", LAT, LNG, 0, 50);
+        index.upsert("empty", LAT + 0.2, LNG, 50, 50);
+        final int[] full = pixelAt(LAT, LNG);
+        final int[] empty = pixelAt(LAT + 0.2, LNG);
+        Assert.assertTrue(alphaOf(full[0]) > 0);
+        Assert.assertEquals(255, (full[0] >> 16) & 0xFF); // Red
+        Assert.assertEquals(0, (full[0] >> 8) & 0xFF);
+        Assert.assertEquals(0, (empty[0] >> 16) & 0xFF); // Green
+        Assert.assertTrue(((empty[0] >> 8) & 0xFF) > 0);
+    }
+
+    @Test
+    public void rasterize_withoutLotsNearby_drawsNothing() {
+        Assert.assertNull(rasterizer.rasterize(0, 0, ZOOM, index));
+        index.upsert("lot", LAT, LNG, 5, 10);
+        Assert.assertNull(rasterizer.rasterize(0, 0, ZOOM, index));
+        // A lot without capacity is not drawn
+        index.clear();
+        index.upsert("closed", LAT, LNG, 0, 0);
+        final int[] tile = tileOf(LAT, LNG);
+        Assert.assertNull(rasterizer.rasterize(tile[0], tile[1], ZOOM, index));
+    }
+
+    @Test
+    public void visitTilesAround_coversEveryTileThatALotChanges() {
+        final Random random = new Random(29);
+        for (int i = 0; i < 300; i++) {
+            index.upsert("lot" + i, LAT + (random.nextDouble() - 0.5) * 0.2,
+                    LNG + (random.nextDouble() - 0.5) * 0.2, random.nextInt(20), 20);
+        }
+        for (int i = 0; i < 20; i++) {
+            final double lat = LAT + (random.nextDouble() - 0.5) * 0.2;
+            final double lng = LNG + (random.nextDouble() - 0.5) * 0.2;
+            final Set<Long> touched = new HashSet<>();
+            rasterizer.visitTilesAround(lat, lng, ZOOM, (x, y) -> touched.add(keyOf(x, y)));
+            Assert.assertFalse(touched.isEmpty());
+            final int[] origin = tileOf(lat, lng);
+            // The tiles around the lot, touched or not
+            for (int x = origin[0] - 1; x <= origin[0] + 1; x++) {
+                for (int y = origin[1] - 1; y <= origin[1] + 1; y++) {
+                    final int[] before = rasterizer.rasterize(x, y, ZOOM, index);
+                    index.upsert("changed", lat, lng, 10, 10);
+                    final int[] after = rasterizer.rasterize(x, y, ZOOM, index);
+                    index.remove("changed");
+                    if (!touched.contains(keyOf(x, y))) Assert.assertArrayEquals(before, after);
+                }
+            }
+            Assert.assertTrue(touched.contains(keyOf(origin[0], origin[1])));
+        }
+    }
+
+    @Test
+    public void rasterize_acrossTheAntimeridian() {
+        index.upsert("east", 0, 179.999, 3, 3);
+        final int tiles = 1 << 3;
+        // Drawn at the edges of both the first and the last column
+        final int[] first = rasterizer.rasterize(0, tiles / 2, 3, index);
+        final int[] last = rasterizer.rasterize(tiles - 1, tiles / 2, 3, index);
+        Assert.assertNotNull(first);
+        Assert.assertNotNull(last);
+        Assert.assertTrue(alphaOf(first[0]) > 0);
+        Assert.assertTrue(alphaOf(last[HeatmapRasterizer.TILE_SIZE - 1]) > 0);
+        final Set<Long> touched = new HashSet<>();
+        rasterizer.visitTilesAround(0, 179.999, 3, (x, y) -> touched.add(keyOf(x, y)));
+        Assert.assertTrue(touched.containsAll(Arrays.asList(keyOf(0, tiles / 2), keyOf(tiles - 1, tiles / 2))));
+    }
+
+    /**
+     * The pixel of the given position, in its tile at {@link #ZOOM}.
+     */
+    private int[] pixelAt(double latitude, double longitude) {
+        final double[] world = worldPixelOf(latitude, longitude);
+        final int[] tile = tileOf(latitude, longitude);
+        final int[] pixels = rasterizer.rasterize(tile[0], tile[1], ZOOM, index);
+        Assert.assertNotNull(pixels);
+        final int px = (int) Math.round(world[0]) - tile[0] * HeatmapRasterizer.TILE_SIZE;
+        final int py = (int) Math.round(world[1]) - tile[1] * HeatmapRasterizer.TILE_SIZE;
+        return new int[]{pixels[py * HeatmapRasterizer.TILE_SIZE + px]};
+    }
+
+    private static int[] tileOf(double latitude, double longitude) {
+        final double[] world = worldPixelOf(latitude, longitude);
+        return new int[]{(int) (world[0] / HeatmapRasterizer.TILE_SIZE), (int) (world[1] / HeatmapRasterizer.TILE_SIZE)};
+    }
+
+    /**
+     * The Web Mercator pixel coordinates of the given position at {@link #ZOOM}.
+     */
+    private static double[] worldPixelOf(double latitude, double longitude) {
+        final double worldSize = HeatmapRasterizer.TILE_SIZE * (double) (1 << ZOOM);
+        final double sin = Math.sin(Math.toRadians(latitude));
+        return new double[]{(longitude + 180) / 360 * worldSize,
+                (0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * worldSize};
+    }
+
+    private static int alphaOf(int pixel) {
+        return pixel >>> 24;
+    }
+
+    private static long keyOf(int x, int y) {
+        return ((long) x << 32) | y;
+    }
+}
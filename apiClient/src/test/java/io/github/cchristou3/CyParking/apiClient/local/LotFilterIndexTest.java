@@ -0,0 +1,114 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for the {@link LotFilterIndex} and {@link LotFilter} classes.
+ */
+public class LotFilterIndexTest {
+
+    private static final int LOTS = 2_000;
+
+    private LotFilterIndex index;
+    private int[] availableSpaces;
+    private float[] bestRatios;
+    private float[] maxDurations;
+
+    @Before
+    public void setUp() {
+        final Random random = new Random(11);
+        index = new LotFilterIndex();
+        availableSpaces = new int[LOTS];
+        bestRatios = new float[LOTS];
+        maxDurations = new float[LOTS];
+        for (int i = 0; i < LOTS; i++) {
+            availableSpaces[i] = random.nextInt(4) == 0 ? 0 : random.nextInt(80);
+            // One lot in ten has no offers
+            final boolean hasOffers = random.nextInt(10) != 0;
+            bestRatios[i] = hasOffers ? 0.5f + random.nextInt(40) / 4f : Float.NaN;
+            maxDurations[i] = hasOffers ? 1 + random.nextInt(12) : 0f;
+            index.upsert(docIdOf(i), availableSpaces[i], bestRatios[i], maxDurations[i]);
+        }
+    }
+
+    @Test
+    public void match_agreesWithTheFilter_forEveryCombinationOfCriteria() {
+        final int[] spaces = {0, 1, 3, 5, 19, 20, 79, 100};
+        final float[] prices = {Float.POSITIVE_INFINITY, 0.5f, 2f, 2.1f, 5.25f};
+        final float[] durations = {0f, 1f, 4f, 12f, 13f};
+        for (int minSpaces : spaces) {
+            for (float maxPrice : prices) {
+                for (float minDuration : durations) {
+                    assertMatchesBruteForce(new LotFilter(minSpaces, maxPrice, minDuration));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void match_afterUpdatesAndRemovals_agreesWithTheFilter() {
+        final LotFilter filter = new LotFilter(5, 3f, 2f);
+        assertMatchesBruteForce(filter); // Builds the sorted orders
+        final Random random = new Random(13);
+        for (int i = 0; i < 300; i++) {
+            final int lot = random.nextInt(LOTS);
+            availableSpaces[lot] = random.nextInt(30);
+            if (i % 3 == 0) { // The offers changed too
+                bestRatios[lot] = 0.5f + random.nextInt(20) / 4f;
+                maxDurations[lot] = 1 + random.nextInt(6);
+            }
+            index.upsert(docIdOf(lot), availableSpaces[lot], bestRatios[lot], maxDurations[lot]);
+        }
+        Assert.assertTrue(index.remove(docIdOf(0)));
+        Assert.assertFalse(index.remove(docIdOf(0)));
+        availableSpaces[0] = -1; // Marks it as removed
+        assertMatchesBruteForce(filter);
+        // A new lot takes the removed lot's handle
+        index.upsert("new", 50, 1f, 10f);
+        Assert.assertTrue(index.matches("new", filter));
+        Assert.assertEquals(LOTS, index.size());
+    }
+
+    @Test
+    public void noneFilter_acceptsEveryLot() {
+        Assert.assertTrue(LotFilter.NONE.isEmpty());
+        Assert.assertTrue(LotFilter.NONE.accepts(0, Float.NaN, 0f));
+        Assert.assertEquals(LOTS, index.count(LotFilter.NONE));
+        Assert.assertFalse(new LotFilter(0, 2f, 0f).accepts(3, Float.NaN, 4f));
+    }
+
+    @Test
+    public void bucketOf_mapsToTheRangeLowerBounds() {
+        Assert.assertEquals(0, LotFilterIndex.bucketOf(-3));
+        Assert.assertEquals(0, LotFilterIndex.bucketOf(0));
+        Assert.assertEquals(2, LotFilterIndex.bucketOf(4));
+        Assert.assertEquals(LotFilterIndex.SPACE_BUCKETS.length - 1, LotFilterIndex.bucketOf(1_000));
+    }
+
+    private void assertMatchesBruteForce(LotFilter filter) {
+        final Map<String, Boolean> visited = new HashMap<>();
+        index.match(filter, visited::put);
+        int expectedCount = 0;
+        for (int i = 0; i < LOTS; i++) {
+            if (availableSpaces[i] < 0) {
+                Assert.assertFalse(visited.containsKey(docIdOf(i)));
+                continue;
+            }
+            final boolean expected = filter.accepts(availableSpaces[i], bestRatios[i], maxDurations[i]);
+            Assert.assertEquals(filter + " on lot " + i, expected, visited.get(docIdOf(i)));
+            Assert.assertEquals(expected, index.matches(docIdOf(i), filter));
+            if (expected) expectedCount++;
+        }
+        Assert.assertEquals(expectedCount, index.count(filter));
+    }
+
+    private static String docIdOf(int lot) {
+        return "doc" + lot;
+    }
+}
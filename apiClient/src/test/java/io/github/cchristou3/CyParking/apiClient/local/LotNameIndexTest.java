@@ -0,0 +1,152 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for the {@link LotNameIndex}.
+ */
+public class LotNameIndexTest {
+
+    private static final double LAT = 35.18561, LNG = 33.38231;
+    private static final String[] WORDS = {"Nicosia", "Mall", "Central", "Λευκωσία", "Parking", "Old", "Town",
+            "Plaza", "Makariou", "Stadium", "Hospital", "Ayios", "Dometios", "Strovolos", "Park"};
+    private static final int LOTS = 2_000;
+
+    private LotNameIndex index;
+    private String[] names;
+    private double[] latitudes, longitudes;
+
+    @Before
+    public void setUp() {
+        final Random random = new Random(17);
+        index = new LotNameIndex();
+        names = new String[LOTS];
+        latitudes = new double[LOTS];
+        longitudes = new double[LOTS];
+        for (int i = 0; i < LOTS; i++) {
+            names[i] = randomName(random);
+            latitudes[i] = LAT + (random.nextDouble() - 0.5) * 0.18;
+            longitudes[i] = LNG + (random.nextDouble() - 0.5) * 0.22;
+            index.upsert(docIdOf(i), names[i], latitudes[i], longitudes[i]);
+        }
+    }
+
+    @Test
+    public void fold_ignoresAccentsCaseAndPunctuation() {
+        Assert.assertEquals("cafe de paris", LotNameIndex.fold("  Café-de  PARIS! "));
+        Assert.assertEquals("λευκωσια", LotNameIndex.fold("ΛΕΥΚΩΣΊΑ"));
+        Assert.assertEquals("αγιοσ", LotNameIndex.fold("Άγιος"));
+        Assert.assertEquals("", LotNameIndex.fold("--"));
+        Assert.assertEquals("", LotNameIndex.fold(null));
+    }
+
+    @Test
+    public void search_agreesWithABruteForceRanking() {
+        for (String query : new String[]{"n", "Nic", "par", "PARK", "λευ", "Λευκωσια", "mall p", "town", "zzz"}) {
+            Assert.assertEquals(query, bruteForce(query, 10), docIdsOf(index.search(query, LAT, LNG, 10)));
+        }
+    }
+
+    @Test
+    public void search_ranksTheNameStartBeforeTheNearest() {
+        index.clear();
+        index.upsert("near", "Old Town Plaza", LAT, LNG);
+        index.upsert("far", "Plaza Mall", LAT + 0.1, LNG);
+        index.upsert("farther", "Plaza Central", LAT + 0.2, LNG);
+        final List<LotNameIndex.Match> matches = index.search("plaza", LAT, LNG, 5);
+        Assert.assertEquals(Arrays.asList("far", "farther", "near"), docIdsOf(matches));
+        Assert.assertTrue(matches.get(0).isNamePrefix());
+        Assert.assertFalse(matches.get(2).isNamePrefix());
+        Assert.assertEquals(0, matches.get(2).getDistanceInMeters(), 1e-6);
+        // Without an origin, by name
+        Assert.assertEquals(Arrays.asList("farther", "far", "near"),
+                docIdsOf(index.search("plaza", Double.NaN, Double.NaN, 5)));
+    }
+
+    @Test
+    public void upsertAndRemove_keepTheIndexUpToDate() {
+        Assert.assertEquals(bruteForce("old", 20), docIdsOf(index.search("old", LAT, LNG, 20)));
+        final Random random = new Random(19);
+        for (int i = 0; i < 300; i++) {
+            final int lot = random.nextInt(LOTS);
+            if (i % 2 == 0) names[lot] = randomName(random); // Renamed
+            latitudes[lot] = LAT + (random.nextDouble() - 0.5) * 0.02;
+            index.upsert(docIdOf(lot), names[lot], latitudes[lot], longitudes[lot]);
+            if (i % 50 == 0) { // Interleaves the queries with the updates
+                Assert.assertEquals(bruteForce("old", 20), docIdsOf(index.search("old", LAT, LNG, 20)));
+            }
+        }
+        for (int lot = 0; lot < 100; lot++) {
+            Assert.assertTrue(index.remove(docIdOf(lot)));
+            names[lot] = null;
+        }
+        Assert.assertFalse(index.remove(docIdOf(0)));
+        Assert.assertEquals(LOTS - 100, index.size());
+        for (String query : new String[]{"old", "p", "mall"}) {
+            Assert.assertEquals(bruteForce(query, 20), docIdsOf(index.search(query, LAT, LNG, 20)));
+        }
+        // A name without letters or digits cannot be found
+        index.upsert(docIdOf(200), "???", LAT, LNG);
+        Assert.assertEquals(LOTS - 101, index.size());
+    }
+
+    @Test
+    public void search_withAnEmptyQuery_findsNothing() {
+        Assert.assertTrue(index.search("", LAT, LNG, 10).isEmpty());
+        Assert.assertTrue(index.search(" - ", LAT, LNG, 10).isEmpty());
+        Assert.assertTrue(index.search("park", LAT, LNG, 0).isEmpty());
+    }
+
+    /**
+     * The document ids of the best matches of the given query, ranked as the index does.
+     */
+    private List<String> bruteForce(String query, int limit) {
+        final String prefix = LotNameIndex.fold(query);
+        final List<Integer> lots = new ArrayList<>();
+        final int[] kinds = new int[LOTS];
+        final double[] distances = new double[LOTS];
+        for (int i = 0; i < LOTS; i++) {
+            if (names[i] == null) continue;
+            final String folded = LotNameIndex.fold(names[i]);
+            if (folded.startsWith(prefix)) kinds[i] = 0;
+            else if (folded.contains(" " + prefix)) kinds[i] = 1;
+            else continue;
+            final double deltaLng = (longitudes[i] - LNG) * Math.cos(Math.toRadians(LAT));
+            distances[i] = (latitudes[i] - LAT) * (latitudes[i] - LAT) + deltaLng * deltaLng;
+            lots.add(i);
+        }
+        lots.sort((a, b) -> kinds[a] != kinds[b] ? kinds[a] - kinds[b] : Double.compare(distances[a], distances[b]));
+        final List<String> docIds = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, lots.size()); i++) docIds.add(docIdOf(lots.get(i)));
+        return docIds;
+    }
+
+    private static List<String> docIdsOf(List<LotNameIndex.Match> matches) {
+        if (matches.isEmpty()) return Collections.emptyList();
+        final List<String> docIds = new ArrayList<>();
+        for (LotNameIndex.Match match : matches) docIds.add(match.getDocId());
+        return docIds;
+    }
+
+    private static String randomName(Random random) {
+        final StringBuilder name = new StringBuilder();
+        final int words = 1 + random.nextInt(3);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) name.append(random.nextBoolean() ? " " : " - ");
+            name.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return name.toString();
+    }
+
+    private static String docIdOf(int lot) {
+        return "doc" + lot;
+    }
+}
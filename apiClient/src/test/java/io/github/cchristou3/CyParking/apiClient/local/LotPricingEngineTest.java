@@ -0,0 +1,158 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.SlotOffer;
+
+/**
+ * Unit tests for the {@link LotPricingEngine}.
+ */
+public class LotPricingEngineTest {
+
+    private static final int LOTS = 500;
+    private static final double DELTA = 1e-4;
+
+    private LotPricingEngine engine;
+    private List<List<SlotOffer>> offers;
+
+    @Before
+    public void setUp() {
+        final Random random = new Random(23);
+        engine = new LotPricingEngine();
+        offers = new ArrayList<>();
+        for (int i = 0; i < LOTS; i++) {
+            final List<SlotOffer> lotOffers = randomOffers(random);
+            offers.add(lotOffers);
+            engine.upsert(docIdOf(i), lotOffers);
+        }
+    }
+
+    @Test
+    public void quote_findsTheCheapestCombination() {
+        for (int i = 0; i < 50; i++) {
+            for (float hours : new float[]{0.25f, 1f, 2.5f, 3f, 4.75f, 7f}) {
+                final LotPricingEngine.Quote quote = engine.quote(docIdOf(i), hours);
+                Assert.assertNotNull(quote);
+                final int buckets = LotPricingEngine.bucketsOf(hours);
+                Assert.assertEquals(bruteForce(offers.get(i), buckets), quote.getTotalPrice(), DELTA);
+                // The combination adds up to the quote
+                double total = 0;
+                for (SlotOffer offer : quote.getCombination()) total += offer.getPrice();
+                Assert.assertEquals(quote.getTotalPrice(), total, DELTA);
+                Assert.assertTrue(quote.getCoveredHours() >= hours);
+            }
+        }
+    }
+
+    @Test
+    public void quote_doesNotAlwaysUseTheBestRatio() {
+        final List<SlotOffer> lotOffers = Arrays.asList(new SlotOffer(1f, 2f), new SlotOffer(5f, 5f),
+                new SlotOffer(2f, 4.5f)); // The last one never pays off
+        // The 5 hour offer has the best ratio, but not for an hour
+        Assert.assertEquals(2f, LotPricingEngine.quote(lotOffers, 1f).getTotalPrice(), DELTA);
+        final LotPricingEngine.Quote quote = LotPricingEngine.quote(lotOffers, 6f);
+        Assert.assertEquals(7f, quote.getTotalPrice(), DELTA);
+        Assert.assertEquals(6f, quote.getCoveredHours(), DELTA);
+        Assert.assertEquals(2, quote.getCombination().size());
+        // Covering more than asked may cost less
+        Assert.assertEquals(5f, LotPricingEngine.quote(lotOffers, 3f).getCoveredHours(), DELTA);
+        Assert.assertNull(LotPricingEngine.quote(new ArrayList<>(), 3f));
+    }
+
+    @Test
+    public void rankCheapest_agreesWithSortingEveryQuote() {
+        for (float hours : new float[]{1f, 3f, 9.5f}) {
+            final List<String> expected = sortedDocIds(hours);
+            final List<LotPricingEngine.Quote> ranked = engine.rankCheapest(hours, 10);
+            Assert.assertEquals(expected.subList(0, 10), docIdsOf(ranked));
+        }
+        Assert.assertTrue(engine.rankCheapest(3f, 0).isEmpty());
+    }
+
+    @Test
+    public void rankCheapest_inParallel_agreesWithTheCallingThread() throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            final AtomicReference<List<LotPricingEngine.Quote>> result = new AtomicReference<>();
+            engine.rankCheapest(3f, 25, executor, 4, cheapest -> {
+                result.set(cheapest);
+                latch.countDown();
+            });
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(docIdsOf(engine.rankCheapest(3f, 25)), docIdsOf(result.get()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void upsertAndRemove_keepTheLotsUpToDate() {
+        engine.upsert(docIdOf(0), Arrays.asList(new SlotOffer(4f, 0.1f)));
+        Assert.assertEquals(docIdOf(0), engine.rankCheapest(3f, 1).get(0).getDocId());
+        Assert.assertTrue(engine.remove(docIdOf(0)));
+        Assert.assertFalse(engine.remove(docIdOf(0)));
+        Assert.assertNull(engine.quote(docIdOf(0), 3f));
+        // A lot without offers cannot be priced
+        engine.upsert(docIdOf(1), new ArrayList<>());
+        Assert.assertEquals(LOTS - 2, engine.size());
+    }
+
+    /**
+     * The least price of covering the given number of buckets, by trying every count of each offer.
+     */
+    private static double bruteForce(List<SlotOffer> lotOffers, int buckets) {
+        return bruteForce(lotOffers, 0, buckets);
+    }
+
+    private static double bruteForce(List<SlotOffer> lotOffers, int offer, int buckets) {
+        if (buckets <= 0) return 0;
+        if (offer == lotOffers.size()) return Double.POSITIVE_INFINITY;
+        final SlotOffer slotOffer = lotOffers.get(offer);
+        final int offerBuckets = (int) Math.floor(slotOffer.getDuration() / LotPricingEngine.BUCKET_IN_HOURS + 1e-4);
+        double best = bruteForce(lotOffers, offer + 1, buckets);
+        for (int count = 1; offerBuckets > 0 && count <= (buckets + offerBuckets - 1) / offerBuckets; count++) {
+            best = Math.min(best, count * slotOffer.getPrice()
+                    + bruteForce(lotOffers, offer + 1, buckets - count * offerBuckets));
+        }
+        return best;
+    }
+
+    private List<String> sortedDocIds(float hours) {
+        final List<LotPricingEngine.Quote> quotes = new ArrayList<>();
+        for (int i = 0; i < LOTS; i++) quotes.add(engine.quote(docIdOf(i), hours));
+        quotes.sort(LotPricingEngine.CHEAPEST_FIRST);
+        return docIdsOf(quotes);
+    }
+
+    private static List<String> docIdsOf(List<LotPricingEngine.Quote> quotes) {
+        final List<String> docIds = new ArrayList<>();
+        for (LotPricingEngine.Quote quote : quotes) docIds.add(quote.getDocId());
+        return docIds;
+    }
+
+    private static List<SlotOffer> randomOffers(Random random) {
+        final List<SlotOffer> lotOffers = new ArrayList<>();
+        final int count = 1 + random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            lotOffers.add(new SlotOffer(0.5f * (1 + random.nextInt(12)), 0.5f * (1 + random.nextInt(30))));
+        }
+        return lotOffers;
+    }
+
+    private static String docIdOf(int lot) {
+        return "doc" + lot;
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.Parking;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.SlotOffer;
+import io.github.cchristou3.CyParking.apiClient.model.mapper.ParkingLotMapper;
+
+/**
+ * Unit tests for the {@link LotSnapshotStore}.
+ */
+public class LotSnapshotStoreTest {
+
+    private static final double LAT = 35.18561, LNG = 33.38231;
+    private static final double RADIUS = 1000.0;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "lots.bin");
+    }
+
+    private static ParkingLot lotAt(double lat, double lng) {
+        ParkingLot lot = new ParkingLot(new Parking.Coordinates(lat, lng), "Lot", "operator@gmail.com",
+                "99999999", 20, "https://photo", Arrays.asList(new SlotOffer(1, 2.5f), new SlotOffer(3, 6f)));
+        lot.setAvailableSpaces(7);
+        return lot.assignGeohash();
+    }
+
+    @Test
+    public void flush_thenReadFromNewStore_returnsTheSameLots() {
+        // Given
+        ParkingLot lot = lotAt(LAT, LNG);
+        LotSnapshotStore store = new LotSnapshotStore(file);
+        store.put("doc", lot, 1000L);
+        // When
+        Assert.assertTrue(store.flush());
+        List<LotSnapshotStore.Entry> entries = new LotSnapshotStore(file).getNearby(LAT, LNG, RADIUS);
+        // Then
+        Assert.assertEquals(1, entries.size());
+        Assert.assertEquals("doc", entries.get(0).getDocId());
+        Assert.assertEquals(1000L, entries.get(0).getSavedAtMillis());
+        Assert.assertEquals(ParkingLotMapper.toMap(lot), ParkingLotMapper.toMap(entries.get(0).getLot()));
+    }
+
+    @Test
+    public void getNearby_lotOutsideRadius_isExcluded() {
+        LotSnapshotStore store = new LotSnapshotStore(file);
+        store.put("near", lotAt(LAT, LNG), 0L);
+        store.put("far", lotAt(LAT + 0.1, LNG), 0L); // ~11km away
+        List<LotSnapshotStore.Entry> entries = store.getNearby(LAT, LNG, RADIUS);
+        Assert.assertEquals(1, entries.size());
+        Assert.assertEquals("near", entries.get(0).getDocId());
+    }
+
+    @Test
+    public void replaceNearby_removesMissingNearbyLots_keepsFarOnes() {
+        // Given
+        LotSnapshotStore store = new LotSnapshotStore(file);
+        store.put("gone", lotAt(LAT, LNG), 0L);
+        store.put("kept", lotAt(LAT, LNG), 0L);
+        store.put("far", lotAt(LAT + 0.1, LNG), 0L);
+        Map<String, ParkingLot> live = new HashMap<>();
+        live.put("kept", lotAt(LAT, LNG));
+        // When
+        store.replaceNearby(LAT, LNG, RADIUS, live, 500L);
+        // Then
+        Assert.assertEquals(2, store.size());
+        List<LotSnapshotStore.Entry> nearby = store.getNearby(LAT, LNG, RADIUS);
+        Assert.assertEquals(1, nearby.size());
+        Assert.assertEquals("kept", nearby.get(0).getDocId());
+        Assert.assertEquals(500L, nearby.get(0).getSavedAtMillis());
+    }
+
+    @Test
+    public void put_overMaxEntries_dropsTheOldest() {
+        LotSnapshotStore store = new LotSnapshotStore(file);
+        for (int i = 0; i <= LotSnapshotStore.MAX_ENTRIES; i++) {
+            store.put("doc" + i, lotAt(LAT, LNG), i);
+        }
+        Assert.assertEquals(LotSnapshotStore.MAX_ENTRIES, store.size());
+        Assert.assertEquals("doc1", store.getNearby(LAT, LNG, RADIUS).get(0).getDocId());
+    }
+
+    @Test
+    public void corruptedFile_isTreatedAsEmpty() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{0, 0, 0, 1, 0, 0, 0, 5, 1});
+        }
+        LotSnapshotStore store = new LotSnapshotStore(file);
+        Assert.assertEquals(0, store.size());
+        Assert.assertFalse(file.exists());
+    }
+}
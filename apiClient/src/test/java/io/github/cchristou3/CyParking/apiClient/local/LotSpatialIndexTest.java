@@ -0,0 +1,178 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import io.github.cchristou3.CyParking.geo.GeoDistance;
+
+/**
+ * Unit tests for the {@link LotSpatialIndex}.
+ */
+public class LotSpatialIndexTest {
+
+    private static final double LAT = 35.18561, LNG = 33.38231;
+    private static final int LOTS = 3_000;
+
+    private LotSpatialIndex index;
+    private double[] latitudes, longitudes;
+    private int[] availableSpaces;
+
+    @Before
+    public void setUp() {
+        // Lots spread over a 20km square around Nicosia, a fifth of them full
+        final Random random = new Random(3);
+        index = new LotSpatialIndex();
+        latitudes = new double[LOTS];
+        longitudes = new double[LOTS];
+        availableSpaces = new int[LOTS];
+        for (int i = 0; i < LOTS; i++) {
+            latitudes[i] = LAT + (random.nextDouble() - 0.5) * 0.18;
+            longitudes[i] = LNG + (random.nextDouble() - 0.5) * 0.22;
+            availableSpaces[i] = random.nextInt(5) == 0 ? 0 : 1 + random.nextInt(20);
+            index.upsert(docIdOf(i), latitudes[i], longitudes[i], availableSpaces[i], 20);
+        }
+    }
+
+    @Test
+    public void findWithin_returnsTheLotsInTheRadius_nearestFirst() {
+        for (double radius : new double[]{50, 300, 1_000, 5_000, 50_000}) {
+            Assert.assertEquals(bruteForce(LAT, LNG, LOTS, radius, false),
+                    index.findWithin(LAT, LNG, radius, LotSpatialIndex.ANY));
+            Assert.assertEquals(bruteForce(LAT, LNG, LOTS, radius, true),
+                    index.findWithin(LAT, LNG, radius, LotSpatialIndex.HAS_AVAILABLE_SPACES));
+        }
+    }
+
+    @Test
+    public void findNearest_returnsTheNearestLots() {
+        final Random random = new Random(5);
+        for (int i = 0; i < 50; i++) {
+            // Some of the origins lie far outside the lots' area
+            final double lat = LAT + (random.nextDouble() - 0.5) * (i < 40 ? 0.2 : 4);
+            final double lng = LNG + (random.nextDouble() - 0.5) * (i < 40 ? 0.2 : 4);
+            for (int k : new int[]{1, 5, 40}) {
+                Assert.assertEquals(bruteForce(lat, lng, k, Double.MAX_VALUE, true),
+                        index.findNearest(lat, lng, k, LotSpatialIndex.HAS_AVAILABLE_SPACES));
+            }
+        }
+        Assert.assertEquals(LOTS, index.findNearest(LAT, LNG, LOTS + 10, LotSpatialIndex.ANY).size());
+    }
+
+    @Test
+    public void findInBounds_returnsTheLotsInTheBox() {
+        final double south = LAT - 0.01, west = LNG - 0.02, north = LAT + 0.015, east = LNG + 0.01;
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < LOTS; i++) {
+            if (latitudes[i] >= south && latitudes[i] <= north && longitudes[i] >= west && longitudes[i] <= east) {
+                expected.add(docIdOf(i));
+            }
+        }
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(new HashSet<>(expected),
+                new HashSet<>(index.findInBounds(south, west, north, east, LotSpatialIndex.ANY)));
+    }
+
+    @Test
+    public void findInBounds_acrossTheAntimeridian() {
+        index.clear();
+        index.upsert("east", -17, 179.999, 1, 1);
+        index.upsert("west", -17, -179.999, 1, 1);
+        index.upsert("far", -17, 170, 1, 1);
+        Assert.assertEquals(new HashSet<>(Arrays.asList("east", "west")),
+                new HashSet<>(index.findInBounds(-18, 179.99, -16, -179.99, LotSpatialIndex.ANY)));
+        Assert.assertEquals(Arrays.asList("east", "west"), index.findNearest(-17, 179.9995, 2, LotSpatialIndex.ANY));
+    }
+
+    @Test
+    public void upsertAndRemove_keepTheIndexUpToDate() {
+        // Move a lot to another cell and fill another one
+        index.upsert(docIdOf(0), LAT, LNG, 3, 20);
+        index.upsert(docIdOf(1), LAT + 1e-5, LNG, 0, 20);
+        Assert.assertEquals(docIdOf(0), index.findNearest(LAT, LNG, 1, LotSpatialIndex.ANY).get(0));
+        Assert.assertFalse(index.findWithin(LAT, LNG, 10, LotSpatialIndex.HAS_AVAILABLE_SPACES).contains(docIdOf(1)));
+
+        Assert.assertTrue(index.remove(docIdOf(0)));
+        Assert.assertFalse(index.remove(docIdOf(0)));
+        Assert.assertEquals(LOTS - 1, index.size());
+        Assert.assertEquals(Collections.singletonList(docIdOf(1)), index.findWithin(LAT, LNG, 10, LotSpatialIndex.ANY));
+        // Its handle gets reused
+        index.upsert("new", LAT, LNG, 1, 1);
+        Assert.assertEquals("new", index.findNearest(LAT, LNG, 1, LotSpatialIndex.ANY).get(0));
+    }
+
+    @Test
+    public void onChangeListener_receivesThePositionsOfTheChanges() {
+        final List<double[]> changes = new ArrayList<>();
+        index.setOnChangeListener((latitude, longitude) -> changes.add(new double[]{latitude, longitude}));
+        index.upsert(docIdOf(0), latitudes[0], longitudes[0], availableSpaces[0], 20);
+        Assert.assertTrue(changes.isEmpty()); // Nothing changed
+        index.upsert(docIdOf(0), latitudes[0], longitudes[0], availableSpaces[0] + 1, 20);
+        Assert.assertArrayEquals(new double[]{latitudes[0], longitudes[0]}, changes.get(0), 0);
+        changes.clear();
+        index.upsert(docIdOf(0), LAT, LNG, 1, 20); // Moved
+        Assert.assertEquals(2, changes.size());
+        Assert.assertArrayEquals(new double[]{latitudes[0], longitudes[0]}, changes.get(0), 0);
+        Assert.assertArrayEquals(new double[]{LAT, LNG}, changes.get(1), 0);
+        changes.clear();
+        index.remove(docIdOf(0));
+        Assert.assertArrayEquals(new double[]{LAT, LNG}, changes.get(0), 0);
+        index.setOnChangeListener(null);
+        index.upsert("new", LAT, LNG, 1, 1);
+        Assert.assertEquals(1, changes.size());
+    }
+
+    @Test
+    public void visitInBounds_visitsTheLotsInTheBox_withTheirAvailability() {
+        final double south = LAT - 0.01, west = LNG - 0.02, north = LAT + 0.015, east = LNG + 0.01;
+        final int[] visited = {0, 0};
+        index.visitInBounds(south, west, north, east, (latitude, longitude, spaces, capacity) -> {
+            Assert.assertTrue(latitude >= south && latitude <= north && longitude >= west && longitude <= east);
+            visited[0]++;
+            visited[1] += spaces;
+        });
+        int expectedCount = 0, expectedSpaces = 0;
+        for (int i = 0; i < LOTS; i++) {
+            if (latitudes[i] >= south && latitudes[i] <= north && longitudes[i] >= west && longitudes[i] <= east) {
+                expectedCount++;
+                expectedSpaces += availableSpaces[i];
+            }
+        }
+        Assert.assertEquals(expectedCount, visited[0]);
+        Assert.assertEquals(expectedSpaces, visited[1]);
+    }
+
+    @Test
+    public void emptyIndex_findsNothing() {
+        index.clear();
+        Assert.assertTrue(index.findNearest(LAT, LNG, 3, LotSpatialIndex.ANY).isEmpty());
+        Assert.assertTrue(index.findWithin(LAT, LNG, 1_000, LotSpatialIndex.ANY).isEmpty());
+    }
+
+    /**
+     * The document ids of the given number of nearest lots, within the given radius, the nearest first.
+     */
+    private List<String> bruteForce(double lat, double lng, int count, double radius, boolean onlyAvailable) {
+        final List<Integer> lots = new ArrayList<>();
+        final double[] distances = new double[LOTS];
+        for (int i = 0; i < LOTS; i++) {
+            distances[i] = GeoDistance.haversine(lat, lng, latitudes[i], longitudes[i]);
+            if (distances[i] <= radius && (!onlyAvailable || availableSpaces[i] > 0)) lots.add(i);
+        }
+        lots.sort((a, b) -> Double.compare(distances[a], distances[b]));
+        final List<String> docIds = new ArrayList<>();
+        for (int i = 0; i < Math.min(count, lots.size()); i++) docIds.add(docIdOf(lots.get(i)));
+        return docIds;
+    }
+
+    private static String docIdOf(int lot) {
+        return "doc" + lot;
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.Set;
+
+import io.github.cchristou3.CyParking.apiClient.utils.GeoHash;
+
+/**
+ * Unit tests for the {@link StreetOccupancyStore}.
+ */
+public class StreetOccupancyStoreTest {
+
+    private static final double LAT = 35.18561, LNG = 33.38231;
+    private static final int SEGMENTS = 100;
+    private static final int SPACES = 300;
+
+    private StreetOccupancyStore store;
+    private BitSet[] occupancies;
+
+    @Before
+    public void setUp() {
+        final Random random = new Random(37);
+        store = new StreetOccupancyStore();
+        occupancies = new BitSet[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            occupancies[i] = randomBits(random, SPACES);
+            final StreetOccupancyStore.Diff diff = store.apply(docIdOf(i), LAT, LNG + i * 0.001, SPACES, occupancies[i]);
+            Assert.assertNotNull(diff);
+            Assert.assertTrue(diff.isNew());
+        }
+    }
+
+    @Test
+    public void apply_countsTheFreeSpaces() {
+        int free = 0;
+        for (int i = 0; i < SEGMENTS; i++) {
+            final int segmentFree = SPACES - occupancies[i].cardinality();
+            Assert.assertEquals(segmentFree, store.getFreeSpaces(docIdOf(i)));
+            free += segmentFree;
+        }
+        Assert.assertEquals(free, store.getTotalFreeSpaces());
+        Assert.assertEquals(SEGMENTS * SPACES, store.getTotalSpaces());
+        Assert.assertEquals(-1, store.getFreeSpaces("unknown"));
+    }
+
+    @Test
+    public void apply_reportsOnlyTheSpacesThatChanged() {
+        final Random random = new Random(41);
+        for (int round = 0; round < 500; round++) {
+            final int i = random.nextInt(SEGMENTS);
+            final BitSet next = (BitSet) occupancies[i].clone();
+            for (int flips = random.nextInt(4); flips > 0; flips--) next.flip(random.nextInt(SPACES));
+            final StreetOccupancyStore.Diff diff = store.apply(docIdOf(i), LAT, LNG + i * 0.001, SPACES, next);
+            final BitSet expectedFreed = (BitSet) occupancies[i].clone();
+            expectedFreed.andNot(next);
+            final BitSet expectedTaken = (BitSet) next.clone();
+            expectedTaken.andNot(occupancies[i]);
+            if (expectedFreed.isEmpty() && expectedTaken.isEmpty()) {
+                Assert.assertNull(diff);
+            } else {
+                Assert.assertNotNull(diff);
+                Assert.assertFalse(diff.isNew());
+                Assert.assertEquals(expectedFreed, diff.getFreed());
+                Assert.assertEquals(expectedTaken, diff.getTaken());
+                Assert.assertEquals(SPACES - next.cardinality(), diff.getFreeSpaces());
+            }
+            occupancies[i] = next;
+        }
+        // The totals followed the diffs
+        int free = 0;
+        for (BitSet occupancy : occupancies) free += SPACES - occupancy.cardinality();
+        Assert.assertEquals(free, store.getTotalFreeSpaces());
+        for (int space = 0; space < SPACES; space++) {
+            Assert.assertEquals(occupancies[7].get(space), store.isOccupied(docIdOf(7), space));
+        }
+    }
+
+    @Test
+    public void apply_dropsTheSpacesPastTheSegment() {
+        final BitSet occupied = new BitSet();
+        occupied.set(0, 10);
+        store.apply("short", LAT, LNG, 5, occupied);
+        Assert.assertEquals(0, store.getFreeSpaces("short"));
+        Assert.assertFalse(store.isOccupied("short", 7));
+        // Shrinking a segment does not free its dropped spaces
+        final StreetOccupancyStore.Diff diff = store.apply("short", LAT, LNG, 3, occupied);
+        Assert.assertNotNull(diff);
+        Assert.assertTrue(diff.getFreed().isEmpty());
+        Assert.assertEquals(0, diff.getFreeSpaces());
+        // Growing it adds free spaces
+        Assert.assertEquals(5, store.apply("short", LAT, LNG, 8, occupied.get(0, 3)).getFreeSpaces());
+    }
+
+    @Test
+    public void remove_dropsTheSegmentFromTheTotals() {
+        final int total = store.getTotalFreeSpaces();
+        Assert.assertTrue(store.remove(docIdOf(3)));
+        Assert.assertFalse(store.remove(docIdOf(3)));
+        Assert.assertEquals(total - (SPACES - occupancies[3].cardinality()), store.getTotalFreeSpaces());
+        Assert.assertEquals(SEGMENTS - 1, store.size());
+        final int[] visited = {0};
+        store.visitSegments((docId, latitude, longitude, spaceCount, freeSpaces) -> visited[0] += freeSpaces);
+        Assert.assertEquals(store.getTotalFreeSpaces(), visited[0]);
+        store.clear();
+        Assert.assertEquals(0, store.getTotalSpaces());
+    }
+
+    @Test
+    public void retainCells_dropsTheSegmentsOutsideTheCells() {
+        // The segments span about 9km eastwards, the cells about 3km around the first one
+        final String[] cells = GeoHash.coveringCells(LAT, LNG, 1000.0);
+        final Set<String> removed = store.retainCells(cells);
+        Assert.assertFalse(removed.isEmpty());
+        Assert.assertFalse(removed.contains(docIdOf(0)));
+        Assert.assertTrue(removed.contains(docIdOf(SEGMENTS - 1)));
+        Assert.assertEquals(SEGMENTS - removed.size(), store.size());
+        int free = 0;
+        for (int i = 0; i < SEGMENTS; i++) {
+            if (!removed.contains(docIdOf(i))) free += SPACES - occupancies[i].cardinality();
+        }
+        Assert.assertEquals(free, store.getTotalFreeSpaces());
+        Assert.assertEquals(store.size() * SPACES, store.getTotalSpaces());
+        Assert.assertTrue(store.retainCells(cells).isEmpty());
+    }
+
+    private static BitSet randomBits(Random random, int spaces) {
+        final BitSet bits = new BitSet();
+        for (int space = 0; space < spaces; space++) {
+            if (random.nextInt(3) == 0) bits.set(space);
+        }
+        return bits;
+    }
+
+    private static String docIdOf(int segment) {
+        return "segment" + segment;
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.cchristou3.CyParking.apiClient.local;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static io.github.cchristou3.CyParking.apiClient.utils.Utils.getDistanceApart;
+
+/**
+ * Unit tests for the {@link TileCache}.
+ */
+public class TileCacheTest {
+
+    private static final double LAT = 35.18561, LNG = 33.38231;
+    private static final double RADIUS = 1000.0;
+
+    private long now = 0L;
+    private final TileCache<String> cache = new TileCache<>(2, 100L, () -> now);
+
+    @Test
+    public void keyOf_sameTile_returnsTheSameKey() {
+        LatLng center = TileCache.centerOf(LAT, LNG);
+        double offset = TileCache.TILE_SIZE_IN_DEGREES / 4;
+        Assert.assertEquals(
+                TileCache.keyOf(center.latitude - offset, center.longitude - offset, RADIUS),
+                TileCache.keyOf(center.latitude + offset, center.longitude + offset, RADIUS));
+    }
+
+    @Test
+    public void keyOf_differentTileOrRadius_returnsDifferentKeys() {
+        String key = TileCache.keyOf(LAT, LNG, RADIUS);
+        Assert.assertNotEquals(key, TileCache.keyOf(LAT + TileCache.TILE_SIZE_IN_DEGREES, LNG, RADIUS));
+        Assert.assertNotEquals(key, TileCache.keyOf(LAT, LNG, RADIUS * 2));
+    }
+
+    @Test
+    public void halfDiagonalInMeters_coversEveryPointOfTheTile() {
+        LatLng center = TileCache.centerOf(LAT, LNG);
+        double half = TileCache.TILE_SIZE_IN_DEGREES / 2;
+        double halfDiagonal = TileCache.halfDiagonalInMeters(LAT);
+        for (int dLat = -1; dLat <= 1; dLat += 2) {
+            for (int dLng = -1; dLng <= 1; dLng += 2) {
+                LatLng corner = new LatLng(center.latitude + dLat * half, center.longitude + dLng * half);
+                Assert.assertTrue(getDistanceApart(center, corner) <= halfDiagonal + 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void get_afterTtl_returnsNull() {
+        cache.put("a", "value");
+        now = 100L;
+        Assert.assertEquals("value", cache.get("a"));
+        now = 101L;
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void put_overCapacity_evictsTheLeastRecentlyUsed() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a"); // "b" is now the least recently used
+        cache.put("c", "3");
+        Assert.assertEquals("1", cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals("3", cache.get("c"));
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.cchristou3.CyParking.apiClient.model.mapper;
+
+import com.google.firebase.firestore.util.CustomClassMapper;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.Map;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+
+/*
+ * Compares the per-document decode time and allocations of the ParkingLotMapper
+ * against Firestore's reflective mapper (the one behind toObject),
+ * for lots with small and large slot offer lists.
+ * Skipped, unless the benchmarks are enabled:
+ * ./gradlew :apiClient:testDebugUnitTest -Dbenchmark=true --tests '*MapperBenchmarkTest'
+ */
+public class MapperBenchmarkTest {
+
+    private static final int DOCUMENTS = 2_000;
+    private static final int ROUNDS = 5;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("Benchmarks are disabled", Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void decode_smallOfferList() {
+        benchmark(3);
+    }
+
+    @Test
+    public void decode_largeOfferList() {
+        benchmark(200);
+    }
+
+    private static void benchmark(int offers) {
+        final Map<String, Object> snapshot = MapperParityTest.snapshotOf(MapperParityTest.lotWithOffers(offers));
+        long reflectiveNanos = Long.MAX_VALUE, mappedNanos = Long.MAX_VALUE;
+        long reflectiveBytes = 0, mappedBytes = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            ParkingLot reflective = null;
+            for (int i = 0; i < DOCUMENTS; i++) {
+                reflective = CustomClassMapper.convertToCustomClass(snapshot, ParkingLot.class, null);
+            }
+            reflectiveNanos = Math.min(reflectiveNanos, System.nanoTime() - start);
+            reflectiveBytes = allocatedBytes() - bytes;
+
+            bytes = allocatedBytes();
+            start = System.nanoTime();
+            ParkingLot mapped = null;
+            for (int i = 0; i < DOCUMENTS; i++) {
+                mapped = ParkingLotMapper.toParkingLot(snapshot);
+            }
+            mappedNanos = Math.min(mappedNanos, System.nanoTime() - start);
+            mappedBytes = allocatedBytes() - bytes;
+
+            Assert.assertEquals(ParkingLotMapper.toMap(reflective), ParkingLotMapper.toMap(mapped));
+        }
+        System.out.println(String.format(Locale.US,
+                "%d offers per lot: toObject %.2f us/doc %d B/doc, mapper %.2f us/doc %d B/doc",
+                offers,
+                reflectiveNanos / 1e3 / DOCUMENTS, reflectiveBytes / DOCUMENTS,
+                mappedNanos / 1e3 / DOCUMENTS, mappedBytes / DOCUMENTS));
+    }
+
+    /**
+     * Access the bytes allocated by the current thread so far.
+     * Zero, if the JVM does not provide them.
+     */
+    private static long allocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.cchristou3.CyParking.apiClient.model.mapper;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.util.CustomClassMapper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.Parking;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.SlotOffer;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.PublicParking;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.booking.Booking;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.booking.BookingDetails;
+import io.github.cchristou3.CyParking.apiClient.model.data.user.LoggedInUser;
+
+/*
+ * Checks that the hand-written mappers produce the same maps and objects
+ * as Firestore's reflective mapper, which backs toObject and set.
+ */
+public class MapperParityTest {
+
+    /**
+     * Converts the given plain Java value into the types a document snapshot
+     * holds: longs, doubles and timestamps.
+     */
+    static Object toSnapshotTypes(Object value) {
+        if (value instanceof Integer) return ((Integer) value).longValue();
+        if (value instanceof Float) return ((Float) value).doubleValue();
+        if (value instanceof Date) return new Timestamp((Date) value);
+        if (value instanceof Map) {
+            final Map<String, Object> map = new HashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                map.put((String) entry.getKey(), toSnapshotTypes(entry.getValue()));
+            }
+            return map;
+        }
+        if (value instanceof List) {
+            final List<Object> list = new ArrayList<>();
+            for (Object item : (List<?>) value) list.add(toSnapshotTypes(item));
+            return list;
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> snapshotOf(Object model) {
+        return (Map<String, Object>) toSnapshotTypes(CustomClassMapper.convertToPlainJavaTypes(model));
+    }
+
+    static ParkingLot lotWithOffers(int offers) {
+        final List<SlotOffer> slotOffers = new ArrayList<>(offers);
+        for (int i = 1; i <= offers; i++) slotOffers.add(new SlotOffer(i % 12 + 1, i * 1.5f));
+        final ParkingLot lot = new ParkingLot(new Parking.Coordinates(35.18561, 33.38231), "Lot",
+                "operator@gmail.com", "99999999", 50, "https://photo", slotOffers);
+        lot.setAvailableSpaces(17);
+        return lot.assignGeohash();
+    }
+
+    @Test
+    public void parkingLot_toMap_matchesReflectiveMapper() {
+        ParkingLot lot = lotWithOffers(3);
+        Assert.assertEquals(CustomClassMapper.convertToPlainJavaTypes(lot), ParkingLotMapper.toMap(lot));
+    }
+
+    @Test
+    public void parkingLot_toParkingLot_matchesReflectiveMapper() {
+        Map<String, Object> snapshot = snapshotOf(lotWithOffers(3));
+        ParkingLot reflective = CustomClassMapper.convertToCustomClass(snapshot, ParkingLot.class, null);
+        ParkingLot mapped = ParkingLotMapper.toParkingLot(snapshot);
+        Assert.assertEquals(ParkingLotMapper.toMap(reflective), ParkingLotMapper.toMap(mapped));
+    }
+
+    @Test
+    public void parkingLot_missingFields_keepDefaults() {
+        ParkingLot mapped = ParkingLotMapper.toParkingLot(new HashMap<>());
+        ParkingLot reflective = CustomClassMapper.convertToCustomClass(new HashMap<>(), ParkingLot.class, null);
+        Assert.assertEquals(ParkingLotMapper.toMap(reflective), ParkingLotMapper.toMap(mapped));
+    }
+
+    @Test
+    public void publicParking_roundTrip_matchesReflectiveMapper() {
+        PublicParking segment = new PublicParking(new Parking.Coordinates(35.18561, 33.38231), 7, "Street", 120);
+        BitSet occupied = new BitSet();
+        occupied.set(3);
+        occupied.set(64, 90);
+        segment.setOccupiedSpaces(occupied);
+        Assert.assertEquals(CustomClassMapper.convertToPlainJavaTypes(segment), PublicParkingMapper.toMap(segment));
+
+        Map<String, Object> snapshot = snapshotOf(segment);
+        PublicParking reflective = CustomClassMapper.convertToCustomClass(snapshot, PublicParking.class, null);
+        PublicParking mapped = PublicParkingMapper.toPublicParking(snapshot);
+        Assert.assertEquals(PublicParkingMapper.toMap(reflective), PublicParkingMapper.toMap(mapped));
+        Assert.assertEquals(occupied, mapped.getOccupiedSpaces());
+    }
+
+    @Test
+    public void publicParking_mismatchedTypes_areTreatedAsMissing() {
+        Map<String, Object> snapshot = snapshotOf(
+                new PublicParking(new Parking.Coordinates(35.18561, 33.38231), 7, "Street", 120));
+        snapshot.put(PublicParkingMapper.SPACE_COUNT, "120");
+        snapshot.put(PublicParkingMapper.OCCUPANCY, 42L);
+        PublicParking mapped = PublicParkingMapper.toPublicParking(snapshot);
+        Assert.assertEquals(0, mapped.getSpaceCount());
+        Assert.assertTrue(mapped.getOccupiedSpaces().isEmpty());
+        // Without coordinates, a segment cannot be placed
+        snapshot.put(PublicParkingMapper.COORDINATES, "35.18561,33.38231");
+        Assert.assertNull(PublicParkingMapper.toPublicParking(snapshot));
+    }
+
+    @Test
+    public void booking_roundTrip_matchesReflectiveMapper() {
+        Booking booking = new Booking(73, "operator@gmail.com", "Lot", "user",
+                new BookingDetails(new Date(1634550000000L), new BookingDetails.Time(14, 30),
+                        new SlotOffer(2, 3.5f)));
+        Assert.assertEquals(CustomClassMapper.convertToPlainJavaTypes(booking), BookingMapper.toMap(booking));
+
+        Map<String, Object> snapshot = snapshotOf(booking);
+        Booking reflective = CustomClassMapper.convertToCustomClass(snapshot, Booking.class, null);
+        Assert.assertEquals(BookingMapper.toMap(reflective), BookingMapper.toMap(BookingMapper.toBooking(snapshot)));
+    }
+
+    @Test
+    public void loggedInUser_roundTrip_matchesReflectiveMapper() {
+        LoggedInUser user = new LoggedInUser().setDisplayName("Name").setEmail("email@gmail.com")
+                .setRoles(Arrays.asList(LoggedInUser.OPERATOR));
+        user.setUserId("uid");
+        Assert.assertEquals(CustomClassMapper.convertToPlainJavaTypes(user), LoggedInUserMapper.toMap(user));
+
+        Map<String, Object> snapshot = snapshotOf(user);
+        LoggedInUser reflective = CustomClassMapper.convertToCustomClass(snapshot, LoggedInUser.class, null);
+        Assert.assertEquals(LoggedInUserMapper.toMap(reflective),
+                LoggedInUserMapper.toMap(LoggedInUserMapper.toLoggedInUser(snapshot)));
+    }
+}
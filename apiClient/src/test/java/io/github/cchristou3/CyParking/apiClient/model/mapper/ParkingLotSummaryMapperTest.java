@@ -0,0 +1,99 @@
+package io.github.cchristou3.CyParking.apiClient.model.mapper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLotSummary;
+
+/**
+ * Unit tests for the {@link ParkingLotSummaryMapper}.
+ */
+public class ParkingLotSummaryMapperTest {
+
+    private static Map<String, Object> summary(String id, Object distance, Map<String, Object> bestOffer) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(ParkingLotSummaryMapper.ID, id);
+        data.put(ParkingLotSummaryMapper.LOT_NAME, "Lot " + id);
+        data.put(ParkingLotSummaryMapper.LATITUDE, 35.18561);
+        data.put(ParkingLotSummaryMapper.LONGITUDE, 33); // Integral coordinates arrive as integers
+        data.put(ParkingLotSummaryMapper.CAPACITY, 20);
+        data.put(ParkingLotSummaryMapper.AVAILABLE_SPACES, 7L);
+        data.put(ParkingLotSummaryMapper.BEST_OFFER, bestOffer);
+        data.put(ParkingLotSummaryMapper.DISTANCE, distance);
+        return data;
+    }
+
+    private static Map<String, Object> offer(Object duration, Object price) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(SlotOfferMapper.DURATION, duration);
+        data.put(SlotOfferMapper.PRICE, price);
+        return data;
+    }
+
+    @Test
+    public void toSummaries_validResponse_keepsOrderAndValues() {
+        // Given
+        List<Object> response = Arrays.asList(
+                summary("a", 12.5, offer(2, 1.5)),
+                summary("b", 300, null)
+        );
+        // When
+        List<ParkingLotSummary> summaries = ParkingLotSummaryMapper.toSummaries(response);
+        // Then
+        Assert.assertEquals(2, summaries.size());
+        ParkingLotSummary first = summaries.get(0);
+        Assert.assertEquals("a", first.getDocId());
+        Assert.assertEquals("Lot a", first.getLotName());
+        Assert.assertEquals(35.18561, first.getCoordinates().getLatitude(), 0.0);
+        Assert.assertEquals(33.0, first.getCoordinates().getLongitude(), 0.0);
+        Assert.assertEquals(20, first.getCapacity());
+        Assert.assertEquals(7, first.getAvailableSpaces());
+        Assert.assertEquals(12.5, first.getDistanceInMeters(), 0.0);
+        Assert.assertNotNull(first.getBestOffer());
+        Assert.assertEquals(2f, first.getBestOffer().getDuration(), 0f);
+        Assert.assertEquals(1.5f, first.getBestOffer().getPrice(), 0f);
+        Assert.assertEquals("b", summaries.get(1).getDocId());
+        Assert.assertNull(summaries.get(1).getBestOffer());
+    }
+
+    @Test
+    public void toSummaries_malformedItems_areSkipped() {
+        Map<String, Object> withoutId = summary("a", 1, null);
+        withoutId.remove(ParkingLotSummaryMapper.ID);
+        Map<String, Object> withoutCoordinates = summary("b", 1, null);
+        withoutCoordinates.remove(ParkingLotSummaryMapper.LATITUDE);
+        List<Object> response = Arrays.asList(withoutId, withoutCoordinates, "c", null, summary("d", 1, null));
+
+        List<ParkingLotSummary> summaries = ParkingLotSummaryMapper.toSummaries(response);
+
+        Assert.assertEquals(1, summaries.size());
+        Assert.assertEquals("d", summaries.get(0).getDocId());
+    }
+
+    @Test
+    public void toSummaries_notAList_returnsEmpty() {
+        Assert.assertTrue(ParkingLotSummaryMapper.toSummaries(null).isEmpty());
+        Assert.assertTrue(ParkingLotSummaryMapper.toSummaries("[\"a\"]").isEmpty());
+        Assert.assertTrue(ParkingLotSummaryMapper.toSummaries(new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    public void toParkingLot_containsTheSummary() {
+        ParkingLotSummary summary = ParkingLotSummaryMapper.toSummary(summary("a", 1, offer(2, 1.5)));
+        Assert.assertNotNull(summary);
+
+        ParkingLot lot = summary.toParkingLot();
+
+        Assert.assertEquals("Lot a", lot.getLotName());
+        Assert.assertEquals(7, lot.getAvailableSpaces());
+        Assert.assertEquals(20, lot.getCapacity());
+        Assert.assertEquals(1.5f, lot.getBestOffer().getPrice(), 0f);
+    }
+}
@@ -137,6 +137,25 @@ public class ParkingLotTest {
         // Then
         Assert.assertEquals(new SlotOffer(2.5f, 2).toString(), output.toString());
     }
+
+    @Test
+    public void getBestOffer_afterOffersChange_returnsTheNewBestOffer() {
+        // Given
+        parkingLot = new ParkingLot();
+        parkingLot.setSlotOfferList(new ArrayList<>(Arrays.asList(
+                new SlotOffer(1, 1), new SlotOffer(1, 2)
+        )));
+        SlotOffer first = parkingLot.getBestOffer();
+        Assert.assertSame(first, parkingLot.getBestOffer());
+        // When
+        parkingLot.getSlotOfferList().add(new SlotOffer(4, 2));
+        SlotOffer afterAdd = parkingLot.getBestOffer();
+        parkingLot.setSlotOfferList(new ArrayList<>(Arrays.asList(new SlotOffer(2, 5))));
+        SlotOffer afterReplace = parkingLot.getBestOffer();
+        // Then
+        Assert.assertEquals(new SlotOffer(4, 2).toString(), afterAdd.toString());
+        Assert.assertEquals(new SlotOffer(2, 5).toString(), afterReplace.toString());
+    }
     ///////////////////////////////////////////////////////////////////////////
     // getBestOffer - END
     ///////////////////////////////////////////////////////////////////////////
@@ -0,0 +1,52 @@
+package io.github.cchristou3.CyParking.apiClient.model.parking.slot;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.Parking;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.PublicParking;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Unit tests for the {@link PublicParking} class.
+ */
+public class PublicParkingTest {
+
+    private static final Parking.Coordinates COORDS = new Parking.Coordinates(35.18561, 33.38231);
+    private static final int ID = 496;
+
+    @Test
+    public void PublicParking_allSpacesFree() {
+        PublicParking segment = new PublicParking(COORDS, ID, "Makariou", 120);
+        assertEquals(120, segment.getFreeSpaces());
+        assertEquals(0, segment.getOccupiedSpaces().cardinality());
+    }
+
+    @Test
+    public void setOccupiedSpaces_countsTheFreeSpaces() {
+        PublicParking segment = new PublicParking(COORDS, ID, "Makariou", 120);
+        BitSet occupied = new BitSet();
+        occupied.set(3);
+        occupied.set(64, 100);
+        occupied.set(130); // Past the last space
+        segment.setOccupiedSpaces(occupied);
+        assertEquals(120 - 37, segment.getFreeSpaces());
+        assertEquals(occupied.get(0, 120), segment.getOccupiedSpaces());
+    }
+
+    @Test
+    public void generateDocumentId_dependsOnTheStreet() {
+        String id = new PublicParking(COORDS, ID, "Makariou", 120).generateDocumentId();
+        assertNotNull(id);
+        assertNotEquals(id, new PublicParking(COORDS, ID, "Stasinou", 120).generateDocumentId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void PublicParking_negativeSpaceCount_throwsException() {
+        new PublicParking(COORDS, ID, "Makariou", -1);
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.cchristou3.CyParking.apiClient.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/*
+ * Unit tests for the {@link BitSetCodec} class.
+ */
+public class BitSetCodecTest {
+
+    @Test
+    public void encode_knownBits_returnsExpectedBase64() {
+        // The bytes 'M', 'a', 'n' of the RFC's example, bit 0 first
+        final BitSet bits = BitSet.valueOf(new byte[]{'M', 'a', 'n'});
+        Assert.assertEquals("TWFu", BitSetCodec.encode(bits));
+        Assert.assertEquals("TWE=", BitSetCodec.encode(BitSet.valueOf(new byte[]{'M', 'a'})));
+        Assert.assertEquals("", BitSetCodec.encode(new BitSet()));
+    }
+
+    @Test
+    public void decode_reversesEncode() {
+        final Random random = new Random(31);
+        for (int i = 0; i < 200; i++) {
+            final BitSet bits = new BitSet();
+            final int spaces = random.nextInt(600);
+            for (int space = 0; space < spaces; space++) {
+                if (random.nextBoolean()) bits.set(space);
+            }
+            final String encoded = BitSetCodec.encode(bits);
+            Assert.assertEquals(bits, BitSetCodec.decode(encoded));
+            // Without padding
+            Assert.assertEquals(bits, BitSetCodec.decode(encoded.replace("=", "")));
+        }
+        Assert.assertTrue(BitSetCodec.decode(null).isEmpty());
+        Assert.assertTrue(BitSetCodec.decode("").isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_invalidCharacter_throwsException() {
+        BitSetCodec.decode("TW-u");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_invalidLength_throwsException() {
+        BitSetCodec.decode("TWFuT");
+    }
+}
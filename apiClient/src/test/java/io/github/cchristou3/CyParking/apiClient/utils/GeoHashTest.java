@@ -0,0 +1,86 @@
+package io.github.cchristou3.CyParking.apiClient.utils;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+/*
+ * Unit tests for the {@link GeoHash} class.
+ */
+public class GeoHashTest {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // encode - START
+    ///////////////////////////////////////////////////////////////////////////
+    @Test
+    public void encode_knownCoordinates_returnsExpectedHash() {
+        Assert.assertEquals("u4pruydqqvj", GeoHash.encode(57.64911, 10.40744, 11));
+    }
+
+    @Test
+    public void encode_lowerPrecision_returnsPrefix() {
+        String hash = GeoHash.encode(35.1856, 33.3823, GeoHash.STORED_PRECISION);
+        Assert.assertTrue(hash.startsWith(GeoHash.encode(35.1856, 33.3823, 5)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encode_zeroPrecision_throwsException() {
+        GeoHash.encode(35.1856, 33.3823, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encode_tooLongPrecision_throwsException() {
+        GeoHash.encode(35.1856, 33.3823, 13);
+    }
+    ///////////////////////////////////////////////////////////////////////////
+    // encode - END
+    ///////////////////////////////////////////////////////////////////////////
+
+    ///////////////////////////////////////////////////////////////////////////
+    // coveringCells - START
+    ///////////////////////////////////////////////////////////////////////////
+    @Test
+    public void coveringCells_returnsCentreCellFirst() {
+        String[] cells = GeoHash.coveringCells(35.1856, 33.3823, 1000);
+        Assert.assertTrue(GeoHash.encode(35.1856, 33.3823, GeoHash.STORED_PRECISION).startsWith(cells[0]));
+    }
+
+    @Test
+    public void coveringCells_returnsNineDistinctCells() {
+        String[] cells = GeoHash.coveringCells(35.1856, 33.3823, 1000);
+        Assert.assertEquals(9, new HashSet<>(Arrays.asList(cells)).size());
+    }
+
+    @Test
+    public void coveringCells_pointsInsideRadius_areCovered() {
+        // Given a centre and random points that are at most 1000m away from it
+        final LatLng centre = new LatLng(35.1856, 33.3823);
+        final String[] cells = GeoHash.coveringCells(centre.latitude, centre.longitude, 1000);
+        final Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            LatLng point = new LatLng(
+                    centre.latitude + (random.nextDouble() - 0.5) * 0.02,
+                    centre.longitude + (random.nextDouble() - 0.5) * 0.02
+            );
+            if (Utils.getDistanceApart(centre, point) > 1000) continue;
+            // Then their stored geohash starts with one of the covering cells
+            String hash = GeoHash.encode(point.latitude, point.longitude, GeoHash.STORED_PRECISION);
+            boolean isCovered = false;
+            for (String cell : cells) {
+                if (hash.startsWith(cell)) {
+                    isCovered = true;
+                    break;
+                }
+            }
+            Assert.assertTrue(point.toString(), isCovered);
+        }
+    }
+    ///////////////////////////////////////////////////////////////////////////
+    // coveringCells - END
+    ///////////////////////////////////////////////////////////////////////////
+}
@@ -0,0 +1,118 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.core.content.res.ResourcesCompat;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.MapView;
+import com.google.android.gms.maps.MapsInitializer;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.github.cchristou3.CyParking.R;
+import io.github.cchristou3.CyParking.utilities.DrawableUtility;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Instrumented test, which will execute on an Android device with Google Play services.
+ * Measures the bytes allocated on the main thread per location update on the user's marker,
+ * on a real {@link GoogleMap}:
+ * <p> - Through {@link MarkerManager#setUserMarker(GoogleMap, LatLng)}, which moves the marker
+ * in place and converts the user's icon only once.
+ * <p> - Through the previous implementation, which converted the icon into a new bitmap
+ * and replaced the marker on every update.
+ * The numbers are logged under {@link #TAG}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class UserMarkerAllocationTest {
+
+    private static final String TAG = "UserMarkerAllocation";
+    private static final int UPDATES = 100;
+
+    private final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+    private Context context;
+    private MapView mapView;
+    private GoogleMap googleMap;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        context = instrumentation.getTargetContext();
+        final CountDownLatch ready = new CountDownLatch(1);
+        instrumentation.runOnMainSync(() -> {
+            MapsInitializer.initialize(context);
+            mapView = new MapView(context);
+            mapView.onCreate(null);
+            mapView.getMapAsync(map -> {
+                googleMap = map;
+                ready.countDown();
+            });
+        });
+        assertTrue("The map is not available", ready.await(30, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() {
+        instrumentation.runOnMainSync(() -> mapView.onDestroy());
+    }
+
+    @SuppressWarnings("deprecation") // The allocation counters are still served by ART
+    @Test
+    public void setUserMarker_allocatesLessPerUpdate_thanRecreatingTheMarker() {
+        final long[] perUpdate = new long[2]; // Moved, recreated
+        instrumentation.runOnMainSync(() -> {
+            final Drawable icon = ResourcesCompat.getDrawable(context.getResources(), R.drawable.ic_user_location, null);
+            final MarkerManager markerManager = new MarkerManager(icon, new MarkerIconProvider(context.getResources()));
+            markerManager.setUserMarker(googleMap, positionOf(0)); // Creates the marker and converts the icon
+
+            Debug.startAllocCounting();
+            Debug.resetThreadAllocSize();
+            for (int i = 1; i <= UPDATES; i++) {
+                markerManager.setUserMarker(googleMap, positionOf(i));
+            }
+            perUpdate[0] = Debug.getThreadAllocSize() / UPDATES;
+
+            // The previous implementation
+            Marker userMarker = null;
+            Debug.resetThreadAllocSize();
+            for (int i = 1; i <= UPDATES; i++) {
+                if (userMarker != null) userMarker.remove();
+                userMarker = googleMap.addMarker(new MarkerOptions()
+                        .position(positionOf(i))
+                        .icon(BitmapDescriptorFactory.fromBitmap(DrawableUtility.drawableToBitmap(icon)))
+                        .snippet("Current Location!")
+                        .title("Me"));
+            }
+            perUpdate[1] = Debug.getThreadAllocSize() / UPDATES;
+            Debug.stopAllocCounting();
+
+            if (userMarker != null) userMarker.remove();
+            markerManager.release();
+        });
+
+        Log.i(TAG, "Bytes allocated on the main thread per location update: setUserMarker "
+                + perUpdate[0] + ", recreating the marker " + perUpdate[1]);
+        assertTrue(perUpdate[0] < perUpdate[1]);
+    }
+
+    private static LatLng positionOf(int update) {
+        return new LatLng(35.0 + update * 1e-5, 33.0);
+    }
+}
@@ -0,0 +1,192 @@
+package io.github.cchristou3.CyParking.ui.views.parking.lots.map;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.lifecycle.ViewModelStore;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.firebase.firestore.DocumentChange;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.github.cchristou3.CyParking.apiClient.local.LotSnapshotStore;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.Parking;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+import io.github.cchristou3.CyParking.apiClient.model.mapper.ParkingLotMapper;
+import io.github.cchristou3.CyParking.apiClient.remote.repository.ParkingMapRepository;
+import io.github.cchristou3.CyParking.data.manager.EmissionGate;
+import io.github.cchristou3.CyParking.data.manager.LotChange;
+import io.github.cchristou3.CyParking.data.manager.SnapshotRecord;
+import io.github.cchristou3.CyParking.data.manager.SnapshotRecordCodec;
+import io.github.cchristou3.CyParking.data.manager.SnapshotReplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Instrumented test, which will execute on an Android device.
+ * Replays a recorded burst of lot snapshots into a {@link ParkingMapViewModel}
+ * that has no live listeners attached, through the same path as the live snapshots:
+ * deserialization, indexing and the store on its store executor, then the document changes' state.
+ * Logs how long the whole burst took to go through.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LotReplayTest {
+
+    private static final String TAG = "LotReplay";
+    private static final String LOTS_STREAM = "lots";
+    private static final int LOTS = 200;
+    private static final int SNAPSHOTS = 500;
+    private static final int CHANGES_PER_SNAPSHOT = 20;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ViewModelStore viewModelStore = new ViewModelStore();
+    private ParkingMapViewModel viewModel;
+
+    @Before
+    public void setUp() throws IOException {
+        final LotSnapshotStore snapshotStore = new LotSnapshotStore(temporaryFolder.newFile());
+        viewModel = new ViewModelProvider(viewModelStore, new ViewModelProvider.Factory() {
+            @NonNull
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
+                return (T) new ParkingMapViewModel(new ParkingMapRepository(), snapshotStore);
+            }
+        }).get(ParkingMapViewModel.class);
+    }
+
+    @After
+    public void tearDown() {
+        viewModelStore.clear();
+    }
+
+    @Test
+    public void replay_appliesEveryRecordedChange() throws Exception {
+        final File recording = temporaryFolder.newFile();
+        final List<SnapshotRecord> records = recordBurst();
+        try (OutputStream out = new FileOutputStream(recording)) {
+            SnapshotRecordCodec.writeAll(out, records);
+        }
+        int expected = 0;
+        for (SnapshotRecord record : records) expected += record.getChanges().size();
+
+        final Map<String, LotChange> latest = new HashMap<>();
+        final int[] delivered = {0};
+        final CountDownLatch done = new CountDownLatch(1);
+        final int total = expected;
+        final Observer<List<LotChange>> observer = lotChanges -> {
+            if (lotChanges == null) return;
+            for (LotChange change : lotChanges) latest.put(change.getDocId(), change);
+            delivered[0] += lotChanges.size();
+            viewModel.onDocumentChangesConsumed();
+            if (delivered[0] >= total) done.countDown();
+        };
+        final SnapshotReplayer replayer = SnapshotReplayer.fromFile(recording,
+                EmissionGate.handlerScheduler(new Handler(Looper.getMainLooper())));
+        final long[] startedAt = new long[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            viewModel.getDocumentChangesState().observeForever(observer);
+            startedAt[0] = SystemClock.elapsedRealtime();
+            replayer.start(SnapshotReplayer.AS_FAST_AS_POSSIBLE, record -> {
+                if (LOTS_STREAM.equals(record.getStream())) viewModel.applyRecordedChanges(record.getChanges());
+            });
+        });
+
+        assertTrue("Not every change was applied", done.await(60, TimeUnit.SECONDS));
+        final long elapsed = SystemClock.elapsedRealtime() - startedAt[0];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() ->
+                viewModel.getDocumentChangesState().removeObserver(observer));
+        Log.i(TAG, "Replayed " + total + " changes of " + records.size() + " snapshots in " + elapsed + "ms");
+
+        // Every lot but the removed one is indexed, with its latest contents
+        assertEquals(LOTS - 1, viewModel.getLotIndex().size());
+        assertNull(latest.get(docIdOf(0)).getLot());
+        final ParkingLot last = latest.get(docIdOf(LOTS - 1)).getLot();
+        assertEquals(availableSpacesOf(LOTS - 1, lastSnapshotOf(LOTS - 1)), last.getAvailableSpaces());
+        assertEquals(1, viewModel.searchLots("Lot " + (LOTS - 1), 35.17, 33.36).size());
+    }
+
+    /**
+     * A snapshot that adds every lot, then snapshots that modify the availability of a few lots each,
+     * and a final one that removes the first lot.
+     */
+    @NonNull
+    private static List<SnapshotRecord> recordBurst() {
+        final List<SnapshotRecord> records = new ArrayList<>(SNAPSHOTS + 2);
+        final List<SnapshotRecord.Change> added = new ArrayList<>(LOTS);
+        for (int lot = 0; lot < LOTS; lot++) {
+            added.add(new SnapshotRecord.Change(DocumentChange.Type.ADDED, docIdOf(lot), dataOf(lot, 0)));
+        }
+        records.add(new SnapshotRecord(0, LOTS_STREAM, added));
+        for (int snapshot = 1; snapshot <= SNAPSHOTS; snapshot++) {
+            final List<SnapshotRecord.Change> modified = new ArrayList<>(CHANGES_PER_SNAPSHOT);
+            for (int i = 0; i < CHANGES_PER_SNAPSHOT; i++) {
+                final int lot = (snapshot * CHANGES_PER_SNAPSHOT + i) % LOTS;
+                modified.add(new SnapshotRecord.Change(DocumentChange.Type.MODIFIED, docIdOf(lot), dataOf(lot, snapshot)));
+            }
+            records.add(new SnapshotRecord(snapshot * 10L, LOTS_STREAM, modified));
+        }
+        final List<SnapshotRecord.Change> removed = new ArrayList<>(1);
+        removed.add(new SnapshotRecord.Change(DocumentChange.Type.REMOVED, docIdOf(0), null));
+        records.add(new SnapshotRecord((SNAPSHOTS + 1) * 10L, LOTS_STREAM, removed));
+        return records;
+    }
+
+    /**
+     * The last snapshot that modified the given lot. 0, if none did.
+     */
+    private static int lastSnapshotOf(int lot) {
+        for (int snapshot = SNAPSHOTS; snapshot >= 1; snapshot--) {
+            final int first = (snapshot * CHANGES_PER_SNAPSHOT) % LOTS;
+            if ((lot - first + LOTS) % LOTS < CHANGES_PER_SNAPSHOT) return snapshot;
+        }
+        return 0;
+    }
+
+    @NonNull
+    private static String docIdOf(int lot) {
+        return "lot" + lot;
+    }
+
+    private static int availableSpacesOf(int lot, int snapshot) {
+        return (lot + snapshot) % 50;
+    }
+
+    @NonNull
+    private static Map<String, Object> dataOf(int lot, int snapshot) {
+        final ParkingLot parkingLot = new ParkingLot();
+        parkingLot.setLotName("Lot " + lot);
+        parkingLot.setCoordinates(new Parking.Coordinates(35.17 + lot * 1e-4, 33.36));
+        parkingLot.setAvailability(new ParkingLot.Availability(50, availableSpacesOf(lot, snapshot)));
+        parkingLot.setSlotOfferList(new ArrayList<>());
+        return ParkingLotMapper.toMap(parkingLot);
+    }
+}
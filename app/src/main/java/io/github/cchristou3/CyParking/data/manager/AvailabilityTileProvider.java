@@ -0,0 +1,163 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileProvider;
+
+import java.io.ByteArrayOutputStream;
+
+import io.github.cchristou3.CyParking.apiClient.local.HeatmapRasterizer;
+import io.github.cchristou3.CyParking.apiClient.local.LotSpatialIndex;
+import io.github.cchristou3.CyParking.ui.views.parking.lots.map.ParkingMapFragment;
+
+/**
+ * Purpose: provide the tiles of the availability heatmap of {@link ParkingMapFragment},
+ * drawn by a {@link HeatmapRasterizer} from the lots of a {@link LotSpatialIndex}.
+ * <p>
+ * The map requests its tiles on its own background threads, hence the tiles are drawn
+ * and encoded there, never on the main thread. The encoded tiles are kept in an LRU cache
+ * of {@link #MAX_CACHE_SIZE} bytes, so panning back and forth and zooming in and out
+ * do not draw the same tile twice.
+ * <p>
+ * Whenever a lot changes, only the cached tiles that the lot is drawn on get evicted,
+ * on every zoom level. The map does not support refreshing some of its tiles, so it is
+ * asked to reload them all, at most once per {@link #REFRESH_DELAY_IN_MILLIS}.
+ * The tiles that did not change come straight out of the cache.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public class AvailabilityTileProvider implements TileProvider, LotSpatialIndex.OnChangeListener {
+
+    private static final int MAX_CACHE_SIZE = 4 * 1024 * 1024; // In bytes
+    private static final long REFRESH_DELAY_IN_MILLIS = 500L;
+    private static final int MAX_ZOOM = 21;
+
+    private final HeatmapRasterizer mRasterizer;
+    private final LotSpatialIndex mLots;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mRefresh = this::refresh;
+    // The encoded tiles, including the empty ones. Look up: (zoom, x, y) -> tile
+    private final LruCache<Long, Tile> mTiles = new LruCache<Long, Tile>(MAX_CACHE_SIZE) {
+        @Override
+        protected int sizeOf(Long key, Tile tile) {
+            return tile.data == null ? 1 : tile.data.length;
+        }
+    };
+    // Increased on each change, so that the tiles drawn during it are not cached
+    private int mGeneration = 0;
+    private boolean mIsRefreshPending = false;
+    @Nullable
+    private TileOverlay mOverlay;
+
+    /**
+     * Public Constructor.
+     *
+     * @param lots       The lots to draw.
+     * @param rasterizer The rasterizer to draw them with.
+     */
+    public AvailabilityTileProvider(@NonNull LotSpatialIndex lots, @NonNull HeatmapRasterizer rasterizer) {
+        this.mLots = lots;
+        this.mRasterizer = rasterizer;
+    }
+
+    /**
+     * Sets the overlay that shows the tiles of this provider.
+     * It gets refreshed whenever the lots change.
+     *
+     * @param overlay The overlay of this provider.
+     */
+    public void setOverlay(@Nullable TileOverlay overlay) {
+        this.mOverlay = overlay;
+    }
+
+    /**
+     * Invoked by the map on one of its background threads.
+     * Returns the cached tile, or draws, encodes and caches it.
+     *
+     * @see TileProvider#getTile(int, int, int)
+     */
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        final long key = keyOf(x, y, zoom);
+        final Tile cached = mTiles.get(key);
+        if (cached != null) return cached;
+
+        final int generation;
+        synchronized (this) {
+            generation = mGeneration;
+        }
+        final int[] pixels = mRasterizer.rasterize(x, y, zoom, mLots);
+        final Tile tile = pixels == null ? NO_TILE : encode(pixels);
+        synchronized (this) {
+            // A lot changed while drawing it. Thus, it may already be out of date
+            if (generation == mGeneration) mTiles.put(key, tile);
+        }
+        return tile;
+    }
+
+    /**
+     * Invoked while a lot of the {@link LotSpatialIndex} changes, on the thread that changed it.
+     * Evicts the tiles that the lot is drawn on and schedules a refresh of the overlay.
+     *
+     * @see LotSpatialIndex.OnChangeListener#onChanged(double, double)
+     */
+    @Override
+    public void onChanged(double latitude, double longitude) {
+        synchronized (this) {
+            mGeneration++;
+            for (int zoom = 0; zoom <= MAX_ZOOM; zoom++) {
+                final int z = zoom;
+                mRasterizer.visitTilesAround(latitude, longitude, zoom, (x, y) -> mTiles.remove(keyOf(x, y, z)));
+            }
+            if (mIsRefreshPending) return;
+            mIsRefreshPending = true;
+        }
+        mMainHandler.postDelayed(mRefresh, REFRESH_DELAY_IN_MILLIS);
+    }
+
+    /**
+     * Drops the cached tiles and the pending refresh.
+     * The provider should not be used afterwards.
+     */
+    public void release() {
+        mMainHandler.removeCallbacks(mRefresh);
+        synchronized (this) {
+            mIsRefreshPending = false;
+        }
+        mTiles.evictAll();
+        mOverlay = null;
+    }
+
+    /**
+     * Asks the overlay to reload its tiles. Invoked on the main thread.
+     */
+    private void refresh() {
+        synchronized (this) {
+            mIsRefreshPending = false;
+        }
+        if (mOverlay != null) mOverlay.clearTileCache();
+    }
+
+    @NonNull
+    private static Tile encode(@NonNull int[] pixels) {
+        final Bitmap bitmap = Bitmap.createBitmap(pixels, HeatmapRasterizer.TILE_SIZE,
+                HeatmapRasterizer.TILE_SIZE, Bitmap.Config.ARGB_8888);
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
+        bitmap.recycle();
+        return new Tile(HeatmapRasterizer.TILE_SIZE, HeatmapRasterizer.TILE_SIZE, stream.toByteArray());
+    }
+
+    private static long keyOf(int x, int y, int zoom) {
+        return ((long) zoom << 58) | ((long) x << 29) | y;
+    }
+}
@@ -0,0 +1,403 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.jetbrains.annotations.Contract;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Purpose: group nearby lots into clusters, for every zoom level
+ * in the range [{@link #MIN_ZOOM}..{@link #MAX_ZOOM}].
+ * <p>
+ * The world is projected to Web Mercator pixels (as the map does) and split
+ * into a grid of {@link #CELL_SIZE_PX} pixel cells per zoom level. All the lots of a cell
+ * form a cluster, positioned on their centroid and carrying their total available spaces and capacity.
+ * <p>
+ * The clusters of all levels are maintained incrementally: adding, updating or removing
+ * a lot only touches the one cell it belongs to on each level. Thus, switching zoom levels
+ * requires no computation, and a MODIFIED lot only changes the clusters it is part of.
+ * <p>
+ * The clusters of a level can be narrowed down to a {@link Viewport}, so that only the
+ * clusters near the visible region of the map get rendered.
+ * <p>
+ * A lot can be hidden, e.g. when it does not pass the user's filter. A hidden lot stays
+ * in its cells, but is left out of their totals. Thus, showing or hiding a lot only adjusts
+ * the totals of its cells, and a cell whose lots are all hidden is not a cluster.
+ * <p>
+ * <strong>Note:</strong> the class is not thread-safe. It is meant to be confined
+ * to a single background thread.
+ *
+ * @author Charalambos Christou
+ * @version 3.0 18/10/21
+ * @see MarkerManager
+ */
+public class ClusterEngine {
+
+    public static final int MIN_ZOOM = 10;
+    public static final int MAX_ZOOM = 21;
+    /**
+     * The side of a grid cell on the screen. Lots closer than that (roughly)
+     * on the screen end up in the same cluster.
+     */
+    public static final double CELL_SIZE_PX = 96.0;
+    private static final double TILE_SIZE_PX = 256.0;
+    private static final int LEVELS = MAX_ZOOM - MIN_ZOOM + 1;
+
+    // Each lot with its cell key on every level
+    private final Map<String, Item> mItems = new HashMap<>();
+    // Cell key -> cluster, for every level
+    private final List<Map<Long, Cell>> mLevels = new ArrayList<>(LEVELS);
+
+    /**
+     * Public Constructor.
+     * Initializes an empty grid for each zoom level.
+     */
+    public ClusterEngine() {
+        for (int i = 0; i < LEVELS; i++) mLevels.add(new HashMap<>());
+    }
+
+    /**
+     * Brings the given camera zoom into the range of the cluster levels.
+     *
+     * @param zoom The zoom of the map's camera.
+     * @return The zoom level whose clusters should be displayed.
+     */
+    @Contract(pure = true)
+    public static int levelOf(float zoom) {
+        return Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, (int) Math.floor(zoom)));
+    }
+
+    /**
+     * Computes the key of the cell that contains the given position
+     * on the given zoom level.
+     *
+     * @param latitude  The latitude of the position.
+     * @param longitude The longitude of the position.
+     * @param zoom      The zoom level.
+     * @return The cell's key. Its column and row packed into a long.
+     */
+    @Contract(pure = true)
+    static long cellKeyOf(double latitude, double longitude, int zoom) {
+        final double worldSize = TILE_SIZE_PX * (1L << zoom);
+        final double x = (longitude + 180.0) / 360.0 * worldSize;
+        final double sinLat = Math.sin(Math.toRadians(Math.max(-85.0511, Math.min(85.0511, latitude))));
+        final double y = (0.5 - Math.log((1 + sinLat) / (1 - sinLat)) / (4 * Math.PI)) * worldSize;
+        final long column = (long) Math.floor(x / CELL_SIZE_PX);
+        final long row = (long) Math.floor(y / CELL_SIZE_PX);
+        return (column << 32) | (row & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Adds the lot with the given id or, if it already exists, updates it.
+     * An update that does not move the lot out of its cell only adjusts
+     * the totals of the cell's cluster.
+     *
+     * @param id              The document id of the lot.
+     * @param latitude        The lot's latitude.
+     * @param longitude       The lot's longitude.
+     * @param availableSpaces The lot's available spaces.
+     * @param capacity        The lot's capacity.
+     */
+    public void upsert(@NonNull String id, double latitude, double longitude, int availableSpaces, int capacity) {
+        upsert(id, latitude, longitude, availableSpaces, capacity, true);
+    }
+
+    /**
+     * Adds the lot with the given id or, if it already exists, updates it.
+     * An update that does not move the lot out of its cell only adjusts
+     * the totals of the cell's cluster.
+     *
+     * @param id              The document id of the lot.
+     * @param latitude        The lot's latitude.
+     * @param longitude       The lot's longitude.
+     * @param availableSpaces The lot's available spaces.
+     * @param capacity        The lot's capacity.
+     * @param isVisible       Whether the lot is part of the clusters.
+     * @see #setVisible(String, boolean)
+     */
+    public void upsert(@NonNull String id, double latitude, double longitude, int availableSpaces, int capacity,
+                       boolean isVisible) {
+        final Item old = mItems.get(id);
+        final Item item = new Item(latitude, longitude, availableSpaces, capacity);
+        item.isVisible = isVisible;
+        for (int i = 0; i < LEVELS; i++) {
+            item.cells[i] = cellKeyOf(latitude, longitude, MIN_ZOOM + i);
+            if (old != null && old.cells[i] == item.cells[i]) {
+                item.owners[i] = old.owners[i];
+                item.owners[i].replace(id, old, item);
+            } else {
+                if (old != null) removeFromLevel(i, id, old);
+                Cell cell = mLevels.get(i).get(item.cells[i]);
+                if (cell == null) {
+                    cell = new Cell(item.cells[i]);
+                    mLevels.get(i).put(item.cells[i], cell);
+                }
+                item.owners[i] = cell;
+                cell.add(id, item);
+            }
+        }
+        mItems.put(id, item);
+    }
+
+    /**
+     * Shows or hides the lot with the given id. A hidden lot is not part of any cluster.
+     * Only the totals of the lot's cells get adjusted.
+     *
+     * @param id        The document id of the lot.
+     * @param isVisible Whether the lot should be part of the clusters.
+     * @return True, if the lot's visibility changed. Otherwise, false.
+     */
+    public boolean setVisible(@NonNull String id, boolean isVisible) {
+        final Item item = mItems.get(id);
+        if (item == null || item.isVisible == isVisible) return false;
+        item.isVisible = isVisible;
+        for (Cell cell : item.owners) cell.updateTotals(item, isVisible ? 1 : -1);
+        return true;
+    }
+
+    /**
+     * Removes the lot with the given id from the clusters of every level.
+     *
+     * @param id The document id of the lot.
+     * @return True, if the lot existed. Otherwise, false.
+     */
+    public boolean remove(@NonNull String id) {
+        final Item item = mItems.remove(id);
+        if (item == null) return false;
+        for (int i = 0; i < LEVELS; i++) removeFromLevel(i, id, item);
+        return true;
+    }
+
+    /**
+     * Removes the given lot from its cell on the given level.
+     * If the cell gets empty, it is dropped.
+     */
+    private void removeFromLevel(int level, String id, @NonNull Item item) {
+        final Cell cell = mLevels.get(level).get(item.cells[level]);
+        if (cell == null) return;
+        cell.remove(id, item);
+        if (cell.items.isEmpty()) mLevels.get(level).remove(item.cells[level]);
+    }
+
+    /**
+     * Access the clusters of the given zoom level.
+     *
+     * @param zoom The zoom level. Clamped to the range of the cluster levels.
+     * @return Immutable copies of the level's clusters.
+     */
+    @NonNull
+    public List<Cluster> clustersAt(int zoom) {
+        return clustersAt(zoom, null);
+    }
+
+    /**
+     * Access the clusters of the given zoom level that lie inside the given viewport.
+     *
+     * @param zoom     The zoom level. Clamped to the range of the cluster levels.
+     * @param viewport The area of interest. If null, all of the level's clusters are returned.
+     * @return Immutable copies of the level's clusters whose centroid is inside the viewport.
+     */
+    @NonNull
+    public List<Cluster> clustersAt(int zoom, @Nullable Viewport viewport) {
+        final Map<Long, Cell> level = mLevels.get(levelOf(zoom) - MIN_ZOOM);
+        final List<Cluster> clusters = new ArrayList<>(viewport == null ? level.size() : 16);
+        for (Cell cell : level.values()) {
+            if (cell.visibleCount == 0) continue; // All of its lots are hidden
+            if (viewport == null || viewport.contains(cell.centroidLatitude(), cell.centroidLongitude())) {
+                clusters.add(cell.toCluster());
+            }
+        }
+        return clusters;
+    }
+
+    /**
+     * Access the number of lots, including the hidden ones.
+     *
+     * @return The number of lots.
+     */
+    public int size() {
+        return mItems.size();
+    }
+
+    /**
+     * Purpose: an immutable snapshot of a cluster, safe to be handed over
+     * to the main thread.
+     */
+    public static final class Cluster {
+        private final long key;
+        private final double latitude;
+        private final double longitude;
+        private final int size;
+        private final int availableSpaces;
+        private final int capacity;
+        private final String firstId;
+
+        private Cluster(long key, double latitude, double longitude, int size,
+                        int availableSpaces, int capacity, String firstId) {
+            this.key = key;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.size = size;
+            this.availableSpaces = availableSpaces;
+            this.capacity = capacity;
+            this.firstId = firstId;
+        }
+
+        /**
+         * Access the key of the cluster's cell. Unique among the clusters of the same level.
+         */
+        public long getKey() {
+            return key;
+        }
+
+        /**
+         * Access the latitude of the cluster's centroid.
+         */
+        public double getLatitude() {
+            return latitude;
+        }
+
+        /**
+         * Access the longitude of the cluster's centroid.
+         */
+        public double getLongitude() {
+            return longitude;
+        }
+
+        /**
+         * Access the number of lots of the cluster.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Access the total available spaces of the cluster's lots.
+         */
+        public int getAvailableSpaces() {
+            return availableSpaces;
+        }
+
+        /**
+         * Access the total capacity of the cluster's lots.
+         */
+        public int getCapacity() {
+            return capacity;
+        }
+
+        /**
+         * Access the document id of the cluster's lot, if it consists of a single lot.
+         *
+         * @return The lot's document id. Null, if the cluster has more than one lot.
+         */
+        @Nullable
+        public String getSingleId() {
+            return size == 1 ? firstId : null;
+        }
+
+        /**
+         * Check whether the given cluster would be displayed the same way as this one.
+         *
+         * @param other Another cluster of the same key.
+         * @return True, if they share the same position, size, available spaces, capacity and lot.
+         */
+        public boolean looksTheSameAs(@NonNull Cluster other) {
+            return latitude == other.latitude && longitude == other.longitude
+                    && size == other.size && availableSpaces == other.availableSpaces
+                    && capacity == other.capacity
+                    && (size != 1 || firstId.equals(other.firstId));
+        }
+    }
+
+    /**
+     * Purpose: a lot with its cell on every level, and whether it is part of the clusters.
+     */
+    private static final class Item {
+        private final double latitude;
+        private final double longitude;
+        private final int availableSpaces;
+        private final int capacity;
+        private final long[] cells = new long[LEVELS];
+        private final Cell[] owners = new Cell[LEVELS]; // The cells of the keys
+        private boolean isVisible = true;
+
+        private Item(double latitude, double longitude, int availableSpaces, int capacity) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.availableSpaces = availableSpaces;
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * Purpose: the lots of a single cell, with the running totals of the visible ones.
+     */
+    private static final class Cell {
+        private final long key;
+        private final Map<String, Item> items = new LinkedHashMap<>();
+        private int visibleCount;
+        private double latitudeSum;
+        private double longitudeSum;
+        private int availableSpaces;
+        private int capacity;
+
+        private Cell(long key) {
+            this.key = key;
+        }
+
+        private void add(String id, @NonNull Item item) {
+            items.put(id, item);
+            if (item.isVisible) updateTotals(item, 1);
+        }
+
+        private void remove(String id, @NonNull Item item) {
+            items.remove(id);
+            if (item.isVisible) updateTotals(item, -1);
+        }
+
+        private void replace(String id, @NonNull Item oldItem, @NonNull Item newItem) {
+            items.put(id, newItem);
+            if (oldItem.isVisible) updateTotals(oldItem, -1);
+            if (newItem.isVisible) updateTotals(newItem, 1);
+        }
+
+        /**
+         * Adds the given lot to the totals, or subtracts it, based on the sign.
+         */
+        private void updateTotals(@NonNull Item item, int sign) {
+            visibleCount += sign;
+            latitudeSum += sign * item.latitude;
+            longitudeSum += sign * item.longitude;
+            availableSpaces += sign * item.availableSpaces;
+            capacity += sign * item.capacity;
+        }
+
+        private double centroidLatitude() {
+            return latitudeSum / visibleCount;
+        }
+
+        private double centroidLongitude() {
+            return longitudeSum / visibleCount;
+        }
+
+        @NonNull
+        private Cluster toCluster() {
+            if (visibleCount == 1) { // Use the exact values of the lot, free of rounding errors
+                for (Map.Entry<String, Item> entry : items.entrySet()) {
+                    final Item item = entry.getValue();
+                    if (!item.isVisible) continue;
+                    return new Cluster(key, item.latitude, item.longitude, 1,
+                            item.availableSpaces, item.capacity, entry.getKey());
+                }
+            }
+            return new Cluster(key, centroidLatitude(), centroidLongitude(),
+                    visibleCount, availableSpaces, capacity, items.keySet().iterator().next());
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package io.github.cchristou3.CyParking.data.manager;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.lifecycle.DefaultLifecycleObserver;
 import androidx.lifecycle.Lifecycle;
@@ -36,13 +39,26 @@ import static io.github.cchristou3.CyParking.ui.views.host.MainHostActivity.TAG;
  * The {@link EventListener#onEvent(Object, FirebaseFirestoreException)} will get triggered
  * whenever the {@link EventListener} receives an update or T's data is initially loaded.
  * <p>
+ * The observers of {@link #createSharedDocumentReferenceObserver(DocumentReference, EventListener)}
+ * and {@link #createSharedQueryObserver(Query, EventListener)} do not attach their own listener.
+ * Instead, they subscribe to the {@link SharedSnapshotRegistry}, so that all observers of the
+ * same document or query share a single listener.
+ * <p>
+ * An {@link EmissionPolicy} may be set via {@link #setEmissionPolicy(EmissionPolicy)},
+ * to conflate, rate limit or debounce the snapshots before they reach the EventListener.
+ * Errors are never held back.
+ * A {@link SnapshotRecorder} may be set via {@link #setRecorder(SnapshotRecorder, String)},
+ * to record the snapshots as they are received, before any emission policy.
+ * Every snapshot is reported to the {@link ListenerTelemetry} under the observer's telemetry name,
+ * along with the time from its arrival until the EventListener returned.
+ * <p>
  *
  * @param <T> type of {@link Query}, {@link com.google.firebase.firestore.DocumentReference}
  *            or {@link com.google.firebase.firestore.CollectionReference}.
  * @param <S> type of {@link com.google.firebase.firestore.QuerySnapshot}
  *            or {@link com.google.firebase.firestore.DocumentSnapshot}.
  * @author Charalambos Christou
- * @version 1.0 25/12/20
+ * @version 5.0 18/10/21
  * <p>
  */
 public abstract class DatabaseObserver<T, S> implements DefaultLifecycleObserver {
@@ -53,6 +69,32 @@ public abstract class DatabaseObserver<T, S> implements DefaultLifecycleObserver
     private WeakReference<Lifecycle> mWeakLifecycle;
     private ListenerRegistration mListenerRegistration;
     private AtomicBoolean isRegistered = new AtomicBoolean(false);
+    // Applies the emission policy to the snapshots. Null, if they are delivered straight away.
+    @Nullable
+    private EmissionGate<S> mEmissionGate;
+    // Records the received snapshots under the mRecordingStream. Null, if they are not recorded.
+    @Nullable
+    private SnapshotRecorder mRecorder;
+    private String mRecordingStream = "";
+    // The name the snapshots are reported to the ListenerTelemetry under
+    private String mTelemetryName;
+    // The arrival time of the earliest snapshot that was not delivered yet. NOT_PENDING, if none.
+    private long mPendingArrivalNanos = NOT_PENDING;
+    private static final long NOT_PENDING = Long.MIN_VALUE;
+    // The EventListener attached to the database reference
+    private final EventListener<S> mSourceEventListener = (value, error) -> {
+        if (mPendingArrivalNanos == NOT_PENDING) mPendingArrivalNanos = System.nanoTime();
+        ListenerTelemetry.getInstance().onSnapshot(mTelemetryName, value, error);
+        if (mRecorder != null && value != null) mRecorder.record(mRecordingStream, value);
+        if (mEmissionGate == null) {
+            deliver(value, error);
+        } else if (error != null) {
+            mEmissionGate.flush(); // The snapshots preceded the error
+            deliver(null, error);
+        } else {
+            mEmissionGate.offer(value);
+        }
+    };
 
     /**
      * Public Constructor.
@@ -66,6 +108,7 @@ public abstract class DatabaseObserver<T, S> implements DefaultLifecycleObserver
     private DatabaseObserver(T query, EventListener<S> eventListener) {
         this.mDatabaseReference = query;
         this.mEventListener = eventListener;
+        this.mTelemetryName = defaultTelemetryNameOf(query);
     }
 
     /**
@@ -131,6 +174,62 @@ public abstract class DatabaseObserver<T, S> implements DefaultLifecycleObserver
         };
     }
 
+    /**
+     * Creates a new instance of DatabaseObserver of type <DocumentReference, DocumentSnapshot>,
+     * whose listener is shared with every other observer of the same document
+     * via the {@link SharedSnapshotRegistry}.
+     *
+     * @param documentReference The query corresponds to a single document in the database.
+     * @param eventListener     The handler of the DocumentSnapshot instances retrieved from
+     *                          the database.
+     * @return An instance of DatabaseObserver<DocumentReference, DocumentSnapshot>.
+     * @see #createDocumentReferenceObserver(DocumentReference, EventListener)
+     */
+    @NotNull
+    @Contract(value = "_, _ -> new", pure = true)
+    public static DatabaseObserver<DocumentReference, DocumentSnapshot> createSharedDocumentReferenceObserver(
+            DocumentReference documentReference, EventListener<DocumentSnapshot> eventListener
+    ) {
+        return new DatabaseObserver<DocumentReference, DocumentSnapshot>(documentReference,
+                eventListener) {
+            @Override
+            public void addSnapshotListenerToDatabaseReference(DocumentReference reference) {
+                setListenerRegistration(
+                        SharedSnapshotRegistry.getInstance().subscribe(reference, getEventListener())
+                );
+            }
+        };
+    }
+
+    /**
+     * Creates a new instance of DatabaseObserver of type <Query, QuerySnapshot>,
+     * whose listener is shared with every other observer of the same query
+     * via the {@link SharedSnapshotRegistry}.
+     * As its latest snapshot may be replayed, the EventListener should rely on the
+     * snapshot's documents, rather than its document changes.
+     *
+     * @param query         The query corresponds to filtered data in the database.
+     * @param eventListener The handler of the QuerySnapshot instances retrieved from
+     *                      the database.
+     * @return An instance of DatabaseObserver<Query, QuerySnapshot>.
+     * @see #createQueryObserver(Query, EventListener)
+     */
+    @NotNull
+    @Contract(value = "_, _ -> new", pure = true)
+    public static DatabaseObserver<Query, QuerySnapshot> createSharedQueryObserver(
+            Query query, EventListener<QuerySnapshot> eventListener
+    ) {
+        return new DatabaseObserver<Query, QuerySnapshot>(query,
+                eventListener) {
+            @Override
+            public void addSnapshotListenerToDatabaseReference(Query reference) {
+                setListenerRegistration(
+                        SharedSnapshotRegistry.getInstance().subscribe(reference, getEventListener())
+                );
+            }
+        };
+    }
+
     /**
      * Creates a new instance of DatabaseObserver of type <CollectionReference, QuerySnapshot>.
      * The CollectionReference refers to a reference of a <u>single</u> collection in the database.
@@ -162,6 +261,64 @@ public abstract class DatabaseObserver<T, S> implements DefaultLifecycleObserver
         };
     }
 
+    /**
+     * Sets the policy the snapshots are delivered to the EventListener with.
+     * Only the latest snapshot of a conflated burst is delivered. Thus, the EventListener
+     * should rely on the snapshot's documents, rather than its document changes.
+     * To be called before {@link #registerLifecycleObserver(Lifecycle)}.
+     *
+     * @param policy The emission policy. {@link EmissionPolicy#IMMEDIATE} removes the current one.
+     * @return The current instance, for chaining.
+     */
+    @NonNull
+    public DatabaseObserver<T, S> setEmissionPolicy(@NonNull EmissionPolicy policy) {
+        if (mEmissionGate != null) mEmissionGate.cancel();
+        mEmissionGate = policy == EmissionPolicy.IMMEDIATE ? null : policy.createGate(
+                EmissionGate.handlerScheduler(new Handler(Looper.getMainLooper())),
+                EmissionGate.latest(),
+                value -> deliver(value, null));
+        return this;
+    }
+
+    /**
+     * Sets the name the snapshots are reported to the {@link ListenerTelemetry} under.
+     * By default, the path of the observed collection, followed by "/{id}" for a document,
+     * or "query" for a query.
+     *
+     * @param name The telemetry name, e.g. "booking.lot".
+     * @return The current instance, for chaining.
+     */
+    @NonNull
+    public DatabaseObserver<T, S> setTelemetryName(@NonNull String name) {
+        this.mTelemetryName = name;
+        return this;
+    }
+
+    /**
+     * Access the {@link #mTelemetryName}.
+     *
+     * @return The name the snapshots are reported under.
+     */
+    @NonNull
+    public String getTelemetryName() {
+        return mTelemetryName;
+    }
+
+    /**
+     * Sets the recorder of the received snapshots.
+     * To be called before {@link #registerLifecycleObserver(Lifecycle)}.
+     *
+     * @param recorder The recorder of the snapshots. Null, to stop recording.
+     * @param stream   The name the snapshots are recorded under, e.g. "lots".
+     * @return The current instance, for chaining.
+     */
+    @NonNull
+    public DatabaseObserver<T, S> setRecorder(@Nullable SnapshotRecorder recorder, @NonNull String stream) {
+        this.mRecorder = recorder;
+        this.mRecordingStream = stream;
+        return this;
+    }
+
     /**
      * Registers the given Lifecycle instance to the current DatabaseObserver instance.
      * Also, saves a reference of the given Lifecycle which will later be used to
@@ -194,6 +351,9 @@ public abstract class DatabaseObserver<T, S> implements DefaultLifecycleObserver
      * Removes the object's database reference's ({@link #mDatabaseReference}) listener.
      */
     public void removeSnapshotListenerFromDatabaseQuery() {
+        // The pending snapshot, if any, belongs to the removed listener
+        if (mEmissionGate != null) mEmissionGate.cancel();
+        mPendingArrivalNanos = NOT_PENDING;
         if (mListenerRegistration != null) {
             Log.d(TAG, "SnapshotListener removed!");
             mListenerRegistration.remove();
@@ -280,12 +440,37 @@ public abstract class DatabaseObserver<T, S> implements DefaultLifecycleObserver
     }
 
     /**
-     * Access the object's EventListener instance.
+     * Access the object's EventListener instance,
+     * to be attached to the database reference.
      *
-     * @return The {@link #mEventListener}.
+     * @return The {@link #mEventListener}, behind the telemetry, the {@link #mRecorder}
+     * and the {@link #mEmissionGate}.
      */
     public EventListener<S> getEventListener() {
-        return mEventListener;
+        return mSourceEventListener;
+    }
+
+    /**
+     * Delivers the given snapshot or error to the {@link #mEventListener} and reports
+     * the time since the earliest snapshot it stands for arrived.
+     */
+    private void deliver(@Nullable S value, @Nullable FirebaseFirestoreException error) {
+        mEventListener.onEvent(value, error);
+        if (mPendingArrivalNanos == NOT_PENDING) return;
+        ListenerTelemetry.getInstance().onApplied(mTelemetryName, System.nanoTime() - mPendingArrivalNanos);
+        mPendingArrivalNanos = NOT_PENDING;
+    }
+
+    /**
+     * Names the given database reference, e.g. "parking_lots/{id}" for a lot's document.
+     */
+    @NonNull
+    private static String defaultTelemetryNameOf(@Nullable Object reference) {
+        if (reference instanceof DocumentReference) {
+            return ((DocumentReference) reference).getParent().getPath() + "/{id}";
+        }
+        if (reference instanceof CollectionReference) return ((CollectionReference) reference).getPath();
+        return "query";
     }
 
     /**
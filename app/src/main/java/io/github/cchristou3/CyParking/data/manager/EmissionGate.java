@@ -0,0 +1,223 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Purpose: apply an {@link EmissionPolicy} to a stream of events, before they reach their receiver.
+ * <p>
+ * An event that may not be delivered yet becomes the pending one. The events that follow it
+ * are merged into it via a {@link Merger}, e.g. the latest one replaces it, or the document
+ * changes get concatenated. The pending event is delivered once its policy allows it,
+ * via the {@link Scheduler}. Thus, at most a single delivery is scheduled at any time.
+ * <p>
+ * Accessed only on the thread of its scheduler, e.g. the main thread
+ * where Firestore delivers the snapshots.
+ *
+ * @param <T> The type of the events.
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ * @see EmissionPolicy#createGate(Scheduler, Merger, Receiver)
+ */
+public final class EmissionGate<T> {
+
+    private final EmissionPolicy mPolicy;
+    private final Scheduler mScheduler;
+    private final Merger<T> mMerger;
+    private final Receiver<T> mReceiver;
+    private final Runnable mDeliverPending = () -> {
+        this.mIsScheduled = false;
+        deliverPending();
+    };
+    @Nullable
+    private T mPending;
+    private boolean mHasPending = false;
+    private boolean mIsScheduled = false;
+    private boolean mHasDelivered = false;
+    // The time the pending event was offered
+    private long mPendingSince;
+    // The time of the latest delivery
+    private long mLastDelivery;
+
+    EmissionGate(@NonNull EmissionPolicy policy, @NonNull Scheduler scheduler,
+                 @NonNull Merger<T> merger, @NonNull Receiver<T> receiver) {
+        this.mPolicy = policy;
+        this.mScheduler = scheduler;
+        this.mMerger = merger;
+        this.mReceiver = receiver;
+    }
+
+    /**
+     * Creates a {@link Scheduler} which runs the deliveries on the given handler's thread.
+     *
+     * @param handler The handler of the thread the gate is accessed on.
+     * @return A new {@link Scheduler} instance.
+     */
+    @NonNull
+    public static Scheduler handlerScheduler(@NonNull Handler handler) {
+        return new Scheduler() {
+            @Override
+            public long now() {
+                return SystemClock.uptimeMillis();
+            }
+
+            @Override
+            public void schedule(@NonNull Runnable task, long delayMillis) {
+                handler.postDelayed(task, delayMillis);
+            }
+
+            @Override
+            public void cancel(@NonNull Runnable task) {
+                handler.removeCallbacks(task);
+            }
+        };
+    }
+
+    /**
+     * Creates a {@link Merger} which keeps only the latest event.
+     * Suits the events that carry the whole state of their source, e.g. a {@link
+     * com.google.firebase.firestore.DocumentSnapshot}.
+     *
+     * @param <T> The type of the events.
+     * @return A {@link Merger} instance.
+     */
+    @NonNull
+    public static <T> Merger<T> latest() {
+        return (pending, incoming) -> incoming;
+    }
+
+    /**
+     * Offers the given event. It is either delivered straight away,
+     * or merged into the pending one.
+     *
+     * @param event The new event.
+     */
+    public void offer(T event) {
+        if (mPolicy.getMode() == EmissionPolicy.Mode.IMMEDIATE) {
+            deliver(event);
+            return;
+        }
+        final long now = mScheduler.now();
+        if (mHasPending) {
+            mPending = mMerger.merge(mPending, event);
+        } else {
+            mPending = event;
+            mHasPending = true;
+            mPendingSince = now;
+        }
+        switch (mPolicy.getMode()) {
+            case CONFLATE:
+                if (!mIsScheduled) schedule(0L);
+                break;
+            case RATE_LIMIT:
+                if (mIsScheduled) break;
+                final long due = mHasDelivered ? mLastDelivery + mPolicy.getIntervalMillis() : now;
+                if (due <= now) {
+                    deliverPending();
+                } else {
+                    schedule(due - now);
+                }
+                break;
+            case DEBOUNCE:
+                if (mIsScheduled) mScheduler.cancel(mDeliverPending);
+                final long quietDue = Math.min(now + mPolicy.getIntervalMillis(),
+                        mPendingSince + mPolicy.getMaxWaitMillis());
+                schedule(Math.max(0L, quietDue - now));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Delivers the pending event, if any, regardless of the policy.
+     */
+    public void flush() {
+        cancelScheduled();
+        deliverPending();
+    }
+
+    /**
+     * Drops the pending event, if any, e.g. once its source got removed.
+     */
+    public void cancel() {
+        cancelScheduled();
+        mPending = null;
+        mHasPending = false;
+    }
+
+    /**
+     * Checks whether an event waits to be delivered.
+     *
+     * @return True, if an event is pending.
+     */
+    public boolean hasPending() {
+        return mHasPending;
+    }
+
+    /**
+     * Access the gate's {@link #mPolicy}.
+     *
+     * @return The policy of the gate.
+     */
+    @NonNull
+    public EmissionPolicy getPolicy() {
+        return mPolicy;
+    }
+
+    private void schedule(long delayMillis) {
+        mIsScheduled = true;
+        mScheduler.schedule(mDeliverPending, delayMillis);
+    }
+
+    private void cancelScheduled() {
+        if (!mIsScheduled) return;
+        mScheduler.cancel(mDeliverPending);
+        mIsScheduled = false;
+    }
+
+    private void deliverPending() {
+        if (!mHasPending) return;
+        final T event = mPending;
+        mPending = null;
+        mHasPending = false;
+        deliver(event);
+    }
+
+    private void deliver(T event) {
+        mHasDelivered = true;
+        mLastDelivery = mScheduler.now();
+        mReceiver.receive(event);
+    }
+
+    /**
+     * Purpose: run the delayed deliveries of a gate and tell the time.
+     */
+    public interface Scheduler {
+        /**
+         * @return The current time in milliseconds, of a monotonic clock.
+         */
+        long now();
+
+        void schedule(@NonNull Runnable task, long delayMillis);
+
+        void cancel(@NonNull Runnable task);
+    }
+
+    /**
+     * Purpose: merge an event into the pending one.
+     */
+    public interface Merger<T> {
+        T merge(T pending, T incoming);
+    }
+
+    /**
+     * Purpose: receive the delivered events of a gate.
+     */
+    public interface Receiver<T> {
+        void receive(T event);
+    }
+}
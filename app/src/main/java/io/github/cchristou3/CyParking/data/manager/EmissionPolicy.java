@@ -0,0 +1,131 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Purpose: describe how often the events of a source may reach their receiver,
+ * e.g. the snapshots of a busy lot's document on their way to a ViewModel.
+ * <ul>
+ *     <li>{@link #IMMEDIATE}: every event is delivered as soon as it arrives.</li>
+ *     <li>{@link #conflateLatest()}: the events that arrive before the pending one gets delivered
+ *     are merged into it. Delivered on the next turn of the scheduler.</li>
+ *     <li>{@link #rateLimit(int)}: at most N deliveries per second. An event that arrives
+ *     too soon is merged into the pending one, which is delivered once the interval passes.</li>
+ *     <li>{@link #debounce(long, long)}: delivered once no event arrived for a window,
+ *     but no later than a maximum wait since the first pending one.</li>
+ * </ul>
+ * A policy holds no state. Each use creates its own {@link EmissionGate} via
+ * {@link #createGate(EmissionGate.Scheduler, EmissionGate.Merger, EmissionGate.Receiver)}.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ * @see EmissionGate
+ */
+public final class EmissionPolicy {
+
+    /**
+     * Delivers every event as soon as it arrives.
+     */
+    public static final EmissionPolicy IMMEDIATE = new EmissionPolicy(Mode.IMMEDIATE, 0L, 0L);
+
+    private static final EmissionPolicy CONFLATE_LATEST = new EmissionPolicy(Mode.CONFLATE, 0L, 0L);
+
+    private final Mode mMode;
+    // The interval between two deliveries, or the debounce window
+    private final long mIntervalMillis;
+    // The maximum time an event stays pending while debounced
+    private final long mMaxWaitMillis;
+
+    private EmissionPolicy(@NonNull Mode mode, long intervalMillis, long maxWaitMillis) {
+        this.mMode = mode;
+        this.mIntervalMillis = intervalMillis;
+        this.mMaxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Merges the events that arrive in the same turn of the scheduler into one.
+     *
+     * @return The latest-only conflation policy.
+     */
+    @NonNull
+    public static EmissionPolicy conflateLatest() {
+        return CONFLATE_LATEST;
+    }
+
+    /**
+     * Delivers at most the given number of events per second.
+     * The first event of a quiet source is delivered straight away.
+     *
+     * @param eventsPerSecond The maximum number of deliveries per second.
+     * @return The rate limiting policy.
+     * @throws IllegalArgumentException if the number of events is not positive.
+     */
+    @NonNull
+    public static EmissionPolicy rateLimit(int eventsPerSecond) throws IllegalArgumentException {
+        if (eventsPerSecond <= 0) {
+            throw new IllegalArgumentException("The number of events per second must be positive.");
+        }
+        // Rounded up, so that the rate is never exceeded
+        return new EmissionPolicy(Mode.RATE_LIMIT, (1000L + eventsPerSecond - 1) / eventsPerSecond, 0L);
+    }
+
+    /**
+     * Delivers the pending event once no other event arrived for the given window.
+     * A source that never pauses gets its latest event delivered every max wait.
+     *
+     * @param windowMillis  The quiet time before a delivery.
+     * @param maxWaitMillis The maximum time an event stays pending.
+     * @return The debouncing policy.
+     * @throws IllegalArgumentException if the window is not positive or
+     *                                  the maximum wait is shorter than the window.
+     */
+    @NonNull
+    public static EmissionPolicy debounce(long windowMillis, long maxWaitMillis) throws IllegalArgumentException {
+        if (windowMillis <= 0 || maxWaitMillis < windowMillis) {
+            throw new IllegalArgumentException("The window must be positive and not longer than the maximum wait.");
+        }
+        return new EmissionPolicy(Mode.DEBOUNCE, windowMillis, maxWaitMillis);
+    }
+
+    /**
+     * Creates a new gate which applies the policy to the events offered to it.
+     *
+     * @param scheduler Schedules the delayed deliveries and tells the time.
+     * @param merger    Merges an event into the pending one.
+     * @param receiver  Receives the delivered events.
+     * @param <T>       The type of the events.
+     * @return A new {@link EmissionGate} instance.
+     */
+    @NonNull
+    public <T> EmissionGate<T> createGate(@NonNull EmissionGate.Scheduler scheduler,
+                                          @NonNull EmissionGate.Merger<T> merger,
+                                          @NonNull EmissionGate.Receiver<T> receiver) {
+        return new EmissionGate<>(this, scheduler, merger, receiver);
+    }
+
+    @NonNull
+    Mode getMode() {
+        return mMode;
+    }
+
+    long getIntervalMillis() {
+        return mIntervalMillis;
+    }
+
+    long getMaxWaitMillis() {
+        return mMaxWaitMillis;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return mMode + (mMode == Mode.IMMEDIATE || mMode == Mode.CONFLATE ? "" : "(" + mIntervalMillis + "ms)");
+    }
+
+    /**
+     * Purpose: the kinds of policies.
+     */
+    enum Mode {
+        IMMEDIATE, CONFLATE, RATE_LIMIT, DEBOUNCE
+    }
+}
@@ -0,0 +1,238 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Purpose: the metrics of a single snapshot listener, e.g. of the map's lots.
+ * <p>
+ * For each event, the number of its documents and the approximate bytes of their data
+ * are recorded into {@link LogHistogram}s, along with whether it came from the cache or
+ * contained pending writes. The time from the event's arrival until it got applied to the Ui
+ * is recorded separately, via {@link #onApplied(long)}. The events per second are counted
+ * over the last {@link #RATE_WINDOW_SECONDS} seconds. All updates are lock-free.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ * @see ListenerTelemetry
+ */
+public final class ListenerStats {
+
+    /**
+     * The number of seconds the events per second are counted over.
+     */
+    public static final int RATE_WINDOW_SECONDS = 10;
+
+    private final String mName;
+    private final AtomicLong mEvents = new AtomicLong();
+    private final AtomicLong mErrors = new AtomicLong();
+    private final AtomicLong mFromCache = new AtomicLong();
+    private final AtomicLong mPendingWrites = new AtomicLong();
+    private final LogHistogram mDocumentsPerEvent = new LogHistogram();
+    private final LogHistogram mBytesPerEvent = new LogHistogram();
+    private final LogHistogram mApplyLatencyMicros = new LogHistogram();
+    // The events of each of the last seconds and the second each slot counts
+    private final AtomicLongArray mSecondCounts = new AtomicLongArray(RATE_WINDOW_SECONDS);
+    private final AtomicLongArray mSecondStamps = new AtomicLongArray(RATE_WINDOW_SECONDS);
+
+    /**
+     * Public Constructor.
+     *
+     * @param name The name of the listener.
+     */
+    public ListenerStats(@NonNull String name) {
+        this.mName = name;
+        for (int slot = 0; slot < RATE_WINDOW_SECONDS; slot++) mSecondStamps.set(slot, -1L);
+    }
+
+    /**
+     * Records an event.
+     *
+     * @param nowMillis        The current time, of a monotonic clock.
+     * @param documents        The number of the event's documents.
+     * @param bytes            The approximate bytes of their data.
+     * @param fromCache        Whether the event came from the cache.
+     * @param hasPendingWrites Whether the event contains writes that are not committed yet.
+     */
+    public void onEvent(long nowMillis, int documents, long bytes, boolean fromCache, boolean hasPendingWrites) {
+        mEvents.incrementAndGet();
+        if (fromCache) mFromCache.incrementAndGet();
+        if (hasPendingWrites) mPendingWrites.incrementAndGet();
+        mDocumentsPerEvent.record(documents);
+        mBytesPerEvent.record(bytes);
+        countInWindow(nowMillis);
+    }
+
+    /**
+     * Records an error event.
+     *
+     * @param nowMillis The current time, of a monotonic clock.
+     */
+    public void onError(long nowMillis) {
+        mEvents.incrementAndGet();
+        mErrors.incrementAndGet();
+        countInWindow(nowMillis);
+    }
+
+    /**
+     * Records the time an event took from its arrival until it got applied.
+     *
+     * @param latencyNanos The latency in nanoseconds.
+     */
+    public void onApplied(long latencyNanos) {
+        mApplyLatencyMicros.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    @NonNull
+    public String getName() {
+        return mName;
+    }
+
+    public long getEventCount() {
+        return mEvents.get();
+    }
+
+    /**
+     * Access the events per second, over the last {@link #RATE_WINDOW_SECONDS} seconds.
+     *
+     * @param nowMillis The current time, of the same clock as the events'.
+     * @return The events per second.
+     */
+    public double getEventsPerSecond(long nowMillis) {
+        final long second = nowMillis / 1000L;
+        long events = 0;
+        for (int slot = 0; slot < RATE_WINDOW_SECONDS; slot++) {
+            final long stamp = mSecondStamps.get(slot);
+            if (stamp > second - RATE_WINDOW_SECONDS && stamp <= second) events += mSecondCounts.get(slot);
+        }
+        return (double) events / RATE_WINDOW_SECONDS;
+    }
+
+    /**
+     * Access the ratio of the events that came from the cache.
+     *
+     * @return The ratio, in [0, 1].
+     */
+    public double getFromCacheRatio() {
+        return ratioOf(mFromCache.get());
+    }
+
+    /**
+     * Access the ratio of the events that contained pending writes.
+     *
+     * @return The ratio, in [0, 1].
+     */
+    public double getPendingWritesRatio() {
+        return ratioOf(mPendingWrites.get());
+    }
+
+    @NonNull
+    public LogHistogram getDocumentsPerEvent() {
+        return mDocumentsPerEvent;
+    }
+
+    @NonNull
+    public LogHistogram getBytesPerEvent() {
+        return mBytesPerEvent;
+    }
+
+    @NonNull
+    public LogHistogram getApplyLatencyMicros() {
+        return mApplyLatencyMicros;
+    }
+
+    /**
+     * Drops all recorded metrics.
+     */
+    public void reset() {
+        mEvents.set(0L);
+        mErrors.set(0L);
+        mFromCache.set(0L);
+        mPendingWrites.set(0L);
+        mDocumentsPerEvent.reset();
+        mBytesPerEvent.reset();
+        mApplyLatencyMicros.reset();
+        for (int slot = 0; slot < RATE_WINDOW_SECONDS; slot++) {
+            mSecondStamps.set(slot, -1L);
+            mSecondCounts.set(slot, 0L);
+        }
+    }
+
+    /**
+     * Appends a few lines of text with the listener's metrics to the given builder.
+     *
+     * @param report    The builder of the report.
+     * @param nowMillis The current time, of the same clock as the events'.
+     */
+    public void appendReport(@NonNull StringBuilder report, long nowMillis) {
+        report.append(mName).append('\n')
+                .append(String.format(Locale.US,
+                        "  events: %d (%.1f/s), errors: %d, from cache: %.0f%%, pending writes: %.0f%%%n",
+                        mEvents.get(), getEventsPerSecond(nowMillis), mErrors.get(),
+                        getFromCacheRatio() * 100, getPendingWritesRatio() * 100));
+        appendHistogram(report, "docs/event", mDocumentsPerEvent, "");
+        appendHistogram(report, "bytes/event", mBytesPerEvent, "B");
+        appendHistogram(report, "apply latency", mApplyLatencyMicros, "us");
+    }
+
+    /**
+     * Estimates the bytes a decoded document value takes:
+     * the characters of strings and keys, 8 bytes per number and 1 per boolean.
+     * Values of any other type count as 16 bytes, e.g. a timestamp or a geo point.
+     *
+     * @param value A value of a document, e.g. its data.
+     * @return The approximate bytes of the value.
+     */
+    public static long estimateSize(@Nullable Object value) {
+        if (value == null || value instanceof Boolean) return 1L;
+        if (value instanceof Number) return 8L;
+        if (value instanceof String) return ((String) value).length();
+        if (value instanceof byte[]) return ((byte[]) value).length;
+        long size = 0;
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += String.valueOf(entry.getKey()).length() + estimateSize(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof List) {
+            for (Object element : (List<?>) value) size += estimateSize(element);
+            return size;
+        }
+        return 16L;
+    }
+
+    private double ratioOf(long count) {
+        final long events = mEvents.get() - mErrors.get();
+        return events <= 0 ? 0.0 : Math.min(1.0, (double) count / events);
+    }
+
+    /**
+     * Counts an event in the slot of the current second. A slot of an older second
+     * gets claimed and reset first. An event that races with the reset may be lost,
+     * which is acceptable for a rate.
+     */
+    private void countInWindow(long nowMillis) {
+        final long second = nowMillis / 1000L;
+        final int slot = (int) (second % RATE_WINDOW_SECONDS);
+        final long stamp = mSecondStamps.get(slot);
+        if (stamp != second && mSecondStamps.compareAndSet(slot, stamp, second)) {
+            mSecondCounts.set(slot, 0L);
+        }
+        mSecondCounts.incrementAndGet(slot);
+    }
+
+    private static void appendHistogram(@NonNull StringBuilder report, @NonNull String label,
+                                        @NonNull LogHistogram histogram, @NonNull String unit) {
+        report.append(String.format(Locale.US, "  %s: mean %.1f%s, p50 %d%s, p95 %d%s, max %d%s%n",
+                label, histogram.getMean(), unit, histogram.getPercentile(50), unit,
+                histogram.getPercentile(95), unit, histogram.getMax(), unit));
+    }
+}
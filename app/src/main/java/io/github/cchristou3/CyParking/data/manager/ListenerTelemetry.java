@@ -0,0 +1,172 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Purpose: collect the {@link ListenerStats} of the app's snapshot listeners, by name,
+ * to find out which ones are hot.
+ * <p>
+ * Every {@link DatabaseObserver} reports its snapshots under its telemetry name, along with
+ * the time from each snapshot's arrival until its EventListener returned. The listeners that
+ * are not attached via a {@link DatabaseObserver} report via {@link #instrument(String, EventListener)}.
+ * The documents of a {@link QuerySnapshot} are the ones of its document changes, as only those get decoded.
+ * Estimating their bytes walks their data, thus the telemetry can be disabled via {@link #setEnabled(boolean)}.
+ * <p>
+ * The metrics are shown by the listener telemetry screen and dumped by
+ * {@code adb shell dumpsys activity}, via {@link #getReport()}.
+ * The class is thread-safe.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public final class ListenerTelemetry {
+
+    private static final ListenerTelemetry sInstance = new ListenerTelemetry();
+
+    private final ConcurrentMap<String, ListenerStats> mStats = new ConcurrentHashMap<>();
+    private volatile boolean mIsEnabled = true;
+
+    private ListenerTelemetry() { /* Single instance */ }
+
+    /**
+     * Access the process-wide instance.
+     *
+     * @return The single instance of the telemetry.
+     */
+    @NonNull
+    public static ListenerTelemetry getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Enables or disables the recording of metrics. The recorded ones are kept.
+     *
+     * @param enabled Whether metrics get recorded.
+     */
+    public void setEnabled(boolean enabled) {
+        this.mIsEnabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return mIsEnabled;
+    }
+
+    /**
+     * Wraps the given listener, so that its snapshots and the time it takes
+     * to handle each of them are reported under the given name.
+     *
+     * @param name     The name of the listener, e.g. "home.upcoming_booking".
+     * @param listener The listener to be wrapped.
+     * @param <S>      {@link QuerySnapshot} or {@link DocumentSnapshot}.
+     * @return The wrapping listener.
+     */
+    @NonNull
+    public <S> EventListener<S> instrument(@NonNull String name, @NonNull EventListener<S> listener) {
+        return (value, error) -> {
+            final long arrival = System.nanoTime();
+            onSnapshot(name, value, error);
+            listener.onEvent(value, error);
+            onApplied(name, System.nanoTime() - arrival);
+        };
+    }
+
+    /**
+     * Reports the given snapshot or error of the listener with the given name.
+     *
+     * @param name     The name of the listener.
+     * @param snapshot A {@link QuerySnapshot} or a {@link DocumentSnapshot}.
+     * @param error    The error of the listener, if any.
+     */
+    public void onSnapshot(@NonNull String name, @Nullable Object snapshot, @Nullable FirebaseFirestoreException error) {
+        if (!mIsEnabled) return;
+        final long now = SystemClock.uptimeMillis();
+        if (error != null || snapshot == null) {
+            statsOf(name).onError(now);
+        } else if (snapshot instanceof QuerySnapshot) {
+            final QuerySnapshot query = (QuerySnapshot) snapshot;
+            final List<DocumentChange> changes = query.getDocumentChanges();
+            long bytes = 0;
+            for (DocumentChange dc : changes) {
+                if (dc.getType() != DocumentChange.Type.REMOVED) bytes += estimateSize(dc.getDocument());
+            }
+            statsOf(name).onEvent(now, changes.size(), bytes,
+                    query.getMetadata().isFromCache(), query.getMetadata().hasPendingWrites());
+        } else if (snapshot instanceof DocumentSnapshot) {
+            final DocumentSnapshot document = (DocumentSnapshot) snapshot;
+            statsOf(name).onEvent(now, document.exists() ? 1 : 0, estimateSize(document),
+                    document.getMetadata().isFromCache(), document.getMetadata().hasPendingWrites());
+        }
+    }
+
+    /**
+     * Reports the time a snapshot of the listener with the given name took
+     * from its arrival until it got applied.
+     *
+     * @param name         The name of the listener.
+     * @param latencyNanos The latency in nanoseconds.
+     */
+    public void onApplied(@NonNull String name, long latencyNanos) {
+        if (mIsEnabled) statsOf(name).onApplied(latencyNanos);
+    }
+
+    /**
+     * Access the stats of all listeners, the ones with the most events first.
+     *
+     * @return A snapshot of the list of stats.
+     */
+    @NonNull
+    public List<ListenerStats> getAllStats() {
+        final List<ListenerStats> all = new ArrayList<>(mStats.values());
+        Collections.sort(all, (first, second) -> Long.compare(second.getEventCount(), first.getEventCount()));
+        return all;
+    }
+
+    /**
+     * Creates a text report of the metrics of all listeners, the ones with the most events first.
+     *
+     * @return The report.
+     */
+    @NonNull
+    public String getReport() {
+        final long now = SystemClock.uptimeMillis();
+        final StringBuilder report = new StringBuilder("Snapshot listeners")
+                .append(mIsEnabled ? "" : " (disabled)").append('\n');
+        for (ListenerStats stats : getAllStats()) stats.appendReport(report, now);
+        return report.toString();
+    }
+
+    /**
+     * Drops the metrics of all listeners.
+     */
+    public void reset() {
+        for (ListenerStats stats : mStats.values()) stats.reset();
+    }
+
+    @NonNull
+    private ListenerStats statsOf(@NonNull String name) {
+        final ListenerStats stats = mStats.get(name);
+        if (stats != null) return stats;
+        final ListenerStats created = new ListenerStats(name);
+        final ListenerStats existing = mStats.putIfAbsent(name, created);
+        return existing != null ? existing : created;
+    }
+
+    private static long estimateSize(@NonNull DocumentSnapshot document) {
+        return document.getId().length() + ListenerStats.estimateSize(document.getData());
+    }
+}
@@ -0,0 +1,220 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import static io.github.cchristou3.CyParking.apiClient.utils.Utils.getDistanceApart;
+
+/**
+ * Purpose: decide when the user's location is requested next, and what to do with each fix,
+ * based on how fast the user is moving.
+ * <p>
+ * Each fix is first filtered: a fix that lies within {@link #JITTER_RADIUS} of the current
+ * position is treated as GPS jitter and only nudges the position towards it, while one
+ * further away is taken as is. The speed is estimated from the filtered positions.
+ * <p> - Drivers get a fix every {@link #DRIVING_INTERVAL_MILLIS}.
+ * <p> - Walkers get a fix every {@link #WALKING_INTERVAL_MILLIS}.
+ * <p> - Still users get a fix every {@link #IDLE_INTERVAL_MILLIS}, doubled for every
+ * {@link #IDLE_STEP_MILLIS} they stay still, up to {@link #MAX_IDLE_INTERVAL_MILLIS}.
+ * <p> - After a failed request, the next one is made after {@link #RETRY_INTERVAL_MILLIS},
+ * doubled for every further failure, up to {@link #MAX_RETRY_INTERVAL_MILLIS}.
+ * <p>
+ * It also limits how often the nearby lots get re-fetched, and keeps the camera
+ * from following the user while they are panning the map.
+ * <p>
+ * The times are given by the caller, in milliseconds of a monotonic clock
+ * (e.g. {@link android.os.SystemClock#elapsedRealtime()}).
+ *
+ * @author Charalambos Christou
+ * @version 2.0 18/10/21
+ */
+public class LocationUpdateScheduler {
+
+    // Intervals between two location requests
+    public static final long DRIVING_INTERVAL_MILLIS = 5_000L;
+    public static final long WALKING_INTERVAL_MILLIS = 15_000L;
+    public static final long IDLE_INTERVAL_MILLIS = 30_000L;
+    public static final long MAX_IDLE_INTERVAL_MILLIS = 60_000L;
+    public static final long IDLE_STEP_MILLIS = 60_000L;
+    public static final long RETRY_INTERVAL_MILLIS = 5_000L;
+    public static final long MAX_RETRY_INTERVAL_MILLIS = 120_000L;
+    // Speeds in meters per second
+    public static final double DRIVING_SPEED = 6.0; // ~22 km/h
+    public static final double WALKING_SPEED = 0.5;
+    /**
+     * Fixes closer than that to the current position, in meters, are considered jitter.
+     */
+    public static final double JITTER_RADIUS = 10.0;
+    /**
+     * How much a jittery fix moves the current position towards it.
+     */
+    private static final double JITTER_WEIGHT = 0.2;
+    /**
+     * How much a new speed sample weights against the previous estimate.
+     */
+    private static final double SPEED_WEIGHT = 0.5;
+    /**
+     * The minimum time between two re-fetches of the nearby lots.
+     */
+    public static final long MIN_REFETCH_INTERVAL_MILLIS = 20_000L;
+    /**
+     * The time the camera stops following the user, after they panned the map.
+     */
+    public static final long PAN_HOLD_MILLIS = 10_000L;
+    /**
+     * The distance, in meters, the user must move for the camera to follow.
+     */
+    public static final double CAMERA_MIN_DISTANCE = 15.0;
+
+    // Members
+    private LatLng mPosition; // Filtered
+    private long mLastFixMillis;
+    private double mSpeed = 0;
+    private long mStillSinceMillis;
+    private long mLastRefetchMillis;
+    private boolean mDidRefetch = false;
+    private long mLastPanMillis;
+    private boolean mDidPan = false;
+    private LatLng mCameraPosition;
+    private int mFailures = 0; // Consecutive
+
+    /**
+     * Filters the given fix and updates the estimated speed.
+     *
+     * @param latitude  The latitude of the fix.
+     * @param longitude The longitude of the fix.
+     * @param nowMillis The time the fix was received.
+     * @return The filtered position of the user.
+     */
+    @NonNull
+    public LatLng onLocation(double latitude, double longitude, long nowMillis) {
+        mFailures = 0;
+        final LatLng fix = new LatLng(latitude, longitude);
+        if (mPosition == null) {
+            mPosition = fix;
+            mLastFixMillis = nowMillis;
+            mStillSinceMillis = nowMillis;
+            return mPosition;
+        }
+        final double distance = getDistanceApart(mPosition, fix);
+        final long elapsed = nowMillis - mLastFixMillis;
+        double speedSample = 0;
+        if (distance <= JITTER_RADIUS) {
+            // Nudge towards it, so that a slow drift is still followed
+            mPosition = new LatLng(
+                    mPosition.latitude + (fix.latitude - mPosition.latitude) * JITTER_WEIGHT,
+                    mPosition.longitude + (fix.longitude - mPosition.longitude) * JITTER_WEIGHT);
+        } else {
+            if (elapsed > 0) speedSample = distance / (elapsed / 1000.0);
+            mPosition = fix;
+            mStillSinceMillis = nowMillis;
+        }
+        mSpeed = SPEED_WEIGHT * speedSample + (1 - SPEED_WEIGHT) * mSpeed;
+        mLastFixMillis = nowMillis;
+        return mPosition;
+    }
+
+    /**
+     * Computes the time to wait before requesting the user's location again.
+     *
+     * @param nowMillis The current time.
+     * @return The time to wait, in milliseconds.
+     */
+    public long nextIntervalMillis(long nowMillis) {
+        if (mFailures > 0) {
+            return mFailures > 31 ? MAX_RETRY_INTERVAL_MILLIS
+                    : Math.min(MAX_RETRY_INTERVAL_MILLIS, RETRY_INTERVAL_MILLIS << (mFailures - 1));
+        }
+        if (mPosition == null || mSpeed >= DRIVING_SPEED) return DRIVING_INTERVAL_MILLIS;
+        if (mSpeed >= WALKING_SPEED) return WALKING_INTERVAL_MILLIS;
+        final long steps = Math.max(0, nowMillis - mStillSinceMillis) / IDLE_STEP_MILLIS;
+        return steps >= 31 ? MAX_IDLE_INTERVAL_MILLIS
+                : Math.min(MAX_IDLE_INTERVAL_MILLIS, IDLE_INTERVAL_MILLIS << steps);
+    }
+
+    /**
+     * Records that a location request failed, e.g. the location was not available.
+     * The next request backs off until a fix is received.
+     */
+    public void onLocationFailed() {
+        if (mFailures < Integer.MAX_VALUE) mFailures++;
+    }
+
+    /**
+     * Access the number of location requests that failed since the last fix.
+     *
+     * @return The number of consecutive failures.
+     */
+    public int getConsecutiveFailures() {
+        return mFailures;
+    }
+
+    /**
+     * Check whether enough time passed since the nearby lots were last re-fetched.
+     *
+     * @param nowMillis The current time.
+     * @return True, if they may be re-fetched. Otherwise, false.
+     */
+    public boolean canRefetch(long nowMillis) {
+        return !mDidRefetch || nowMillis - mLastRefetchMillis >= MIN_REFETCH_INTERVAL_MILLIS;
+    }
+
+    /**
+     * Records that the nearby lots got re-fetched.
+     *
+     * @param nowMillis The current time.
+     */
+    public void onRefetched(long nowMillis) {
+        mDidRefetch = true;
+        mLastRefetchMillis = nowMillis;
+    }
+
+    /**
+     * Records that the user started panning the map.
+     *
+     * @param nowMillis The current time.
+     */
+    public void onUserPanned(long nowMillis) {
+        mDidPan = true;
+        mLastPanMillis = nowMillis;
+    }
+
+    /**
+     * Check whether the camera should move to the user's filtered position.
+     * It should not, if the user panned the map recently or has barely moved
+     * since the camera last followed them.
+     *
+     * @param nowMillis The current time.
+     * @return True, if the camera should move. Otherwise, false.
+     */
+    public boolean shouldMoveCamera(long nowMillis) {
+        if (mPosition == null) return false;
+        if (mDidPan && nowMillis - mLastPanMillis < PAN_HOLD_MILLIS) return false;
+        if (mCameraPosition != null && getDistanceApart(mCameraPosition, mPosition) < CAMERA_MIN_DISTANCE) {
+            return false;
+        }
+        mCameraPosition = mPosition;
+        return true;
+    }
+
+    /**
+     * Access the user's filtered position.
+     *
+     * @return The filtered position. Null, if no fix was received yet.
+     */
+    @Nullable
+    public LatLng getPosition() {
+        return mPosition;
+    }
+
+    /**
+     * Access the estimated speed of the user.
+     *
+     * @return The speed in meters per second.
+     */
+    public double getSpeed() {
+        return mSpeed;
+    }
+}
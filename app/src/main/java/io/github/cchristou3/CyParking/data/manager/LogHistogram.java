@@ -0,0 +1,111 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Purpose: a lock-free histogram of non-negative values, with a bucket per power of two.
+ * <p>
+ * The bucket of a value v > 0 is the number of its significant bits, thus it covers
+ * [2^(b-1), 2^b). The bucket 0 covers the zeros and negatives. A record costs a few atomic
+ * increments and never blocks, thus it can be used on the main thread by many writers.
+ * The percentiles are estimated by the upper bound of their bucket, thus they are
+ * at most twice the exact ones.
+ * <p>
+ * The readers see each counter consistently, but not all of them as of the same moment.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public final class LogHistogram {
+
+    private static final int BUCKET_COUNT = 64;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * Records the given value.
+     *
+     * @param value The value. Negatives are recorded as zero.
+     */
+    public void record(long value) {
+        final long clamped = Math.max(0L, value);
+        mBuckets.incrementAndGet(bucketOf(clamped));
+        mCount.incrementAndGet();
+        mSum.addAndGet(clamped);
+        long max;
+        while (clamped > (max = mMax.get()) && !mMax.compareAndSet(max, clamped)) {
+            // Retry: another writer raised the maximum meanwhile
+        }
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    public long getSum() {
+        return mSum.get();
+    }
+
+    public long getMax() {
+        return mMax.get();
+    }
+
+    /**
+     * Access the mean of the recorded values.
+     *
+     * @return The mean. 0, if no value was recorded.
+     */
+    public double getMean() {
+        final long count = mCount.get();
+        return count == 0 ? 0.0 : (double) mSum.get() / count;
+    }
+
+    /**
+     * Estimates the given percentile of the recorded values.
+     *
+     * @param percentile The percentile, in [0, 100].
+     * @return The upper bound of the percentile's bucket, capped by the maximum.
+     * 0, if no value was recorded.
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        final long[] counts = new long[BUCKET_COUNT];
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            counts[bucket] = mBuckets.get(bucket);
+            total += counts[bucket];
+        }
+        if (total == 0) return 0L;
+        final long rank = Math.max(1L, (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) return Math.min(upperBoundOf(bucket), mMax.get());
+        }
+        return mMax.get();
+    }
+
+    /**
+     * Drops all recorded values.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) mBuckets.set(bucket, 0L);
+        mCount.set(0L);
+        mSum.set(0L);
+        mMax.set(0L);
+    }
+
+    static int bucketOf(long value) {
+        return value <= 0L ? 0 : Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(value));
+    }
+
+    /**
+     * Access the largest value of the given bucket.
+     */
+    static long upperBoundOf(int bucket) {
+        return bucket == 0 ? 0L : bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentChange;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+
+/**
+ * Purpose: an already deserialized {@link DocumentChange} of a parking lot,
+ * ready to be applied to the map.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ * @see LotChangeQueue
+ */
+public final class LotChange {
+
+    private final DocumentChange.Type type;
+    private final String docId;
+    private final ParkingLot lot;
+
+    /**
+     * Public Constructor.
+     *
+     * @param type  The type of the change.
+     * @param docId The document id of the lot.
+     * @param lot   The lot's new contents. Null, if the lot got removed.
+     */
+    public LotChange(@NonNull DocumentChange.Type type, @NonNull String docId, @Nullable ParkingLot lot) {
+        this.type = type;
+        this.docId = docId;
+        this.lot = lot;
+    }
+
+    /**
+     * Access the type of the change.
+     */
+    @NonNull
+    public DocumentChange.Type getType() {
+        return type;
+    }
+
+    /**
+     * Access the document id of the lot.
+     */
+    @NonNull
+    public String getDocId() {
+        return docId;
+    }
+
+    /**
+     * Access the lot's new contents.
+     *
+     * @return The lot. Null, if the change is of type {@link DocumentChange.Type#REMOVED}.
+     */
+    @Nullable
+    public ParkingLot getLot() {
+        return lot;
+    }
+}
@@ -0,0 +1,138 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: apply the already deserialized {@link LotChange}s of the parking lots to the map
+ * without dropping frames, regardless of how bursty they are.
+ * <p>
+ * The changes go through the following stages:
+ * <p> - Coalescing by document id on the main thread, via a {@link LotChangeQueue}.
+ * <p> - Application on the main thread, paced by the {@link Choreographer}: each frame
+ * applies as many changes as fit within {@link #FRAME_BUDGET_NANOS}, the rest wait
+ * for the next frame.
+ * <p>
+ * Changes are applied in the order they were received. Multiple changes
+ * of the same lot that are still pending are applied once, with the latest contents.
+ * <p>
+ * If a telemetry name is given, the time from the submission of a burst of changes until
+ * the last of them got applied is reported to the {@link ListenerTelemetry} under it.
+ *
+ * @author Charalambos Christou
+ * @version 5.0 18/10/21
+ */
+public class LotChangeApplier implements Choreographer.FrameCallback {
+
+    /**
+     * The time each frame may spend on applying changes.
+     * A quarter of a 60Hz frame, leaving the rest for drawing the map.
+     */
+    public static final long FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(4);
+
+    private final LotChangeQueue mQueue = new LotChangeQueue(); // Main thread only
+    private final LotChangeQueue.Sink mSink;
+    @Nullable
+    private final String mTelemetryName;
+    // The submission time of the oldest change that was not applied yet. NOT_PENDING, if none.
+    private long mPendingSinceNanos = NOT_PENDING;
+    private static final long NOT_PENDING = Long.MIN_VALUE;
+    private boolean mIsFrameScheduled = false;
+    private boolean mIsReleased = false;
+
+    /**
+     * Public Constructor.
+     *
+     * @param sink Applies a single change to the map. Invoked on the main thread.
+     */
+    public LotChangeApplier(@NonNull LotChangeQueue.Sink sink) {
+        this(sink, null);
+    }
+
+    /**
+     * Public Constructor.
+     *
+     * @param sink          Applies a single change to the map. Invoked on the main thread.
+     * @param telemetryName The name the apply latency is reported under, e.g. "map.lots.applied".
+     *                      Null, to not report it.
+     */
+    public LotChangeApplier(@NonNull LotChangeQueue.Sink sink, @Nullable String telemetryName) {
+        this.mSink = sink;
+        this.mTelemetryName = telemetryName;
+    }
+
+    /**
+     * Schedules the given changes to be applied.
+     * To be invoked on the main thread.
+     *
+     * @param lotChanges The deserialized changes of a snapshot of parking lots.
+     */
+    public void submit(@Nullable List<LotChange> lotChanges) {
+        if (mIsReleased || lotChanges == null || lotChanges.isEmpty()) return;
+        onSubmitted();
+        enqueue(lotChanges);
+    }
+
+    /**
+     * Marks the start of the burst, if none is in progress.
+     */
+    private void onSubmitted() {
+        if (mPendingSinceNanos == NOT_PENDING) mPendingSinceNanos = System.nanoTime();
+    }
+
+    /**
+     * Adds the given changes to the {@link #mQueue} and makes sure
+     * that they get applied on the next frame.
+     */
+    private void enqueue(@NonNull List<LotChange> changes) {
+        for (LotChange change : changes) mQueue.offer(change);
+        scheduleFrame();
+    }
+
+    private void scheduleFrame() {
+        if (mIsFrameScheduled || mQueue.isEmpty()) return;
+        mIsFrameScheduled = true;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Applies the pending changes that fit within {@link #FRAME_BUDGET_NANOS}
+     * and leaves the rest for the next frame.
+     *
+     * @param frameTimeNanos The time at which the frame started rendering.
+     */
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mIsFrameScheduled = false;
+        if (mIsReleased) return;
+        mQueue.drain(mSink, FRAME_BUDGET_NANOS, System::nanoTime);
+        if (mQueue.isEmpty()) onBurstApplied();
+        scheduleFrame();
+    }
+
+    /**
+     * Reports the time since the burst's first submission, as all of its changes got applied.
+     */
+    private void onBurstApplied() {
+        if (mPendingSinceNanos == NOT_PENDING) return;
+        if (mTelemetryName != null) {
+            ListenerTelemetry.getInstance().onApplied(mTelemetryName, System.nanoTime() - mPendingSinceNanos);
+        }
+        mPendingSinceNanos = NOT_PENDING;
+    }
+
+    /**
+     * Drops the pending changes and stops applying any further ones.
+     * To be invoked when the map is no longer available.
+     */
+    public void release() {
+        mIsReleased = true;
+        Choreographer.getInstance().removeFrameCallback(this);
+        mQueue.clear();
+    }
+}
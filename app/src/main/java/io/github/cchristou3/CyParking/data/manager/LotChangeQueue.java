@@ -0,0 +1,112 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.firestore.DocumentChange;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Purpose: hold the {@link LotChange}s that are yet to be applied,
+ * at most one per document id.
+ * <p>
+ * A change to a document that already has a pending change replaces it in place.
+ * Thus, a lot that receives several changes before they get applied is only updated once,
+ * with its latest contents. A lot that got ADDED and then MODIFIED stays ADDED,
+ * with the contents of the modification.
+ * <p>
+ * The changes are applied in chunks that fit within a time budget.
+ * <p>
+ * <strong>Note:</strong> the class is not thread-safe.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ * @see LotChangeApplier
+ */
+public class LotChangeQueue {
+
+    private final Map<String, LotChange> mPending = new LinkedHashMap<>();
+
+    /**
+     * Adds the given change, merging it with the pending change
+     * of the same document, if there is any.
+     *
+     * @param change The change to be added.
+     */
+    public void offer(@NonNull LotChange change) {
+        final LotChange pending = mPending.get(change.getDocId());
+        if (pending != null && pending.getType() == DocumentChange.Type.ADDED
+                && change.getType() == DocumentChange.Type.MODIFIED) {
+            // The lot is not on the map yet, add it with its latest contents
+            mPending.put(change.getDocId(),
+                    new LotChange(DocumentChange.Type.ADDED, change.getDocId(), change.getLot()));
+            return;
+        }
+        mPending.put(change.getDocId(), change);
+    }
+
+    /**
+     * Applies the pending changes, in the order they were first offered, until either
+     * all of them are applied or the given budget is exhausted. At least one change gets
+     * applied on each call, so that the queue always makes progress.
+     *
+     * @param sink        Applies a single change.
+     * @param budgetNanos The time available for applying changes, in nanoseconds.
+     * @param clock       The source of the current time.
+     * @return The number of the applied changes.
+     */
+    public int drain(@NonNull Sink sink, long budgetNanos, @NonNull NanoClock clock) {
+        final long start = clock.nanoTime();
+        int applied = 0;
+        final Iterator<LotChange> iterator = mPending.values().iterator();
+        while (iterator.hasNext()) {
+            final LotChange change = iterator.next();
+            iterator.remove();
+            sink.apply(change);
+            applied++;
+            if (clock.nanoTime() - start >= budgetNanos) break;
+        }
+        return applied;
+    }
+
+    /**
+     * Drops all the pending changes.
+     */
+    public void clear() {
+        mPending.clear();
+    }
+
+    /**
+     * Check whether there are pending changes.
+     *
+     * @return True, if there are no pending changes. Otherwise, false.
+     */
+    public boolean isEmpty() {
+        return mPending.isEmpty();
+    }
+
+    /**
+     * Access the number of pending changes.
+     *
+     * @return The number of pending changes.
+     */
+    public int size() {
+        return mPending.size();
+    }
+
+    /**
+     * Purpose: apply a single {@link LotChange}.
+     */
+    public interface Sink {
+        void apply(@NonNull LotChange change);
+    }
+
+    /**
+     * Purpose: provide the current time, in nanoseconds.
+     */
+    public interface NanoClock {
+        long nanoTime();
+    }
+}
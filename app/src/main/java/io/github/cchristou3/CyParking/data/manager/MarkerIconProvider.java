@@ -0,0 +1,143 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.res.ResourcesCompat;
+
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+
+import org.jetbrains.annotations.Contract;
+
+import io.github.cchristou3.CyParking.R;
+
+/**
+ * Purpose: create and cache the icons of the parking map's markers.
+ * A {@link BitmapDescriptor} is created once per distinct icon and
+ * then reused by every marker that displays it.
+ * <p>
+ * A lot's icon is colored based on its availability (full, nearly full or free).
+ * Thus, when the availability of a lot changes, its marker merely swaps
+ * one of the precomputed icons for another.
+ *
+ * @author Charalambos Christou
+ * @version 2.0 18/10/21
+ * @see MarkerManager
+ */
+public class MarkerIconProvider {
+
+    // Availability levels of a lot
+    public static final int AVAILABILITY_FULL = 0;
+    public static final int AVAILABILITY_NEARLY_FULL = 1;
+    public static final int AVAILABILITY_FREE = 2;
+    /**
+     * A lot with at most this fraction of its capacity available is considered nearly full.
+     */
+    public static final double NEARLY_FULL_RATIO = 0.1;
+    // The hue of each availability level's icon, indexed by level
+    private static final float[] AVAILABILITY_HUES = {
+            BitmapDescriptorFactory.HUE_RED,
+            BitmapDescriptorFactory.HUE_ORANGE,
+            BitmapDescriptorFactory.HUE_GREEN
+    };
+    private static final int MAX_CACHED_BADGES = 64;
+    private static final float BADGE_SIZE_DP = 40f;
+    private static final float BADGE_TEXT_SIZE_SP = 14f;
+
+    private final LruCache<Integer, BitmapDescriptor> mClusterBadges = new LruCache<>(MAX_CACHED_BADGES);
+    private final Paint mCirclePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final int mBadgeSizePx;
+    private BitmapDescriptor[] mLotIcons; // Indexed by availability level
+
+    /**
+     * Public Constructor.
+     * Prepares the paints of the cluster badges.
+     *
+     * @param resources The resources to make use of.
+     */
+    public MarkerIconProvider(@NonNull Resources resources) {
+        mBadgeSizePx = Math.round(BADGE_SIZE_DP * resources.getDisplayMetrics().density);
+        mCirclePaint.setColor(ResourcesCompat.getColor(resources, R.color.blue, null));
+        mTextPaint.setColor(ResourcesCompat.getColor(resources, R.color.white, null));
+        mTextPaint.setTextAlign(Paint.Align.CENTER);
+        mTextPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        mTextPaint.setTextSize(BADGE_TEXT_SIZE_SP * resources.getDisplayMetrics().scaledDensity);
+    }
+
+    /**
+     * Computes the availability level of a lot.
+     *
+     * @param availableSpaces The lot's available spaces.
+     * @param capacity        The lot's capacity.
+     * @return One of {@link #AVAILABILITY_FULL}, {@link #AVAILABILITY_NEARLY_FULL}
+     * and {@link #AVAILABILITY_FREE}.
+     */
+    @Contract(pure = true)
+    public static int availabilityOf(int availableSpaces, int capacity) {
+        if (availableSpaces <= 0) return AVAILABILITY_FULL;
+        if (availableSpaces <= capacity * NEARLY_FULL_RATIO) return AVAILABILITY_NEARLY_FULL;
+        return AVAILABILITY_FREE;
+    }
+
+    /**
+     * Access the icon of a single lot, colored based on its availability.
+     * The icons of all availability levels are created on first use.
+     *
+     * @param availableSpaces The lot's available spaces.
+     * @param capacity        The lot's capacity.
+     * @return The {@link BitmapDescriptor} of a lot's marker.
+     */
+    @NonNull
+    public BitmapDescriptor getLotIcon(int availableSpaces, int capacity) {
+        if (mLotIcons == null) {
+            // Created lazily, as the factory requires the map to be initialized
+            mLotIcons = new BitmapDescriptor[AVAILABILITY_HUES.length];
+            for (int i = 0; i < AVAILABILITY_HUES.length; i++) {
+                mLotIcons[i] = BitmapDescriptorFactory.defaultMarker(AVAILABILITY_HUES[i]);
+            }
+        }
+        return mLotIcons[availabilityOf(availableSpaces, capacity)];
+    }
+
+    /**
+     * Access the badge of a cluster with the given total available spaces.
+     * The badge is drawn on first use and cached.
+     *
+     * @param availableSpaces The total available spaces of the cluster's lots.
+     * @return The {@link BitmapDescriptor} of the cluster's marker.
+     */
+    @NonNull
+    public BitmapDescriptor getClusterBadge(int availableSpaces) {
+        BitmapDescriptor badge = mClusterBadges.get(availableSpaces);
+        if (badge == null) {
+            badge = BitmapDescriptorFactory.fromBitmap(drawBadge(String.valueOf(availableSpaces)));
+            mClusterBadges.put(availableSpaces, badge);
+        }
+        return badge;
+    }
+
+    /**
+     * Draws a circle with the given text at its centre.
+     *
+     * @param text The text of the badge.
+     * @return The badge's bitmap.
+     */
+    @NonNull
+    private Bitmap drawBadge(@NonNull String text) {
+        final Bitmap bitmap = Bitmap.createBitmap(mBadgeSizePx, mBadgeSizePx, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(bitmap);
+        final float radius = mBadgeSizePx / 2f;
+        canvas.drawCircle(radius, radius, radius, mCirclePaint);
+        // Vertically centre the text on the circle's centre
+        final float baseline = radius - (mTextPaint.descent() + mTextPaint.ascent()) / 2f;
+        canvas.drawText(text, radius, baseline, mTextPaint);
+        return bitmap;
+    }
+}
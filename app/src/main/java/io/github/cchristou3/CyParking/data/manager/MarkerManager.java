@@ -1,21 +1,37 @@
 package io.github.cchristou3.CyParking.data.manager;
 
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
+import io.github.cchristou3.CyParking.apiClient.local.CompactLotStore;
+import io.github.cchristou3.CyParking.apiClient.local.LotFilter;
+import io.github.cchristou3.CyParking.apiClient.local.LotFilterIndex;
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+import io.github.cchristou3.CyParking.geo.MarkerIndex;
 import io.github.cchristou3.CyParking.ui.views.parking.lots.map.ParkingMapFragment;
 import io.github.cchristou3.CyParking.utilities.DrawableUtility;
 
@@ -23,59 +39,161 @@ import io.github.cchristou3.CyParking.utilities.DrawableUtility;
  * Purpose: manage {@link Marker} objects of {@link ParkingMapFragment}.
  * Responsible for:
  * <p> - Maintaining the user's marker.
- * <p> - Adding/updating/removing markers.
+ * <p> - Adding/updating/removing lots.
+ * <p> - Clustering the lots based on the map's zoom level.
+ * <p> - Displaying only the lots near the visible region of the map.
  * <p> - Associating markers with {@link ParkingLot} objects.
  * <p> - Retrieving the marker's corresponding {@link ParkingLot} object.
+ * <p>
+ * The lots are grouped by a {@link ClusterEngine} on a background thread.
+ * Whenever the lots or the zoom level change, the clusters of the current level
+ * are handed over to the main thread, where only the markers of the clusters
+ * that changed get added, updated or removed.
+ * <p>
+ * Only the clusters inside the visible region, expanded by {@link #VIEWPORT_MARGIN},
+ * hold a marker. The rest of the lots are kept as plain records. Markers of clusters
+ * that leave the region are hidden and recycled from a pool, so that the number of
+ * markers stays flat regardless of how many lots are loaded.
+ * <p>
+ * Markers are indexed by themselves, by their cluster's key and by their position
+ * via a {@link MarkerIndex}. Lots are indexed by their document id. Thus, adding,
+ * updating, removing and hit-testing take constant time regardless of the number of lots.
+ * <p>
+ * The lots are kept in a {@link CompactLotStore}, rather than as {@link ParkingLot} objects.
+ * A lot's ParkingLot object is created only when it gets looked up, e.g. when its marker is tapped.
+ * <p>
+ * The lots that do not pass the user's {@link LotFilter} are hidden from the clusters,
+ * rather than removed. Changing the filter only toggles the lots whose outcome changed,
+ * as found via a {@link LotFilterIndex}, and the markers follow with a single render.
  *
  * @author Charalambos Christou
- * @version 3.0 21/01/21
+ * @version 11.0 18/10/21
  */
 public class MarkerManager {
 
-    // Holds all Marker - ParkingLot pairs. Used for look up: Marker -> ParkingLot
-    final private ConcurrentHashMap<Marker, ParkingLot> mMarkerToValueMap;
+    /**
+     * The margin of the rendered region on each side of the visible one,
+     * as a fraction of the visible region's size.
+     */
+    public static final double VIEWPORT_MARGIN = 0.5;
+    private static final int MAX_POOLED_MARKERS = 32;
+
+    // The lots, as received from the database. Used for look up: document id -> lot
+    private final CompactLotStore mLots = new CompactLotStore();
+    // Holds the markers on the map. Used for look up: Marker / cluster key / position -> Cluster
+    private final MarkerIndex<Long, Marker, ClusterEngine.Cluster> mRenderedClusters = new MarkerIndex<>();
+    // Confined to mClusterExecutor
+    private final ClusterEngine mClusterEngine = new ClusterEngine();
+    private final LotFilterIndex mFilterIndex = new LotFilterIndex();
+    private LotFilter mFilter = LotFilter.NONE;
+    private final ExecutorService mClusterExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    // Hidden markers, ready to be reused
+    private final Deque<Marker> mMarkerPool = new ArrayDeque<>();
+    private final MarkerIconProvider mIconProvider;
     private final Drawable mUserMapIcon;
+    private BitmapDescriptor mUserIcon; // mUserMapIcon's descriptor, created once
+    private boolean mIsRenderPending = false; // Accessed only by mClusterExecutor
+    private volatile int mZoomLevel = ClusterEngine.MIN_ZOOM;
+    private volatile Viewport mViewport; // Null, until the map's visible region is known
+    private GoogleMap mGoogleMap;
     private ParkingLot mSelectedParkingLot;
     private Marker mUserMarker;
 
     /**
      * Public Constructor.
-     * Initializes its {@link #mMarkerToValueMap} HashMap
-     * and assigns its {@link #mUserMapIcon} with the specified
+     * Assigns its {@link #mUserMapIcon} with the specified
      * drawable.
      *
-     * @param drawable The icon to be displayed on the user's position.
+     * @param drawable     The icon to be displayed on the user's position.
+     * @param iconProvider The provider of the lots' and clusters' icons.
      */
-    public MarkerManager(Drawable drawable) {
+    public MarkerManager(Drawable drawable, @NonNull MarkerIconProvider iconProvider) {
         this.mUserMapIcon = drawable;
         mUserMapIcon.setAlpha(95); // = Opacity
-        this.mMarkerToValueMap = new ConcurrentHashMap<>();
+        this.mIconProvider = iconProvider;
     }
 
     /**
      * Places a marker on the user's position with the icon
-     * {@link #mUserMapIcon} and adds it a tag. The marker is
-     * then saved as a reference to {@link #mUserMarker}.
-     * If previously the user already had a marker on the map,
-     * then it gets replaced by the new marker.
+     * {@link #mUserMapIcon}. The marker is created once and saved
+     * as a reference to {@link #mUserMarker}. Any later call
+     * merely moves it to the user's new position.
      *
      * @param mGoogleMap           The GoogleMap instance hosting the markers.
      * @param mCurrentLatLngOfUser The position of the user.
      */
     public void setUserMarker(GoogleMap mGoogleMap, LatLng mCurrentLatLngOfUser) {
-        // Keep track of the user's marker. When their location changes, remove current one
-        // and add a new one.
-        if (mUserMarker != null) mUserMarker.remove();
-
+        setGoogleMap(mGoogleMap); // The marker of a previous map is forgotten
+        if (mUserMarker != null) {
+            mUserMarker.setPosition(mCurrentLatLngOfUser);
+            return;
+        }
+        if (mUserIcon == null) {
+            mUserIcon = BitmapDescriptorFactory.fromBitmap(DrawableUtility.drawableToBitmap(mUserMapIcon));
+        }
         mUserMarker = mGoogleMap.addMarker(new MarkerOptions()
-                .title("Title")
                 .position(mCurrentLatLngOfUser)
-                .icon(BitmapDescriptorFactory.fromBitmap(DrawableUtility.drawableToBitmap(mUserMapIcon)))
+                .icon(mUserIcon)
                 // TODO: Replace with an actual icon
                 .snippet("Current Location!")
                 .title("Me"));
-        // Add a tag to it, to differentiate it from the other markers on the map
-        mUserMarker.setTag(new Object());
+    }
+
+    /**
+     * Check whether the given marker is the one of the user.
+     *
+     * @param marker A marker of the map.
+     * @return True, if it is the user's marker. Otherwise, false.
+     */
+    public boolean isUserMarker(Marker marker) {
+        return mUserMarker != null && mUserMarker.equals(marker);
+    }
+
+    /**
+     * Sets the map that hosts the markers.
+     * The markers of a previous map are forgotten and the clusters
+     * get rendered on the given map.
+     *
+     * @param googleMap The GoogleMap instance hosting the markers.
+     */
+    public void setGoogleMap(@NonNull GoogleMap googleMap) {
+        if (mGoogleMap == googleMap) return;
+        mGoogleMap = googleMap;
+        mRenderedClusters.clear(); // They belonged to the previous map
+        mMarkerPool.clear();
+        mUserMarker = null;
+        mZoomLevel = ClusterEngine.levelOf(googleMap.getCameraPosition().zoom);
+        requestRender();
+    }
+
+    /**
+     * To be invoked whenever the map's camera stops moving.
+     * The clusters get rendered again, if the zoom level changed or
+     * the visible region moved outside of the rendered region.
+     *
+     * @param zoom          The zoom of the map's camera.
+     * @param visibleBounds The bounds of the map's visible region.
+     */
+    public void onCameraIdle(float zoom, @NonNull LatLngBounds visibleBounds) {
+        final int zoomLevel = ClusterEngine.levelOf(zoom);
+        final Viewport visible = new Viewport(
+                visibleBounds.southwest.latitude, visibleBounds.southwest.longitude,
+                visibleBounds.northeast.latitude, visibleBounds.northeast.longitude);
+        final Viewport rendered = mViewport;
+        if (zoomLevel == mZoomLevel && rendered != null && rendered.contains(visible)) return;
+        mZoomLevel = zoomLevel;
+        mViewport = visible.expandedBy(VIEWPORT_MARGIN);
+        requestRender();
+    }
+
+    /**
+     * Stops computing clusters. To be invoked when the hosting
+     * component gets destroyed.
+     */
+    public void release() {
+        mClusterExecutor.shutdownNow();
+        mMainHandler.removeCallbacksAndMessages(null);
     }
 
     /**
@@ -97,10 +215,12 @@ public class MarkerManager {
      * @return True if the coordinates match. Otherwise, false.
      */
     private boolean areCoordinatesTheSame(Marker markerOfParking, double lat, double lng) {
+        final ClusterEngine.Cluster cluster = mRenderedClusters.getValue(markerOfParking);
+        final String docId = cluster == null ? null : cluster.getSingleId();
+        final int handle = docId == null ? CompactLotStore.NO_HANDLE : mLots.handleOf(docId);
         // Access the marker's latitude and longitude
-        double markerLat = getParkingLotOf(markerOfParking).getLatitude();
-        double markerLng = getParkingLotOf(markerOfParking).getLongitude();
-        return markerLat == lat && markerLng == lng;
+        return handle != CompactLotStore.NO_HANDLE
+                && mLots.latitudeOf(handle) == lat && mLots.longitudeOf(handle) == lng;
     }
 
     /**
@@ -122,12 +242,12 @@ public class MarkerManager {
 
 
     /**
-     * Access the key-set of the {@link #mMarkerToValueMap}.
+     * Access the markers that are currently on the map.
      *
-     * @return A Set of all the keys of {@link #mMarkerToValueMap}.
+     * @return A Set of all the markers of {@link #mRenderedClusters}.
      */
     public Set<Marker> getKeySets() {
-        return mMarkerToValueMap.keySet();
+        return mRenderedClusters.markers();
     }
 
     /**
@@ -156,94 +276,307 @@ public class MarkerManager {
      * @return True if the marker is attached to a ParkingLot object. Otherwise, false.
      */
     public boolean exists(Marker marker) {
-        return (mMarkerToValueMap.get(marker) != null);
+        return (getParkingLotOf(marker) != null);
     }
 
     /**
      * Access the {@link ParkingLot} object associated with the specified
-     * marker.
+     * marker. The object is created on each call.
      *
      * @param marker The marker to be used to look up it corresponding ParkingLot object.
-     * @return A reference to the marker's corresponding ParkingLot object.
+     * @return A new ParkingLot object with the contents of the marker's lot.
+     * Null, if the marker represents a cluster of lots.
      */
+    @Nullable
     public ParkingLot getParkingLotOf(Marker marker) {
-        return mMarkerToValueMap.get(marker);
+        final ClusterEngine.Cluster cluster = mRenderedClusters.getValue(marker);
+        final String docId = cluster == null ? null : cluster.getSingleId();
+        return docId == null ? null : mLots.materialize(docId);
     }
 
     /**
-     * Removes the marker from both the {@link #mMarkerToValueMap}
-     * and the map.
+     * Access the cluster displayed by the specified marker.
+     *
+     * @param marker A marker of the map.
+     * @return The marker's cluster. Null, if the marker does not represent a cluster.
+     */
+    @Nullable
+    public ClusterEngine.Cluster getClusterOf(Marker marker) {
+        return mRenderedClusters.getValue(marker);
+    }
+
+    /**
+     * Access the lot with the given document id.
+     * The object is created on each call.
+     *
+     * @param docId The document id of a parking lot.
+     * @return A new ParkingLot object with the lot's contents. Null, if there is no lot with the given document id.
+     */
+    @Nullable
+    public ParkingLot getParkingLot(@NonNull String docId) {
+        return mLots.materialize(docId);
+    }
+
+    /**
+     * Access the available spaces of the lot with the given document id.
+     *
+     * @param docId The document id of a parking lot.
+     * @return The lot's available spaces. Null, if there is no lot with the given document id.
+     */
+    @Nullable
+    public Integer getAvailableSpaces(@NonNull String docId) {
+        final int handle = mLots.handleOf(docId);
+        return handle == CompactLotStore.NO_HANDLE ? null : mLots.availableSpacesOf(handle);
+    }
+
+    /**
+     * Removes the lot with the given document id from its cluster.
      * Called whenever a ParkingLot is REMOVED from the database.
      *
-     * @param marker The marker to be erased.
+     * @param docId The document id of the lot to be erased.
+     * @return True, if the lot existed. Otherwise, false.
      * @see ParkingMapFragment#onStart()
      */
-    public void removeMarker(Marker marker) {
-        // Remove it from the HashMap
-        mMarkerToValueMap.remove(marker);
-        // Remove it from the map
-        marker.remove();
+    public boolean removeMarker(@NonNull String docId) {
+        if (!mLots.remove(docId)) return false;
+        executeOnClusterThread(() -> {
+            mClusterEngine.remove(docId);
+            mFilterIndex.remove(docId);
+            scheduleRender();
+        });
+        return true;
     }
 
     /**
      * Checks if we have any marker on the map which has the same LatLng
      * as the given LatLng.
+     * The coordinates are compared up to {@link MarkerIndex#QUANTIZATION_FACTOR} of a degree.
      *
      * @param latLng The coordinates of an object/event on the map.
      * @return True, if we have any marker which has the same coordinates. Otherwise, false.
      */
     public boolean anyMatchWithCoordinates(@NotNull LatLng latLng) {
-        // Iterate all markers till you find one that has the same coordinates with the given ones.
-        for (Marker key : this.mMarkerToValueMap.keySet()) {
-            if (this.areCoordinatesTheSame(key, latLng.latitude, latLng.longitude)) {
-                return true;
-            }
-        }
-        return false;
+        return mRenderedClusters.getMarkerAt(latLng.latitude, latLng.longitude) != null;
     }
 
     /**
-     * Places a marker on the given GoogleMap instance on the specified
-     * position, and associates it with the given {@link ParkingLot} object.
-     * Called whenever a newly ADDED ParkingLot is received from the database.
-     * If the the parking lot already exists within {@link #mMarkerToValueMap}
-     * then the additional {@link ParkingLot} object is ignored.
+     * Adds the given {@link ParkingLot} object to the clusters of the given GoogleMap
+     * instance. Called whenever a newly ADDED ParkingLot is received from the database.
+     * If the the parking lot already exists, its contents are replaced.
      *
      * @param mGoogleMap A reference to the map.
-     * @param lot        The lot to be attached to the created marker.
+     * @param docId      The document id of the lot.
+     * @param lot        The lot to be added.
      * @see ParkingMapFragment#onStart()
      */
-    public void addMarkerWithContents(@NotNull GoogleMap mGoogleMap, @NotNull ParkingLot lot) {
-        if (mMarkerToValueMap.containsValue(lot)) return; // check if it already exists
-        put(
-                mGoogleMap.addMarker(new MarkerOptions()
-                        .position(new LatLng(lot.getLatitude(), lot.getLongitude()))
-                        .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_BLUE))),
-                lot
-        );
+    public void addMarkerWithContents(@NotNull GoogleMap mGoogleMap, @NonNull String docId, @NotNull ParkingLot lot) {
+        setGoogleMap(mGoogleMap);
+        upsertInClusters(docId, mLots.put(docId, lot));
+    }
+
+    /**
+     * Adds each lot of the given store to the clusters of the given GoogleMap instance.
+     * The lots that already exist have their contents replaced.
+     *
+     * @param mGoogleMap A reference to the map.
+     * @param lots       The lots to be added.
+     */
+    public void addMarkersWithContents(@NotNull GoogleMap mGoogleMap, @NonNull CompactLotStore lots) {
+        setGoogleMap(mGoogleMap);
+        lots.forEach(handle -> {
+            final String docId = lots.docIdOf(handle);
+            upsertInClusters(docId, mLots.put(docId, lots, handle));
+        });
     }
 
     /**
-     * Associates the given marker with the given {@link ParkingLot} object.
+     * Replaces the lot with the given document id with the given {@link ParkingLot} object.
+     * Only the clusters that the lot is part of get updated.
      * Called whenever a MODIFIED ParkingLot is received from the database.
      *
-     * @param lot    The lot to be attached to the given marker.
-     * @param marker The marker to be associated with the given ParkingLot object.
+     * @param docId The document id of the lot.
+     * @param lot   The lot's new contents.
+     * @return True, if the lot existed. Otherwise, false.
      * @see ParkingMapFragment#onStart()
      */
-    public void replaceMarkerContents(@NotNull ParkingLot lot, @NonNull Marker marker) {
-        put(marker, lot);
+    public boolean replaceMarkerContents(@NonNull String docId, @NotNull ParkingLot lot) {
+        if (!mLots.contains(docId)) return false;
+        upsertInClusters(docId, mLots.put(docId, lot));
+        return true;
+    }
+
+    /**
+     * Adds or updates the given lot in the {@link #mClusterEngine}.
+     *
+     * @param docId  The document id of the lot.
+     * @param handle The lot's handle in the {@link #mLots}.
+     */
+    private void upsertInClusters(@NonNull String docId, int handle) {
+        // Copy the values the engine needs, as the store may change on the main thread
+        final double latitude = mLots.latitudeOf(handle);
+        final double longitude = mLots.longitudeOf(handle);
+        final int availableSpaces = mLots.availableSpacesOf(handle);
+        final int capacity = mLots.capacityOf(handle);
+        final float bestRatio = mLots.bestOfferRatioOf(handle);
+        final float maxDuration = mLots.maxDurationOf(handle);
+        executeOnClusterThread(() -> {
+            mFilterIndex.upsert(docId, availableSpaces, bestRatio, maxDuration);
+            mClusterEngine.upsert(docId, latitude, longitude, availableSpaces, capacity,
+                    mFilter.accepts(availableSpaces, bestRatio, maxDuration));
+            scheduleRender();
+        });
+    }
+
+    /**
+     * Shows only the lots that pass the given filter.
+     * The lots whose outcome changed get shown or hidden in the clusters,
+     * and the markers are updated by a single render.
+     *
+     * @param filter The filter. {@link LotFilter#NONE}, to show every lot.
+     */
+    public void setFilter(@NonNull LotFilter filter) {
+        executeOnClusterThread(() -> {
+            if (filter.equals(mFilter)) return;
+            mFilter = filter;
+            mFilterIndex.match(filter, mClusterEngine::setVisible);
+            scheduleRender();
+        });
+    }
+
+    /**
+     * Requests the clusters of the current zoom level to be rendered.
+     */
+    private void requestRender() {
+        executeOnClusterThread(this::scheduleRender);
+    }
+
+    /**
+     * Queues a task that hands over the clusters of the current zoom level
+     * to the main thread. Invoked on the {@link #mClusterExecutor} after each change,
+     * but a task is queued only if none is pending. Thus, a burst of changes
+     * results into a single render.
+     */
+    private void scheduleRender() {
+        if (mIsRenderPending) return;
+        mIsRenderPending = true;
+        executeOnClusterThread(() -> {
+            mIsRenderPending = false;
+            final int zoomLevel = mZoomLevel;
+            final List<ClusterEngine.Cluster> clusters = mClusterEngine.clustersAt(zoomLevel, mViewport);
+            mMainHandler.post(() -> render(zoomLevel, clusters));
+        });
     }
 
     /**
-     * Creates a key-value relationship between the specified marker
-     * and the specified Parking lot.
-     * <p>{@link Marker} -> {@link ParkingLot}
+     * Updates the markers of the map to match the given clusters.
+     * Markers of unchanged clusters are left untouched, markers of changed clusters
+     * are updated in place and the rest are taken from or given back to the {@link #mMarkerPool}.
      *
-     * @param marker The marker to be associated with the given ParkingLot object.
-     * @param lot    The lot to be attached to the given marker.
+     * @param zoomLevel The zoom level of the clusters.
+     * @param clusters  The clusters of the zoom level.
      */
-    private void put(Marker marker, ParkingLot lot) {
-        mMarkerToValueMap.put(marker, lot);
+    private void render(int zoomLevel, @NonNull List<ClusterEngine.Cluster> clusters) {
+        // A render of the current zoom level is on its way
+        if (mGoogleMap == null || zoomLevel != mZoomLevel) return;
+
+        final Set<Long> currentKeys = new HashSet<>(clusters.size());
+        for (ClusterEngine.Cluster cluster : clusters) {
+            currentKeys.add(cluster.getKey());
+            final Marker marker = mRenderedClusters.getMarker(cluster.getKey());
+            if (marker == null) {
+                mRenderedClusters.put(cluster.getKey(), obtainMarker(cluster),
+                        cluster, cluster.getLatitude(), cluster.getLongitude());
+            } else if (!mRenderedClusters.getValue(marker).looksTheSameAs(cluster)) {
+                bind(marker, cluster);
+                mRenderedClusters.replace(cluster.getKey(), cluster, cluster.getLatitude(), cluster.getLongitude());
+            }
+        }
+        // Recycle the markers of the clusters that no longer exist or are off-screen
+        for (Marker marker : new ArrayList<>(mRenderedClusters.markers())) {
+            final long key = mRenderedClusters.getValue(marker).getKey();
+            if (!currentKeys.contains(key)) {
+                mRenderedClusters.remove(key);
+                recycleMarker(marker);
+            }
+        }
+    }
+
+    /**
+     * Access a marker displaying the given cluster.
+     * A pooled marker is reused, if there is any. Otherwise, a new one is added to the map.
+     *
+     * @param cluster The cluster to be displayed.
+     * @return A visible marker of the cluster.
+     */
+    @NonNull
+    private Marker obtainMarker(@NonNull ClusterEngine.Cluster cluster) {
+        final Marker pooled = mMarkerPool.poll();
+        if (pooled == null) {
+            return mGoogleMap.addMarker(new MarkerOptions()
+                    .position(new LatLng(cluster.getLatitude(), cluster.getLongitude()))
+                    .anchor(0.5f, isCluster(cluster) ? 0.5f : 1.0f)
+                    .icon(iconOf(cluster)));
+        }
+        bind(pooled, cluster);
+        pooled.setVisible(true);
+        return pooled;
+    }
+
+    /**
+     * Hides the given marker and keeps it for later reuse.
+     * If the pool is full, the marker is removed from the map.
+     *
+     * @param marker A marker that no longer displays a cluster.
+     */
+    private void recycleMarker(@NonNull Marker marker) {
+        if (mMarkerPool.size() < MAX_POOLED_MARKERS) {
+            marker.setVisible(false);
+            mMarkerPool.push(marker);
+        } else {
+            marker.remove();
+        }
+    }
+
+    /**
+     * Updates the position, anchor and icon of the given marker to match the given cluster.
+     */
+    private void bind(@NonNull Marker marker, @NonNull ClusterEngine.Cluster cluster) {
+        marker.setPosition(new LatLng(cluster.getLatitude(), cluster.getLongitude()));
+        marker.setAnchor(0.5f, isCluster(cluster) ? 0.5f : 1.0f);
+        marker.setIcon(iconOf(cluster));
+    }
+
+    /**
+     * Check whether the given cluster consists of more than one lot.
+     */
+    private boolean isCluster(@NonNull ClusterEngine.Cluster cluster) {
+        return cluster.getSize() > 1;
+    }
+
+    /**
+     * Access the icon of the given cluster.
+     *
+     * @param cluster A cluster.
+     * @return A badge with the cluster's available spaces, or the availability-colored icon of a lot,
+     * if it consists of a single lot.
+     */
+    @NonNull
+    private BitmapDescriptor iconOf(@NonNull ClusterEngine.Cluster cluster) {
+        return isCluster(cluster) ? mIconProvider.getClusterBadge(cluster.getAvailableSpaces())
+                : mIconProvider.getLotIcon(cluster.getAvailableSpaces(), cluster.getCapacity());
+    }
+
+    /**
+     * Executes the given task on the {@link #mClusterExecutor}.
+     * Ignored if the manager has been released.
+     *
+     * @param task The task to be executed.
+     */
+    private void executeOnClusterThread(@NonNull Runnable task) {
+        try {
+            mClusterExecutor.execute(task);
+        } catch (RejectedExecutionException ignored) {
+            // Released
+        }
     }
-}
\ No newline at end of file
+}
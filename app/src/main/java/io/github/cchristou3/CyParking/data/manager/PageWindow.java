@@ -0,0 +1,325 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Purpose: page through a long, ordered list via cursors, keeping only
+ * the pages around the visible items in memory.
+ * <p>
+ * The first page is loaded by {@link #loadInitial()}. As the visible range gets near
+ * the end of the loaded items, via {@link #onVisibleRangeChanged(int, int)}, the next page
+ * is prefetched. Pages that got far from the visible range are released: their items are
+ * dropped, but their size and bounds are kept, so the positions of the rest do not shift.
+ * A released page that gets near the visible range again is reloaded with the same bounds,
+ * i.e. after the previous page's end cursor and up to its own.
+ * <p>
+ * The items are published as a list with a null placeholder in place of each item of a page
+ * that is not loaded. Accessed only on the main thread.
+ *
+ * @param <C> The type of the cursors, e.g. a {@link com.google.firebase.firestore.DocumentSnapshot}.
+ * @param <T> The type of the items.
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public class PageWindow<C, T> {
+
+    /**
+     * The number of pages around the visible ones that are kept loaded.
+     */
+    public static final int KEEP_DISTANCE_PAGES = 1;
+    /**
+     * The number of pages around the visible ones beyond which pages are released.
+     */
+    public static final int RELEASE_DISTANCE_PAGES = 3;
+
+    private final int mPageSize;
+    private final int mPrefetchDistance;
+    private final PageLoader<C, T> mLoader;
+    private final Listener<T> mListener;
+    private final List<Page<C, T>> mPages = new ArrayList<>();
+    private boolean mIsComplete = false;
+    private boolean mIsAppending = false;
+    // Invalidates the loads of a previous loadInitial
+    private int mGeneration = 0;
+
+    /**
+     * Public Constructor.
+     *
+     * @param pageSize         The number of items of a page.
+     * @param prefetchDistance The number of items before the end of the loaded ones,
+     *                         at which the next page gets prefetched.
+     * @param loader           Loads the pages.
+     * @param listener         Receives the items whenever they change.
+     * @throws IllegalArgumentException if the page size is not positive or the distance is negative.
+     */
+    public PageWindow(int pageSize, int prefetchDistance, @NonNull PageLoader<C, T> loader,
+                      @NonNull Listener<T> listener) throws IllegalArgumentException {
+        if (pageSize <= 0 || prefetchDistance < 0) {
+            throw new IllegalArgumentException("Invalid page size or prefetch distance.");
+        }
+        this.mPageSize = pageSize;
+        this.mPrefetchDistance = prefetchDistance;
+        this.mLoader = loader;
+        this.mListener = listener;
+    }
+
+    /**
+     * Drops all pages and loads the first one.
+     */
+    public void loadInitial() {
+        mGeneration++;
+        mPages.clear();
+        mIsComplete = false;
+        mIsAppending = false;
+        append();
+    }
+
+    /**
+     * Prefetches the next page, reloads the released pages and releases the far ones,
+     * based on the given range of visible positions.
+     *
+     * @param firstVisible The position of the first visible item.
+     * @param lastVisible  The position of the last visible item.
+     */
+    public void onVisibleRangeChanged(int firstVisible, int lastVisible) {
+        final int size = getSize();
+        if (size == 0 || firstVisible < 0 || lastVisible < firstVisible) return;
+        // The positions may be stale, e.g. of items that were just removed
+        final int firstPage = pageOf(Math.min(firstVisible, size - 1));
+        final int lastPage = pageOf(Math.min(lastVisible, size - 1));
+        boolean isReleased = false;
+        for (int index = 0; index < mPages.size(); index++) {
+            final Page<C, T> page = mPages.get(index);
+            if (index >= firstPage - KEEP_DISTANCE_PAGES && index <= lastPage + KEEP_DISTANCE_PAGES) {
+                if (page.mState == Page.RELEASED) reload(index);
+            } else if ((index < firstPage - RELEASE_DISTANCE_PAGES || index > lastPage + RELEASE_DISTANCE_PAGES)
+                    && page.mState == Page.LOADED) {
+                page.mItems = null;
+                page.mState = Page.RELEASED;
+                isReleased = true;
+            }
+        }
+        if (lastVisible >= size - 1 - mPrefetchDistance) append();
+        if (isReleased) publish();
+    }
+
+    /**
+     * Removes the item at the given position, e.g. a cancelled booking.
+     * The bounds of its page are kept.
+     *
+     * @param position The position of the item.
+     * @return The removed item. Null, if its page is not loaded.
+     */
+    @Nullable
+    public T removeAt(int position) {
+        final int index = pageOf(position);
+        if (index < 0) return null;
+        final Page<C, T> page = mPages.get(index);
+        if (page.mItems == null) return null;
+        final T removed = page.mItems.remove(position - startOf(index));
+        page.mSize--;
+        publish();
+        return removed;
+    }
+
+    /**
+     * Access the number of items, including the placeholders.
+     *
+     * @return The number of items.
+     */
+    public int getSize() {
+        int size = 0;
+        for (Page<C, T> page : mPages) size += page.mSize;
+        return size;
+    }
+
+    /**
+     * Access the number of pages whose items are in memory.
+     *
+     * @return The number of loaded pages.
+     */
+    public int getLoadedPageCount() {
+        int count = 0;
+        for (Page<C, T> page : mPages) {
+            if (page.mItems != null) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the last page was loaded.
+     *
+     * @return True, if there are no more pages.
+     */
+    public boolean isComplete() {
+        return mIsComplete;
+    }
+
+    /**
+     * Loads the page after the last one, unless it is already loading or there is none.
+     */
+    private void append() {
+        if (mIsAppending || mIsComplete) return;
+        mIsAppending = true;
+        final int generation = mGeneration;
+        final C startAfter = mPages.isEmpty() ? null : mPages.get(mPages.size() - 1).mEndCursor;
+        mLoader.load(startAfter, null, mPageSize, new PageCallback<C, T>() {
+            @Override
+            public void onLoaded(@NonNull List<T> items, @Nullable C lastCursor) {
+                if (generation != mGeneration) return;
+                mIsAppending = false;
+                mIsComplete = items.size() < mPageSize;
+                if (!items.isEmpty()) mPages.add(new Page<>(new ArrayList<>(items), lastCursor));
+                publish();
+            }
+
+            @Override
+            public void onFailed(@NonNull Exception error) {
+                if (generation != mGeneration) return;
+                mIsAppending = false;
+                mListener.onLoadFailed(error);
+            }
+        });
+    }
+
+    /**
+     * Loads the released page with the given index again, within its original bounds.
+     */
+    private void reload(int index) {
+        final Page<C, T> page = mPages.get(index);
+        page.mState = Page.LOADING;
+        final int generation = mGeneration;
+        final C startAfter = index == 0 ? null : mPages.get(index - 1).mEndCursor;
+        mLoader.load(startAfter, page.mEndCursor, mPageSize, new PageCallback<C, T>() {
+            @Override
+            public void onLoaded(@NonNull List<T> items, @Nullable C lastCursor) {
+                if (generation != mGeneration) return;
+                // Documents may have been added or removed meanwhile
+                page.mItems = new ArrayList<>(items);
+                page.mSize = items.size();
+                page.mState = Page.LOADED;
+                publish();
+            }
+
+            @Override
+            public void onFailed(@NonNull Exception error) {
+                if (generation != mGeneration) return;
+                page.mState = Page.RELEASED;
+                mListener.onLoadFailed(error);
+            }
+        });
+    }
+
+    /**
+     * Access the index of the page of the item with the given position.
+     *
+     * @return The page's index. -1, if the position is out of bounds.
+     */
+    private int pageOf(int position) {
+        if (position < 0) return -1;
+        int start = 0;
+        for (int index = 0; index < mPages.size(); index++) {
+            start += mPages.get(index).mSize;
+            if (position < start) return index;
+        }
+        return -1;
+    }
+
+    private int startOf(int index) {
+        int start = 0;
+        for (int i = 0; i < index; i++) start += mPages.get(i).mSize;
+        return start;
+    }
+
+    /**
+     * Passes the items of all pages to the {@link #mListener},
+     * with placeholders in place of the items that are not loaded.
+     */
+    private void publish() {
+        final List<T> items = new ArrayList<>(getSize());
+        for (Page<C, T> page : mPages) {
+            if (page.mItems != null) {
+                items.addAll(page.mItems);
+            } else {
+                items.addAll(Collections.<T>nCopies(page.mSize, null));
+            }
+        }
+        mListener.onItemsChanged(items, mIsComplete);
+    }
+
+    /**
+     * Purpose: load a page of items.
+     *
+     * @param <C> The type of the cursors.
+     * @param <T> The type of the items.
+     */
+    public interface PageLoader<C, T> {
+        /**
+         * Loads the items after the given cursor, up to the given cursor or limit.
+         *
+         * @param startAfter The cursor of the last item of the previous page. Null, for the first page.
+         * @param endAt      The cursor of the page's last item, inclusive. Null, to load up to the limit.
+         * @param limit      The maximum number of items. To be ignored, if endAt is given.
+         * @param callback   Receives the loaded items, on the main thread.
+         */
+        void load(@Nullable C startAfter, @Nullable C endAt, int limit, @NonNull PageCallback<C, T> callback);
+    }
+
+    /**
+     * Purpose: receive the result of a {@link PageLoader}.
+     *
+     * @param <C> The type of the cursors.
+     * @param <T> The type of the items.
+     */
+    public interface PageCallback<C, T> {
+        /**
+         * @param items      The items of the page, in order.
+         * @param lastCursor The cursor of the last item. Null, if there are no items.
+         */
+        void onLoaded(@NonNull List<T> items, @Nullable C lastCursor);
+
+        void onFailed(@NonNull Exception error);
+    }
+
+    /**
+     * Purpose: receive the items of a {@link PageWindow}.
+     *
+     * @param <T> The type of the items.
+     */
+    public interface Listener<T> {
+        /**
+         * @param items      The items, with a null placeholder for each item that is not loaded.
+         * @param isComplete Whether the last page was loaded.
+         */
+        void onItemsChanged(@NonNull List<T> items, boolean isComplete);
+
+        void onLoadFailed(@NonNull Exception error);
+    }
+
+    /**
+     * Purpose: the items and the bounds of a single page.
+     */
+    private static class Page<C, T> {
+        static final int LOADED = 0;
+        static final int RELEASED = 1;
+        static final int LOADING = 2; // Reloading a released page
+
+        // The cursor of the page's last item, thus the end of the page's bounds
+        final C mEndCursor;
+        @Nullable
+        List<T> mItems;
+        int mSize;
+        int mState = LOADED;
+
+        Page(@NonNull List<T> items, C endCursor) {
+            this.mItems = items;
+            this.mSize = items.size();
+            this.mEndCursor = endCursor;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static io.github.cchristou3.CyParking.ui.views.host.MainHostActivity.TAG;
+
+/**
+ * Purpose: observe the documents of an arbitrary large set of ids,
+ * even though a single whereIn query accepts at most {@link #SHARD_SIZE} ids.
+ * <p>
+ * The ids are split into shards of at most {@link #SHARD_SIZE} ids and each
+ * shard is observed by its own {@link DatabaseObserver}. All observers share the same
+ * {@link EventListener}, thus their {@link com.google.firebase.firestore.DocumentChange}
+ * streams are merged into one.
+ * <p>
+ * An id keeps its shard for as long as it is part of the set. When the set changes,
+ * only the shards whose members changed get resubscribed. The rest keep their listeners
+ * and do not re-download their documents.
+ *
+ * @author Charalambos Christou
+ * @version 3.0 18/10/21
+ * @see DatabaseObserver
+ */
+public class ShardedQueryObserver {
+
+    /**
+     * The maximum number of ids of a single shard.
+     * Corresponds to the limit of values of Firestore's whereIn filter.
+     */
+    public static final int SHARD_SIZE = 10;
+
+    private final Lifecycle mLifecycle;
+    private final QueryFactory mQueryFactory;
+    private final EventListener<QuerySnapshot> mEventListener;
+    // The members of each shard. Empty shards keep their place, so that
+    // the shards that follow them are not shifted.
+    private final List<Set<String>> mShards = new ArrayList<>();
+    // The observer of each shard. Null, if the shard is empty.
+    private final List<DatabaseObserver<Query, QuerySnapshot>> mObservers = new ArrayList<>();
+    // Records the snapshots of all shards. Null, if they are not recorded.
+    @Nullable
+    private SnapshotRecorder mRecorder;
+    private String mRecordingStream = "";
+    // The name all shards report their snapshots to the ListenerTelemetry under
+    private String mTelemetryName = "query";
+
+    /**
+     * Public Constructor.
+     *
+     * @param lifecycle     The lifecycle the shards' observers are bound to.
+     * @param queryFactory  Creates the query of a single shard.
+     * @param eventListener The handler of all the shards' snapshots.
+     */
+    public ShardedQueryObserver(@NonNull Lifecycle lifecycle, @NonNull QueryFactory queryFactory,
+                                @NonNull EventListener<QuerySnapshot> eventListener) {
+        this.mLifecycle = lifecycle;
+        this.mQueryFactory = queryFactory;
+        this.mEventListener = eventListener;
+    }
+
+    /**
+     * Assigns the given ids to shards and updates the listeners
+     * of the shards whose members changed.
+     *
+     * @param ids The ids of the documents to be observed.
+     */
+    public void updateIds(@NonNull Set<String> ids) {
+        final Set<Integer> changedShards = reshard(mShards, ids, SHARD_SIZE);
+        Log.d(TAG, "updateIds: " + changedShards.size() + "/" + mShards.size() + " shards changed");
+        for (int shard : changedShards) {
+            updateShard(shard);
+        }
+        // Drop the trailing empty shards
+        for (int last = mShards.size() - 1; last >= 0 && mShards.get(last).isEmpty(); last--) {
+            mShards.remove(last);
+            if (last < mObservers.size()) mObservers.remove(last);
+        }
+    }
+
+    /**
+     * Records the snapshots of all shards under the given stream, including the ones
+     * of the shards that are already observed.
+     *
+     * @param recorder The recorder of the snapshots. Null, to stop recording.
+     * @param stream   The name the snapshots are recorded under, e.g. "lots".
+     * @see DatabaseObserver#setRecorder(SnapshotRecorder, String)
+     */
+    public void setRecorder(@Nullable SnapshotRecorder recorder, @NonNull String stream) {
+        this.mRecorder = recorder;
+        this.mRecordingStream = stream;
+        for (int shard = 0; shard < mObservers.size(); shard++) {
+            // The listeners are attached along with their recorder
+            if (mObservers.get(shard) == null) continue;
+            mObservers.get(shard).unregisterLifecycleObserver();
+            mObservers.set(shard, null);
+            updateShard(shard);
+        }
+    }
+
+    /**
+     * Reports the snapshots of all shards to the {@link ListenerTelemetry} under the given name,
+     * as a single listener.
+     *
+     * @param name The telemetry name, e.g. "map.lots".
+     * @see DatabaseObserver#setTelemetryName(String)
+     */
+    public void setTelemetryName(@NonNull String name) {
+        this.mTelemetryName = name;
+        for (DatabaseObserver<Query, QuerySnapshot> observer : mObservers) {
+            if (observer != null) observer.setTelemetryName(name);
+        }
+    }
+
+    /**
+     * Removes the listeners of all shards.
+     * Can be called by its creator, to prematurely stop observing the documents.
+     */
+    public void unregister() {
+        for (DatabaseObserver<Query, QuerySnapshot> observer : mObservers) {
+            if (observer != null) observer.unregisterLifecycleObserver();
+        }
+        mObservers.clear();
+        mShards.clear();
+    }
+
+    /**
+     * Access the number of shards that are currently observed.
+     *
+     * @return The number of non-empty shards.
+     */
+    public int getActiveShardCount() {
+        int count = 0;
+        for (DatabaseObserver<Query, QuerySnapshot> observer : mObservers) {
+            if (observer != null) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Resubscribes the shard with the given index based on its current members.
+     * If the shard got empty, its listener is removed.
+     *
+     * @param shard The index of the shard.
+     */
+    private void updateShard(int shard) {
+        while (mObservers.size() <= shard) mObservers.add(null);
+
+        final Set<String> members = mShards.get(shard);
+        DatabaseObserver<Query, QuerySnapshot> observer = mObservers.get(shard);
+        if (members.isEmpty()) {
+            if (observer != null) observer.unregisterLifecycleObserver();
+            mObservers.set(shard, null);
+        } else if (observer == null) {
+            observer = DatabaseObserver.createQueryObserver(
+                    mQueryFactory.create(new HashSet<>(members)), mEventListener)
+                    .setRecorder(mRecorder, mRecordingStream)
+                    .setTelemetryName(mTelemetryName);
+            observer.registerLifecycleObserver(mLifecycle);
+            mObservers.set(shard, observer);
+        } else {
+            observer.updateDatabaseReference(mQueryFactory.create(new HashSet<>(members)));
+        }
+    }
+
+    /**
+     * Updates the given shards so that they contain exactly the given ids.
+     * Ids that are no longer part of the set leave their shard.
+     * Ids that are not assigned to any shard are placed in the first shard
+     * with a free slot, or in a new shard if all are full.
+     * The rest stay in their current shard.
+     *
+     * @param shards    The current shards. Updated in place.
+     * @param ids       The new set of ids.
+     * @param shardSize The maximum number of ids in each shard.
+     * @return The indices of the shards whose members changed, in ascending order.
+     */
+    @NotNull
+    static Set<Integer> reshard(@NotNull List<Set<String>> shards, @NotNull Set<String> ids, int shardSize) {
+        final Set<Integer> changedShards = new TreeSet<>();
+        final Set<String> unassigned = new HashSet<>(ids);
+        // Remove the ids that are no longer needed and find the ones that are already assigned
+        for (int i = 0; i < shards.size(); i++) {
+            for (Iterator<String> iterator = shards.get(i).iterator(); iterator.hasNext(); ) {
+                String id = iterator.next();
+                if (!unassigned.remove(id)) {
+                    iterator.remove();
+                    changedShards.add(i);
+                }
+            }
+        }
+        // Place the new ones in the first free slots
+        int shard = 0;
+        for (String id : unassigned) {
+            while (shard < shards.size() && shards.get(shard).size() >= shardSize) shard++;
+            if (shard == shards.size()) shards.add(new HashSet<>(shardSize));
+            shards.get(shard).add(id);
+            changedShards.add(shard);
+        }
+        return Collections.unmodifiableSet(changedShards);
+    }
+
+    /**
+     * Purpose: create the query that returns the documents of the given ids.
+     * The given set never contains more than {@link #SHARD_SIZE} ids.
+     */
+    public interface QueryFactory {
+        @NotNull
+        Query create(@NotNull Set<String> ids);
+    }
+}
@@ -0,0 +1,228 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.github.cchristou3.CyParking.ui.views.host.MainHostActivity.TAG;
+
+/**
+ * Purpose: share a single Firestore snapshot listener among all the subscribers
+ * of the same document or query, across the whole process.
+ * <p>
+ * The listeners are keyed by their {@link DocumentReference} or {@link Query}, whose equality
+ * is based on their path and filters. The first subscriber of a key attaches the listener and
+ * the rest are counted against it. A subscriber that joins later receives the latest snapshot
+ * straight away, without downloading the documents again.
+ * When the last subscriber leaves, the listener is kept for {@link #GRACE_PERIOD_MILLIS}
+ * and detached only if no one subscribes in the meantime, e.g. across a configuration change
+ * or a quick back-and-forth navigation.
+ * <p>
+ * <strong>Note:</strong> the document changes of a replayed {@link QuerySnapshot}
+ * are the ones of its last update. Subscribers that need every change since they
+ * joined should read {@link QuerySnapshot#getDocuments()}, or not share their listener.
+ * <p>
+ * Accessed only on the main thread, where Firestore delivers the snapshots.
+ * The replays and the detaching are scheduled on the main thread too, via an {@link EmissionGate.Scheduler}.
+ *
+ * @author Charalambos Christou
+ * @version 2.0 18/10/21
+ * @see DatabaseObserver#createSharedDocumentReferenceObserver(DocumentReference, EventListener)
+ * @see DatabaseObserver#createSharedQueryObserver(Query, EventListener)
+ */
+public final class SharedSnapshotRegistry {
+
+    /**
+     * The time a listener stays attached after its last subscriber left.
+     */
+    public static final long GRACE_PERIOD_MILLIS = 10_000L;
+
+    private static SharedSnapshotRegistry sInstance;
+
+    private final EmissionGate.Scheduler mScheduler;
+    // The attached listeners. Look up: document reference or query -> shared listener
+    private final Map<Object, SharedListener<?>> mListeners = new HashMap<>();
+
+    /**
+     * Constructor of the single instance, or of the instances of the tests.
+     *
+     * @param scheduler Schedules the replays and the detaching, on the thread that delivers the snapshots.
+     */
+    @VisibleForTesting
+    SharedSnapshotRegistry(@NonNull EmissionGate.Scheduler scheduler) {
+        this.mScheduler = scheduler;
+    }
+
+    /**
+     * Access the process-wide instance.
+     *
+     * @return The single instance of the registry.
+     */
+    @NonNull
+    public static SharedSnapshotRegistry getInstance() {
+        if (sInstance == null) {
+            sInstance = new SharedSnapshotRegistry(
+                    EmissionGate.handlerScheduler(new Handler(Looper.getMainLooper())));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Subscribes the given listener to the snapshots of the given document.
+     *
+     * @param reference The document to listen to.
+     * @param listener  The handler of its snapshots.
+     * @return The registration of the subscriber. Removing it unsubscribes the listener.
+     */
+    @NonNull
+    public ListenerRegistration subscribe(@NonNull DocumentReference reference,
+                                          @NonNull EventListener<DocumentSnapshot> listener) {
+        return subscribe(reference, listener, sharedListener -> reference.addSnapshotListener(sharedListener));
+    }
+
+    /**
+     * Subscribes the given listener to the snapshots of the given query.
+     *
+     * @param query    The query to listen to.
+     * @param listener The handler of its snapshots.
+     * @return The registration of the subscriber. Removing it unsubscribes the listener.
+     */
+    @NonNull
+    public ListenerRegistration subscribe(@NonNull Query query, @NonNull EventListener<QuerySnapshot> listener) {
+        return subscribe(query, listener, sharedListener -> query.addSnapshotListener(sharedListener));
+    }
+
+    /**
+     * Access the number of attached listeners, including the ones in their grace period.
+     *
+     * @return The number of attached listeners.
+     */
+    public int getAttachedCount() {
+        return mListeners.size();
+    }
+
+    /**
+     * Subscribes the given listener to the snapshots of the given key,
+     * attaching its shared listener via the given attacher, if not attached already.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    @VisibleForTesting
+    <S> ListenerRegistration subscribe(@NonNull Object key, @NonNull EventListener<S> listener,
+                                               @NonNull Attacher<S> attacher) {
+        SharedListener<S> shared = (SharedListener<S>) mListeners.get(key);
+        if (shared == null) {
+            shared = new SharedListener<>(key);
+            mListeners.put(key, shared);
+            shared.mRegistration = attacher.attach(shared);
+            Log.d(TAG, "SharedSnapshotRegistry: attached " + mListeners.size());
+        }
+        return shared.add(listener);
+    }
+
+    /**
+     * Purpose: attach the shared listener of a key to Firestore.
+     */
+    @VisibleForTesting
+    interface Attacher<S> {
+        @NonNull
+        ListenerRegistration attach(@NonNull EventListener<S> sharedListener);
+    }
+
+    /**
+     * Purpose: the single Firestore listener of a key,
+     * which forwards its snapshots to the key's subscribers.
+     */
+    private class SharedListener<S> implements EventListener<S> {
+        private final Object mKey;
+        private final List<Subscriber> mSubscribers = new ArrayList<>();
+        private final Runnable mDetach = this::detach;
+        private ListenerRegistration mRegistration;
+        @Nullable
+        private S mLatest;
+
+        SharedListener(@NonNull Object key) {
+            this.mKey = key;
+        }
+
+        @Override
+        public void onEvent(@Nullable S value, @Nullable FirebaseFirestoreException error) {
+            if (error != null) {
+                // Firestore does not deliver any more snapshots. The next subscriber attaches a new listener
+                detach();
+            } else {
+                mLatest = value;
+            }
+            for (Subscriber subscriber : new ArrayList<>(mSubscribers)) {
+                subscriber.mHasReceived = true;
+                subscriber.mListener.onEvent(value, error);
+            }
+        }
+
+        @NonNull
+        ListenerRegistration add(@NonNull EventListener<S> listener) {
+            mScheduler.cancel(mDetach); // Back in use
+            final Subscriber subscriber = new Subscriber(listener);
+            mSubscribers.add(subscriber);
+            if (mLatest != null) {
+                // Replayed as a new snapshot would be delivered, rather than during the call.
+                // Read when replayed, as a newer snapshot may have been delivered meanwhile
+                mScheduler.schedule(() -> {
+                    if (subscriber.mHasReceived || mLatest == null || !mSubscribers.contains(subscriber)) return;
+                    subscriber.mHasReceived = true;
+                    listener.onEvent(mLatest, null);
+                }, 0);
+            }
+            return subscriber;
+        }
+
+        void remove(@NonNull Subscriber subscriber) {
+            if (!mSubscribers.remove(subscriber) || !mSubscribers.isEmpty()) return;
+            mScheduler.schedule(mDetach, GRACE_PERIOD_MILLIS);
+        }
+
+        void detach() {
+            mScheduler.cancel(mDetach);
+            if (mRegistration != null) mRegistration.remove();
+            mRegistration = null;
+            mLatest = null;
+            if (mListeners.get(mKey) == this) mListeners.remove(mKey);
+            Log.d(TAG, "SharedSnapshotRegistry: detached, " + mListeners.size() + " left");
+        }
+
+        /**
+         * Purpose: the registration of a single subscriber.
+         */
+        private class Subscriber implements ListenerRegistration {
+            private final EventListener<S> mListener;
+            // Whether a snapshot was delivered to it, either live or replayed
+            private boolean mHasReceived = false;
+
+            Subscriber(@NonNull EventListener<S> listener) {
+                this.mListener = listener;
+            }
+
+            @Override
+            public void remove() {
+                SharedListener.this.remove(this);
+            }
+        }
+    }
+}
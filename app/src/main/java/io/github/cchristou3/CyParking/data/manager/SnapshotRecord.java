@@ -0,0 +1,91 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentChange;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Purpose: a single recorded snapshot of a stream, i.e. its document changes
+ * along with the time it was received since the recording started.
+ * The documents' data contain only maps, lists, strings, booleans, longs and doubles.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ * @see SnapshotRecorder
+ * @see SnapshotReplayer
+ */
+public final class SnapshotRecord {
+
+    private final long mOffsetMillis;
+    private final String mStream;
+    private final List<Change> mChanges;
+
+    /**
+     * Public Constructor.
+     *
+     * @param offsetMillis The time the snapshot was received, since the recording started.
+     * @param stream       The name of the snapshot's stream, e.g. "lots".
+     * @param changes      The document changes of the snapshot.
+     */
+    public SnapshotRecord(long offsetMillis, @NonNull String stream, @NonNull List<Change> changes) {
+        this.mOffsetMillis = offsetMillis;
+        this.mStream = stream;
+        this.mChanges = Collections.unmodifiableList(changes);
+    }
+
+    public long getOffsetMillis() {
+        return mOffsetMillis;
+    }
+
+    @NonNull
+    public String getStream() {
+        return mStream;
+    }
+
+    @NonNull
+    public List<Change> getChanges() {
+        return mChanges;
+    }
+
+    /**
+     * Purpose: a recorded {@link DocumentChange}.
+     */
+    public static final class Change {
+        private final DocumentChange.Type mType;
+        private final String mDocId;
+        private final Map<String, Object> mData;
+
+        /**
+         * Public Constructor.
+         *
+         * @param type  The type of the change.
+         * @param docId The id of the changed document.
+         * @param data  The document's data. Null, if the document got removed.
+         */
+        public Change(@NonNull DocumentChange.Type type, @NonNull String docId, @Nullable Map<String, Object> data) {
+            this.mType = type;
+            this.mDocId = docId;
+            this.mData = data;
+        }
+
+        @NonNull
+        public DocumentChange.Type getType() {
+            return mType;
+        }
+
+        @NonNull
+        public String getDocId() {
+            return mDocId;
+        }
+
+        @Nullable
+        public Map<String, Object> getData() {
+            return mData;
+        }
+    }
+}
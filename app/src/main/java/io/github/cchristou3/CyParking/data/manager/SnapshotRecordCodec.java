@@ -0,0 +1,280 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentChange;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Purpose: write {@link SnapshotRecord}s into a compact binary stream and read them back.
+ * <p>
+ * The stream is gzipped and starts with a {@link #MAGIC} number and a {@link #VERSION}.
+ * Each record follows as: the varint of its offset since the previous record, its stream,
+ * the varint of its number of changes and, for each change, the ordinal of its type,
+ * its document id and its data. A value is a tag byte followed by its contents.
+ * Strings are written as the varint of their UTF-8 length followed by their bytes.
+ * <p>
+ * Numbers are written as longs, unless they are floating point, thus an int is read back as a long.
+ * Values of any other type are written as their {@link String#valueOf(Object)}.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public final class SnapshotRecordCodec {
+
+    /**
+     * The first bytes of a recording: "CYSR".
+     */
+    public static final int MAGIC = 0x43595352;
+    public static final int VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final DocumentChange.Type[] TYPES = DocumentChange.Type.values();
+    // The tags of the values
+    private static final int TAG_NULL = 0;
+    private static final int TAG_TRUE = 1;
+    private static final int TAG_FALSE = 2;
+    private static final int TAG_LONG = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_STRING = 5;
+    private static final int TAG_LIST = 6;
+    private static final int TAG_MAP = 7;
+
+    private SnapshotRecordCodec() { /* Utility class - no instances */ }
+
+    /**
+     * Wraps the given stream into a gzipped one and writes the header of a recording.
+     *
+     * @param out The stream to write the recording to.
+     * @return The stream to write the records to, via {@link #write(DataOutputStream, SnapshotRecord, long)}.
+     * @throws IOException if the header could not be written.
+     */
+    @NonNull
+    public static DataOutputStream openWriter(@NonNull OutputStream out) throws IOException {
+        final DataOutputStream writer = new DataOutputStream(
+                new BufferedOutputStream(new GZIPOutputStream(out)));
+        writer.writeInt(MAGIC);
+        writer.writeByte(VERSION);
+        return writer;
+    }
+
+    /**
+     * Wraps the given stream into a gunzipped one and reads the header of a recording.
+     *
+     * @param in The stream to read the recording from.
+     * @return The stream to read the records from, via {@link #read(DataInputStream, long)}.
+     * @throws IOException if the stream is not a recording, or its version is not supported.
+     */
+    @NonNull
+    public static DataInputStream openReader(@NonNull InputStream in) throws IOException {
+        final DataInputStream reader = new DataInputStream(
+                new BufferedInputStream(new GZIPInputStream(in)));
+        if (reader.readInt() != MAGIC) throw new IOException("Not a snapshot recording.");
+        final int version = reader.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Unsupported recording version " + version + ".");
+        return reader;
+    }
+
+    /**
+     * Writes the given recording as a whole.
+     *
+     * @param out     The stream to write the recording to. Closed once done.
+     * @param records The records, in the order they were received.
+     * @throws IOException if the recording could not be written.
+     */
+    public static void writeAll(@NonNull OutputStream out, @NonNull List<SnapshotRecord> records) throws IOException {
+        try (DataOutputStream writer = openWriter(out)) {
+            long previousOffset = 0L;
+            for (SnapshotRecord record : records) {
+                write(writer, record, previousOffset);
+                previousOffset = record.getOffsetMillis();
+            }
+        }
+    }
+
+    /**
+     * Reads the given recording as a whole.
+     *
+     * @param in The stream to read the recording from. Closed once done.
+     * @return The records, in the order they were received.
+     * @throws IOException if the stream is not a valid recording.
+     */
+    @NonNull
+    public static List<SnapshotRecord> readAll(@NonNull InputStream in) throws IOException {
+        final List<SnapshotRecord> records = new ArrayList<>();
+        try (DataInputStream reader = openReader(in)) {
+            long previousOffset = 0L;
+            SnapshotRecord record;
+            while ((record = read(reader, previousOffset)) != null) {
+                records.add(record);
+                previousOffset = record.getOffsetMillis();
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Writes the given record.
+     *
+     * @param writer         The stream of {@link #openWriter(OutputStream)}.
+     * @param record         The record to write.
+     * @param previousOffset The offset of the previous record. 0, if it is the first one.
+     * @throws IOException if the record could not be written.
+     */
+    public static void write(@NonNull DataOutputStream writer, @NonNull SnapshotRecord record,
+                             long previousOffset) throws IOException {
+        writeVarint(writer, Math.max(0L, record.getOffsetMillis() - previousOffset));
+        writeString(writer, record.getStream());
+        writeVarint(writer, record.getChanges().size());
+        for (SnapshotRecord.Change change : record.getChanges()) {
+            writer.writeByte(change.getType().ordinal());
+            writeString(writer, change.getDocId());
+            writeValue(writer, change.getData());
+        }
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @param reader         The stream of {@link #openReader(InputStream)}.
+     * @param previousOffset The offset of the previous record. 0, if it is the first one.
+     * @return The next record. Null, if the recording ended.
+     * @throws IOException if the record is not valid.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static SnapshotRecord read(@NonNull DataInputStream reader, long previousOffset) throws IOException {
+        final int first = reader.read();
+        if (first < 0) return null; // The recording ended
+        final long offset = previousOffset + readVarint(reader, first);
+        final String stream = readString(reader);
+        final int changeCount = (int) readVarint(reader, reader.readUnsignedByte());
+        final List<SnapshotRecord.Change> changes = new ArrayList<>(changeCount);
+        for (int i = 0; i < changeCount; i++) {
+            final int type = reader.readUnsignedByte();
+            if (type >= TYPES.length) throw new IOException("Invalid change type " + type + ".");
+            final String docId = readString(reader);
+            final Object data = readValue(reader);
+            if (data != null && !(data instanceof Map)) throw new IOException("Invalid data of " + docId + ".");
+            changes.add(new SnapshotRecord.Change(TYPES[type], docId, (Map<String, Object>) data));
+        }
+        return new SnapshotRecord(offset, stream, changes);
+    }
+
+    private static void writeValue(@NonNull DataOutputStream writer, @Nullable Object value) throws IOException {
+        if (value == null) {
+            writer.writeByte(TAG_NULL);
+        } else if (value instanceof Boolean) {
+            writer.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Double || value instanceof Float) {
+            writer.writeByte(TAG_DOUBLE);
+            writer.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            writer.writeByte(TAG_LONG);
+            writer.writeLong(((Number) value).longValue());
+        } else if (value instanceof List) {
+            final List<?> list = (List<?>) value;
+            writer.writeByte(TAG_LIST);
+            writeVarint(writer, list.size());
+            for (Object element : list) writeValue(writer, element);
+        } else if (value instanceof Map) {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            writer.writeByte(TAG_MAP);
+            writeVarint(writer, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeString(writer, String.valueOf(entry.getKey()));
+                writeValue(writer, entry.getValue());
+            }
+        } else {
+            writer.writeByte(TAG_STRING);
+            writeString(writer, String.valueOf(value));
+        }
+    }
+
+    @Nullable
+    private static Object readValue(@NonNull DataInputStream reader) throws IOException {
+        final int tag = reader.readUnsignedByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_TRUE:
+                return true;
+            case TAG_FALSE:
+                return false;
+            case TAG_LONG:
+                return reader.readLong();
+            case TAG_DOUBLE:
+                return reader.readDouble();
+            case TAG_STRING:
+                return readString(reader);
+            case TAG_LIST:
+                final int size = (int) readVarint(reader, reader.readUnsignedByte());
+                final List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) list.add(readValue(reader));
+                return list;
+            case TAG_MAP:
+                final int entries = (int) readVarint(reader, reader.readUnsignedByte());
+                final Map<String, Object> map = new LinkedHashMap<>(entries * 2);
+                for (int i = 0; i < entries; i++) map.put(readString(reader), readValue(reader));
+                return map;
+            default:
+                throw new IOException("Invalid value tag " + tag + ".");
+        }
+    }
+
+    private static void writeString(@NonNull DataOutputStream writer, @NonNull String value) throws IOException {
+        final byte[] bytes = value.getBytes(UTF_8);
+        writeVarint(writer, bytes.length);
+        writer.write(bytes);
+    }
+
+    @NonNull
+    private static String readString(@NonNull DataInputStream reader) throws IOException {
+        final byte[] bytes = new byte[(int) readVarint(reader, reader.readUnsignedByte())];
+        reader.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Writes the given non-negative value 7 bits per byte, the least significant first.
+     * The high bit of each byte is set if more bytes follow.
+     */
+    private static void writeVarint(@NonNull DataOutputStream writer, long value) throws IOException {
+        while ((value & ~0x7FL) != 0L) {
+            writer.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writer.writeByte((int) value);
+    }
+
+    /**
+     * Reads a varint, whose first byte was already read.
+     */
+    private static long readVarint(@NonNull DataInputStream reader, int first) throws IOException {
+        long value = first & 0x7F;
+        int shift = 7;
+        for (int current = first; (current & 0x80) != 0; shift += 7) {
+            if (shift > 63) throw new IOException("Invalid varint.");
+            current = reader.read();
+            if (current < 0) throw new EOFException();
+            value |= (long) (current & 0x7F) << shift;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,173 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.GeoPoint;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static io.github.cchristou3.CyParking.ui.views.host.MainHostActivity.TAG;
+
+/**
+ * Purpose: record the snapshots of one or more streams into a local file,
+ * along with the time each one was received, to be replayed via a {@link SnapshotReplayer}.
+ * <p>
+ * A {@link QuerySnapshot} is recorded as its document changes, while a {@link DocumentSnapshot}
+ * as a single change: modified if it exists, removed otherwise. The documents' data are converted
+ * to plain values on the calling thread, e.g. a {@link Timestamp} to its milliseconds and a
+ * {@link GeoPoint} to a map of its latitude and longitude. The records are written by
+ * the {@link SnapshotRecordCodec} on a background thread.
+ * <p>
+ * Attached to observers via {@link DatabaseObserver#setRecorder(SnapshotRecorder, String)}.
+ * If writing fails, the recording stops and the file is left as is.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public class SnapshotRecorder {
+
+    private final ExecutorService mWriter = Executors.newSingleThreadExecutor();
+    private final long mStartTime = SystemClock.uptimeMillis();
+    private final DataOutputStream mOutput; // Accessed only via the mWriter
+    private long mPreviousOffset = 0L; // Accessed only via the mWriter
+    private volatile boolean mIsClosed = false;
+    private int mRecordCount = 0;
+
+    /**
+     * Public Constructor.
+     * Starts a new recording in the given file, replacing its contents.
+     *
+     * @param file The file to record into.
+     * @throws IOException if the file could not be created.
+     */
+    public SnapshotRecorder(@NonNull File file) throws IOException {
+        this.mOutput = SnapshotRecordCodec.openWriter(new FileOutputStream(file));
+    }
+
+    /**
+     * Records the given snapshot of the given stream.
+     *
+     * @param stream   The name of the snapshot's stream, e.g. "lots".
+     * @param snapshot A {@link QuerySnapshot} or a {@link DocumentSnapshot}. Anything else is ignored.
+     */
+    public synchronized void record(@NonNull String stream, @Nullable Object snapshot) {
+        if (mIsClosed) return;
+        final List<SnapshotRecord.Change> changes;
+        if (snapshot instanceof QuerySnapshot) {
+            final List<DocumentChange> documentChanges = ((QuerySnapshot) snapshot).getDocumentChanges();
+            changes = new ArrayList<>(documentChanges.size());
+            for (DocumentChange dc : documentChanges) {
+                changes.add(toChange(dc.getType(), dc.getDocument()));
+            }
+        } else if (snapshot instanceof DocumentSnapshot) {
+            final DocumentSnapshot document = (DocumentSnapshot) snapshot;
+            changes = Collections.singletonList(toChange(
+                    document.exists() ? DocumentChange.Type.MODIFIED : DocumentChange.Type.REMOVED, document));
+        } else {
+            return;
+        }
+        final SnapshotRecord record = new SnapshotRecord(SystemClock.uptimeMillis() - mStartTime, stream, changes);
+        mRecordCount++;
+        try {
+            mWriter.execute(() -> write(record));
+        } catch (RejectedExecutionException ignored) {
+            // Closed
+        }
+    }
+
+    /**
+     * Access the number of snapshots recorded so far.
+     *
+     * @return The number of records.
+     */
+    public synchronized int getRecordCount() {
+        return mRecordCount;
+    }
+
+    /**
+     * Writes the pending records and closes the file. Further snapshots are ignored.
+     */
+    public synchronized void close() {
+        if (mIsClosed) return;
+        mIsClosed = true;
+        mWriter.execute(() -> {
+            try {
+                mOutput.close();
+            } catch (IOException e) {
+                Log.w(TAG, "SnapshotRecorder: failed to close the recording", e);
+            }
+        });
+        mWriter.shutdown();
+    }
+
+    private void write(@NonNull SnapshotRecord record) {
+        try {
+            SnapshotRecordCodec.write(mOutput, record, mPreviousOffset);
+            mPreviousOffset = record.getOffsetMillis();
+        } catch (IOException e) {
+            Log.w(TAG, "SnapshotRecorder: recording stopped", e);
+            mIsClosed = true;
+        }
+    }
+
+    @NonNull
+    private static SnapshotRecord.Change toChange(@NonNull DocumentChange.Type type, @NonNull DocumentSnapshot document) {
+        final Map<String, Object> data = document.getData();
+        return new SnapshotRecord.Change(type, document.getId(),
+                data == null || type == DocumentChange.Type.REMOVED ? null : toPlainMap(data));
+    }
+
+    @NonNull
+    private static Map<String, Object> toPlainMap(@NonNull Map<String, Object> data) {
+        final Map<String, Object> plain = new HashMap<>(data.size() * 2);
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            plain.put(entry.getKey(), toPlainValue(entry.getValue()));
+        }
+        return plain;
+    }
+
+    /**
+     * Converts the given value of a document into one the {@link SnapshotRecordCodec} can write.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static Object toPlainValue(@Nullable Object value) {
+        if (value instanceof Map) return toPlainMap((Map<String, Object>) value);
+        if (value instanceof List) {
+            final List<Object> plain = new ArrayList<>(((List<?>) value).size());
+            for (Object element : (List<?>) value) plain.add(toPlainValue(element));
+            return plain;
+        }
+        if (value instanceof Timestamp) return ((Timestamp) value).toDate().getTime();
+        if (value instanceof Date) return ((Date) value).getTime();
+        if (value instanceof GeoPoint) {
+            final Map<String, Object> point = new HashMap<>(4);
+            point.put("latitude", ((GeoPoint) value).getLatitude());
+            point.put("longitude", ((GeoPoint) value).getLongitude());
+            return point;
+        }
+        if (value instanceof DocumentReference) return ((DocumentReference) value).getPath();
+        return value;
+    }
+}
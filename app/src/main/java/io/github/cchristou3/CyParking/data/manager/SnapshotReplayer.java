@@ -0,0 +1,136 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Purpose: feed the records of a {@link SnapshotRecorder}'s recording back,
+ * with their original timing or an accelerated one.
+ * <p>
+ * Each record is delivered at its offset divided by the speed, since the replay started.
+ * The records are delivered one per turn of the {@link EmissionGate.Scheduler},
+ * even if several are due, as they were received. A single delivery is scheduled at any time.
+ * <p>
+ * Accessed only on the thread of its scheduler, e.g. the main thread.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ * @see SnapshotRecordCodec
+ */
+public class SnapshotReplayer {
+
+    /**
+     * Replays the records back-to-back, regardless of their timing.
+     */
+    public static final float AS_FAST_AS_POSSIBLE = Float.POSITIVE_INFINITY;
+
+    private final List<SnapshotRecord> mRecords;
+    private final EmissionGate.Scheduler mScheduler;
+    private final Runnable mDeliverNext = this::deliverNext;
+    @Nullable
+    private EmissionGate.Receiver<SnapshotRecord> mReceiver;
+    private float mSpeed;
+    private long mStartTime;
+    private int mNext;
+
+    /**
+     * Public Constructor.
+     *
+     * @param records   The records to replay, in the order they were received.
+     * @param scheduler Schedules the deliveries and tells the time.
+     */
+    public SnapshotReplayer(@NonNull List<SnapshotRecord> records, @NonNull EmissionGate.Scheduler scheduler) {
+        this.mRecords = new ArrayList<>(records);
+        this.mScheduler = scheduler;
+    }
+
+    /**
+     * Creates a new replayer of the recording in the given file.
+     *
+     * @param file      A file of a {@link SnapshotRecorder}.
+     * @param scheduler Schedules the deliveries and tells the time.
+     * @return A new {@link SnapshotReplayer} instance.
+     * @throws IOException if the file is not a valid recording.
+     */
+    @NonNull
+    public static SnapshotReplayer fromFile(@NonNull File file, @NonNull EmissionGate.Scheduler scheduler)
+            throws IOException {
+        return new SnapshotReplayer(SnapshotRecordCodec.readAll(new FileInputStream(file)), scheduler);
+    }
+
+    /**
+     * Starts replaying the records from the first one, stopping the current replay if any.
+     *
+     * @param speed    The speed-up of the replay: 1 for the original timing, 10 for ten times faster,
+     *                 or {@link #AS_FAST_AS_POSSIBLE}.
+     * @param receiver Receives the records.
+     * @throws IllegalArgumentException if the speed is not positive.
+     */
+    public void start(float speed, @NonNull EmissionGate.Receiver<SnapshotRecord> receiver)
+            throws IllegalArgumentException {
+        if (!(speed > 0f)) throw new IllegalArgumentException("The speed must be positive.");
+        stop();
+        mSpeed = speed;
+        mReceiver = receiver;
+        mStartTime = mScheduler.now();
+        mNext = 0;
+        scheduleNext();
+    }
+
+    /**
+     * Stops the replay. The records that were not delivered yet are dropped.
+     */
+    public void stop() {
+        mScheduler.cancel(mDeliverNext);
+        mReceiver = null;
+    }
+
+    /**
+     * Checks whether records remain to be delivered.
+     *
+     * @return True, if the replay is in progress.
+     */
+    public boolean isReplaying() {
+        return mReceiver != null;
+    }
+
+    /**
+     * Access the number of records of the recording.
+     *
+     * @return The number of records.
+     */
+    public int getRecordCount() {
+        return mRecords.size();
+    }
+
+    private void deliverNext() {
+        final EmissionGate.Receiver<SnapshotRecord> receiver = mReceiver;
+        if (receiver == null) return;
+        final SnapshotRecord record = mRecords.get(mNext++);
+        scheduleNext(); // Before the delivery, which may stop the replay
+        receiver.receive(record);
+    }
+
+    private void scheduleNext() {
+        if (mNext >= mRecords.size()) {
+            mReceiver = null; // Done
+            return;
+        }
+        final long due = mSpeed == AS_FAST_AS_POSSIBLE ? mStartTime
+                : mStartTime + (long) (offsetOf(mNext) / mSpeed);
+        mScheduler.schedule(mDeliverNext, Math.max(0L, due - mScheduler.now()));
+    }
+
+    /**
+     * Access the offset of the record with the given index, since the first record.
+     */
+    private long offsetOf(int index) {
+        return mRecords.get(index).getOffsetMillis() - mRecords.get(0).getOffsetMillis();
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.Circle;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.LatLng;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.github.cchristou3.CyParking.apiClient.local.StreetOccupancyStore;
+import io.github.cchristou3.CyParking.ui.views.parking.lots.map.ParkingMapFragment;
+
+/**
+ * Purpose: draw the public parking segments of a {@link StreetOccupancyStore}
+ * on the map of {@link ParkingMapFragment}, a {@link Circle} per segment.
+ * <p>
+ * A segment's circle is colored based on its availability (full, nearly full or free),
+ * as the markers of the lots. The circles are indexed by their segment's document id.
+ * Thus, a diff of a segment touches only its own circle, and only if its
+ * availability level or position changed. Accessed only on the main thread.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ * @see MarkerIconProvider#availabilityOf(int, int)
+ */
+public class StreetParkingLayer {
+
+    private static final double SEGMENT_RADIUS_IN_METERS = 25.0;
+    private static final float STROKE_WIDTH_PX = 2f;
+    // The fill color of each availability level, indexed by level
+    private static final int[] AVAILABILITY_COLORS = {
+            Color.argb(140, 229, 57, 53),
+            Color.argb(140, 251, 140, 0),
+            Color.argb(140, 67, 160, 71)
+    };
+
+    // The circles on the map. Look up: document id -> circle
+    private final Map<String, Circle> mCircles = new HashMap<>();
+    // The availability level each circle is colored with
+    private final Map<String, Integer> mLevels = new HashMap<>();
+
+    /**
+     * Draws every segment of the given store, e.g. once the map gets recreated.
+     *
+     * @param googleMap The map to draw on.
+     * @param store     The segments to draw.
+     */
+    public void drawAll(@NonNull GoogleMap googleMap, @NonNull StreetOccupancyStore store) {
+        store.visitSegments((docId, latitude, longitude, spaceCount, freeSpaces) ->
+                draw(googleMap, docId, latitude, longitude, spaceCount, freeSpaces));
+    }
+
+    /**
+     * Redraws the segments of the given diffs.
+     *
+     * @param googleMap The map to draw on.
+     * @param diffs     The segments whose spaces changed.
+     */
+    public void apply(@NonNull GoogleMap googleMap, @NonNull List<StreetOccupancyStore.Diff> diffs) {
+        for (StreetOccupancyStore.Diff diff : diffs) {
+            draw(googleMap, diff.getDocId(), diff.getLatitude(), diff.getLongitude(),
+                    diff.getSpaceCount(), diff.getFreeSpaces());
+        }
+    }
+
+    /**
+     * Removes the circles of the given segments.
+     *
+     * @param docIds The document ids of the removed segments.
+     */
+    public void remove(@NonNull Set<String> docIds) {
+        for (String docId : docIds) {
+            final Circle circle = mCircles.remove(docId);
+            if (circle != null) circle.remove();
+            mLevels.remove(docId);
+        }
+    }
+
+    /**
+     * Removes all circles from the map.
+     */
+    public void clear() {
+        for (Circle circle : mCircles.values()) circle.remove();
+        mCircles.clear();
+        mLevels.clear();
+    }
+
+    /**
+     * Adds the circle of the given segment, or updates the existing one if its
+     * position or availability level changed.
+     */
+    private void draw(@NonNull GoogleMap googleMap, @NonNull String docId, double latitude, double longitude,
+                      int spaceCount, int freeSpaces) {
+        final int level = MarkerIconProvider.availabilityOf(freeSpaces, spaceCount);
+        final LatLng center = new LatLng(latitude, longitude);
+        final Circle circle = mCircles.get(docId);
+        if (circle == null) {
+            mCircles.put(docId, googleMap.addCircle(new CircleOptions()
+                    .center(center)
+                    .radius(SEGMENT_RADIUS_IN_METERS)
+                    .strokeWidth(STROKE_WIDTH_PX)
+                    .strokeColor(Color.WHITE)
+                    .fillColor(AVAILABILITY_COLORS[level])));
+            mLevels.put(docId, level);
+            return;
+        }
+        if (!center.equals(circle.getCenter())) circle.setCenter(center);
+        final Integer previous = mLevels.put(docId, level);
+        if (previous == null || previous != level) circle.setFillColor(AVAILABILITY_COLORS[level]);
+    }
+}
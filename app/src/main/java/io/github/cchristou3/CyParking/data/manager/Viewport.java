@@ -0,0 +1,100 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import androidx.annotation.NonNull;
+
+import org.jetbrains.annotations.Contract;
+
+/**
+ * Purpose: an immutable, axis-aligned area of the map
+ * (e.g. the map's visible region), expressed in degrees.
+ * An area that crosses the antimeridian has its west bound greater than its east bound.
+ * <p>
+ * The class does not depend on the Maps SDK, so that it can be exercised on the JVM
+ * and be handed over to background threads.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ * @see MarkerManager
+ */
+public final class Viewport {
+
+    private final double south;
+    private final double west;
+    private final double north;
+    private final double east;
+
+    /**
+     * Public Constructor.
+     *
+     * @param south The southern latitude bound.
+     * @param west  The western longitude bound.
+     * @param north The northern latitude bound.
+     * @param east  The eastern longitude bound.
+     */
+    public Viewport(double south, double west, double north, double east) {
+        this.south = south;
+        this.west = west;
+        this.north = north;
+        this.east = east;
+    }
+
+    /**
+     * Check whether the given position is inside the viewport.
+     *
+     * @param latitude  The position's latitude.
+     * @param longitude The position's longitude.
+     * @return True, if the position is within the bounds. Otherwise, false.
+     */
+    @Contract(pure = true)
+    public boolean contains(double latitude, double longitude) {
+        return latitude >= south && latitude <= north && containsLongitude(longitude);
+    }
+
+    /**
+     * Check whether the given viewport lies entirely inside this one.
+     *
+     * @param other Another viewport.
+     * @return True, if all of its corners are within the bounds. Otherwise, false.
+     */
+    @Contract(pure = true)
+    public boolean contains(@NonNull Viewport other) {
+        return contains(other.south, other.west) && contains(other.north, other.east)
+                // A viewport that wraps around the antimeridian only fits in another wrapping one
+                && (other.west <= other.east || west > east);
+    }
+
+    /**
+     * Creates a viewport larger than this one by the given fraction
+     * of its height and width on each side.
+     *
+     * @param fraction The margin of each side, as a fraction of the viewport's size.
+     * @return The expanded viewport.
+     */
+    @NonNull
+    @Contract(pure = true)
+    public Viewport expandedBy(double fraction) {
+        final double latMargin = (north - south) * fraction;
+        final double width = west <= east ? east - west : east + 360.0 - west;
+        final double lngMargin = width * fraction;
+        if (width + 2 * lngMargin >= 360.0) { // Covers the whole world horizontally
+            return new Viewport(Math.max(-90.0, south - latMargin), -180.0,
+                    Math.min(90.0, north + latMargin), 180.0);
+        }
+        return new Viewport(Math.max(-90.0, south - latMargin), wrap(west - lngMargin),
+                Math.min(90.0, north + latMargin), wrap(east + lngMargin));
+    }
+
+    private boolean containsLongitude(double longitude) {
+        return west <= east ? longitude >= west && longitude <= east
+                : longitude >= west || longitude <= east;
+    }
+
+    /**
+     * Brings the given longitude into the range [-180..180].
+     */
+    private static double wrap(double longitude) {
+        if (longitude > 180.0) return longitude - 360.0;
+        if (longitude < -180.0) return longitude + 360.0;
+        return longitude;
+    }
+}
@@ -2,14 +2,23 @@ package io.github.cchristou3.CyParking.ui.components
 
 import android.content.Intent
 import android.net.Uri
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import androidx.lifecycle.Lifecycle
 import androidx.viewbinding.ViewBinding
 import io.github.cchristou3.CyParking.R
+import io.github.cchristou3.CyParking.data.manager.LocationUpdateScheduler
 import mumayank.com.airlocationlibrary.AirLocation
 
 /**
  * A simple [BaseFragment] subclass.
  * Encapsulates logic for retrieving the user's device's location.
  *
+ * Subclasses that follow the user's location use [startScheduledLocationUpdates],
+ * along with a one-off [AirLocation]. Each location request is then scheduled by the
+ * [locationScheduler], based on how fast the user is moving, and only while the fragment is started.
+ *
  * @author Charalambos Christou
  * @since 01/08/21
  */
@@ -19,6 +28,38 @@ abstract class LocationFragment<T : ViewBinding> : NavigatorFragment<T>() {
         initializeLocationApi()
     }
 
+    /**
+     * Decides when the next location request is made.
+     */
+    protected val locationScheduler = LocationUpdateScheduler()
+    private val locationHandler = Handler(Looper.getMainLooper())
+    private val nextLocationUpdate = Runnable { startLocationUpdates() }
+    private var isSchedulingLocationUpdates = false
+
+    /**
+     * Resumes the scheduled location requests, if any, with an immediate one.
+     */
+    override fun onStart() {
+        super.onStart()
+        if (isSchedulingLocationUpdates) requestLocationNow()
+    }
+
+    /**
+     * Pauses the scheduled location requests, if any.
+     */
+    override fun onStop() {
+        locationHandler.removeCallbacks(nextLocationUpdate)
+        super.onStop()
+    }
+
+    /**
+     * Stops the scheduled location requests, if any.
+     */
+    override fun onDestroyView() {
+        stopScheduledLocationUpdates()
+        super.onDestroyView()
+    }
+
     /**
      * Gets invoked after the user has been asked for a permission for a given package.
      * If permission was granted, request for the user's latest known location.
@@ -50,6 +91,39 @@ abstract class LocationFragment<T : ViewBinding> : NavigatorFragment<T>() {
      */
     fun startLocationUpdates() = airLocation.start()
 
+    /**
+     * Requests the user's location straight away and keeps requesting it
+     * whenever [scheduleNextLocationUpdate] gets invoked.
+     */
+    fun startScheduledLocationUpdates() {
+        isSchedulingLocationUpdates = true
+        requestLocationNow()
+    }
+
+    /**
+     * Schedules the next location request, after the interval that the [locationScheduler]
+     * considers appropriate. To be invoked when a location is received.
+     */
+    fun scheduleNextLocationUpdate() {
+        if (!isSchedulingLocationUpdates || !lifecycle.currentState.isAtLeast(Lifecycle.State.STARTED)) return
+        locationHandler.removeCallbacks(nextLocationUpdate)
+        locationHandler.postDelayed(nextLocationUpdate,
+                locationScheduler.nextIntervalMillis(SystemClock.elapsedRealtime()))
+    }
+
+    /**
+     * Cancels the pending location request and stops scheduling new ones.
+     */
+    fun stopScheduledLocationUpdates() {
+        isSchedulingLocationUpdates = false
+        locationHandler.removeCallbacks(nextLocationUpdate)
+    }
+
+    private fun requestLocationNow() {
+        locationHandler.removeCallbacks(nextLocationUpdate)
+        locationHandler.post(nextLocationUpdate)
+    }
+
     /**
      * Returns an instance of [AirLocation] that contains
      * information about the location retrieval behaviour.
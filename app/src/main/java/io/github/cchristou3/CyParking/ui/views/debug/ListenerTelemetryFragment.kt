@@ -0,0 +1,83 @@
+package io.github.cchristou3.CyParking.ui.views.debug
+
+import android.os.Bundle
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import io.github.cchristou3.CyParking.R
+import io.github.cchristou3.CyParking.data.manager.ListenerTelemetry
+import io.github.cchristou3.CyParking.databinding.FragmentListenerTelemetryBinding
+import io.github.cchristou3.CyParking.ui.components.BaseFragment
+
+/**
+ * Purpose: show the metrics of the app's snapshot listeners, the hottest ones first,
+ * refreshed every [REFRESH_INTERVAL_MILLIS] while the screen is shown.
+ * The same report is dumped by `adb shell dumpsys activity`. Reachable only in debug builds.
+ *
+ * @author Charalambos Christou
+ * @since 1.0 18/10/21
+ * @see ListenerTelemetry
+ */
+class ListenerTelemetryFragment : BaseFragment<FragmentListenerTelemetryBinding>() {
+
+    companion object {
+        private const val REFRESH_INTERVAL_MILLIS = 1000L
+    }
+
+    private val mRefresh = object : Runnable {
+        override fun run() {
+            refreshReport()
+            binding?.root?.postDelayed(this, REFRESH_INTERVAL_MILLIS)
+        }
+    }
+
+    /**
+     * Inflate the fragment's Ui.
+     * @see BaseFragment.onCreateView
+     */
+    override fun onCreateView(inflater: LayoutInflater, container: ViewGroup?,
+                              savedInstanceState: Bundle?): View? {
+        return super.onCreateView(FragmentListenerTelemetryBinding.inflate(inflater), R.string.listener_telemetry_label)
+    }
+
+    /**
+     * Hook up the buttons with their listeners.
+     */
+    override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
+        super.onViewCreated(view, savedInstanceState)
+        binding.fragmentListenerTelemetryBtnRefresh.setOnClickListener { refreshReport() }
+        binding.fragmentListenerTelemetryBtnReset.setOnClickListener {
+            ListenerTelemetry.getInstance().reset()
+            refreshReport()
+        }
+    }
+
+    /**
+     * Start refreshing the report.
+     */
+    override fun onResume() {
+        super.onResume()
+        mRefresh.run()
+    }
+
+    /**
+     * Stop refreshing the report.
+     */
+    override fun onPause() {
+        binding?.root?.removeCallbacks(mRefresh)
+        super.onPause()
+    }
+
+    /**
+     * Unset all listeners.
+     * @see BaseFragment.onDestroyView
+     */
+    override fun onDestroyView() {
+        removeOnClickListeners(binding.fragmentListenerTelemetryBtnRefresh, binding.fragmentListenerTelemetryBtnReset)
+        super.onDestroyView()
+    }
+
+    private fun refreshReport() {
+        binding?.fragmentListenerTelemetryTvReport?.text = ListenerTelemetry.getInstance().report
+    }
+}
@@ -214,7 +214,7 @@ class HomeFragment : LocationFragment<FragmentHomeBinding>() {
      * @param loggedInUser   The current instance of [LoggedInUser].
      */
     private fun getUpcomingBooking(mUserViewModel: UserViewModel, loggedInUser: LoggedInUser) {
-        mUserViewModel.getUpcomingBooking(loggedInUser.userId, requireActivity()) { message: Int? -> globalStateViewModel.updateToastMessage(message!!) }
+        mUserViewModel.getUpcomingBooking(loggedInUser.userId) { message: Int? -> globalStateViewModel.updateToastMessage(message!!) }
     }
 
     /**
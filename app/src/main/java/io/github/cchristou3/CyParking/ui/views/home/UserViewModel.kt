@@ -1,21 +1,26 @@
 package io.github.cchristou3.CyParking.ui.views.home
 
 import androidx.core.util.Consumer
-import androidx.fragment.app.FragmentActivity
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.ViewModelProvider
+import com.google.firebase.firestore.DocumentSnapshot
+import com.google.firebase.firestore.EventListener
+import com.google.firebase.firestore.ListenerRegistration
 import io.github.cchristou3.CyParking.R
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.booking.Booking
+import io.github.cchristou3.CyParking.apiClient.model.mapper.BookingMapper
 import io.github.cchristou3.CyParking.apiClient.remote.repository.UserRepository
+import io.github.cchristou3.CyParking.data.manager.ListenerTelemetry
+import io.github.cchristou3.CyParking.data.manager.SharedSnapshotRegistry
 
 /**
  * Purpose: <p>Data persistence when configuration changes.
  * Used when the user is in [HomeFragment].</p>
  *
  * @author Charalambos Christou
- * @see 1.0 12/03/21
+ * @see 2.0 18/10/21
  * @constructor Initialize the ViewModel's repository.
  */
 class UserViewModel(private val mUserRepository: UserRepository) : ViewModel() {
@@ -29,29 +34,35 @@ class UserViewModel(private val mUserRepository: UserRepository) : ViewModel() {
     var hideBooking: LiveData<Any> = mHideBooking
         private set
 
+    // The subscription to the upcoming booking
+    private var mUpcomingBookingRegistration: ListenerRegistration? = null
+
     /**
      * Fetch the nearest pending booking of the user with the specified userId.
-     * Once fetched, listen for its updates.
+     * Once fetched, listen for its updates, in place of the previously fetched booking.
+     * The booking's listener is shared via the [SharedSnapshotRegistry] and kept until
+     * the ViewModel is cleared.
      *
-     * @param activity the handler for the event listener
      * @param userId The is of the Firebase user
      * @param displayToast a way to display toast messages.
      */
-    fun getUpcomingBooking(userId: String, activity: FragmentActivity, displayToast: Consumer<Int>) {
+    fun getUpcomingBooking(userId: String, displayToast: Consumer<Int>) {
         // Access the booking object of the database
         mUserRepository.getUpcomingBooking(userId).get()
                 .addOnCompleteListener { task ->
                     if (!task.isSuccessful) return@addOnCompleteListener
                     task.result?.let { querySnapshot ->
                         if (querySnapshot.documents.isEmpty()) return@addOnCompleteListener
-                        val currentBooking = querySnapshot.documents[0].toObject(Booking::class.java)
+                        val currentBooking = BookingMapper.toBooking(querySnapshot.documents[0])
 
                         // Now observe it
-                        mUserRepository.bookingsRef.document(querySnapshot.documents[0].id)
-                                .addSnapshotListener(activity) { value, _ ->
+                        mUpcomingBookingRegistration?.remove()
+                        mUpcomingBookingRegistration = SharedSnapshotRegistry.getInstance().subscribe(
+                                mUserRepository.bookingsRef.document(querySnapshot.documents[0].id),
+                                ListenerTelemetry.getInstance().instrument("home.upcoming_booking", EventListener<DocumentSnapshot> { value, _ ->
                                     value?.let { documentSnapshot ->
-                                        if (!documentSnapshot.exists()) return@addSnapshotListener
-                                        documentSnapshot.toObject(Booking::class.java)
+                                        if (!documentSnapshot.exists()) return@EventListener
+                                        BookingMapper.toBooking(documentSnapshot)
                                                 ?.let {
                                                     mUpcomingBookingState.value = it
                                                     if (it.isCompleted // If the current booking got completed
@@ -63,11 +74,20 @@ class UserViewModel(private val mUserRepository: UserRepository) : ViewModel() {
                                                     }
                                                 }
                                     }
-                                }
+                                }))
                     }
                 }
     }
 
+    /**
+     * Stops observing the upcoming booking.
+     */
+    override fun onCleared() {
+        mUpcomingBookingRegistration?.remove()
+        mUpcomingBookingRegistration = null
+        super.onCleared()
+    }
+
     class Factory : ViewModelProvider.Factory {
 
         override fun <T : ViewModel?> create(modelClass: Class<T>): T {
@@ -15,6 +15,7 @@ import com.google.firebase.firestore.DocumentSnapshot;
 import java.util.List;
 
 import io.github.cchristou3.CyParking.apiClient.model.data.user.LoggedInUser;
+import io.github.cchristou3.CyParking.apiClient.model.mapper.LoggedInUserMapper;
 import io.github.cchristou3.CyParking.apiClient.remote.repository.AuthenticatorRepository;
 import io.github.cchristou3.CyParking.ui.components.LoadingBarViewModel;
 import io.github.cchristou3.CyParking.ui.views.user.login.AuthenticatorFragment;
@@ -169,7 +170,7 @@ public class GlobalStateViewModel extends LoadingBarViewModel {
             @Override
             public void onRemoteDataFound(Task<DocumentSnapshot> task) {
                 try {
-                    final LoggedInUser loggedInUser = task.getResult().toObject(LoggedInUser.class);
+                    final LoggedInUser loggedInUser = LoggedInUserMapper.toLoggedInUser(task.getResult());
                     mUserState.setValue(loggedInUser);
                 } catch (NullPointerException e) {
                     onRemoteDataNotFound(e);
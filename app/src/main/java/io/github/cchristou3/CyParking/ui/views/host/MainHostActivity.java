@@ -25,9 +25,14 @@ import com.google.firebase.auth.FirebaseAuth;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
+import io.github.cchristou3.CyParking.BuildConfig;
 import io.github.cchristou3.CyParking.PaymentSessionHelper;
 import io.github.cchristou3.CyParking.R;
 import io.github.cchristou3.CyParking.apiClient.model.data.user.LoggedInUser;
+import io.github.cchristou3.CyParking.data.manager.ListenerTelemetry;
 import io.github.cchristou3.CyParking.data.interfaces.Navigable;
 import io.github.cchristou3.CyParking.databinding.ActivityMainHostBinding;
 import io.github.cchristou3.CyParking.ui.helper.AlertBuilder;
@@ -42,7 +47,7 @@ import static io.github.cchristou3.CyParking.utils.ViewUtility.showToast;
  * of all fragments which it is the host of.</p>
  *
  * @author Charalambos Christou
- * @version 10.0 27/03/21
+ * @version 12.0 18/10/21
  */
 public class MainHostActivity extends AppCompatActivity {
 
@@ -57,6 +62,7 @@ public class MainHostActivity extends AppCompatActivity {
     // Action bar constants
     private static final int SIGN_OUT = R.id.action_sign_out;
     private static final int SIGN_IN = R.id.action_sign_in;
+    private static final int TO_LISTENER_TELEMETRY = R.id.action_listener_telemetry;
     // Activity variables
     private Menu mActionBarMenu;
     private GlobalStateViewModel mGlobalStateViewModel;
@@ -211,7 +217,8 @@ public class MainHostActivity extends AppCompatActivity {
     }
 
     /**
-     * Inflates items on the activity's action bar
+     * Inflates items on the activity's action bar.
+     * The listener telemetry option is shown only in debug builds.
      *
      * @param menu A Menu object
      */
@@ -219,6 +226,7 @@ public class MainHostActivity extends AppCompatActivity {
     public boolean onCreateOptionsMenu(Menu menu) {
         // Inflate the menu; this adds items to the action bar if it is present.
         getMenuInflater().inflate(R.menu.main, menu);
+        menu.findItem(TO_LISTENER_TELEMETRY).setVisible(BuildConfig.DEBUG);
         this.mActionBarMenu = menu; // Save a reference to the menu object
         return true;
     }
@@ -260,6 +268,10 @@ public class MainHostActivity extends AppCompatActivity {
                 // TODO: Navigate to settings (implement settings)
                 Toast.makeText(this, "Settings!", Toast.LENGTH_SHORT).show();
                 break;
+            case TO_LISTENER_TELEMETRY:
+                if (!BuildConfig.DEBUG) break;
+                Navigation.findNavController(getNavigationView()).navigate(R.id.nav_listener_telemetry);
+                break;
             case SIGN_OUT:
                 mGlobalStateViewModel.signOut();
                 PaymentSessionHelper.endCustomerSession();
@@ -281,6 +293,21 @@ public class MainHostActivity extends AppCompatActivity {
     }
 
 
+    /**
+     * Appends the metrics of the snapshot listeners to the activity's dump, in debug builds only.
+     * Printed via {@code adb shell dumpsys activity io.github.cchristou3.CyParking}.
+     *
+     * @see ListenerTelemetry#getReport()
+     */
+    @Override
+    public void dump(@NonNull String prefix, @Nullable FileDescriptor fd,
+                     @NonNull PrintWriter writer, @Nullable String[] args) {
+        super.dump(prefix, fd, writer, args);
+        if (!BuildConfig.DEBUG) return;
+        writer.print(prefix);
+        writer.println(ListenerTelemetry.getInstance().getReport().trim().replace("\n", "\n" + prefix));
+    }
+
     /**
      * Binds the {@link NavController} instance with the
      * {@link ActivityMainHostBinding#activityMainHostNvNavView} NavigationView.
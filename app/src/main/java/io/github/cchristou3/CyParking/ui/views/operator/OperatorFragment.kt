@@ -15,8 +15,10 @@ import com.google.zxing.integration.android.IntentIntegrator
 import io.github.cchristou3.CyParking.R
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot
 import io.github.cchristou3.CyParking.apiClient.model.data.user.LoggedInUser
+import io.github.cchristou3.CyParking.apiClient.model.mapper.ParkingLotMapper
 import io.github.cchristou3.CyParking.data.interfaces.Navigable
 import io.github.cchristou3.CyParking.data.manager.DatabaseObserver
+import io.github.cchristou3.CyParking.data.manager.EmissionPolicy
 import io.github.cchristou3.CyParking.databinding.FragmentOperatorBinding
 import io.github.cchristou3.CyParking.ui.components.BaseFragment
 import io.github.cchristou3.CyParking.ui.components.NavigatorFragment
@@ -103,6 +105,8 @@ class OperatorFragment : NavigatorFragment<FragmentOperatorBinding>() {
                 binding!!.fragmentOperatorBtnIncrement,
                 binding!!.fragmentOperatorBtnDecrement
         )
+        mDatabaseObserver?.unregisterLifecycleObserver()
+        mDatabaseObserver = null
         super.onDestroyView()
     }
 
@@ -163,24 +167,28 @@ class OperatorFragment : NavigatorFragment<FragmentOperatorBinding>() {
      * Fetch the user's parking lot and observe for any of its updates.
      * On initial and consecutive data loads the Ui related to the
      * operator's lot is updated accordingly.
+     * The lot's listener is bound to the view's lifecycle, replaces the previous one
+     * and is shared with the other observers of the same lot.
+     * The snapshots of a burst, e.g. of consecutive increments, are conflated into the latest one.
      *
      * @param operatorId The id of the operator.
      */
     private fun getParkingLotInfo(operatorId: String) {
-        mOperatorViewModel.observeParkingLot(operatorId).addSnapshotListener(requireActivity()) { value: QuerySnapshot?, error: FirebaseFirestoreException? ->
-            if (binding == null) return@addSnapshotListener
+        mDatabaseObserver?.unregisterLifecycleObserver()
+        mDatabaseObserver = DatabaseObserver.createSharedQueryObserver(mOperatorViewModel.observeParkingLot(operatorId)) { value: QuerySnapshot?, error: FirebaseFirestoreException? ->
+            if (binding == null) return@createSharedQueryObserver
             if (error != null || value == null || value.isEmpty) { // The operator did not register lot yet
                 displayLotRegistrationLayout()
-                return@addSnapshotListener
+                return@createSharedQueryObserver
             }
 
             // Remove listeners from the register lot button button
             binding!!.fragmentOperatorMbtnRegisterParkingLot.checkAndRemoveOnClickListener()
 
             // If the operator has registered a lot already, display its info
-            val userParkingLot = value.documents[0].toObject(ParkingLot::class.java)
-                    ?: return@addSnapshotListener
-            if (user != null && userParkingLot.operatorId != user!!.userId) return@addSnapshotListener
+            val userParkingLot = ParkingLotMapper.toParkingLot(value.documents[0])
+                    ?: return@createSharedQueryObserver
+            if (user != null && userParkingLot.operatorId != user!!.userId) return@createSharedQueryObserver
 
             // Get a reference to the document
             val ref = value.documents[0].reference
@@ -192,6 +200,9 @@ class OperatorFragment : NavigatorFragment<FragmentOperatorBinding>() {
             // Trigger parking lot update.
             mOperatorViewModel.updateLotState(userParkingLot)
         }
+        mDatabaseObserver!!.setEmissionPolicy(EmissionPolicy.conflateLatest())
+                .setTelemetryName("operator.lot")
+                .registerLifecycleObserver(viewLifecycleOwner.lifecycle)
     }
 
     /**
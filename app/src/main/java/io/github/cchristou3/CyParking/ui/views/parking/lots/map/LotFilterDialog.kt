@@ -0,0 +1,75 @@
+package io.github.cchristou3.CyParking.ui.views.parking.lots.map
+
+import android.content.Context
+import android.view.LayoutInflater
+import android.widget.EditText
+import androidx.appcompat.app.AlertDialog
+import io.github.cchristou3.CyParking.R
+import io.github.cchristou3.CyParking.apiClient.local.LotFilter
+import io.github.cchristou3.CyParking.databinding.DialogLotFilterBinding
+
+/**
+ * Purpose: let the user edit the [LotFilter] of the lots shown on the map:
+ * the free spaces a lot must have at least, the price per hour its best offer must not exceed
+ * and the hours one of its offers must last at least. An empty field accepts every lot.
+ *
+ * @author Charalambos Christou
+ * @since 1.0 18/10/21
+ * @see ParkingMapViewModel.updateLotFilter
+ */
+class LotFilterDialog(context: Context, filter: LotFilter, onApply: (LotFilter) -> Unit) {
+
+    private val mDialogBuilder: AlertDialog.Builder = AlertDialog.Builder(context)
+
+    private var mDialog: AlertDialog? = null
+
+    /**
+     * Fill in the fields with the given filter's criteria and
+     * hook up the dialog's buttons.
+     */
+    init {
+        val binding = DialogLotFilterBinding.inflate(LayoutInflater.from(context), null, false)
+        if (filter.hasAvailabilityCriterion()) {
+            binding.dialogLotFilterEtMinSpaces.setText(filter.minAvailableSpaces.toString())
+        }
+        if (filter.hasPriceCriterion()) {
+            binding.dialogLotFilterEtMaxPrice.setText(filter.maxPricePerHour.toString())
+        }
+        if (filter.hasDurationCriterion()) {
+            binding.dialogLotFilterEtMinDuration.setText(filter.minDuration.toString())
+        }
+        mDialogBuilder.setTitle(R.string.filter_lots)
+                .setView(binding.root)
+                .setPositiveButton(R.string.filter_apply) { _, _ ->
+                    onApply(LotFilter(
+                            binding.dialogLotFilterEtMinSpaces.numberOrNull()?.toInt() ?: 0,
+                            binding.dialogLotFilterEtMaxPrice.numberOrNull() ?: Float.POSITIVE_INFINITY,
+                            binding.dialogLotFilterEtMinDuration.numberOrNull() ?: 0f
+                    ))
+                }
+                .setNeutralButton(R.string.filter_clear) { _, _ -> onApply(LotFilter.NONE) }
+                .setNegativeButton(R.string.dismiss, null)
+    }
+
+    /**
+     * Displays the builder's dialog that was
+     * previously initialized in [init].
+     */
+    fun show() {
+        mDialog = mDialogBuilder.show()
+    }
+
+    /**
+     * Hides the dialog, if shown.
+     */
+    fun dismiss() {
+        mDialog?.dismiss()
+        mDialog = null
+    }
+
+    /**
+     * The field's number. Null, if it is empty or not a non-negative number.
+     */
+    private fun EditText.numberOrNull(): Float? =
+            text?.toString()?.trim()?.toFloatOrNull()?.takeIf { it >= 0f && !it.isNaN() }
+}
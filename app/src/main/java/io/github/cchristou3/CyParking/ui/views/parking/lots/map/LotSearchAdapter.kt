@@ -0,0 +1,58 @@
+package io.github.cchristou3.CyParking.ui.views.parking.lots.map
+
+import android.content.Context
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import android.widget.ArrayAdapter
+import android.widget.Filter
+import android.widget.TextView
+import io.github.cchristou3.CyParking.R
+import io.github.cchristou3.CyParking.apiClient.local.LotNameIndex
+
+/**
+ * Purpose: show the results of a lot search in the drop-down of
+ * the [ParkingMapFragment]'s search bar, along with their distance.
+ *
+ * As the user types, its filter runs the given search on the filter's background thread,
+ * e.g. a [LotNameIndex] search, and the ranked results replace the shown ones.
+ * The drop-down is shown as long as there are results.
+ *
+ * @param search Returns the matches of the given query, the best first. Invoked on a background thread.
+ *
+ * @author Charalambos Christou
+ * @version 2.0 18/10/21
+ */
+class LotSearchAdapter(context: Context, private val search: (String?) -> List<LotNameIndex.Match>) :
+        ArrayAdapter<LotNameIndex.Match>(context, android.R.layout.simple_list_item_2, android.R.id.text1) {
+
+    private val mSearchFilter = object : Filter() {
+        override fun performFiltering(constraint: CharSequence?): FilterResults {
+            val matches = search(constraint?.toString())
+            return FilterResults().apply {
+                values = matches
+                count = matches.size
+            }
+        }
+
+        @Suppress("UNCHECKED_CAST")
+        override fun publishResults(constraint: CharSequence?, results: FilterResults?) {
+            setNotifyOnChange(false)
+            clear()
+            (results?.values as? List<LotNameIndex.Match>)?.let { addAll(it) }
+            if (count > 0) notifyDataSetChanged() else notifyDataSetInvalidated()
+        }
+    }
+
+    override fun getView(position: Int, convertView: View?, parent: ViewGroup): View {
+        val view = convertView
+                ?: LayoutInflater.from(context).inflate(android.R.layout.simple_list_item_2, parent, false)
+        val match = getItem(position)!!
+        view.findViewById<TextView>(android.R.id.text1).text = match.name
+        view.findViewById<TextView>(android.R.id.text2).text = if (match.distanceInMeters.isNaN()) ""
+        else context.getString(R.string.search_result_distance, match.distanceInMeters / 1000)
+        return view
+    }
+
+    override fun getFilter(): Filter = mSearchFilter
+}
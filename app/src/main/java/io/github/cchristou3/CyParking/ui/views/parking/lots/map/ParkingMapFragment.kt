@@ -5,32 +5,47 @@ import android.content.Intent
 import android.location.Location
 import android.net.Uri
 import android.os.Bundle
+import android.os.SystemClock
+import android.text.format.DateUtils
 import android.util.Log
 import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
 import androidx.core.content.res.ResourcesCompat
-import androidx.core.util.Consumer
 import androidx.lifecycle.ViewModelProvider
 import androidx.viewbinding.ViewBinding
 import com.google.android.gms.maps.CameraUpdateFactory
 import com.google.android.gms.maps.GoogleMap
+import com.google.android.gms.maps.GoogleMap.OnCameraIdleListener
+import com.google.android.gms.maps.GoogleMap.OnCameraMoveStartedListener
 import com.google.android.gms.maps.GoogleMap.OnMapClickListener
 import com.google.android.gms.maps.GoogleMap.OnMarkerClickListener
 import com.google.android.gms.maps.OnMapReadyCallback
 import com.google.android.gms.maps.SupportMapFragment
 import com.google.android.gms.maps.model.LatLng
 import com.google.android.gms.maps.model.Marker
+import com.google.android.gms.maps.model.TileOverlay
+import com.google.android.gms.maps.model.TileOverlayOptions
 import com.google.firebase.firestore.DocumentChange
-import com.google.firebase.firestore.FirebaseFirestoreException
 import com.google.firebase.firestore.Query
+import com.google.firebase.firestore.FirebaseFirestoreException
 import com.google.firebase.firestore.QuerySnapshot
 import io.github.cchristou3.CyParking.R
+import io.github.cchristou3.CyParking.apiClient.local.CompactLotStore
+import io.github.cchristou3.CyParking.apiClient.local.HeatmapRasterizer
+import io.github.cchristou3.CyParking.apiClient.local.LotFilter
+import io.github.cchristou3.CyParking.apiClient.local.LotPricingEngine
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot
 import io.github.cchristou3.CyParking.apiClient.utils.getDistanceApart
 import io.github.cchristou3.CyParking.data.interfaces.Navigable
+import io.github.cchristou3.CyParking.data.manager.AvailabilityTileProvider
 import io.github.cchristou3.CyParking.data.manager.DatabaseObserver
+import io.github.cchristou3.CyParking.data.manager.LotChange
+import io.github.cchristou3.CyParking.data.manager.LotChangeApplier
+import io.github.cchristou3.CyParking.data.manager.MarkerIconProvider
 import io.github.cchristou3.CyParking.data.manager.MarkerManager
+import io.github.cchristou3.CyParking.data.manager.ShardedQueryObserver
+import io.github.cchristou3.CyParking.data.manager.StreetParkingLayer
 import io.github.cchristou3.CyParking.databinding.FragmentParkingMapBinding
 import io.github.cchristou3.CyParking.ui.components.BaseFragment
 import io.github.cchristou3.CyParking.ui.components.LocationFragment
@@ -38,6 +53,8 @@ import io.github.cchristou3.CyParking.ui.helper.AlertBuilder
 import io.github.cchristou3.CyParking.utilities.animateAvailabilityColorChanges
 import io.github.cchristou3.CyParking.utilities.applyDrawableColor
 import io.github.cchristou3.CyParking.utilities.slideBottom
+import io.github.cchristou3.CyParking.utils.Utility
+import io.github.cchristou3.CyParking.utils.hideKeyboard
 import mumayank.com.airlocationlibrary.AirLocation
 import java.lang.ref.WeakReference
 
@@ -64,23 +81,51 @@ import java.lang.ref.WeakReference
  *
  *
  * @author Charalambos Christou
- * @version 17.0 27/03/21
+ * @version 33.0 18/10/21
  *
  *
  * New changes:
  *
- * **On server**: via a cloud function retrieve the document ids of all
- * the Parking Lots that are nearby the user and send it to the client.
- * **On Client**: query the parking lots with the specified document ids
- * (retrieved from the server side) and listen for changes.
+ * **Street parking**: the public parking segments around the user are drawn by a [StreetParkingLayer].
+ * Each segment's document holds the occupancy of all its spaces as a bitset. Only the spaces
+ * that changed are applied, via the ViewModel's [io.github.cchristou3.CyParking.apiClient.local.StreetOccupancyStore].
+ *
+ * **Heatmap**: when zoomed out, an overlay colours the areas of the map by the free capacity
+ * of the lots drawn on it. Its tiles are drawn off the main thread by an [AvailabilityTileProvider],
+ * which redraws only the tiles of the lots that changed.
+ *
+ * **Search**: the lots drawn on the map can be searched by name from a search bar.
+ * The results are ranked by a [io.github.cchristou3.CyParking.apiClient.local.LotNameIndex]
+ * on each keystroke, without any network access.
+ *
+ * **Cheapest stay**: the lots drawn on the map can be ranked by the cheapest combination
+ * of their offers for a stay, via a [LotPricingEngine]. The cheapest one gets selected.
+ *
+ * **Filter**: the lots drawn on the map can be filtered by their free spaces, the price per hour
+ * of their best offer and the duration of their offers, via a [LotFilterDialog].
+ * The lots that do not pass the filter get hidden.
+ *
+ * **Location updates**: the user's location is requested at an interval that depends
+ * on how fast they are moving, via the [LocationFragment.locationScheduler].
+ * GPS jitter is filtered out before checking whether to re-fetch the nearby lots,
+ * and the camera does not follow the user while they are panning the map.
  *
- * The client is fetching the ids only when entering the fragment. Navigating
- * back to this fragment will not result into re-fetching the ids. The ids, are
- * persisted via the ViewModel.
+ * **Nearby lookup**: a single call of the summaries cloud function returns a summary of each
+ * nearby Parking Lot, sorted by distance, which is drawn straight away. The summaries are cached
+ * per location tile. Only if the call fails, the lots are queried directly via geohash queries.
+ * **On Client**: listen for changes on the nearby lots, by their document ids.
+ *
+ * **Offline first**: the last-known lots around the user are read from a local store
+ * and drawn straight away. Once the live ones arrive, the stored ones are reconciled with them.
+ * Until then, the info layout shows when the selected lot was last updated.
+ *
+ * The client is fetching the nearby lots only when entering the fragment, or after the user
+ * moved far enough. Navigating back to this fragment will not result into re-fetching them.
+ * The lots and their ids are persisted via the ViewModel.
  *
  * Also added a couple more state LiveData to its ViewModel,
  * to enable a smooth workflow between
- * fetching lot's document ids <-> listening for updates on the specified lots
+ * fetching the nearby lots <-> listening for updates on them, by their ids
  * <-> update the Ui.
  *
  *
@@ -90,7 +135,7 @@ import java.lang.ref.WeakReference
  *  * No nearby lots where found. What to do?
  *  * No connection initially. What to do?
  *  * No connection initially, then it got restored. What to do?
- *  * Loaded doc Ids, then connection got lost, then its got restored. What to do?
+ *  * Loaded the lots, then connection got lost, then its got restored. What to do?
  *
  *
  *
@@ -101,19 +146,28 @@ import java.lang.ref.WeakReference
  *
  *
  */
-class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapReadyCallback, OnMapClickListener, OnMarkerClickListener{
+class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapReadyCallback, OnMapClickListener, OnMarkerClickListener,
+        OnCameraIdleListener, OnCameraMoveStartedListener {
     private var UNAVAILABLE: String? = null
 
     // Fragment's variables
     private var mParkingMapViewModel: ParkingMapViewModel? = null
     private var mMarkerManager: MarkerManager? = null
-    private var mDatabaseObserver: DatabaseObserver<Query, QuerySnapshot>? = null
+    private var mShardedObserver: ShardedQueryObserver? = null
+    private var mChangeApplier: LotChangeApplier? = null
+    private var mHeatmapProvider: AvailabilityTileProvider? = null
+    private var mHeatmapOverlay: TileOverlay? = null
+    private var mFilterDialog: LotFilterDialog? = null
+    private val mStreetLayer = StreetParkingLayer()
+    private val mPublicParkingObservers = mutableListOf<DatabaseObserver<Query, QuerySnapshot>>()
 
     // Location related variables
     private var mGoogleMap: GoogleMap? = null
     private var mUserCurrentLatLng: LatLng? = null
     private var mInitialUserLatLng: LatLng? = null
-    private var mLocationUpdatesCounter = 0
+    // The map's center, as of the last time the camera got idle. Read by the search's filter thread
+    @Volatile
+    private var mSearchOrigin: LatLng? = null
 
     /**
      * Initialises the fragment and its [MarkerManager] instance.
@@ -131,7 +185,8 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
         // Initialize MarkerManager and provide it with the icon to be used to display the user's location on the map.
         mMarkerManager = MarkerManager(
                 applyDrawableColor(ResourcesCompat.getDrawable(resources, R.drawable.ic_user_location, requireActivity().theme)!!,
-                        resources.getColor(R.color.black, requireActivity().theme))
+                        resources.getColor(R.color.black, requireActivity().theme)),
+                MarkerIconProvider(resources)
         )
         UNAVAILABLE = getString(R.string.unavailable)
         initializeViewModel()
@@ -164,9 +219,12 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
         initializeGoogleMaps() // Map
         attachStateObservers() // LiveData state objects
         attachButtonListeners() // Ui listeners
+        attachSearchListeners() // Search bar
         // Check if the anything was fetched already
         if (!mParkingMapViewModel!!.didPreviouslyRetrieveDocumentIds()) {
-            fetchParkingLots(mUserCurrentLatLng!!) // HTTPS call
+            // Draw the last-known lots until the live ones arrive
+            mParkingMapViewModel!!.loadStoredLots(mUserCurrentLatLng!!.latitude, mUserCurrentLatLng!!.longitude)
+            fetchParkingLots(mUserCurrentLatLng!!) // Summaries, or geohash queries if they fail
         }
     }
 
@@ -187,17 +245,43 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
      * @see BaseFragment.onDestroyView
      */
     override fun onDestroyView() {
-        mParkingMapViewModel!!.updateDocumentState(null) // Resetting its value, in case configuration changes occur.
+        // Drop the changes that were not applied yet, both queued and not yet observed
+        mChangeApplier!!.release()
+        mParkingMapViewModel!!.onDocumentChangesConsumed()
+        mChangeApplier = null
         // Remove listeners for the map
         mGoogleMap!!.setOnMarkerClickListener(null)
         mGoogleMap!!.setOnMapClickListener(null)
+        mGoogleMap!!.setOnCameraIdleListener(null)
+        mGoogleMap!!.setOnCameraMoveStartedListener(null)
+        // Stop drawing the heatmap
+        mParkingMapViewModel!!.lotIndex.setOnChangeListener(null)
+        mHeatmapProvider?.release()
+        mHeatmapProvider = null
+        mHeatmapOverlay?.remove()
+        mHeatmapOverlay = null
+        mStreetLayer.clear()
+        binding!!.fragmentParkingMapActvSearch.onItemClickListener = null
+        mFilterDialog?.dismiss()
+        mFilterDialog = null
         removeOnClickListeners(
                 binding!!.fragmentParkingMapImgbtnDirections,
-                binding!!.fragmentParkingMapBtnBooking
+                binding!!.fragmentParkingMapBtnBooking,
+                binding!!.fragmentParkingMapBtnCheapest,
+                binding!!.fragmentParkingMapBtnFilter
         )
         super.onDestroyView()
     }
 
+    /**
+     * Called when the fragment is no longer in use.
+     * Stops the clustering of the [MarkerManager].
+     */
+    override fun onDestroy() {
+        mMarkerManager!!.release()
+        super.onDestroy()
+    }
+
     /**
      * Gets triggered whenever the user taps on the map.
      * If the user did not tap any of the markers (including
@@ -226,11 +310,22 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
      */
     override fun onMarkerClick(marker: Marker): Boolean {
         // If the marker of the user is clicked, ignore it
-        if (marker.tag != null) {
+        if (mMarkerManager!!.isUserMarker(marker)) {
             mParkingMapViewModel!!.hideInfoLayout()
             return false
         }
-        mParkingMapViewModel!!.updateSelectedLotState(
+        // If a cluster of lots is clicked, zoom into it
+        val cluster = mMarkerManager!!.getClusterOf(marker)
+        if (cluster != null && cluster.size > 1) {
+            mParkingMapViewModel!!.hideInfoLayout()
+            mGoogleMap!!.animateCamera(CameraUpdateFactory.newLatLngZoom(
+                    LatLng(cluster.latitude, cluster.longitude),
+                    mGoogleMap!!.cameraPosition.zoom + CLUSTER_ZOOM_STEP
+            ))
+            return true
+        }
+        mParkingMapViewModel!!.selectLot(
+                cluster?.singleId,
                 mMarkerManager!!.getParkingLotOf(marker)
         )
         return false
@@ -248,34 +343,84 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
         startPostponedEnterTransition()
         mGoogleMap = googleMap // Save a reference of the GoogleMap instance
         mGoogleMap!!.setMinZoomPreference(MIN_ZOOM_LEVEL)
-        // Start listening to the user's location updates
-        startLocationUpdates()
+        mMarkerManager!!.setGoogleMap(googleMap)
+        // Start requesting the user's location
+        startScheduledLocationUpdates()
 
         // Add listeners to the markers + map
         mGoogleMap!!.setOnMarkerClickListener(this)
         mGoogleMap!!.setOnMapClickListener(this)
+        mGoogleMap!!.setOnCameraIdleListener(this)
+        mGoogleMap!!.setOnCameraMoveStartedListener(this)
+        addHeatmapOverlay(googleMap)
+        mStreetLayer.drawAll(googleMap, mParkingMapViewModel!!.streetStore)
+        // Draw the lots that arrived before the map was ready
+        mParkingMapViewModel!!.nearbyLotsState.value?.let { drawLots(it) }
     }
 
     /**
-     * Every four intervals check the distance between the user's initial position
-     * and the new one. If the distance is over the threshold [.UPDATE_LOCATION_THRESHOLD]
-     * then re-fetch all the document Ids of the parking lots that are nearby the user
+     * Adds the availability heatmap of the loaded lots to the given map.
+     * It stays hidden until the map gets zoomed out below [HEATMAP_MAX_ZOOM_LEVEL].
      *
-     * @param updatedPosition The new position of the user.
+     * @param googleMap The map to add the heatmap to.
+     */
+    private fun addHeatmapOverlay(googleMap: GoogleMap) {
+        val lotIndex = mParkingMapViewModel!!.lotIndex
+        mHeatmapProvider = AvailabilityTileProvider(lotIndex, HeatmapRasterizer(HEATMAP_RADIUS_IN_PIXELS))
+        mHeatmapOverlay = googleMap.addTileOverlay(TileOverlayOptions()
+                .tileProvider(mHeatmapProvider!!)
+                .fadeIn(false)
+                .visible(googleMap.cameraPosition.zoom < HEATMAP_MAX_ZOOM_LEVEL))
+        mHeatmapProvider!!.setOverlay(mHeatmapOverlay)
+        lotIndex.setOnChangeListener(mHeatmapProvider)
+    }
+
+    /**
+     * Gets triggered whenever the map's camera stops moving.
+     * Lets the [MarkerManager] display the clusters of the new zoom level
+     * that are near the visible region, and shows the heatmap when zoomed out.
+     * The map's center becomes the origin of the lot search.
+     */
+    override fun onCameraIdle() {
+        mSearchOrigin = mGoogleMap!!.cameraPosition.target
+        mMarkerManager!!.onCameraIdle(
+                mGoogleMap!!.cameraPosition.zoom,
+                mGoogleMap!!.projection.visibleRegion.latLngBounds
+        )
+        mHeatmapOverlay?.isVisible = mGoogleMap!!.cameraPosition.zoom < HEATMAP_MAX_ZOOM_LEVEL
+    }
+
+    /**
+     * Gets triggered whenever the map's camera starts moving.
+     * If the user is panning the map, the camera stops following their location for a while.
+     *
+     * @param reason The reason the camera started moving.
+     */
+    override fun onCameraMoveStarted(reason: Int) {
+        if (reason == OnCameraMoveStartedListener.REASON_GESTURE) {
+            locationScheduler.onUserPanned(SystemClock.elapsedRealtime())
+        }
+    }
+
+    /**
+     * If the nearby lots were not re-fetched recently, check the distance between the user's
+     * initial position and the new one. If the distance is over the threshold [.UPDATE_LOCATION_THRESHOLD]
+     * then re-fetch the parking lots that are nearby the user
+     *
+     * @param updatedPosition The new, filtered, position of the user.
      */
     private fun checkIntervalForUpdates(updatedPosition: LatLng) {
-        mLocationUpdatesCounter++ // Increment the counter
-        if (mLocationUpdatesCounter % 4 == 0) { // Every 4 location updates (20 seconds)
-            if (shouldFetchParkingDocs(mInitialUserLatLng, updatedPosition)) {
-                // Fetch the ids of parking lots based on the user's new position.
-                mInitialUserLatLng = updatedPosition
-                fetchParkingLots(mInitialUserLatLng!!)
-            }
+        val now = SystemClock.elapsedRealtime()
+        if (locationScheduler.canRefetch(now) && shouldFetchParkingDocs(mInitialUserLatLng, updatedPosition)) {
+            // Fetch the parking lots based on the user's new position.
+            mInitialUserLatLng = updatedPosition
+            locationScheduler.onRefetched(now)
+            fetchParkingLots(mInitialUserLatLng!!)
         }
     }
 
     /**
-     * Checks whether it is time to re-fetch the document Ids of the
+     * Checks whether it is time to re-fetch the
      * nearby parking lots. This takes into consideration the user's
      * initial position and the newly received one.
      * Every time the user moves 100m away from his original position
@@ -387,103 +532,74 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
         }
 
     /**
-     * Iterates through the document changes (updated parking lot instances)
-     * list and updates its corresponding local document (parking lot instance)
+     * Updates the local document (parking lot instance) of the given change
      * based on its type (e.g. [DocumentChange.Type.MODIFIED]).
+     * Invoked by the [LotChangeApplier], within the time budget of a frame.
      *
-     * @param documentChanges The latest parking lot instances from the database.
+     * @param change The latest, already deserialized, change of a parking lot.
      */
-    private fun updateLocalDocuments(documentChanges: List<DocumentChange>?) {
-        if (documentChanges == null || documentChanges.isEmpty()) return
-
-        // Traverse through all the document changes
-        for (dc in documentChanges) {
-            when (dc.type) {
-                DocumentChange.Type.ADDED -> addLot(dc)
-                DocumentChange.Type.REMOVED -> removeLot(dc)
-                DocumentChange.Type.MODIFIED -> updateLot(dc)
-            }
+    private fun updateLocalDocument(change: LotChange) {
+        when (change.type) {
+            DocumentChange.Type.ADDED -> addLot(change)
+            DocumentChange.Type.REMOVED -> removeLot(change)
+            DocumentChange.Type.MODIFIED -> updateLot(change)
         }
     }
 
     /**
      * Adds a [Marker] to the map based on the coordinates of the
      * [ParkingLot] object. It also, associates the Marker with the
-     * ParkingLot object via a [java.util.HashMap] to enable fast look up.
+     * ParkingLot object and its document id to enable fast look up.
      *
-     * @param dc The newly received DocumentChange, containing info about how
+     * @param change The newly received change, containing info about how
      * a parking lot object in the database got changed.
      */
-    private fun addLot(dc: DocumentChange) {
+    private fun addLot(change: LotChange) {
         // Add a marker to the parking's coordinates
-        // Add to HashMap to keep track of each marker's corresponding ParkingLot object
-        Log.d(TAG, "updateLocalDocuments: ADDED")
-        mMarkerManager!!.addMarkerWithContents(mGoogleMap!!, ParkingLot.toParkingLot(dc))
+        // Index it to keep track of each marker's corresponding ParkingLot object
+        Log.d(TAG, "updateLocalDocument: ADDED")
+        mMarkerManager!!.addMarkerWithContents(mGoogleMap!!, change.docId, change.lot!!)
+        // Replace the summary of the selected lot with its whole document
+        mParkingMapViewModel!!.onLotDocumentApplied(change.docId, change.lot!!)
     }
 
     /**
-     * Update the Marker's ParkingLot object with the new one (can be looked up via its parkingId).
+     * Update the Marker's ParkingLot object with the new one (looked up via its document id).
      *
-     * @param dc The newly received DocumentChange, containing info about how
+     * @param change The newly received change, containing info about how
      * a parking lot object in the database got changed.
      */
-    private fun updateLot(dc: DocumentChange) {
-        val receivedParkingLot = ParkingLot.toParkingLot(dc)
-        updateMarkerContents(receivedParkingLot) { markerOfParking: Marker? ->
-            // Keep track of the old value of the object's AvailableSpaces
-            val oldAvailableSpaces = mMarkerManager
-                    ?.getParkingLotOf(markerOfParking)?.availableSpaces
-            // Replace the old lot with the new lot.
-            mMarkerManager!!.replaceMarkerContents(receivedParkingLot, markerOfParking!!)
-            // Update the info layout's contents if it's showing
-            if (mParkingMapViewModel!!.isInfoLayoutShown) {
-                mParkingMapViewModel!!.updateSelectedLotState(receivedParkingLot)
-                val updatedAvailableSpaces = receivedParkingLot.availableSpaces
-                animateAvailabilityColorChanges(
-                        binding!!.fragmentParkingMapCvInfoLayout,  // Parent card view
-                        binding!!.fragmentParkingMapTxtAvailability,  // child
-                        updatedAvailableSpaces,
-                        oldAvailableSpaces!!
-                )
-            }
+    private fun updateLot(change: LotChange) {
+        val receivedParkingLot = change.lot!!
+        // Keep track of the old value of the object's AvailableSpaces
+        val oldAvailableSpaces = mMarkerManager!!.getAvailableSpaces(change.docId) ?: return
+        // Replace the old lot with the new lot.
+        mMarkerManager!!.replaceMarkerContents(change.docId, receivedParkingLot)
+        // Update the info layout's contents if it's showing this lot
+        if (mParkingMapViewModel!!.isInfoLayoutShown && mParkingMapViewModel!!.isSelected(change.docId)) {
+            mParkingMapViewModel!!.updateSelectedLotState(receivedParkingLot)
+            val updatedAvailableSpaces = receivedParkingLot.availableSpaces
+            animateAvailabilityColorChanges(
+                    binding!!.fragmentParkingMapCvInfoLayout,  // Parent card view
+                    binding!!.fragmentParkingMapTxtAvailability,  // child
+                    updatedAvailableSpaces,
+                    oldAvailableSpaces
+            )
         }
     }
 
     /**
      * Remove the marker that is associated with the given parking lot object.
      *
-     * @param dc The newly received DocumentChange, containing info about how
+     * @param change The newly received change, containing info about how
      * a parking lot object in the database got changed.
      */
-    private fun removeLot(dc: DocumentChange) {
-        val receivedParkingLot = ParkingLot.toParkingLot(dc)
-        updateMarkerContents(receivedParkingLot) { markerOfParking: Marker? ->
-            mMarkerManager!!.removeMarker(markerOfParking)
-            // If its info was showing, hide it and inform the user
-            val wasVisibleBefore = mParkingMapViewModel!!.hideInfoLayoutWithStateCheck()
-            if (wasVisibleBefore) {
-                globalStateViewModel.updateToastMessage(R.string.parking_got_removed)
-            }
-        }
-    }
-
-    /**
-     * Traverse all markers currently on the map till you find the one that is linked
-     * to the given [ParkingLot] object. Then execute the given method.
-     *
-     * @param receivedParkingLot The Lot to be updated.
-     * @param updatable          The interface to update the lot once found.
-     */
-    private fun updateMarkerContents(receivedParkingLot: ParkingLot, updatable: Consumer<Marker>) {
-        // Traverse the markers
-        for (markerOfParking in mMarkerManager!!.keySets) { // the key is of type Marker
-            // Check whether the marker is associated with a ParkingLot object (marker -> null)
-            //  and check whether the marker's Parking lot is not the same with the received one
-            if (!mMarkerManager!!.exists(markerOfParking)
-                    || mMarkerManager!!.getParkingLotOf(markerOfParking) != receivedParkingLot) continue
-
-            // then update the private parking's content according to its DocumentChange.Type
-            updatable.accept(markerOfParking)
+    private fun removeLot(change: LotChange) {
+        if (!mMarkerManager!!.removeMarker(change.docId)) return
+        // If its info was showing, hide it and inform the user
+        val wasVisibleBefore = mParkingMapViewModel!!.hideInfoLayoutWithStateCheck()
+        if (wasVisibleBefore) {
+            globalStateViewModel.updateToastMessage(R.string.parking_got_removed)
         }
     }
 
@@ -499,12 +615,13 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
     }
 
     /**
-     * Creates and sends an HTTPS request to our Backend.
-     * Requests all the parking locations and for each, a Marker is placed
-     * on the map.
-     * When such a request occurs, a cloud function is executed, which filters
-     * the parking locations. Only the ones which are nearby the user are sent back
-     * too the client.
+     * Requests the parking lots that are nearby the given position
+     * and for each, a Marker is placed on the map.
+     * Their summaries are retrieved via a single call of the summaries cloud function,
+     * served from the tile cache when possible. Only if that call fails, the lots of the
+     * geohash cells around the user are read from the database instead, and those that are
+     * further than the nearby radius are filtered out on the client.
+     * Also, the public parking segments around the position are observed.
      *
      * @param latLng The latest recorded latitude and longitude of the user.
      * @see .onDestroyView
@@ -514,11 +631,33 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
         Log.d(TAG, "fetchParkingLots: Loading Bar ON")
         mParkingMapViewModel!!.fetchParkingLots(latLng.latitude, latLng.longitude
         ) { globalStateViewModel.hideLoadingBar() } // when complete do this
+        observePublicParking(latLng)
+    }
 
+    /**
+     * Listens to the public parking segments around the given position,
+     * a query per geohash cell, in place of the ones of the previous position.
+     * Their changes are applied to the ViewModel's street store as bit diffs.
+     * The segments outside the new cells are removed from the store and the map.
+     *
+     * @param latLng The latest recorded latitude and longitude of the user.
+     */
+    private fun observePublicParking(latLng: LatLng) {
+        mPublicParkingObservers.forEach { it.unregisterLifecycleObserver() }
+        mPublicParkingObservers.clear()
+        mParkingMapViewModel!!.retainNearbyPublicParking(latLng.latitude, latLng.longitude)
+        for (query in mParkingMapViewModel!!.getNearbyPublicParking(latLng.latitude, latLng.longitude)) {
+            val observer = DatabaseObserver.createQueryObserver(query) { value: QuerySnapshot?, _: FirebaseFirestoreException? ->
+                if (value != null) mParkingMapViewModel!!.offerPublicParkingChanges(value.documentChanges)
+            }
+            observer.setTelemetryName(PUBLIC_PARKING_TELEMETRY)
+                    .registerLifecycleObserver(lifecycle)
+            mPublicParkingObservers.add(observer)
+        }
     }
 
     /**
-     * Hooks up "directions" and "book" buttons with appropriate on click listeners.
+     * Hooks up "directions", "book", "cheapest" and "filter" buttons with appropriate on click listeners.
      */
     private fun attachButtonListeners() {
         // Hook up the "directions" button with an on click listener
@@ -526,6 +665,87 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
 
         // Hook up the "book" button with an onClick listener
         binding!!.fragmentParkingMapBtnBooking.setOnClickListener { navigateToBookingScreen() }
+
+        // Hook up the "cheapest" button with an onClick listener
+        binding!!.fragmentParkingMapBtnCheapest.text = getString(R.string.cheapest_for_hours, CHEAPEST_STAY_HOURS)
+        binding!!.fragmentParkingMapBtnCheapest.setOnClickListener {
+            mParkingMapViewModel!!.findCheapestLots(CHEAPEST_STAY_HOURS.toFloat())
+        }
+
+        // Hook up the "filter" button with an onClick listener
+        binding!!.fragmentParkingMapBtnFilter.setOnClickListener {
+            mFilterDialog?.dismiss()
+            mFilterDialog = LotFilterDialog(requireContext(),
+                    mParkingMapViewModel!!.lotFilterState.value ?: LotFilter.NONE) { filter ->
+                mParkingMapViewModel!!.updateLotFilter(filter)
+            }.apply { show() }
+        }
+    }
+
+    /**
+     * Hooks up the search bar with the ViewModel's name index.
+     * Each keystroke searches the lots drawn on the map, via the adapter's filter, ranked by
+     * the distance from the map's center. Picking a result moves the camera to the lot and selects it.
+     */
+    private fun attachSearchListeners() {
+        val searchView = binding!!.fragmentParkingMapActvSearch
+        val viewModel = mParkingMapViewModel!!
+        val adapter = LotSearchAdapter(requireContext()) { query ->
+            // On the filter's thread, thus the camera's target of the last time it got idle
+            val origin = mSearchOrigin ?: mUserCurrentLatLng
+            viewModel.searchLots(query, origin?.latitude ?: Double.NaN, origin?.longitude ?: Double.NaN)
+        }
+        searchView.setAdapter(adapter)
+        searchView.setOnItemClickListener { _, _, position, _ ->
+            val match = adapter.getItem(position) ?: return@setOnItemClickListener
+            hideKeyboard(requireActivity(), searchView)
+            searchView.clearFocus()
+            focusOnLot(match.docId, LatLng(match.latitude, match.longitude))
+        }
+    }
+
+    /**
+     * Moves the camera to the lot of the given document id and selects it.
+     *
+     * @param docId    The document id of the lot.
+     * @param position The lot's position.
+     */
+    private fun focusOnLot(docId: String, position: LatLng) {
+        mGoogleMap?.animateCamera(CameraUpdateFactory.newLatLngZoom(
+                position,
+                mGoogleMap!!.cameraPosition.zoom.coerceAtLeast(DEFAULT_ZOOM_LEVEL.toFloat())
+        ))
+        mParkingMapViewModel!!.selectLot(docId, mMarkerManager!!.getParkingLot(docId))
+    }
+
+    /**
+     * Displays on the "filter" button how many of the given filter's criteria are set.
+     *
+     * @param filter The user's filter.
+     */
+    private fun showFilterCriteria(filter: LotFilter) {
+        val criteria = listOf(filter.hasAvailabilityCriterion(), filter.hasPriceCriterion(),
+                filter.hasDurationCriterion()).count { it }
+        binding!!.fragmentParkingMapBtnFilter.text = if (criteria == 0) getString(R.string.filter_lots)
+        else getString(R.string.filter_lots_active, criteria)
+    }
+
+    /**
+     * Selects the cheapest of the given lots and shows the price of its stay
+     * in place of its best offer.
+     *
+     * @param cheapest The quotes of the cheapest lots, the cheapest first.
+     */
+    private fun showCheapestLot(cheapest: List<LotPricingEngine.Quote>?) {
+        val quote = cheapest?.firstOrNull()
+        val lot = quote?.docId?.let { mMarkerManager!!.getParkingLot(it) }
+        if (quote == null || lot == null) {
+            globalStateViewModel.updateToastMessage(R.string.no_priced_lots)
+            return
+        }
+        focusOnLot(quote.docId!!, LatLng(lot.latitude, lot.longitude))
+        binding!!.fragmentParkingMapTxtOffer.text = getString(R.string.cheapest_stay,
+                CHEAPEST_STAY_HOURS, Utility.currency.symbol, quote.totalPrice)
     }
 
     /**
@@ -533,7 +753,7 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
      */
     private fun initializeViewModel() {
         // Initialize the mParkingMapViewModel
-        mParkingMapViewModel = ViewModelProvider(this, ParkingMapViewModelFactory())
+        mParkingMapViewModel = ViewModelProvider(this, ParkingMapViewModelFactory(requireContext()))
                 .get(ParkingMapViewModel::class.java)
         globalStateViewModel.updateToastMessage(R.string.loading_map)
     }
@@ -555,34 +775,53 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
             }
         })
 
+        // Attach observer to the lots retrieved by the nearby lookup
+        mParkingMapViewModel!!.nearbyLotsState.observe(viewLifecycleOwner, { lots: CompactLotStore? ->
+            if (mGoogleMap == null || lots == null) return@observe
+            // Draw them without waiting for the lots' listener to be attached
+            drawLots(lots)
+        })
+        // Attach observer to the user's filter. The lots that do not pass it get hidden
+        mParkingMapViewModel!!.lotFilterState.observe(viewLifecycleOwner, { filter: LotFilter? ->
+            mMarkerManager!!.setFilter(filter ?: LotFilter.NONE)
+            showFilterCriteria(filter ?: LotFilter.NONE)
+        })
+        // Attach observer to the stored lots that turned out to be no longer nearby
+        mParkingMapViewModel!!.evictedLotsState.observe(viewLifecycleOwner, { docIds: Set<String>? ->
+            docIds?.forEach { docId -> mMarkerManager!!.removeMarker(docId) }
+        })
+        // Attach observer to the last update time of the selected lot, if it is stale
+        mParkingMapViewModel!!.selectedLotLastUpdatedState.observe(viewLifecycleOwner, { lastUpdated: Long? ->
+            showLastUpdated(lastUpdated)
+        })
         // Attach observer to the latest retrieved document changes
-        mParkingMapViewModel!!.documentChangesState.observe(viewLifecycleOwner, { documentChanges: List<DocumentChange>? -> updateLocalDocuments(documentChanges) })
-        mParkingMapViewModel!!.documentIdsOfNearbyLots.observe(viewLifecycleOwner, { documentIds: Set<String?>? ->
+        // Deserialized once by the ViewModel, coalesced per lot and applied in frame-sized chunks
+        mChangeApplier = LotChangeApplier({ change -> updateLocalDocument(change) }, LOTS_APPLIED_TELEMETRY)
+        mParkingMapViewModel!!.documentChangesState.observe(viewLifecycleOwner, { lotChanges: List<LotChange>? ->
+            if (lotChanges == null) return@observe
+            mChangeApplier!!.submit(lotChanges) // Queues the changes
+            mParkingMapViewModel!!.onDocumentChangesConsumed()
+        })
+        mParkingMapViewModel!!.documentIdsOfNearbyLots.observe(viewLifecycleOwner, { documentIds: Set<String>? ->
             if (mGoogleMap != null) mGoogleMap!!.moveCamera(CameraUpdateFactory.zoomTo(DEFAULT_ZOOM_LEVEL.toFloat()))
-            Log.d(TAG, "IdsState observer: $mDatabaseObserver ids: $documentIds")
+            Log.d(TAG, "IdsState observer: $mShardedObserver ids: $documentIds")
             if (documentIds == null || documentIds.isEmpty()) {
                 // Display message
                 globalStateViewModel.updateToastMessage(R.string.no_nearby_parking_lots)
                 return@observe
             }
 
-            // Get all the parking lots where their doc ids are in the documentIds list set
-            // then attach an observer to them
-            if (mDatabaseObserver == null) {
-                // Create a database observer
-                DatabaseObserver
-                        .createQueryObserver( // Internally adds a snapshot listener
-                                mParkingMapViewModel!!.getParkingLots(documentIds)
-                        )  // Query reference
-                        { value: QuerySnapshot?, error: FirebaseFirestoreException? ->  // Event handler
-                            if (value != null) mParkingMapViewModel!!.updateDocumentState(value.documentChanges)
-                        }.also { mDatabaseObserver = it }.registerLifecycleObserver(lifecycle)
-            } else {
-                // Update the query from the database
-                mDatabaseObserver!!.updateDatabaseReference(
-                        mParkingMapViewModel!!.getParkingLots(documentIds)
-                )
+            // Attach an observer to the parking lots whose doc ids are in the documentIds set. Only the shards whose ids changed get resubscribed.
+            if (mShardedObserver == null) {
+                mShardedObserver = ShardedQueryObserver(
+                        lifecycle,
+                        ShardedQueryObserver.QueryFactory { ids -> mParkingMapViewModel!!.getParkingLots(ids) } // Query of a single shard
+                ) { value: QuerySnapshot?, error: FirebaseFirestoreException? ->  // Event handler of all shards
+                    if (value != null) mParkingMapViewModel!!.offerDocumentChanges(value.documentChanges)
+                }
+                mShardedObserver!!.setTelemetryName(LOTS_TELEMETRY)
             }
+            mShardedObserver!!.updateIds(documentIds)
         })
         mParkingMapViewModel!!.promptingState.observe(viewLifecycleOwner, { timeToPromptTheUser: Any? ->
             AlertBuilder.showSingleActionAlert(
@@ -591,6 +830,14 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
                     R.string.volley_error_body
             ) { goBack() } // go back to home screen
         })
+        // Attach observers to the public parking segments whose spaces changed or got removed
+        mParkingMapViewModel!!.streetChangesState.observe(viewLifecycleOwner, { diffs ->
+            if (mGoogleMap != null && diffs != null) mStreetLayer.apply(mGoogleMap!!, diffs)
+        })
+        mParkingMapViewModel!!.removedSegmentsState.observe(viewLifecycleOwner, { docIds ->
+            docIds?.let { mStreetLayer.remove(it) }
+        })
+        mParkingMapViewModel!!.cheapestLotsState.observe(viewLifecycleOwner, { cheapest -> showCheapestLot(cheapest) })
         mParkingMapViewModel!!.navigationToBookingState.observe(viewLifecycleOwner, { selectedLot: ParkingLot? ->
             navigateTo(ParkingMapFragmentDirections
                             .actionNavParkingMapFragmentToParkingBookingFragment(selectedLot!!))
@@ -598,6 +845,32 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
         )
     }
 
+    /**
+     * Adds a marker for each of the given lots, replacing the contents
+     * of the ones that are already on the map.
+     *
+     * @param lots The lots to be drawn, by their document id.
+     */
+    private fun drawLots(lots: CompactLotStore) = mMarkerManager!!.addMarkersWithContents(mGoogleMap!!, lots)
+
+    /**
+     * Shows, in the info layout, when the selected lot was last seen live.
+     * Hidden, if the lot's contents are live.
+     *
+     * @param lastUpdated The time the selected lot was last seen live. Null, if it is live.
+     */
+    private fun showLastUpdated(lastUpdated: Long?) {
+        binding!!.fragmentParkingMapTxtLastUpdated.apply {
+            if (lastUpdated == null) {
+                visibility = View.GONE
+                return
+            }
+            text = getString(R.string.last_updated, DateUtils.getRelativeTimeSpanString(
+                    lastUpdated, System.currentTimeMillis(), DateUtils.MINUTE_IN_MILLIS))
+            visibility = View.VISIBLE
+        }
+    }
+
     /**
      * Shows a plane that contains information about the marker's
      * associated [ParkingLot] object.
@@ -676,12 +949,21 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
         private const val DEFAULT_ZOOM_LEVEL = 16
         private const val UPDATE_LOCATION_THRESHOLD = 100.0
         private const val MIN_ZOOM_LEVEL = 10.0f
-        private const val INTERVAL_TIME = 5000L
+        private const val CLUSTER_ZOOM_STEP = 2f
+        private const val CHEAPEST_STAY_HOURS = 3
+        private const val HEATMAP_MAX_ZOOM_LEVEL = 13f
+        private const val HEATMAP_RADIUS_IN_PIXELS = 24
+        // The names the listeners report to the ListenerTelemetry under
+        private const val LOTS_TELEMETRY = "map.lots"
+        private const val PUBLIC_PARKING_TELEMETRY = "map.public_parking"
+        private const val LOTS_APPLIED_TELEMETRY = "map.lots.applied"
     }
 
     /**
      * Returns an instance of [AirLocation] that contains
      * information about the location retrieval behaviour.
+     * Each request returns a single location; the next one is scheduled
+     * via [scheduleNextLocationUpdate], with a back-off after failed requests.
      * @return An instance of [AirLocation].
      */
     override fun initializeLocationApi(): AirLocation = AirLocation(
@@ -690,10 +972,15 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
 
                 override fun onSuccess(locations: ArrayList<Location>) {
                     Log.d(TAG, "onLocationResult: From Map")
-                    if (locations.isNullOrEmpty()) return
+                    if (locations.isNullOrEmpty()) {
+                        onLocationFailed()
+                        return
+                    }
 
-                    // Access the user's new location.
-                    val updatedPosition = LatLng(locations[0].latitude, locations[0].longitude)
+                    // Access the user's new location, with the GPS jitter filtered out.
+                    val now = SystemClock.elapsedRealtime()
+                    val updatedPosition = locationScheduler.onLocation(locations[0].latitude, locations[0].longitude, now)
+                    scheduleNextLocationUpdate()
 
                     // If null, assign it to the location received from the first update.
                     if (mInitialUserLatLng == null) mInitialUserLatLng = updatedPosition
@@ -701,17 +988,31 @@ class ParkingMapFragment : LocationFragment<FragmentParkingMapBinding>(), OnMapR
 
                     // Update the user's location with the received location
                     mUserCurrentLatLng = updatedPosition
+                    if (mGoogleMap == null) return
                     mMarkerManager!!.setUserMarker(mGoogleMap, mUserCurrentLatLng)
-                    // Smoothly moves the camera to the user's position
-                    mGoogleMap!!.animateCamera(CameraUpdateFactory.newLatLng(mUserCurrentLatLng))
+                    // Smoothly moves the camera to the user's position, unless they are panning the map
+                    if (locationScheduler.shouldMoveCamera(now)) {
+                        mGoogleMap!!.animateCamera(CameraUpdateFactory.newLatLng(mUserCurrentLatLng))
+                    }
                 }
 
                 override fun onFailure(locationFailedEnum: AirLocation.LocationFailedEnum) {
                     // the reason for failure is given in locationFailedEnum
-
-                    // TODO: Show message based on the locationFailedEnum
-                    globalStateViewModel.updateToastMessage(R.string.error_retrieving_location)
+                    Log.d(TAG, "onFailure: $locationFailedEnum")
+                    onLocationFailed()
                 }
-            }, false, INTERVAL_TIME
+            }, true
     )
+
+    /**
+     * Retries the location request after a back-off, so that a single failure
+     * does not stop the updates. Only the first failure of a streak shows a message.
+     */
+    private fun onLocationFailed() {
+        locationScheduler.onLocationFailed()
+        scheduleNextLocationUpdate()
+        if (locationScheduler.consecutiveFailures == 1) {
+            globalStateViewModel.updateToastMessage(R.string.error_retrieving_location)
+        }
+    }
 }
\ No newline at end of file
@@ -1,29 +1,56 @@
 package io.github.cchristou3.CyParking.ui.views.parking.lots.map;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.View;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.util.Consumer;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
 import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.Query;
-import com.google.gson.Gson;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import io.github.cchristou3.CyParking.R;
-import io.github.cchristou3.CyParking.apiClient.interfaces.HttpsCallHandler;
+import io.github.cchristou3.CyParking.apiClient.local.CompactLotStore;
+import io.github.cchristou3.CyParking.apiClient.local.LotFilter;
+import io.github.cchristou3.CyParking.apiClient.local.LotNameIndex;
+import io.github.cchristou3.CyParking.apiClient.local.LotPricingEngine;
+import io.github.cchristou3.CyParking.apiClient.local.LotSnapshotStore;
+import io.github.cchristou3.CyParking.apiClient.local.LotSpatialIndex;
+import io.github.cchristou3.CyParking.apiClient.local.StreetOccupancyStore;
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLotSummary;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.PublicParking;
 import io.github.cchristou3.CyParking.apiClient.model.data.user.LoggedInUser;
+import io.github.cchristou3.CyParking.apiClient.model.mapper.ParkingLotMapper;
+import io.github.cchristou3.CyParking.apiClient.model.mapper.PublicParkingMapper;
 import io.github.cchristou3.CyParking.apiClient.remote.repository.ParkingMapRepository;
+import io.github.cchristou3.CyParking.apiClient.utils.GeoHash;
+import io.github.cchristou3.CyParking.data.manager.EmissionGate;
+import io.github.cchristou3.CyParking.data.manager.EmissionPolicy;
+import io.github.cchristou3.CyParking.data.manager.LotChange;
+import io.github.cchristou3.CyParking.data.manager.ShardedQueryObserver;
+import io.github.cchristou3.CyParking.data.manager.SnapshotRecord;
+import io.github.cchristou3.CyParking.data.manager.SnapshotRecorder;
+import io.github.cchristou3.CyParking.data.manager.SnapshotReplayer;
 import io.github.cchristou3.CyParking.ui.components.SingleLiveEvent;
 import io.github.cchristou3.CyParking.ui.views.parking.slots.booking.BookingFragment;
 
@@ -32,31 +59,91 @@ import io.github.cchristou3.CyParking.ui.views.parking.slots.booking.BookingFrag
  * Purpose: Data persistence during configuration changes.</p>
  *
  * @author Charalambos Christou
- * @version 5.0 27/03/21
+ * @version 19.0 18/10/21
  */
 public class ParkingMapViewModel extends ViewModel {
 
-    // Static constant
+    // Static constants
     private static final String TAG = ParkingMapViewModel.class.getName();
+    public static final int SEARCH_RESULTS_LIMIT = 8;
+    public static final int CHEAPEST_LOTS_LIMIT = 10;
+    // The default policies of the lots' and the public parking segments' document changes
+    public static final EmissionPolicy LOT_CHANGES_POLICY = EmissionPolicy.rateLimit(4);
+    public static final EmissionPolicy PUBLIC_PARKING_CHANGES_POLICY = EmissionPolicy.rateLimit(2);
+    private static final int PRICING_PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
     // States of the parking map ViewModel
-    private final MutableLiveData<List<DocumentChange>> mDocumentChangesState = new MutableLiveData<>();
+    private final MutableLiveData<List<LotChange>> mDocumentChangesState = new MutableLiveData<>();
     private final MutableLiveData<Set<String>> mDocumentIdsOfNearbyLots = new MutableLiveData<>();
+    private final MutableLiveData<CompactLotStore> mNearbyLotsState = new MutableLiveData<>();
     private final MutableLiveData<ParkingLot> mSelectedLotState = new MutableLiveData<>(null);
     private final MutableLiveData<Integer> mInfoLayoutState = new MutableLiveData<>(View.GONE);
     private final MutableLiveData<Object> mPromptUser = new SingleLiveEvent<>();
     private final MutableLiveData<ParkingLot> mNavigateToBooking = new SingleLiveEvent<>();
+    private final MutableLiveData<Set<String>> mEvictedLotsState = new SingleLiveEvent<>();
+    private final MutableLiveData<Long> mSelectedLotLastUpdatedState = new MutableLiveData<>(null);
+    private final MutableLiveData<LotFilter> mLotFilterState = new MutableLiveData<>(LotFilter.NONE);
+    private final MutableLiveData<List<LotPricingEngine.Quote>> mCheapestLotsState = new SingleLiveEvent<>();
+    private final MutableLiveData<List<StreetOccupancyStore.Diff>> mStreetChangesState = new SingleLiveEvent<>();
+    private final MutableLiveData<Set<String>> mRemovedSegmentsState = new SingleLiveEvent<>();
 
     // Its repository
     private final ParkingMapRepository mParkingMapRepository;
+    // The last-known lots, accessed only via the mStoreExecutor
+    private final LotSnapshotStore mSnapshotStore;
+    private final ExecutorService mStoreExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    // The lots loaded on the device, indexed by their position. Mutated only via the mStoreExecutor,
+    // thus in the order the lots were received, and read from any thread
+    private final LotSpatialIndex mLotIndex = new LotSpatialIndex();
+    // The same lots, indexed by their name
+    private final LotNameIndex mLotNameIndex = new LotNameIndex();
+    // The same lots' offers, priced for a stay on the mPricingExecutor's threads.
+    // Summaries carry no offers, thus partial lots are left out until their documents are received
+    private final LotPricingEngine mPricingEngine = new LotPricingEngine();
+    private final ExecutorService mPricingExecutor = Executors.newFixedThreadPool(PRICING_PARALLELISM);
+    // The occupancy of the nearby public parking segments, a bit per space
+    private final StreetOccupancyStore mStreetStore = new StreetOccupancyStore();
+    // The document ids of the lots whose whole documents are indexed, accessed only via the mStoreExecutor
+    private final Set<String> mIndexedDocumentIds = new HashSet<>();
+    // The document ids of the lots drawn from the store that were not seen live yet,
+    // mapped to the time they were last seen live
+    private final Map<String, Long> mStoredLotsLastUpdated = new HashMap<>();
+    // The document ids of the lots drawn from their summaries, whose documents were not received yet
+    private final Set<String> mPartialLotIds = new HashSet<>();
+    // The document ids of the lots whose documents are drawn on the map
+    private final Set<String> mCompleteLotIds = new HashSet<>();
+    private String mSelectedDocId;
+    private boolean mDidReceiveLiveLots = false;
+    // Batch the document changes of a busy source before they get applied
+    private EmissionGate<List<DocumentChange>> mLotChangesGate;
+    private EmissionGate<List<DocumentChange>> mPublicParkingChangesGate;
 
     /**
-     * Initialize the ViewModel's ParkingMapRepository instance
-     * with the given argument.
+     * Initialize the ViewModel's ParkingMapRepository and LotSnapshotStore instances
+     * with the given arguments.
      *
      * @param parkingMapRepository An ParkingMapRepository instance.
+     * @param snapshotStore        The store of the last-known parking lots.
      */
-    public ParkingMapViewModel(ParkingMapRepository parkingMapRepository) {
+    public ParkingMapViewModel(ParkingMapRepository parkingMapRepository, LotSnapshotStore snapshotStore) {
         this.mParkingMapRepository = parkingMapRepository;
+        this.mSnapshotStore = snapshotStore;
+        setLotChangesPolicy(LOT_CHANGES_POLICY);
+        setPublicParkingChangesPolicy(PUBLIC_PARKING_CHANGES_POLICY);
+    }
+
+    /**
+     * Lets the pending writes of the {@link #mSnapshotStore} complete
+     * and drops the pending reads.
+     */
+    @Override
+    protected void onCleared() {
+        mLotChangesGate.cancel();
+        mPublicParkingChangesGate.cancel();
+        mStoreExecutor.shutdown();
+        mPricingExecutor.shutdown();
+        mMainHandler.removeCallbacksAndMessages(null);
+        super.onCleared();
     }
 
     /**
@@ -79,19 +166,151 @@ public class ParkingMapViewModel extends ViewModel {
 
     /**
      * Access the {@link #mDocumentChangesState}.
+     * Its value contains the lots' latest document changes, already deserialized.
+     * The lots are the same instances as the indexed ones, thus not to be mutated.
      *
      * @return A reference to {@link #mDocumentChangesState}.
      */
-    public LiveData<List<DocumentChange>> getDocumentChangesState() {
+    public LiveData<List<LotChange>> getDocumentChangesState() {
         return mDocumentChangesState;
     }
 
     /**
-     * Updates the value of {@link #mDocumentChangesState}
-     * with the given argument.
+     * Sets the policy the lots' document changes of {@link #offerDocumentChanges(List)}
+     * are applied with. The changes that are held back get applied along with the next ones.
+     * The pending changes, if any, get applied first.
+     *
+     * @param policy The emission policy of the lots' changes.
+     */
+    public void setLotChangesPolicy(@NonNull EmissionPolicy policy) {
+        if (mLotChangesGate != null) mLotChangesGate.flush();
+        mLotChangesGate = policy.createGate(EmissionGate.handlerScheduler(mMainHandler),
+                ParkingMapViewModel::concat, this::updateDocumentState);
+    }
+
+    /**
+     * Offers the document changes of a lots' snapshot.
+     * They get applied via {@link #updateDocumentState(List)}, as the lots' policy allows.
+     *
+     * @param documentChanges The changes of a lots' snapshot.
+     * @see #setLotChangesPolicy(EmissionPolicy)
+     */
+    public void offerDocumentChanges(@Nullable List<DocumentChange> documentChanges) {
+        if (documentChanges != null && !documentChanges.isEmpty()) mLotChangesGate.offer(documentChanges);
+    }
+
+    /**
+     * Deserializes the given document changes once, on the {@link #mStoreExecutor}.
+     * The changed lots are indexed and written through to the {@link #mSnapshotStore},
+     * then the {@link #mDocumentChangesState} gets updated with the same lots.
+     * The changed lots are no longer stale.
      */
     public void updateDocumentState(List<DocumentChange> documentChanges) {
-        mDocumentChangesState.setValue(documentChanges);
+        if (documentChanges == null || documentChanges.isEmpty()) return;
+        for (DocumentChange dc : documentChanges) onLotChanged(dc.getType(), dc.getDocument().getId());
+        final List<DocumentChange> changes = new ArrayList<>(documentChanges);
+        final long now = System.currentTimeMillis();
+        runOnStore(() -> {
+            final List<LotChange> lotChanges = new ArrayList<>(changes.size());
+            for (DocumentChange dc : changes) {
+                lotChanges.add(new LotChange(dc.getType(), dc.getDocument().getId(),
+                        dc.getType() == DocumentChange.Type.REMOVED
+                                ? null : ParkingLotMapper.toParkingLot(dc.getDocument().getData())));
+            }
+            storeLotChanges(lotChanges, now);
+        });
+    }
+
+    /**
+     * Applies the given recorded changes of the lots, as {@link #updateDocumentState(List)}
+     * does with the live ones. Meant for replaying a recording of a {@link SnapshotRecorder}
+     * while no live listeners are attached, e.g. to benchmark the map without a backend.
+     *
+     * @param recordedChanges The changes of a recorded snapshot of parking lots.
+     * @see SnapshotReplayer
+     */
+    public void applyRecordedChanges(@Nullable List<SnapshotRecord.Change> recordedChanges) {
+        if (recordedChanges == null || recordedChanges.isEmpty()) return;
+        for (SnapshotRecord.Change change : recordedChanges) onLotChanged(change.getType(), change.getDocId());
+        final List<SnapshotRecord.Change> changes = new ArrayList<>(recordedChanges);
+        final long now = System.currentTimeMillis();
+        runOnStore(() -> {
+            final List<LotChange> lotChanges = new ArrayList<>(changes.size());
+            for (SnapshotRecord.Change change : changes) {
+                lotChanges.add(new LotChange(change.getType(), change.getDocId(),
+                        change.getData() == null ? null : ParkingLotMapper.toParkingLot(change.getData())));
+            }
+            storeLotChanges(lotChanges, now);
+        });
+    }
+
+    /**
+     * Marks the lot of the given document id as live, or forgets it if it got removed.
+     */
+    private void onLotChanged(@NonNull DocumentChange.Type type, @NonNull String docId) {
+        if (type != DocumentChange.Type.REMOVED) {
+            markAsLive(docId);
+        } else {
+            mCompleteLotIds.remove(docId);
+            final CompactLotStore nearbyLots = mNearbyLotsState.getValue();
+            if (nearbyLots != null) nearbyLots.remove(docId);
+        }
+    }
+
+    /**
+     * Indexes the given deserialized changes and writes them through to the {@link #mSnapshotStore},
+     * in the order they were received. Then, the {@link #mDocumentChangesState} gets updated with them.
+     * To be invoked only via the {@link #mStoreExecutor}.
+     *
+     * @param lotChanges The deserialized changes.
+     * @param now        The time the changes were received at.
+     */
+    private void storeLotChanges(@NonNull List<LotChange> lotChanges, long now) {
+        for (LotChange change : lotChanges) {
+            final String docId = change.getDocId();
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                unindex(docId);
+                mSnapshotStore.remove(docId);
+            } else if (change.getLot() != null) {
+                index(docId, change.getLot());
+                mIndexedDocumentIds.add(docId);
+                mSnapshotStore.put(docId, change.getLot(), now);
+            }
+        }
+        mMainHandler.post(() -> mDocumentChangesState.setValue(lotChanges));
+        mLotNameIndex.flush(); // Here, rather than on the next keystroke
+        mSnapshotStore.flush();
+    }
+
+    /**
+     * Drops the value of {@link #mDocumentChangesState}. To be invoked once its observer
+     * has handed the changes over, so that the documents of the latest snapshot
+     * are not retained by the ViewModel until the next one arrives.
+     */
+    public void onDocumentChangesConsumed() {
+        if (mDocumentChangesState.getValue() != null) mDocumentChangesState.setValue(null);
+    }
+
+    /**
+     * Access the {@link #mEvictedLotsState}.
+     * Its value contains the document ids of the lots that were drawn from the
+     * {@link #mSnapshotStore}, but are no longer nearby or no longer exist.
+     *
+     * @return A reference to {@link #mEvictedLotsState}.
+     */
+    public LiveData<Set<String>> getEvictedLotsState() {
+        return mEvictedLotsState;
+    }
+
+    /**
+     * Access the {@link #mSelectedLotLastUpdatedState}.
+     * Its value is the time the selected lot was last seen live, if its contents
+     * come from the {@link #mSnapshotStore}. Otherwise, null.
+     *
+     * @return A reference to {@link #mSelectedLotLastUpdatedState}.
+     */
+    public LiveData<Long> getSelectedLotLastUpdatedState() {
+        return mSelectedLotLastUpdatedState;
     }
 
     /**
@@ -111,6 +330,214 @@ public class ParkingMapViewModel extends ViewModel {
         return mDocumentIdsOfNearbyLots;
     }
 
+    /**
+     * Access the {@link #mNearbyLotsState}.
+     * Its value holds the nearby lots, by their document ids,
+     * as they were when they got fetched, in a compact form.
+     * Used to draw their markers without waiting for the listener of the
+     * lots' documents to be attached.
+     *
+     * @return A reference to {@link #mNearbyLotsState}.
+     */
+    public LiveData<CompactLotStore> getNearbyLotsState() {
+        return mNearbyLotsState;
+    }
+
+    /**
+     * Access the {@link #mLotFilterState}.
+     * Its value holds the criteria that the lots shown on the map must meet.
+     *
+     * @return A reference to {@link #mLotFilterState}.
+     */
+    public LiveData<LotFilter> getLotFilterState() {
+        return mLotFilterState;
+    }
+
+    /**
+     * Updates the value of {@link #mLotFilterState}
+     * with the given argument, if it differs.
+     *
+     * @param filter The criteria of the lots to be shown. {@link LotFilter#NONE}, to show every lot.
+     */
+    public void updateLotFilter(@NonNull LotFilter filter) {
+        if (!filter.equals(mLotFilterState.getValue())) mLotFilterState.setValue(filter);
+    }
+
+    /**
+     * Access the {@link #mLotIndex}.
+     * It holds the lots that are drawn on the map, from their summaries, their documents
+     * and the {@link #mSnapshotStore}, and answers radius, bounding box and nearest-lot
+     * queries over them without any network access.
+     *
+     * @return A reference to {@link #mLotIndex}.
+     */
+    public LotSpatialIndex getLotIndex() {
+        return mLotIndex;
+    }
+
+    /**
+     * Access the {@link #mStreetStore}.
+     * It holds the occupancy of the public parking segments around the user.
+     *
+     * @return A reference to {@link #mStreetStore}.
+     */
+    public StreetOccupancyStore getStreetStore() {
+        return mStreetStore;
+    }
+
+    /**
+     * Access the {@link #mStreetChangesState}.
+     * Its value contains the segments whose spaces changed by the latest snapshot.
+     *
+     * @return A reference to {@link #mStreetChangesState}.
+     */
+    public LiveData<List<StreetOccupancyStore.Diff>> getStreetChangesState() {
+        return mStreetChangesState;
+    }
+
+    /**
+     * Access the {@link #mRemovedSegmentsState}.
+     * Its value contains the document ids of the segments removed by the latest snapshot.
+     *
+     * @return A reference to {@link #mRemovedSegmentsState}.
+     */
+    public LiveData<Set<String>> getRemovedSegmentsState() {
+        return mRemovedSegmentsState;
+    }
+
+    /**
+     * Returns the queries of the public parking segments around the given coordinates.
+     *
+     * @param userLatitude  The user's latest retrieved latitude.
+     * @param userLongitude The user's latest retrieved longitude.
+     * @return A query per geohash cell around the coordinates.
+     * @see ParkingMapRepository#getNearbyPublicParking(double, double)
+     */
+    @NonNull
+    public List<Query> getNearbyPublicParking(double userLatitude, double userLongitude) {
+        return mParkingMapRepository.getNearbyPublicParking(userLatitude, userLongitude);
+    }
+
+    /**
+     * Sets the policy the segments' document changes of {@link #offerPublicParkingChanges(List)}
+     * are applied with. The pending changes, if any, get applied first.
+     *
+     * @param policy The emission policy of the segments' changes.
+     */
+    public void setPublicParkingChangesPolicy(@NonNull EmissionPolicy policy) {
+        if (mPublicParkingChangesGate != null) mPublicParkingChangesGate.flush();
+        mPublicParkingChangesGate = policy.createGate(EmissionGate.handlerScheduler(mMainHandler),
+                ParkingMapViewModel::concat, this::applyPublicParkingChanges);
+    }
+
+    /**
+     * Offers the document changes of a public parking snapshot.
+     * They get applied via {@link #applyPublicParkingChanges(List)}, as the segments' policy allows.
+     *
+     * @param documentChanges The changes of a public parking snapshot.
+     * @see #setPublicParkingChangesPolicy(EmissionPolicy)
+     */
+    public void offerPublicParkingChanges(@Nullable List<DocumentChange> documentChanges) {
+        if (documentChanges != null && !documentChanges.isEmpty()) mPublicParkingChangesGate.offer(documentChanges);
+    }
+
+    /**
+     * Decodes the occupancy of the changed segments on the {@link #mStoreExecutor}
+     * and applies only their spaces that changed to the {@link #mStreetStore}.
+     * Then, the {@link #mStreetChangesState} gets updated with the diffs, if any,
+     * and the {@link #mRemovedSegmentsState} with the removed segments, if any.
+     *
+     * @param documentChanges The changes of a public parking snapshot.
+     */
+    public void applyPublicParkingChanges(@Nullable List<DocumentChange> documentChanges) {
+        if (documentChanges == null || documentChanges.isEmpty()) return;
+        final List<DocumentChange> changes = new ArrayList<>(documentChanges);
+        runOnStore(() -> {
+            final List<StreetOccupancyStore.Diff> diffs = new ArrayList<>();
+            final Set<String> removed = new HashSet<>();
+            for (DocumentChange dc : changes) {
+                final String docId = dc.getDocument().getId();
+                if (dc.getType() == DocumentChange.Type.REMOVED) {
+                    if (mStreetStore.remove(docId)) removed.add(docId);
+                    continue;
+                }
+                try {
+                    final PublicParking segment = PublicParkingMapper.toPublicParking(dc.getDocument().getData());
+                    if (segment == null) {
+                        Log.w(TAG, "applyPublicParkingChanges: no coordinates of " + docId);
+                        continue;
+                    }
+                    final StreetOccupancyStore.Diff diff = mStreetStore.apply(docId, segment);
+                    if (diff != null) diffs.add(diff);
+                } catch (IllegalArgumentException | ClassCastException e) {
+                    // Either the occupancy is not valid base64 or a field has an unexpected type
+                    Log.w(TAG, "applyPublicParkingChanges: invalid segment " + docId, e);
+                }
+            }
+            if (!removed.isEmpty()) mMainHandler.post(() -> mRemovedSegmentsState.setValue(removed));
+            if (!diffs.isEmpty()) mMainHandler.post(() -> mStreetChangesState.setValue(diffs));
+        });
+    }
+
+    /**
+     * Removes the segments outside the cells of {@link #getNearbyPublicParking(double, double)}
+     * for the given coordinates from the {@link #mStreetStore}, once the pending changes got applied.
+     * Then, the {@link #mRemovedSegmentsState} gets updated with the removed segments, if any.
+     * To be invoked when the segments of a new area get listened to, in place of the previous one.
+     *
+     * @param userLatitude  The user's latest retrieved latitude.
+     * @param userLongitude The user's latest retrieved longitude.
+     */
+    public void retainNearbyPublicParking(double userLatitude, double userLongitude) {
+        mPublicParkingChangesGate.flush(); // The changes of the previous area's listeners
+        final String[] cells = GeoHash.coveringCells(userLatitude, userLongitude,
+                ParkingMapRepository.NEARBY_RADIUS_IN_METERS);
+        runOnStore(() -> {
+            final Set<String> removed = mStreetStore.retainCells(cells);
+            if (!removed.isEmpty()) mMainHandler.post(() -> mRemovedSegmentsState.setValue(removed));
+        });
+    }
+
+    /**
+     * Access the {@link #mCheapestLotsState}.
+     * Its value contains the quotes of the cheapest lots for the stay of the latest
+     * {@link #findCheapestLots(float)} call, the cheapest first.
+     *
+     * @return A reference to {@link #mCheapestLotsState}.
+     */
+    public LiveData<List<LotPricingEngine.Quote>> getCheapestLotsState() {
+        return mCheapestLotsState;
+    }
+
+    /**
+     * Ranks the lots drawn on the map by the cheapest combination of their offers
+     * that covers the given stay, in the background.
+     * Once done, the {@link #mCheapestLotsState} gets updated with at most
+     * {@link #CHEAPEST_LOTS_LIMIT} quotes.
+     *
+     * @param hours The duration of the stay.
+     */
+    public void findCheapestLots(float hours) {
+        if (mPricingExecutor.isShutdown()) return;
+        mPricingEngine.rankCheapest(hours, CHEAPEST_LOTS_LIMIT, mPricingExecutor, PRICING_PARALLELISM,
+                cheapest -> mMainHandler.post(() -> mCheapestLotsState.setValue(cheapest)));
+    }
+
+    /**
+     * Finds the lots drawn on the map whose name, or one of its words, starts with the given query,
+     * regardless of accents and case. The lots whose name starts with it come first,
+     * then the nearest to the given origin.
+     *
+     * @param query     The text typed by the user.
+     * @param latitude  The latitude of the origin.
+     * @param longitude The longitude of the origin.
+     * @return At most {@link #SEARCH_RESULTS_LIMIT} matching lots, the best first.
+     */
+    @NonNull
+    public List<LotNameIndex.Match> searchLots(@Nullable String query, double latitude, double longitude) {
+        return mLotNameIndex.search(query, latitude, longitude, SEARCH_RESULTS_LIMIT);
+    }
+
     /**
      * Checks whether the ids of nearby parking lots have been already fetched.
      *
@@ -144,6 +571,57 @@ public class ParkingMapViewModel extends ViewModel {
         mSelectedLotState.setValue(lot);
     }
 
+    /**
+     * Updates the state of the {@link #mSelectedLotState} to the given lot
+     * and the {@link #mSelectedLotLastUpdatedState} based on whether it is stale.
+     *
+     * @param docId The document id of the lot.
+     * @param lot   The new value of {@link #mSelectedLotState}.
+     */
+    public void selectLot(@Nullable String docId, ParkingLot lot) {
+        mSelectedDocId = docId;
+        mSelectedLotLastUpdatedState.setValue(docId == null ? null : mStoredLotsLastUpdated.get(docId));
+        updateSelectedLotState(lot);
+    }
+
+    /**
+     * Marks the lot of the given document id as complete, once its document is drawn on the map.
+     * If it is the selected lot, the {@link #mSelectedLotState} gets updated with its contents.
+     *
+     * @param docId The document id of the lot.
+     * @param lot   The lot's whole contents.
+     */
+    public void onLotDocumentApplied(@NonNull String docId, ParkingLot lot) {
+        if (mPartialLotIds.remove(docId)) {
+            // Redraw it with its document, if the nearby lots get observed again
+            final CompactLotStore nearbyLots = mNearbyLotsState.getValue();
+            if (nearbyLots != null && nearbyLots.contains(docId)) nearbyLots.put(docId, lot);
+        }
+        mCompleteLotIds.add(docId);
+        if (isSelected(docId)) updateSelectedLotState(lot);
+    }
+
+    /**
+     * Check whether the lot of the given document id is the selected one.
+     *
+     * @param docId The document id of the lot.
+     * @return True, if it is the selected lot. Otherwise, false.
+     */
+    public boolean isSelected(@NonNull String docId) {
+        return docId.equals(mSelectedDocId);
+    }
+
+    /**
+     * Marks the lot of the given document id as seen live.
+     *
+     * @param docId The document id of the lot.
+     */
+    private void markAsLive(@NonNull String docId) {
+        if (mStoredLotsLastUpdated.remove(docId) != null && docId.equals(mSelectedDocId)) {
+            mSelectedLotLastUpdatedState.setValue(null);
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Methods related to the  infoLayout state
     ///////////////////////////////////////////////////////////////////////////
@@ -215,11 +693,14 @@ public class ParkingMapViewModel extends ViewModel {
     ///////////////////////////////////////////////////////////////////////////
 
     /**
-     * Retrieves all the parking lots from the database via the
+     * Retrieves the parking lots with the given document ids from the database via the
      * {@link com.google.firebase.firestore.FirebaseFirestore} API.
+     * Since a whereIn query accepts a limited number of values, the given set
+     * must contain at most {@link ShardedQueryObserver#SHARD_SIZE} ids.
      *
-     * @return The collection reference that contains all the parking lots
-     * in the database.
+     * @param ids The document ids of a single shard.
+     * @return The query that returns the parking lots of the given ids.
+     * @see ShardedQueryObserver
      */
     public Query getParkingLots(Set<String> ids) {
         return mParkingMapRepository.getParkingLotsRef()
@@ -227,38 +708,203 @@ public class ParkingMapViewModel extends ViewModel {
     }
 
     /**
-     * Sends an HTTPS request via a callable cloud-function.
-     * The response contains all the parking lots
-     * that are nearby the given coordinates
+     * Reads the last-known parking lots that are nearby the given coordinates
+     * from the {@link #mSnapshotStore} and updates the {@link #mNearbyLotsState} with them,
+     * so that they get drawn before any network round trip.
+     * The lots are ignored if the live ones got retrieved first.
+     *
+     * @param userLatitude  The user's latest retrieved latitude.
+     * @param userLongitude The user's latest retrieved longitude.
+     */
+    public void loadStoredLots(double userLatitude, double userLongitude) {
+        runOnStore(() -> {
+            final List<LotSnapshotStore.Entry> entries = mSnapshotStore.getNearby(
+                    userLatitude, userLongitude, ParkingMapRepository.NEARBY_RADIUS_IN_METERS);
+            if (entries.isEmpty()) return;
+            mMainHandler.post(() -> {
+                if (mDidReceiveLiveLots) return;
+                final CompactLotStore lots = new CompactLotStore();
+                for (LotSnapshotStore.Entry entry : entries) {
+                    lots.put(entry.getDocId(), entry.getLot());
+                    mStoredLotsLastUpdated.put(entry.getDocId(), entry.getSavedAtMillis());
+                }
+                Log.d(TAG, "Stored lots: " + lots.size());
+                mNearbyLotsState.setValue(lots);
+                // Queued behind the live changes that were received meanwhile, if any
+                runOnStore(() -> {
+                    for (LotSnapshotStore.Entry entry : entries) {
+                        if (!mIndexedDocumentIds.contains(entry.getDocId())) index(entry.getDocId(), entry.getLot());
+                    }
+                    mLotNameIndex.flush();
+                });
+            });
+        });
+    }
+
+    /**
+     * Appends the given changes to the pending ones, in the order they occurred.
+     */
+    @NonNull
+    private static List<DocumentChange> concat(@NonNull List<DocumentChange> pending,
+                                               @NonNull List<DocumentChange> incoming) {
+        final List<DocumentChange> changes = new ArrayList<>(pending.size() + incoming.size());
+        changes.addAll(pending);
+        changes.addAll(incoming);
+        return changes;
+    }
+
+    /**
+     * Adds the given lot to the indexes, or replaces its previous contents.
+     * To be invoked only via the {@link #mStoreExecutor}.
+     */
+    private void index(@NonNull String docId, @NonNull ParkingLot lot) {
+        mLotIndex.upsert(docId, lot);
+        mLotNameIndex.upsert(docId, lot);
+        mPricingEngine.upsert(docId, lot);
+    }
+
+    /**
+     * Removes the lot of the given document id from the indexes.
+     * To be invoked only via the {@link #mStoreExecutor}.
+     */
+    private void unindex(@NonNull String docId) {
+        mLotIndex.remove(docId);
+        mLotNameIndex.remove(docId);
+        mPricingEngine.remove(docId);
+        mIndexedDocumentIds.remove(docId);
+    }
+
+    /**
+     * Runs the given task on the {@link #mStoreExecutor}, unless the ViewModel got cleared.
+     */
+    private void runOnStore(@NonNull Runnable task) {
+        if (!mStoreExecutor.isShutdown()) mStoreExecutor.execute(task);
+    }
+
+    /**
+     * Retrieves a summary of each parking lot that is nearby the given coordinates,
+     * in a single round trip.
+     * On success, both the {@link #mNearbyLotsState} and the {@link #mDocumentIdsOfNearbyLots}
+     * get updated. The former is used to draw the lots straight away, while the latter
+     * is used to listen for the lots' updates.
+     * If the summaries cannot be retrieved, the lots are queried directly instead.
      *
      * @param userLatitude   The user's latest retrieved latitude.
      * @param userLongitude  The user's latest retrieved longitude.
      * @param hideLoadingBar A runnable responsible for hiding the current displaying loading bar.
+     * @see ParkingMapRepository#fetchNearbyParkingLotSummaries(double, double)
      */
     public void fetchParkingLots(double userLatitude, double userLongitude,
                                  Runnable hideLoadingBar) {
-        mParkingMapRepository.fetchParkingLots(userLatitude, userLongitude, new HttpsCallHandler() {
-            @Override
-            public void onSuccess(String rawJsonResponse) {
-                Log.d(TAG, "Before parsing: " + rawJsonResponse);
-                // Convert json object into an array of ParkingLot objects and update the Doc Ids state
-                updateIdsState(new Gson().fromJson(rawJsonResponse, String[].class));
-            }
+        mParkingMapRepository.fetchNearbyParkingLotSummaries(userLatitude, userLongitude)
+                .addOnCompleteListener(task -> {
+                    if (task.isSuccessful() && task.getResult() != null) {
+                        hideLoadingBar.run();
+                        Log.d(TAG, "Nearby lot summaries: " + task.getResult().size());
+                        final Map<String, ParkingLot> lots = new LinkedHashMap<>(task.getResult().size());
+                        for (ParkingLotSummary summary : task.getResult()) {
+                            lots.put(summary.getDocId(), summary.toParkingLot());
+                        }
+                        updateNearbyLots(lots, false, userLatitude, userLongitude);
+                    } else {
+                        fetchParkingLotDocuments(userLatitude, userLongitude, hideLoadingBar);
+                    }
+                });
+    }
+
+    /**
+     * Retrieves the parking lots that are nearby the given coordinates,
+     * via geohash prefix-range queries.
+     * Fallback of {@link #fetchParkingLots(double, double, Runnable)}.
+     *
+     * @param userLatitude   The user's latest retrieved latitude.
+     * @param userLongitude  The user's latest retrieved longitude.
+     * @param hideLoadingBar A runnable responsible for hiding the current displaying loading bar.
+     * @see ParkingMapRepository#fetchNearbyParkingLots(double, double)
+     */
+    private void fetchParkingLotDocuments(double userLatitude, double userLongitude,
+                                          Runnable hideLoadingBar) {
+        mParkingMapRepository.fetchNearbyParkingLots(userLatitude, userLongitude)
+                .addOnCompleteListener(task -> {
+                    hideLoadingBar.run();
+                    if (task.isSuccessful() && task.getResult() != null) {
+                        Log.d(TAG, "Nearby lots: " + task.getResult().size());
+                        final Map<String, ParkingLot> lots = new LinkedHashMap<>(task.getResult().size());
+                        for (DocumentSnapshot document : task.getResult()) {
+                            ParkingLot lot = ParkingLotMapper.toParkingLot(document);
+                            if (lot != null) lots.put(document.getId(), lot);
+                        }
+                        updateNearbyLots(lots, true, userLatitude, userLongitude);
+                    } else {
+                        // If there are no document ids on the cache then prompt the user
+                        // about his/her internet connection
+                        if (shouldPromptUser()) {
+                            promptUser();
+                        }
+                    }
+                });
+    }
 
-            @Override
-            public void onFailure(Exception exception) {
-                if (exception == null) return;
-                // If there are no document ids on the cache then prompt the user
-                // about his/her internet connection
-                if (shouldPromptUser()) {
-                    promptUser();
+    /**
+     * Updates both {@link #mNearbyLotsState} and {@link #mDocumentIdsOfNearbyLots}
+     * with the given lots.
+     * The lots drawn from the {@link #mSnapshotStore} get reconciled with the live ones:
+     * the ones that are no longer nearby are evicted and the rest are no longer stale.
+     * The live lots are then written through to the store. Partial lots are not written,
+     * their documents are, once received. Neither do they replace the documents that are
+     * already drawn, as those are not received again unless they change,
+     * nor do they get priced by the {@link #mPricingEngine}.
+     *
+     * @param lots          The nearby lots, mapped by their document id.
+     * @param areComplete   Whether the lots contain their whole documents, or only their summaries.
+     * @param userLatitude  The latitude the lots were retrieved for.
+     * @param userLongitude The longitude the lots were retrieved for.
+     */
+    private void updateNearbyLots(@NonNull Map<String, ParkingLot> lots, boolean areComplete,
+                                  double userLatitude, double userLongitude) {
+        mDidReceiveLiveLots = true;
+        final Set<String> evicted = new HashSet<>(mStoredLotsLastUpdated.keySet());
+        evicted.removeAll(lots.keySet());
+        for (String docId : lots.keySet()) markAsLive(docId);
+        mStoredLotsLastUpdated.clear();
+        final CompactLotStore lotsToDraw = new CompactLotStore();
+        for (Map.Entry<String, ParkingLot> lot : lots.entrySet()) {
+            if (areComplete || !mCompleteLotIds.contains(lot.getKey())) {
+                lotsToDraw.put(lot.getKey(), lot.getValue());
+                if (!areComplete) mPartialLotIds.add(lot.getKey());
+            }
+        }
+        if (!evicted.isEmpty()) {
+            if (evicted.contains(mSelectedDocId)) hideInfoLayout();
+            mEvictedLotsState.setValue(evicted);
+        }
+        mNearbyLotsState.setValue(lotsToDraw);
+        updateIdsState(lots.keySet().toArray(new String[0]));
+
+        final long now = System.currentTimeMillis();
+        runOnStore(() -> {
+            // Indexed behind the document changes that were received before the lots
+            for (Map.Entry<String, ParkingLot> lot : lots.entrySet()) {
+                // A summary never replaces a lot's document
+                if (!areComplete && mIndexedDocumentIds.contains(lot.getKey())) continue;
+                if (areComplete) {
+                    index(lot.getKey(), lot.getValue());
+                    mIndexedDocumentIds.add(lot.getKey());
+                } else {
+                    mLotIndex.upsert(lot.getKey(), lot.getValue());
+                    mLotNameIndex.upsert(lot.getKey(), lot.getValue());
                 }
             }
-
-            @Override
-            public void onComplete() {
-                hideLoadingBar.run();
+            for (String docId : evicted) unindex(docId);
+            mLotNameIndex.flush();
+            if (areComplete) {
+                mSnapshotStore.replaceNearby(userLatitude, userLongitude,
+                        ParkingMapRepository.NEARBY_RADIUS_IN_METERS, lots, now);
+            } else {
+                mSnapshotStore.retainNearby(userLatitude, userLongitude,
+                        ParkingMapRepository.NEARBY_RADIUS_IN_METERS, lots.keySet());
             }
+            mSnapshotStore.flush();
         });
     }
 
@@ -303,7 +949,10 @@ public class ParkingMapViewModel extends ViewModel {
             displayToast.accept(R.string.no_booking_allowed_to_non_logged_in_users);
             return;
         }
-        if (selectedLot != null) {
+        if (selectedLot != null && mPartialLotIds.contains(mSelectedDocId)) {
+            // Only its summary is available, wait for its document
+            displayToast.accept(R.string.loading_lot_details);
+        } else if (selectedLot != null) {
             // Navigate to the Booking Fragment
             mNavigateToBooking.setValue(selectedLot);
         } else { // Otherwise, display a message
@@ -1,9 +1,12 @@
 package io.github.cchristou3.CyParking.ui.views.parking.lots.map;
 
+import android.content.Context;
+
 import androidx.annotation.NonNull;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 
+import io.github.cchristou3.CyParking.apiClient.local.LotSnapshotStore;
 import io.github.cchristou3.CyParking.apiClient.remote.repository.ParkingMapRepository;
 
 /**
@@ -11,10 +14,16 @@ import io.github.cchristou3.CyParking.apiClient.remote.repository.ParkingMapRepo
  * Required given ParkingMapViewModel has a non-empty constructor</p>
  *
  * @author Charalambos Christou
- * @version 1.0 1/11/20
+ * @version 2.0 18/10/21
  */
 public class ParkingMapViewModelFactory implements ViewModelProvider.Factory {
 
+    private final Context mContext;
+
+    public ParkingMapViewModelFactory(Context context) {
+        this.mContext = context;
+    }
+
     /**
      * Creates a new instance of the given {@code Class}.
      * <p>
@@ -27,7 +36,8 @@ public class ParkingMapViewModelFactory implements ViewModelProvider.Factory {
     @SuppressWarnings("unchecked")
     public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
         if (modelClass.isAssignableFrom(ParkingMapViewModel.class)) {
-            return (T) new ParkingMapViewModel(new ParkingMapRepository());
+            return (T) new ParkingMapViewModel(
+                    new ParkingMapRepository(), new LotSnapshotStore(mContext));
         } else {
             throw new IllegalArgumentException("Unknown ViewModel class");
         }
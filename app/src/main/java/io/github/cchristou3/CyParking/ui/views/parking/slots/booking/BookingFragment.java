@@ -19,6 +19,8 @@ import androidx.viewbinding.ViewBinding;
 import com.google.android.material.datepicker.MaterialDatePicker;
 import com.google.android.material.snackbar.Snackbar;
 import com.google.android.material.timepicker.MaterialTimePicker;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
 
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
@@ -28,6 +30,7 @@ import io.github.cchristou3.CyParking.R;
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.SlotOffer;
 import io.github.cchristou3.CyParking.data.interfaces.Navigable;
+import io.github.cchristou3.CyParking.data.manager.DatabaseObserver;
 import io.github.cchristou3.CyParking.databinding.FragmentBookingBinding;
 import io.github.cchristou3.CyParking.ui.components.BaseFragment;
 import io.github.cchristou3.CyParking.ui.components.NavigatorFragment;
@@ -56,7 +59,7 @@ import io.github.cchristou3.CyParking.utils.Utility;
  * <p>
  *
  * @author Charalambos Christou
- * @version 25.0 27/03/21
+ * @version 26.0 18/10/21
  */
 public class BookingFragment extends NavigatorFragment<FragmentBookingBinding> {
 
@@ -64,6 +67,8 @@ public class BookingFragment extends NavigatorFragment<FragmentBookingBinding> {
     private static final String TAG = BookingFragment.class.getName() + "UniqueTag";
     private BookingViewModel mBookingViewModel;
     private ParkingLot mSelectedParking;
+    // The observer of the selected lot, between onStart and onStop
+    private DatabaseObserver<DocumentReference, DocumentSnapshot> mLotObserver;
 
     /**
      * Initialises the fragment. Access to data send by the previous fragment.
@@ -114,18 +119,30 @@ public class BookingFragment extends NavigatorFragment<FragmentBookingBinding> {
 
     /**
      * An observer is attached to the current document, to listen for changes (number of available spaces).
+     * Its listener is shared with the other screens that observe the same lot.
      */
     @Override
     public void onStart() {
         super.onStart();
-        try {
-            mBookingViewModel.observeParkingLotToBeBooked(requireContext(), mSelectedParking)
-                    .registerLifecycleObserver(getLifecycle());
-        } catch (NullPointerException e) {
+        mLotObserver = mBookingViewModel.observeParkingLotToBeBooked(requireContext(), mSelectedParking);
+        if (mLotObserver == null) {
             // This should get triggered when the user has finished the booking, navigated to
             // any other destination using the drawer and then pressed the back button to navigate back here
-            Log.d(TAG, "onStart: User returned! <> " + e.getMessage());
+            Log.d(TAG, "onStart: User returned!");
+            return;
         }
+        mLotObserver.registerLifecycleObserver(getLifecycle());
+    }
+
+    /**
+     * Removes the observer of {@link #onStart()}, so that a new one
+     * does not pile up on top of it the next time the fragment gets started.
+     */
+    @Override
+    public void onStop() {
+        if (mLotObserver != null) mLotObserver.unregisterLifecycleObserver();
+        mLotObserver = null;
+        super.onStop();
     }
 
     /**
@@ -18,8 +18,10 @@ import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.SlotOffer
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.booking.Booking
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.booking.BookingDetails
 import io.github.cchristou3.CyParking.apiClient.model.data.user.LoggedInUser
+import io.github.cchristou3.CyParking.apiClient.model.mapper.ParkingLotMapper
 import io.github.cchristou3.CyParking.apiClient.remote.repository.BookingRepository
 import io.github.cchristou3.CyParking.data.manager.DatabaseObserver
+import io.github.cchristou3.CyParking.data.manager.EmissionPolicy
 import io.github.cchristou3.CyParking.data.manager.EncryptionManager
 import io.github.cchristou3.CyParking.data.manager.EncryptionManager.Companion.hex
 import io.github.cchristou3.CyParking.ui.components.SingleLiveEvent
@@ -196,7 +198,7 @@ class BookingViewModel(private val mBookingRepository: BookingRepository, privat
     private fun getSnapShotListener(context: Context): EventListener<DocumentSnapshot> = EventListener<DocumentSnapshot> { value, error ->
         // The Event Listener
         if (error != null || value == null) return@EventListener
-        val lot = value.toObject(ParkingLot::class.java)
+        val lot = ParkingLotMapper.toParkingLot(value)
         if (lot == null) {
             updateAlertErrorState(context.getString(R.string.no_lot_found_title))
             return@EventListener
@@ -209,7 +211,10 @@ class BookingViewModel(private val mBookingRepository: BookingRepository, privat
      * Creates a new instance of [DatabaseObserver]
      * that will observe the selected parking lot
      * and trigger the given [EventListener] when
-     * updates occur.
+     * updates occur. The lot's listener is shared with
+     * every other observer of it, via the [io.github.cchristou3.CyParking.data.manager.SharedSnapshotRegistry].
+     * As each snapshot redraws the lot's offers, a busy lot's snapshots are rate limited
+     * to [LOT_UPDATES_PER_SECOND].
      *
      * @param context the context to make use of.
      * @param selectedParking the selected parking lot.
@@ -217,9 +222,11 @@ class BookingViewModel(private val mBookingRepository: BookingRepository, privat
     fun observeParkingLotToBeBooked(context: Context, selectedParking: ParkingLot): DatabaseObserver<DocumentReference, DocumentSnapshot>? {
         isBookingCompleted.value?.let {
             if (it) {
-                return DatabaseObserver.createDocumentReferenceObserver(
+                return DatabaseObserver.createSharedDocumentReferenceObserver(
                         getParkingLotReference(selectedParking),  // The Document Reference
                         getSnapShotListener(context)) // The event listener
+                        .setEmissionPolicy(EmissionPolicy.rateLimit(LOT_UPDATES_PER_SECOND))
+                        .setTelemetryName("booking.lot")
             }
         }
         return null
@@ -502,4 +509,9 @@ class BookingViewModel(private val mBookingRepository: BookingRepository, privat
             }
         }
     }
-}
\ No newline at end of file
+
+    companion object {
+        // The maximum number of the booked lot's snapshots delivered per second
+        const val LOT_UPDATES_PER_SECOND = 2
+    }
+}
@@ -146,7 +146,7 @@ class BookingDetailsFragment : NavigatorFragment<BookingDetailsFragmentBinding>(
                 loadPhoto(selectedBooking)
                 displayContents(selectedBooking)
                 setListenerToQRCodeButton(selectedBooking.qrCode)
-                viewModel.observeBookingStatus(it.generateDocumentId(), requireActivity())
+                viewModel.observeBookingStatus(it.generateDocumentId())
             }
         }
     }
@@ -1,12 +1,18 @@
 package io.github.cchristou3.CyParking.ui.views.parking.slots.bookingDetails
 
-import androidx.fragment.app.FragmentActivity
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
+import com.google.firebase.firestore.DocumentSnapshot
+import com.google.firebase.firestore.EventListener
+import com.google.firebase.firestore.ListenerRegistration
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.booking.Booking
+import io.github.cchristou3.CyParking.apiClient.model.mapper.BookingMapper
+import io.github.cchristou3.CyParking.apiClient.model.mapper.ParkingLotMapper
 import io.github.cchristou3.CyParking.apiClient.remote.repository.OperatorRepository
+import io.github.cchristou3.CyParking.data.manager.ListenerTelemetry
+import io.github.cchristou3.CyParking.data.manager.SharedSnapshotRegistry
 
 /**
  * Purpose: <p>Data persistence when configuration changes.
@@ -14,7 +20,7 @@ import io.github.cchristou3.CyParking.apiClient.remote.repository.OperatorReposi
  * bookings.</p>
  *
  * @author Charalambos Christou
- * @since 3.0 28/02/21
+ * @since 4.0 18/10/21
  */
 class BookingDetailsViewModel(private val repository: OperatorRepository) : ViewModel() {
 
@@ -22,6 +28,10 @@ class BookingDetailsViewModel(private val repository: OperatorRepository) : View
 
     private val mIsCompleted = MutableLiveData<Boolean>()
 
+    // The subscription to the observed booking, along with its id
+    private var mBookingRegistration: ListenerRegistration? = null
+    private var mObservedBookingId: String? = null
+
     /**
      * A LiveData getter of [mLotOfBooking] to ensure that
      * its value cannot be changed outside of the ViewModel scope.
@@ -40,7 +50,7 @@ class BookingDetailsViewModel(private val repository: OperatorRepository) : View
         repository.getParkingLot(booking.operatorId).get()
                 .addOnCompleteListener { task ->
                     if (task.isSuccessful) {
-                        val lot = task.result?.documents?.get(0)?.toObject(ParkingLot::class.java)
+                        val lot = task.result?.documents?.get(0)?.let { ParkingLotMapper.toParkingLot(it) }
                         lot?.let {
                             mLotOfBooking.value = it
                         }
@@ -50,24 +60,36 @@ class BookingDetailsViewModel(private val repository: OperatorRepository) : View
 
     /**
      * Observe the booking that has as a document id the given bookingId.
+     * The booking's listener is shared via the [SharedSnapshotRegistry] and kept until
+     * the ViewModel is cleared. Thus, observing the same booking again does not add another one.
      *
      * @param bookingId the document id of a booking
-     * @param activity the activity to handle the eventlistener.
      */
-    fun observeBookingStatus(bookingId: String?, activity: FragmentActivity) {
-        repository.getBooking(bookingId)
-                .addSnapshotListener(activity) { value, _ ->
+    fun observeBookingStatus(bookingId: String?) {
+        if (mBookingRegistration != null && bookingId == mObservedBookingId) return // Already observed
+        mBookingRegistration?.remove()
+        mObservedBookingId = bookingId
+        mBookingRegistration = SharedSnapshotRegistry.getInstance()
+                .subscribe(repository.getBooking(bookingId), ListenerTelemetry.getInstance().instrument("booking_details.status", EventListener<DocumentSnapshot> { value, _ ->
                     if (value == null || !value.exists()) {
                         mIsCompleted.value = true // Does not exist. Do not allow the user to generate QR Code.
-                        return@addSnapshotListener
+                        return@EventListener
                     }
-                    val booking = value.toObject(Booking::class.java)
+                    val booking = BookingMapper.toBooking(value)
                     if (booking == null) {
                         mIsCompleted.value = true // Does not exist. Do not allow the user to generate QR Code.
-                        return@addSnapshotListener
+                        return@EventListener
                     }
                     mIsCompleted.value = booking.isCompleted
-                }
+                }))
+    }
 
+    /**
+     * Stops observing the booking.
+     */
+    override fun onCleared() {
+        mBookingRegistration?.remove()
+        mBookingRegistration = null
+        super.onCleared()
     }
 }
\ No newline at end of file
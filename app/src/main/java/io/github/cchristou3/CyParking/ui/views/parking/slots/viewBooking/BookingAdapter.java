@@ -9,7 +9,9 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.DiffUtil;
+import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.ItemTouchHelper;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -24,9 +26,13 @@ import io.github.cchristou3.CyParking.ui.components.SwipeableAdapter;
 /**
  * Purpose: <p> Handles how each item of the RecyclerView will look like. </p>
  * Used in {@link ViewBookingsFragment} to show the user's bookings.
+ * <p>
+ * The bookings are paged: a null booking is a placeholder of a booking whose page is
+ * not loaded. The range of visible positions is reported to the
+ * {@link OnVisibleRangeChangedListener} as the user scrolls, for the pages to be loaded.
  *
  * @author Charalambos Christou
- * @version 4.0 08/02/21
+ * @version 5.0 18/10/21
  */
 public class BookingAdapter extends SwipeableAdapter<Booking, BookingAdapter.BookingViewHolder> {
 
@@ -34,6 +40,8 @@ public class BookingAdapter extends SwipeableAdapter<Booking, BookingAdapter.Boo
     private static final long DURATION = 500;
     private static View.OnClickListener mOnItemClickListener;
     private final RecyclerView.OnScrollListener mOnScrollListener;
+    @Nullable
+    private OnVisibleRangeChangedListener mOnVisibleRangeChangedListener;
     private boolean mOnAttach = true;
 
     /**
@@ -60,6 +68,15 @@ public class BookingAdapter extends SwipeableAdapter<Booking, BookingAdapter.Boo
         mOnItemClickListener = onItemClickListener;
     }
 
+    /**
+     * Sets the listener of the range of visible positions.
+     *
+     * @param listener The listener. Null, to remove it.
+     */
+    public void setOnVisibleRangeChangedListener(@Nullable OnVisibleRangeChangedListener listener) {
+        this.mOnVisibleRangeChangedListener = listener;
+    }
+
     /**
      * Returns a new instance of {@link RecyclerView.OnScrollListener}.
      *
@@ -74,6 +91,22 @@ public class BookingAdapter extends SwipeableAdapter<Booking, BookingAdapter.Boo
                 mOnAttach = false;
                 super.onScrollStateChanged(recyclerView, newState);
             }
+
+            /**
+             * Also invoked after a layout changed the visible range, e.g. once the first page got shown.
+             */
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                super.onScrolled(recyclerView, dx, dy);
+                if (mOnVisibleRangeChangedListener == null
+                        || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) return;
+                final LinearLayoutManager manager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                final int first = manager.findFirstVisibleItemPosition();
+                final int last = manager.findLastVisibleItemPosition();
+                if (first != RecyclerView.NO_POSITION && last != RecyclerView.NO_POSITION) {
+                    mOnVisibleRangeChangedListener.onVisibleRangeChanged(first, last);
+                }
+            }
         };
     }
 
@@ -108,6 +141,10 @@ public class BookingAdapter extends SwipeableAdapter<Booking, BookingAdapter.Boo
 
         // - get element of the booking list at this position
         final Booking booking = getItem(position);
+        if (booking == null) { // Its page is not loaded
+            bindPlaceholder(holder);
+            return;
+        }
 
         final String offer = booking.getBookingDetails().getSlotOffer().toString(holder.itemView.getContext());
         final String date = BookingDetails.getDateText(booking.getBookingDetails().getDateOfBooking());
@@ -123,6 +160,19 @@ public class BookingAdapter extends SwipeableAdapter<Booking, BookingAdapter.Boo
         holder.time.setText(time.toString());
     }
 
+    /**
+     * Clears the contents of the given view, until its booking gets loaded.
+     *
+     * @param holder The view of a booking that is not loaded.
+     */
+    private void bindPlaceholder(@NotNull BookingViewHolder holder) {
+        holder.status.setText(null);
+        holder.offer.setText(null);
+        holder.lotName.setText(null);
+        holder.date.setText(null);
+        holder.time.setText(null);
+    }
+
     /**
      * Called by RecyclerView when it starts observing this Adapter.
      * Attaches the {@link #mOnScrollListener} to the RecyclerView.
@@ -170,6 +220,17 @@ public class BookingAdapter extends SwipeableAdapter<Booking, BookingAdapter.Boo
         animator.start();
     }
 
+    /**
+     * Purpose: receive the range of the visible positions.
+     */
+    public interface OnVisibleRangeChangedListener {
+        /**
+         * @param firstVisible The position of the first visible booking.
+         * @param lastVisible  The position of the last visible booking.
+         */
+        void onVisibleRangeChanged(int firstVisible, int lastVisible);
+    }
+
     /**
      * Provide a reference to the views for each data item
      * Complex data items may need more than one view per item, and
@@ -33,7 +33,6 @@ import io.github.cchristou3.CyParking.ui.views.host.MainHostActivity;
 import io.github.cchristou3.CyParking.ui.views.user.account.AccountFragment;
 import io.github.cchristou3.CyParking.ui.views.user.feedback.FeedbackFragment;
 import io.github.cchristou3.CyParking.ui.views.user.login.AuthenticatorFragment;
-import io.github.cchristou3.CyParking.utils.Utility;
 
 /**
  * Purpose: <p>Shows pending / completed bookings of the user / operator?</p>
@@ -43,7 +42,7 @@ import io.github.cchristou3.CyParking.utils.Utility;
  * </p>
  *
  * @author Charalambos Christou
- * @version 10.0 26/03/21
+ * @version 11.0 18/10/21
  */
 public class ViewBookingsFragment extends NavigatorFragment<FragmentViewBookingsBinding>
         implements BaseFragment.UserStateUiHandler {
@@ -81,6 +80,7 @@ public class ViewBookingsFragment extends NavigatorFragment<FragmentViewBookings
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
+        initializeUi();
         setViewModelObservers();
     }
 
@@ -117,9 +117,7 @@ public class ViewBookingsFragment extends NavigatorFragment<FragmentViewBookings
      * @param bookings A list of bookings.
      */
     private void updateUi(List<Booking> bookings) {
-
-        initializeUi();
-        Log.d(TAG, "updateUi: " + bookings);
+        Log.d(TAG, "updateUi: " + (bookings == null ? null : bookings.size()));
         if (bookings == null || bookings.isEmpty()) {
             displayMessage();
         } else {
@@ -140,7 +138,7 @@ public class ViewBookingsFragment extends NavigatorFragment<FragmentViewBookings
     /**
      * Returns an instance of {@link ItemTouchHelper}.
      * onSwipeLeft: Remove the item from the list and the database
-     * and notify the adapter.
+     * and notify the adapter. A booking that is not loaded yet is restored.
      *
      * @return An instance of {@link ItemTouchHelper}.
      */
@@ -148,14 +146,11 @@ public class ViewBookingsFragment extends NavigatorFragment<FragmentViewBookings
     private ItemTouchHelper getItemTouchHelper() {
         return new ItemTouchHelper(new BaseItemTouchHelper(
                 itemPosition -> {
-                    // Access the current list - with a new reference
-                    List<Booking> newBookings = Utility.cloneList(mViewBookingsViewModel.getBookingList());
-                    // Remove the booking fro the list and store its id in a variable
-                    String bookingToBeCancelledId = newBookings.remove((int) itemPosition).generateDocumentId();
-                    // Remove specific booking from the database.
-                    mViewBookingsViewModel.cancelParkingBooking(bookingToBeCancelledId);
-                    // Update the adapter's list
-                    mViewBookingsViewModel.updateBookingList(newBookings);
+                    // Remove the booking from its page and the database.
+                    // The ViewModel updates the adapter's list.
+                    if (!mViewBookingsViewModel.cancelParkingBookingAt(itemPosition)) {
+                        mBookingAdapter.notifyItemChanged(itemPosition);
+                    }
                 }, getResources(), R.id.booking_item_cv // Id of the card view
         ));
     }
@@ -205,20 +200,21 @@ public class ViewBookingsFragment extends NavigatorFragment<FragmentViewBookings
      * Add an onClick listener to the adapter's items.
      * onClick: Navigate to a screen to view the booking details and its QR code
      * using shared element as animation.
+     * As the user scrolls, the visible range is passed to the ViewModel, to load the next pages.
      */
     private void setUpAdapter() {
         if (mBookingAdapter == null)
             mBookingAdapter = new BookingAdapter(new BookingsDiffCallback(), getItemTouchHelper());
-        BookingAdapter.setOnItemClickListener(v ->
-                navigateTo(
-                        ViewBookingsFragmentDirections.actionNavViewBookingsToNavBookingDetailsFragment(
-                                // get the booking that got clicked from the list
-                                mBookingAdapter.getCurrentList().get((
-                                        // Position of the item that got clicked
-                                        (RecyclerView.ViewHolder) v.getTag()).getAdapterPosition())
-                        )
-                )
-        );
+        mBookingAdapter.setOnVisibleRangeChangedListener(mViewBookingsViewModel::onVisibleRangeChanged);
+        BookingAdapter.setOnItemClickListener(v -> {
+            // Position of the item that got clicked
+            final int position = ((RecyclerView.ViewHolder) v.getTag()).getAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) return;
+            // get the booking that got clicked from the list
+            final Booking booking = mBookingAdapter.getCurrentList().get(position);
+            if (booking == null) return; // Not loaded yet
+            navigateTo(ViewBookingsFragmentDirections.actionNavViewBookingsToNavBookingDetailsFragment(booking));
+        });
     }
 
     /**
@@ -2,11 +2,13 @@ package io.github.cchristou3.CyParking.ui.views.parking.slots.viewBooking;
 
 import android.util.Log;
 
+import androidx.annotation.Nullable;
 import androidx.core.util.Consumer;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.QuerySnapshot;
 
 import org.jetbrains.annotations.NotNull;
@@ -15,23 +17,37 @@ import java.util.List;
 
 import io.github.cchristou3.CyParking.R;
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.slot.booking.Booking;
+import io.github.cchristou3.CyParking.apiClient.model.mapper.BookingMapper;
 import io.github.cchristou3.CyParking.apiClient.remote.repository.BookingRepository;
-import io.github.cchristou3.CyParking.apiClient.utils.Utils;
+import io.github.cchristou3.CyParking.data.manager.PageWindow;
 
 /**
  * Purpose: <p>Data persistence when configuration changes.
  * Used when the users try to view their bookings.</p>
+ * <p>
+ * The bookings are loaded a page of {@link #PAGE_SIZE} at a time, via a {@link PageWindow}.
+ * Thus, the first ones are shown as fast, regardless of how many bookings the user has.
+ * The bookings of the pages that are not loaded are null placeholders.
  *
  * @author Charalambos Christou
- * @version 4.0 26/03/21
+ * @version 5.0 18/10/21
  */
 public class ViewBookingsViewModel extends ViewModel {
 
+    /**
+     * The number of bookings of a page.
+     */
+    public static final int PAGE_SIZE = 20;
+    // The next page is prefetched, once the user scrolled half of the last loaded page
+    private static final int PREFETCH_DISTANCE = PAGE_SIZE / 2;
     private static final String TAG = ViewBookingsViewModel.class.getName();
     // Data member
     private final MutableLiveData<List<Booking>> mBookingList =
             new MutableLiveData<>();
     private final BookingRepository mBookingRepository;
+    // The pages of the user's bookings. Null, until they are requested.
+    @Nullable
+    private PageWindow<DocumentSnapshot, Booking> mBookingPages;
     private boolean mWasDataLoaded = false;
 
     /**
@@ -73,33 +89,76 @@ public class ViewBookingsViewModel extends ViewModel {
     }
 
     /**
-     * Returns the bookings of the specified userId,
-     * that are not completed. Also, if this method is called
+     * Returns the first page of the bookings of the specified userId,
+     * that are not completed. The next pages are loaded as the user scrolls,
+     * via {@link #onVisibleRangeChanged(int, int)}. Also, if this method is called
      * more than one time, then the remaining calls are ignored.
      *
      * @param userId       The id of the Firebase user.
      * @param displayToast A handler for displaying toast messages.
      */
     public void getUserBookings(String userId, Consumer<Integer> displayToast, Runnable showLoadingBar, Runnable hideLoadingBar) {
-        if (!mWasDataLoaded) {
-            showLoadingBar.run();
-            this.mBookingRepository.getUserBookings(userId).get()
-                    .addOnCompleteListener(task -> {
-                        hideLoadingBar.run();
-                        final Exception error = task.getException();
-                        final QuerySnapshot value = task.getResult();
-                        if (error != null || value == null) { // Check whether an error occurred
-                            displayToast.accept(R.string.load_booking_failed);
-                            return;
-                        }
-
-                        List<Booking> bookings = Utils.getListOf(value, Booking.class);
-                        Log.d(TAG, "New Snapshot success: " + bookings.size());
-                        // - Update the booking list state with the newly created booking list
-                        updateBookingList(bookings);
+        if (mBookingPages != null) return;
+        showLoadingBar.run();
+        mBookingPages = new PageWindow<>(PAGE_SIZE, PREFETCH_DISTANCE,
+                (startAfter, endAt, limit, callback) ->
+                        this.mBookingRepository.getUserBookingsPage(userId, startAfter, endAt, limit).get()
+                                .addOnCompleteListener(task -> {
+                                    final QuerySnapshot value = task.isSuccessful() ? task.getResult() : null;
+                                    if (value == null) { // Check whether an error occurred
+                                        callback.onFailed(task.getException() != null ? task.getException()
+                                                : new IllegalStateException("No bookings were returned."));
+                                        return;
+                                    }
+                                    final List<DocumentSnapshot> documents = value.getDocuments();
+                                    callback.onLoaded(BookingMapper.toBookings(value),
+                                            documents.isEmpty() ? null : documents.get(documents.size() - 1));
+                                }),
+                new PageWindow.Listener<Booking>() {
+                    @Override
+                    public void onItemsChanged(@NotNull List<Booking> bookings, boolean isComplete) {
+                        if (!mWasDataLoaded) hideLoadingBar.run();
                         mWasDataLoaded = true;
-                    });
-        }
+                        Log.d(TAG, "New page success: " + bookings.size() + ", complete: " + isComplete);
+                        // - Update the booking list state with the loaded bookings
+                        updateBookingList(bookings);
+                    }
+
+                    @Override
+                    public void onLoadFailed(@NotNull Exception error) {
+                        Log.d(TAG, "Page failed: " + error.getMessage());
+                        displayToast.accept(R.string.load_booking_failed);
+                        if (mWasDataLoaded) return;
+                        hideLoadingBar.run();
+                        mBookingPages = null; // Allow the next call to try again
+                    }
+                });
+        mBookingPages.loadInitial();
+    }
+
+    /**
+     * Prefetches, reloads or releases pages of bookings,
+     * based on the given range of visible positions.
+     *
+     * @param firstVisible The position of the first visible booking.
+     * @param lastVisible  The position of the last visible booking.
+     * @see PageWindow#onVisibleRangeChanged(int, int)
+     */
+    public void onVisibleRangeChanged(int firstVisible, int lastVisible) {
+        if (mBookingPages != null) mBookingPages.onVisibleRangeChanged(firstVisible, lastVisible);
+    }
+
+    /**
+     * Removes the booking at the given position from the list and deletes it from the database.
+     *
+     * @param position The position of the booking in the list.
+     * @return True, if the booking got cancelled. False, if it was not loaded.
+     */
+    public boolean cancelParkingBookingAt(int position) {
+        final Booking booking = mBookingPages == null ? null : mBookingPages.removeAt(position);
+        if (booking == null) return false;
+        cancelParkingBooking(booking.generateDocumentId());
+        return true;
     }
 
     /**
@@ -24,6 +24,7 @@ import java.util.List;
 import io.github.cchristou3.CyParking.R;
 import io.github.cchristou3.CyParking.apiClient.local.SharedPreferencesManager;
 import io.github.cchristou3.CyParking.apiClient.model.data.user.LoggedInUser;
+import io.github.cchristou3.CyParking.apiClient.model.mapper.LoggedInUserMapper;
 import io.github.cchristou3.CyParking.apiClient.remote.repository.AccountRepository;
 import io.github.cchristou3.CyParking.apiClient.remote.repository.AuthenticatorRepository;
 import io.github.cchristou3.CyParking.data.pojo.form.login.AuthFormState;
@@ -113,7 +114,7 @@ public class AuthenticatorViewModel extends ViewModel {
                                         // The task was successful and the user has data stored on the server
                                         LoggedInUser loggedInUser = null;
                                         try {
-                                            loggedInUser = retrieveUserDataTask.getResult().toObject(LoggedInUser.class);
+                                            loggedInUser = LoggedInUserMapper.toLoggedInUser(retrieveUserDataTask.getResult());
                                         } catch (NullPointerException ignored) {
                                         }
                                         // A user without roles will be treated as a not-logged-in user.
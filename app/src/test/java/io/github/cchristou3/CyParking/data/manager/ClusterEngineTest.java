@@ -0,0 +1,129 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+/*
+ * Unit tests for the {@link ClusterEngine} class.
+ */
+public class ClusterEngineTest {
+
+    private ClusterEngine engine;
+
+    @Before
+    public void setUp() {
+        engine = new ClusterEngine();
+        // Two lots ~100 meters apart
+        engine.upsert("a", 35.18561, 33.38231, 5, 10);
+        engine.upsert("b", 35.18651, 33.38231, 7, 10);
+    }
+
+    @Test
+    public void clustersAt_minZoom_groupsCloseLots() {
+        List<ClusterEngine.Cluster> clusters = engine.clustersAt(ClusterEngine.MIN_ZOOM);
+        Assert.assertEquals(1, clusters.size());
+        Assert.assertEquals(2, clusters.get(0).getSize());
+        Assert.assertEquals(12, clusters.get(0).getAvailableSpaces());
+        Assert.assertEquals(20, clusters.get(0).getCapacity());
+        Assert.assertNull(clusters.get(0).getSingleId());
+    }
+
+    @Test
+    public void clustersAt_maxZoom_separatesCloseLots() {
+        List<ClusterEngine.Cluster> clusters = engine.clustersAt(ClusterEngine.MAX_ZOOM);
+        Assert.assertEquals(2, clusters.size());
+        for (ClusterEngine.Cluster cluster : clusters) {
+            Assert.assertEquals(1, cluster.getSize());
+            Assert.assertTrue(cluster.getSingleId() != null);
+        }
+    }
+
+    @Test
+    public void upsert_modifiedSpaces_updatesTotals() {
+        long key = engine.clustersAt(ClusterEngine.MIN_ZOOM).get(0).getKey();
+        engine.upsert("a", 35.18561, 33.38231, 1, 10);
+        ClusterEngine.Cluster cluster = engine.clustersAt(ClusterEngine.MIN_ZOOM).get(0);
+        Assert.assertEquals(key, cluster.getKey());
+        Assert.assertEquals(8, cluster.getAvailableSpaces());
+        Assert.assertEquals(2, engine.size());
+    }
+
+    @Test
+    public void upsert_movedFarAway_leavesTheCluster() {
+        engine.upsert("b", 34.68, 33.04, 7, 10);
+        List<ClusterEngine.Cluster> clusters = engine.clustersAt(ClusterEngine.MIN_ZOOM);
+        Assert.assertEquals(2, clusters.size());
+        for (ClusterEngine.Cluster cluster : clusters) Assert.assertEquals(1, cluster.getSize());
+    }
+
+    @Test
+    public void remove_lastLotOfCell_dropsTheCluster() {
+        Assert.assertTrue(engine.remove("a"));
+        Assert.assertTrue(engine.remove("b"));
+        Assert.assertFalse(engine.remove("b"));
+        Assert.assertTrue(engine.clustersAt(ClusterEngine.MIN_ZOOM).isEmpty());
+        Assert.assertTrue(engine.clustersAt(ClusterEngine.MAX_ZOOM).isEmpty());
+    }
+
+    @Test
+    public void remove_oneOfTwo_singleClusterKeepsExactPosition() {
+        engine.remove("b");
+        ClusterEngine.Cluster cluster = engine.clustersAt(ClusterEngine.MIN_ZOOM).get(0);
+        Assert.assertEquals("a", cluster.getSingleId());
+        Assert.assertEquals(35.18561, cluster.getLatitude(), 0);
+        Assert.assertEquals(5, cluster.getAvailableSpaces());
+    }
+
+    @Test
+    public void looksTheSameAs_differentSpaces_returnsFalse() {
+        ClusterEngine.Cluster before = engine.clustersAt(ClusterEngine.MIN_ZOOM).get(0);
+        engine.upsert("b", 35.18651, 33.38231, 6, 10);
+        Assert.assertFalse(before.looksTheSameAs(engine.clustersAt(ClusterEngine.MIN_ZOOM).get(0)));
+        Assert.assertTrue(before.looksTheSameAs(before));
+    }
+
+    @Test
+    public void clustersAt_withViewport_skipsClustersOutsideIt() {
+        engine.upsert("limassol", 34.68, 33.04, 3, 10);
+        Viewport nicosia = new Viewport(35.15, 33.35, 35.20, 33.40);
+        List<ClusterEngine.Cluster> clusters = engine.clustersAt(ClusterEngine.MIN_ZOOM, nicosia);
+        Assert.assertEquals(1, clusters.size());
+        Assert.assertEquals(12, clusters.get(0).getAvailableSpaces());
+        Assert.assertEquals(2, engine.clustersAt(ClusterEngine.MIN_ZOOM, null).size());
+    }
+
+    @Test
+    public void setVisible_hiddenLot_leavesTheClustersUntilShown() {
+        Assert.assertTrue(engine.setVisible("b", false));
+        Assert.assertFalse(engine.setVisible("b", false));
+        ClusterEngine.Cluster cluster = engine.clustersAt(ClusterEngine.MIN_ZOOM).get(0);
+        Assert.assertEquals(1, cluster.getSize());
+        Assert.assertEquals("a", cluster.getSingleId());
+        // Updates of a hidden lot are kept, but not clustered
+        engine.upsert("b", 35.18651, 33.38231, 9, 10, false);
+        Assert.assertEquals(1, engine.clustersAt(ClusterEngine.MIN_ZOOM).get(0).getSize());
+        Assert.assertTrue(engine.setVisible("b", true));
+        Assert.assertEquals(14, engine.clustersAt(ClusterEngine.MIN_ZOOM).get(0).getAvailableSpaces());
+        Assert.assertEquals(2, engine.size());
+    }
+
+    @Test
+    public void remove_hiddenLot_dropsIt() {
+        engine.setVisible("a", false);
+        engine.setVisible("b", false);
+        Assert.assertTrue(engine.clustersAt(ClusterEngine.MIN_ZOOM).isEmpty());
+        Assert.assertTrue(engine.remove("a"));
+        Assert.assertFalse(engine.setVisible("a", true));
+        Assert.assertEquals(1, engine.size());
+    }
+
+    @Test
+    public void levelOf_clampsToTheClusterLevels() {
+        Assert.assertEquals(ClusterEngine.MIN_ZOOM, ClusterEngine.levelOf(3.5f));
+        Assert.assertEquals(15, ClusterEngine.levelOf(15.9f));
+        Assert.assertEquals(ClusterEngine.MAX_ZOOM, ClusterEngine.levelOf(22f));
+    }
+}
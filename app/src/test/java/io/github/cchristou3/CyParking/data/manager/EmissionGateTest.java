@@ -0,0 +1,162 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link EmissionGate} and {@link EmissionPolicy} classes.
+ * A fake source offers an event every millisecond, on a virtual clock.
+ */
+public class EmissionGateTest {
+
+    private static final int SOURCE_DURATION_MILLIS = 2000;
+
+    private FakeScheduler scheduler;
+    private List<Integer> delivered;
+    private List<Long> deliveryTimes;
+
+    @Before
+    public void setUp() {
+        scheduler = new FakeScheduler();
+        delivered = new ArrayList<>();
+        deliveryTimes = new ArrayList<>();
+    }
+
+    @Test
+    public void immediate_deliversEveryEvent() {
+        final EmissionGate<Integer> gate = createGate(EmissionPolicy.IMMEDIATE);
+        runHighRateSource(gate);
+        assertEquals(SOURCE_DURATION_MILLIS, delivered.size());
+    }
+
+    @Test
+    public void conflateLatest_burstInSingleTurn_deliversOnlyLatest() {
+        final EmissionGate<Integer> gate = createGate(EmissionPolicy.conflateLatest());
+        for (int i = 0; i < 100; i++) gate.offer(i);
+        assertTrue(delivered.isEmpty());
+        scheduler.advanceTo(0);
+        assertEquals(Collections.singletonList(99), delivered);
+    }
+
+    @Test
+    public void rateLimit_highRateSource_boundsDeliveriesPerSecond() {
+        final EmissionGate<Integer> gate = createGate(EmissionPolicy.rateLimit(10));
+        runHighRateSource(gate);
+        scheduler.advanceTo(SOURCE_DURATION_MILLIS + 1000);
+        // 10 per second, plus the trailing event
+        assertTrue(delivered.size() <= 10 * SOURCE_DURATION_MILLIS / 1000 + 1);
+        for (int i = 1; i < deliveryTimes.size(); i++) {
+            assertTrue(deliveryTimes.get(i) - deliveryTimes.get(i - 1) >= 100);
+        }
+        // The first event is not delayed and the latest one is never lost
+        assertEquals(0, (int) delivered.get(0));
+        assertEquals(SOURCE_DURATION_MILLIS - 1, (int) delivered.get(delivered.size() - 1));
+    }
+
+    @Test
+    public void rateLimit_quietSource_deliversStraightAway() {
+        final EmissionGate<Integer> gate = createGate(EmissionPolicy.rateLimit(4));
+        for (int i = 0; i < 5; i++) {
+            scheduler.advanceTo(i * 500L);
+            gate.offer(i);
+            assertEquals(i + 1, delivered.size());
+        }
+    }
+
+    @Test
+    public void debounce_highRateSource_deliversEveryMaxWait() {
+        final EmissionGate<Integer> gate = createGate(EmissionPolicy.debounce(50, 200));
+        runHighRateSource(gate);
+        scheduler.advanceTo(SOURCE_DURATION_MILLIS + 1000);
+        assertTrue(delivered.size() <= SOURCE_DURATION_MILLIS / 200 + 1);
+        assertEquals(SOURCE_DURATION_MILLIS - 1, (int) delivered.get(delivered.size() - 1));
+    }
+
+    @Test
+    public void debounce_afterQuietWindow_deliversOnce() {
+        final EmissionGate<Integer> gate = createGate(EmissionPolicy.debounce(50, 200));
+        gate.offer(1);
+        scheduler.advanceTo(30);
+        gate.offer(2);
+        scheduler.advanceTo(79);
+        assertTrue(delivered.isEmpty());
+        scheduler.advanceTo(80);
+        assertEquals(Collections.singletonList(2), delivered);
+    }
+
+    @Test
+    public void concatenatingMerger_losesNoEvents() {
+        final List<List<Integer>> batches = new ArrayList<>();
+        final EmissionGate<List<Integer>> gate = EmissionPolicy.rateLimit(5).createGate(scheduler,
+                (pending, incoming) -> {
+                    final List<Integer> merged = new ArrayList<>(pending);
+                    merged.addAll(incoming);
+                    return merged;
+                }, batches::add);
+        for (int t = 0; t < SOURCE_DURATION_MILLIS; t++) {
+            scheduler.advanceTo(t);
+            gate.offer(Collections.singletonList(t));
+        }
+        scheduler.advanceTo(SOURCE_DURATION_MILLIS + 1000);
+        final List<Integer> all = new ArrayList<>();
+        for (List<Integer> batch : batches) all.addAll(batch);
+        assertEquals(SOURCE_DURATION_MILLIS, all.size());
+        for (int i = 0; i < all.size(); i++) assertEquals(i, (int) all.get(i)); // In order
+        assertTrue(batches.size() <= 5 * SOURCE_DURATION_MILLIS / 1000 + 1);
+    }
+
+    @Test
+    public void cancel_dropsPendingEvent() {
+        final EmissionGate<Integer> gate = createGate(EmissionPolicy.conflateLatest());
+        gate.offer(1);
+        gate.cancel();
+        scheduler.advanceTo(1000);
+        assertFalse(gate.hasPending());
+        assertTrue(delivered.isEmpty());
+    }
+
+    @Test
+    public void flush_deliversPendingEvent() {
+        final EmissionGate<Integer> gate = createGate(EmissionPolicy.debounce(50, 200));
+        gate.offer(1);
+        gate.flush();
+        assertEquals(Collections.singletonList(1), delivered);
+        scheduler.advanceTo(1000);
+        assertEquals(1, delivered.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rateLimit_notPositive_throws() {
+        EmissionPolicy.rateLimit(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void debounce_maxWaitShorterThanWindow_throws() {
+        EmissionPolicy.debounce(100, 50);
+    }
+
+    private EmissionGate<Integer> createGate(EmissionPolicy policy) {
+        return policy.createGate(scheduler, EmissionGate.latest(), event -> {
+            delivered.add(event);
+            deliveryTimes.add(scheduler.now());
+        });
+    }
+
+    /**
+     * Offers an event every millisecond, for {@link #SOURCE_DURATION_MILLIS}.
+     */
+    private void runHighRateSource(EmissionGate<Integer> gate) {
+        for (int t = 0; t < SOURCE_DURATION_MILLIS; t++) {
+            scheduler.advanceTo(t);
+            gate.offer(t);
+        }
+    }
+}
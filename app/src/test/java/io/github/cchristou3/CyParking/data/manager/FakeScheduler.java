@@ -0,0 +1,67 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import androidx.annotation.NonNull;
+
+import java.util.PriorityQueue;
+
+/**
+ * Purpose: run the tasks of an {@link EmissionGate.Scheduler} on a virtual clock,
+ * in the order they are due.
+ */
+class FakeScheduler implements EmissionGate.Scheduler {
+
+    private final PriorityQueue<Task> mTasks = new PriorityQueue<>();
+    private long mNow = 0;
+    private long mSequence = 0;
+
+    @Override
+    public long now() {
+        return mNow;
+    }
+
+    @Override
+    public void schedule(@NonNull Runnable task, long delayMillis) {
+        mTasks.add(new Task(task, mNow + delayMillis, mSequence++));
+    }
+
+    @Override
+    public void cancel(@NonNull Runnable task) {
+        mTasks.removeIf(scheduled -> scheduled.runnable == task);
+    }
+
+    /**
+     * Runs the tasks that are due until the given time, in order.
+     */
+    void advanceTo(long time) {
+        while (!mTasks.isEmpty() && mTasks.peek().due <= time) {
+            final Task task = mTasks.poll();
+            mNow = task.due;
+            task.runnable.run();
+        }
+        mNow = time;
+    }
+
+    /**
+     * Access the number of tasks that are scheduled.
+     */
+    int getPendingCount() {
+        return mTasks.size();
+    }
+
+    private static class Task implements Comparable<Task> {
+        final Runnable runnable;
+        final long due;
+        final long sequence;
+
+        Task(Runnable runnable, long due, long sequence) {
+            this.runnable = runnable;
+            this.due = due;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            return due != other.due ? Long.compare(due, other.due) : Long.compare(sequence, other.sequence);
+        }
+    }
+}
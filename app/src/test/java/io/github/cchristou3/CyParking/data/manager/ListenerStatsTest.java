@@ -0,0 +1,87 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link ListenerStats} class.
+ */
+public class ListenerStatsTest {
+
+    @Test
+    public void getEventsPerSecond_countsOnlyTheWindow() {
+        final ListenerStats stats = new ListenerStats("lots");
+        // 5 events per second, for 20 seconds
+        for (long t = 0; t < 20_000; t += 200) stats.onEvent(t, 1, 10, false, false);
+        assertEquals(5.0, stats.getEventsPerSecond(19_999), 1e-9);
+        // Half of the window is quiet
+        assertEquals(2.5, stats.getEventsPerSecond(24_999), 1e-9);
+        assertEquals(0.0, stats.getEventsPerSecond(60_000), 1e-9);
+        assertEquals(100, stats.getEventCount());
+    }
+
+    @Test
+    public void ratios_excludeErrors() {
+        final ListenerStats stats = new ListenerStats("lots");
+        stats.onEvent(0, 1, 10, true, false);
+        stats.onEvent(0, 1, 10, true, true);
+        stats.onEvent(0, 1, 10, false, false);
+        stats.onEvent(0, 1, 10, false, false);
+        stats.onError(0);
+        assertEquals(0.5, stats.getFromCacheRatio(), 1e-9);
+        assertEquals(0.25, stats.getPendingWritesRatio(), 1e-9);
+    }
+
+    @Test
+    public void onEvent_recordsDocumentsAndBytes() {
+        final ListenerStats stats = new ListenerStats("lots");
+        stats.onEvent(0, 10, 2048, false, false);
+        stats.onEvent(0, 30, 4096, false, false);
+        assertEquals(20.0, stats.getDocumentsPerEvent().getMean(), 1e-9);
+        assertEquals(4096, stats.getBytesPerEvent().getMax());
+    }
+
+    @Test
+    public void onApplied_recordsMicros() {
+        final ListenerStats stats = new ListenerStats("lots");
+        stats.onApplied(3_000_000L); // 3ms
+        assertEquals(3000, stats.getApplyLatencyMicros().getMax());
+    }
+
+    @Test
+    public void reset_dropsAllMetrics() {
+        final ListenerStats stats = new ListenerStats("lots");
+        stats.onEvent(1000, 1, 10, true, true);
+        stats.onApplied(1000);
+        stats.reset();
+        assertEquals(0, stats.getEventCount());
+        assertEquals(0.0, stats.getEventsPerSecond(1000), 1e-9);
+        assertEquals(0, stats.getApplyLatencyMicros().getCount());
+    }
+
+    @Test
+    public void estimateSize_walksNestedValues() {
+        final Map<String, Object> data = new HashMap<>();
+        data.put("name", "Lot"); // 4 + 3
+        data.put("slots", 12L); // 5 + 8
+        data.put("open", true); // 4 + 1
+        data.put("tags", Arrays.asList("a", "bc")); // 4 + 3
+        assertEquals(32, ListenerStats.estimateSize(data));
+    }
+
+    @Test
+    public void appendReport_containsTheName() {
+        final ListenerStats stats = new ListenerStats("map.lots");
+        stats.onEvent(0, 1, 10, false, false);
+        final StringBuilder report = new StringBuilder();
+        stats.appendReport(report, 0);
+        assertTrue(report.toString().startsWith("map.lots\n"));
+        assertTrue(report.toString().contains("events: 1"));
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Unit tests for the {@link LocationUpdateScheduler} class.
+ */
+public class LocationUpdateSchedulerTest {
+
+    private static final double LAT = 35.18561, LNG = 33.38231;
+    // Roughly one meter of latitude, in degrees
+    private static final double METER = 1 / 111_195.0;
+
+    private final LocationUpdateScheduler scheduler = new LocationUpdateScheduler();
+
+    @Test
+    public void jitteryFixes_areSmoothed_andKeepTheUserIdle() {
+        scheduler.onLocation(LAT, LNG, 0);
+        LatLng position = scheduler.onLocation(LAT + 8 * METER, LNG, 30_000);
+        // Moved only a fraction of the way towards the jittery fix
+        Assert.assertEquals(LAT + 1.6 * METER, position.latitude, METER / 10);
+        Assert.assertEquals(0.0, scheduler.getSpeed(), 0.0);
+        Assert.assertEquals(LocationUpdateScheduler.IDLE_INTERVAL_MILLIS, scheduler.nextIntervalMillis(30_000));
+    }
+
+    @Test
+    public void stillUser_backsOffUpToTheMaximumInterval() {
+        scheduler.onLocation(LAT, LNG, 0);
+        Assert.assertEquals(LocationUpdateScheduler.IDLE_INTERVAL_MILLIS, scheduler.nextIntervalMillis(0));
+        Assert.assertEquals(LocationUpdateScheduler.IDLE_INTERVAL_MILLIS * 2,
+                scheduler.nextIntervalMillis(LocationUpdateScheduler.IDLE_STEP_MILLIS));
+        Assert.assertEquals(LocationUpdateScheduler.MAX_IDLE_INTERVAL_MILLIS, scheduler.nextIntervalMillis(3_600_000L));
+    }
+
+    @Test
+    public void driver_getsTheShortestInterval() {
+        scheduler.onLocation(LAT, LNG, 0);
+        scheduler.onLocation(LAT + 70 * METER, LNG, 5_000); // 14 m/s
+        scheduler.onLocation(LAT + 140 * METER, LNG, 10_000);
+        Assert.assertTrue(scheduler.getSpeed() >= LocationUpdateScheduler.DRIVING_SPEED);
+        Assert.assertEquals(LocationUpdateScheduler.DRIVING_INTERVAL_MILLIS, scheduler.nextIntervalMillis(10_000));
+        // Movement is taken as is
+        Assert.assertEquals(LAT + 140 * METER, scheduler.getPosition().latitude, 1e-12);
+    }
+
+    @Test
+    public void walker_getsTheWalkingInterval() {
+        scheduler.onLocation(LAT, LNG, 0);
+        scheduler.onLocation(LAT + 18 * METER, LNG, 15_000); // 1.2 m/s
+        scheduler.onLocation(LAT + 36 * METER, LNG, 30_000);
+        Assert.assertEquals(LocationUpdateScheduler.WALKING_INTERVAL_MILLIS, scheduler.nextIntervalMillis(30_000));
+    }
+
+    @Test
+    public void failures_backOff_untilTheNextFix() {
+        scheduler.onLocation(LAT, LNG, 0);
+        scheduler.onLocationFailed();
+        Assert.assertEquals(LocationUpdateScheduler.RETRY_INTERVAL_MILLIS, scheduler.nextIntervalMillis(0));
+        scheduler.onLocationFailed();
+        Assert.assertEquals(LocationUpdateScheduler.RETRY_INTERVAL_MILLIS * 2, scheduler.nextIntervalMillis(0));
+        for (int i = 0; i < 40; i++) scheduler.onLocationFailed();
+        Assert.assertEquals(LocationUpdateScheduler.MAX_RETRY_INTERVAL_MILLIS, scheduler.nextIntervalMillis(0));
+        // A fix ends the back-off
+        scheduler.onLocation(LAT, LNG, 1_000);
+        Assert.assertEquals(0, scheduler.getConsecutiveFailures());
+        Assert.assertEquals(LocationUpdateScheduler.IDLE_INTERVAL_MILLIS, scheduler.nextIntervalMillis(1_000));
+    }
+
+    @Test
+    public void refetch_isSpacedOut() {
+        Assert.assertTrue(scheduler.canRefetch(0));
+        scheduler.onRefetched(1_000);
+        Assert.assertFalse(scheduler.canRefetch(1_000 + LocationUpdateScheduler.MIN_REFETCH_INTERVAL_MILLIS - 1));
+        Assert.assertTrue(scheduler.canRefetch(1_000 + LocationUpdateScheduler.MIN_REFETCH_INTERVAL_MILLIS));
+    }
+
+    @Test
+    public void camera_holdsWhilePanning_andIgnoresSmallMoves() {
+        scheduler.onLocation(LAT, LNG, 0);
+        Assert.assertTrue(scheduler.shouldMoveCamera(0));
+        // Barely moved
+        scheduler.onLocation(LAT + 5 * METER, LNG, 5_000);
+        Assert.assertFalse(scheduler.shouldMoveCamera(5_000));
+        // Moved, but the user is panning
+        scheduler.onUserPanned(6_000);
+        scheduler.onLocation(LAT + 50 * METER, LNG, 10_000);
+        Assert.assertFalse(scheduler.shouldMoveCamera(10_000));
+        Assert.assertTrue(scheduler.shouldMoveCamera(6_000 + LocationUpdateScheduler.PAN_HOLD_MILLIS));
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link LogHistogram} class.
+ */
+public class LogHistogramTest {
+
+    @Test
+    public void bucketOf_coversPowersOfTwo() {
+        assertEquals(0, LogHistogram.bucketOf(0));
+        assertEquals(0, LogHistogram.bucketOf(-5));
+        assertEquals(1, LogHistogram.bucketOf(1));
+        assertEquals(2, LogHistogram.bucketOf(2));
+        assertEquals(2, LogHistogram.bucketOf(3));
+        assertEquals(3, LogHistogram.bucketOf(4));
+        assertEquals(10, LogHistogram.bucketOf(1023));
+        assertEquals(11, LogHistogram.bucketOf(1024));
+        assertEquals(63, LogHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void record_tracksCountSumMaxAndMean() {
+        final LogHistogram histogram = new LogHistogram();
+        for (long value : new long[]{1, 2, 3, 10}) histogram.record(value);
+        assertEquals(4, histogram.getCount());
+        assertEquals(16, histogram.getSum());
+        assertEquals(10, histogram.getMax());
+        assertEquals(4.0, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void getPercentile_isWithinTwiceTheExactOne() {
+        final LogHistogram histogram = new LogHistogram();
+        for (int value = 1; value <= 1000; value++) histogram.record(value);
+        for (int percentile : new int[]{1, 50, 90, 99}) {
+            final long exact = percentile * 10L;
+            final long estimate = histogram.getPercentile(percentile);
+            assertTrue(estimate >= exact && estimate < 2 * exact);
+        }
+        assertEquals(1000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void getPercentile_noValues_isZero() {
+        assertEquals(0, new LogHistogram().getPercentile(50));
+    }
+
+    @Test
+    public void reset_dropsAllValues() {
+        final LogHistogram histogram = new LogHistogram();
+        histogram.record(42);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void record_concurrentWriters_losesNoValues() throws InterruptedException {
+        final LogHistogram histogram = new LogHistogram();
+        final int writers = 4, valuesPerWriter = 10_000;
+        final List<Thread> threads = new ArrayList<>();
+        for (int writer = 0; writer < writers; writer++) {
+            final int offset = writer;
+            final Thread thread = new Thread(() -> {
+                for (int value = 0; value < valuesPerWriter; value++) histogram.record(value + offset);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals(writers * valuesPerWriter, histogram.getCount());
+        assertEquals(valuesPerWriter - 1 + writers - 1, histogram.getMax());
+    }
+}
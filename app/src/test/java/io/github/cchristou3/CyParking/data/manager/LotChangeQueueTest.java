@@ -0,0 +1,97 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import com.google.firebase.firestore.DocumentChange;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
+
+/*
+ * Unit tests for the {@link LotChangeQueue} class.
+ */
+public class LotChangeQueueTest {
+
+    private LotChangeQueue queue;
+    private List<LotChange> applied;
+    private long now;
+
+    @Before
+    public void setUp() {
+        queue = new LotChangeQueue();
+        applied = new ArrayList<>();
+        now = 0;
+    }
+
+    @Test
+    public void offer_sameDocument_keepsOnlyTheLatest() {
+        ParkingLot latest = new ParkingLot();
+        queue.offer(new LotChange(DocumentChange.Type.MODIFIED, "a", new ParkingLot()));
+        queue.offer(new LotChange(DocumentChange.Type.MODIFIED, "a", latest));
+        Assert.assertEquals(1, queue.size());
+        queue.drain(applied::add, Long.MAX_VALUE, () -> now);
+        Assert.assertSame(latest, applied.get(0).getLot());
+    }
+
+    @Test
+    public void offer_modifiedAfterAdded_staysAdded() {
+        ParkingLot latest = new ParkingLot();
+        queue.offer(new LotChange(DocumentChange.Type.ADDED, "a", new ParkingLot()));
+        queue.offer(new LotChange(DocumentChange.Type.MODIFIED, "a", latest));
+        queue.drain(applied::add, Long.MAX_VALUE, () -> now);
+        Assert.assertEquals(DocumentChange.Type.ADDED, applied.get(0).getType());
+        Assert.assertSame(latest, applied.get(0).getLot());
+    }
+
+    @Test
+    public void offer_removedAfterModified_isRemoved() {
+        queue.offer(new LotChange(DocumentChange.Type.MODIFIED, "a", new ParkingLot()));
+        queue.offer(new LotChange(DocumentChange.Type.REMOVED, "a", null));
+        queue.drain(applied::add, Long.MAX_VALUE, () -> now);
+        Assert.assertEquals(1, applied.size());
+        Assert.assertEquals(DocumentChange.Type.REMOVED, applied.get(0).getType());
+    }
+
+    @Test
+    public void drain_keepsTheOrderOfFirstOffer() {
+        queue.offer(new LotChange(DocumentChange.Type.MODIFIED, "a", new ParkingLot()));
+        queue.offer(new LotChange(DocumentChange.Type.MODIFIED, "b", new ParkingLot()));
+        queue.offer(new LotChange(DocumentChange.Type.MODIFIED, "a", new ParkingLot()));
+        queue.drain(applied::add, Long.MAX_VALUE, () -> now);
+        Assert.assertEquals("a", applied.get(0).getDocId());
+        Assert.assertEquals("b", applied.get(1).getDocId());
+    }
+
+    @Test
+    public void drain_stopsWhenTheBudgetIsExhausted() {
+        for (int i = 0; i < 10; i++) {
+            queue.offer(new LotChange(DocumentChange.Type.MODIFIED, "doc" + i, new ParkingLot()));
+        }
+        // Each change takes 1ms, the budget is 3ms
+        LotChangeQueue.Sink slowSink = change -> {
+            applied.add(change);
+            now += 1_000_000;
+        };
+        Assert.assertEquals(3, queue.drain(slowSink, 3_000_000, () -> now));
+        Assert.assertEquals(7, queue.size());
+        Assert.assertEquals("doc3", drainOne());
+    }
+
+    @Test
+    public void drain_zeroBudget_stillAppliesOne() {
+        queue.offer(new LotChange(DocumentChange.Type.MODIFIED, "a", new ParkingLot()));
+        queue.offer(new LotChange(DocumentChange.Type.MODIFIED, "b", new ParkingLot()));
+        Assert.assertEquals(1, queue.drain(applied::add, 0, () -> now));
+        Assert.assertFalse(queue.isEmpty());
+    }
+
+    private String drainOne() {
+        List<LotChange> next = new ArrayList<>();
+        queue.drain(next::add, 0, () -> now);
+        return next.get(0).getDocId();
+    }
+}
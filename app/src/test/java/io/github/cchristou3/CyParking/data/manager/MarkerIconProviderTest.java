@@ -0,0 +1,27 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Unit tests for the availability levels of {@link MarkerIconProvider}.
+ */
+public class MarkerIconProviderTest {
+
+    @Test
+    public void availabilityOf_noSpaces_isFull() {
+        Assert.assertEquals(MarkerIconProvider.AVAILABILITY_FULL, MarkerIconProvider.availabilityOf(0, 50));
+    }
+
+    @Test
+    public void availabilityOf_tenPercentOrLess_isNearlyFull() {
+        Assert.assertEquals(MarkerIconProvider.AVAILABILITY_NEARLY_FULL, MarkerIconProvider.availabilityOf(1, 50));
+        Assert.assertEquals(MarkerIconProvider.AVAILABILITY_NEARLY_FULL, MarkerIconProvider.availabilityOf(5, 50));
+    }
+
+    @Test
+    public void availabilityOf_moreThanTenPercent_isFree() {
+        Assert.assertEquals(MarkerIconProvider.AVAILABILITY_FREE, MarkerIconProvider.availabilityOf(6, 50));
+        Assert.assertEquals(MarkerIconProvider.AVAILABILITY_FREE, MarkerIconProvider.availabilityOf(3, 3));
+    }
+}
@@ -0,0 +1,170 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link PageWindow} class.
+ * The items are the integers of {@link #data}, each being its own cursor.
+ */
+public class PageWindowTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int PREFETCH_DISTANCE = 5;
+
+    private List<Integer> data;
+    private List<Runnable> pendingLoads;
+    private List<Integer> published;
+    private int loadCount;
+    private PageWindow<Integer, Integer> window;
+
+    @Before
+    public void setUp() {
+        data = new ArrayList<>();
+        for (int value = 0; value < 1000; value++) data.add(value);
+        pendingLoads = new ArrayList<>();
+        published = new ArrayList<>();
+        loadCount = 0;
+        window = new PageWindow<>(PAGE_SIZE, PREFETCH_DISTANCE, this::load, new PageWindow.Listener<Integer>() {
+            @Override
+            public void onItemsChanged(@NonNull List<Integer> items, boolean isComplete) {
+                published = items;
+            }
+
+            @Override
+            public void onLoadFailed(@NonNull Exception error) {
+                throw new AssertionError(error);
+            }
+        });
+    }
+
+    @Test
+    public void loadInitial_loadsOnlyTheFirstPage() {
+        window.loadInitial();
+        completeLoads();
+        assertEquals(1, loadCount);
+        assertEquals(PAGE_SIZE, published.size());
+        assertEquals(0, (int) published.get(0));
+    }
+
+    @Test
+    public void onVisibleRangeChanged_nearTheEnd_prefetchesOnce() {
+        window.loadInitial();
+        completeLoads();
+        window.onVisibleRangeChanged(0, 3);
+        assertTrue(pendingLoads.isEmpty()); // Far from the end
+        window.onVisibleRangeChanged(0, PAGE_SIZE - 1 - PREFETCH_DISTANCE);
+        window.onVisibleRangeChanged(1, PAGE_SIZE - PREFETCH_DISTANCE);
+        assertEquals(1, pendingLoads.size()); // Not again while in flight
+        completeLoads();
+        assertEquals(2 * PAGE_SIZE, published.size());
+        for (int i = 0; i < published.size(); i++) assertEquals(i, (int) published.get(i));
+    }
+
+    @Test
+    public void scrolling_releasesFarPages_andKeepsPositions() {
+        window.loadInitial();
+        completeLoads();
+        scrollTo(500);
+        final int bounded = 2 * PageWindow.RELEASE_DISTANCE_PAGES + 2;
+        assertTrue(window.getLoadedPageCount() <= bounded);
+        // The released items are placeholders in place
+        assertNull(published.get(0));
+        assertEquals(500, (int) published.get(500));
+        for (int i = 0; i < published.size(); i++) {
+            if (published.get(i) != null) assertEquals(i, (int) published.get(i));
+        }
+    }
+
+    @Test
+    public void scrollingBack_reloadsReleasedPagesWithTheSameBounds() {
+        window.loadInitial();
+        completeLoads();
+        scrollTo(200);
+        data.remove(Integer.valueOf(3)); // Removed meanwhile
+        window.onVisibleRangeChanged(0, 5);
+        completeLoads();
+        assertEquals(0, (int) published.get(0));
+        assertEquals(4, (int) published.get(3));
+        assertEquals(PAGE_SIZE - 1, (int) published.get(PAGE_SIZE - 2));
+        // The second page still starts after the first page's end
+        assertEquals(PAGE_SIZE, (int) published.get(PAGE_SIZE - 1));
+    }
+
+    @Test
+    public void lastPage_completesTheWindow() {
+        data = data.subList(0, 25);
+        window.loadInitial();
+        completeLoads();
+        scrollTo(24);
+        assertTrue(window.isComplete());
+        assertEquals(25, published.size());
+        final int loads = loadCount;
+        window.onVisibleRangeChanged(20, 24);
+        assertEquals(loads, loadCount);
+    }
+
+    @Test
+    public void removeAt_dropsTheItem() {
+        window.loadInitial();
+        completeLoads();
+        assertEquals(4, (int) window.removeAt(4));
+        assertEquals(PAGE_SIZE - 1, published.size());
+        assertEquals(5, (int) published.get(4));
+    }
+
+    @Test
+    public void loadInitial_ignoresTheLoadsOfThePreviousOne() {
+        window.loadInitial();
+        final List<Runnable> stale = new ArrayList<>(pendingLoads);
+        pendingLoads.clear();
+        window.loadInitial();
+        completeLoads();
+        for (Runnable load : stale) load.run();
+        assertEquals(PAGE_SIZE, published.size());
+        assertFalse(window.isComplete());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_pageSizeNotPositive_throws() {
+        new PageWindow<Integer, Integer>(0, 0, this::load, null);
+    }
+
+    /**
+     * Scrolls a screen of {@link #PAGE_SIZE} items down to the given position, an item at a time.
+     */
+    private void scrollTo(int position) {
+        for (int first = 0; first + PAGE_SIZE - 1 <= position; first++) {
+            window.onVisibleRangeChanged(first, Math.min(first + PAGE_SIZE - 1, published.size() - 1));
+            completeLoads();
+        }
+    }
+
+    private void completeLoads() {
+        while (!pendingLoads.isEmpty()) pendingLoads.remove(0).run();
+    }
+
+    private void load(Integer startAfter, Integer endAt, int limit,
+                      @NonNull PageWindow.PageCallback<Integer, Integer> callback) {
+        loadCount++;
+        pendingLoads.add(() -> {
+            final List<Integer> page = new ArrayList<>();
+            for (int value : data) {
+                if (startAfter != null && value <= startAfter) continue;
+                if (endAt != null ? value > endAt : page.size() >= limit) break;
+                page.add(value);
+            }
+            callback.onLoaded(page, page.isEmpty() ? null : page.get(page.size() - 1));
+        });
+    }
+}
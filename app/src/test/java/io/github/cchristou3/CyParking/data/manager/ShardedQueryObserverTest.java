@@ -0,0 +1,120 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static io.github.cchristou3.CyParking.data.manager.ShardedQueryObserver.SHARD_SIZE;
+import static io.github.cchristou3.CyParking.data.manager.ShardedQueryObserver.reshard;
+
+/*
+ * Unit tests for the sharding logic of {@link ShardedQueryObserver}.
+ */
+public class ShardedQueryObserverTest {
+
+    @Test
+    public void reshard_noShards_createsFullShards() {
+        // Given no shards
+        List<Set<String>> shards = new ArrayList<>();
+        // When 25 ids are assigned
+        Set<Integer> changed = reshard(shards, ids(0, 25), SHARD_SIZE);
+        // Then 3 shards get created and none exceeds the limit
+        Assert.assertEquals(3, shards.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), changed);
+        for (Set<String> shard : shards) {
+            Assert.assertTrue(shard.size() <= SHARD_SIZE);
+        }
+        Assert.assertEquals(ids(0, 25), union(shards));
+    }
+
+    @Test
+    public void reshard_sameIds_changesNothing() {
+        // Given ids that are already assigned
+        List<Set<String>> shards = new ArrayList<>();
+        reshard(shards, ids(0, 25), SHARD_SIZE);
+        // When the same ids are assigned again
+        Set<Integer> changed = reshard(shards, ids(0, 25), SHARD_SIZE);
+        // Then no shard changes
+        Assert.assertTrue(changed.isEmpty());
+    }
+
+    @Test
+    public void reshard_idRemoved_changesOnlyItsShard() {
+        // Given ids that are already assigned
+        List<Set<String>> shards = new ArrayList<>();
+        reshard(shards, ids(0, 30), SHARD_SIZE);
+        int shardOfRemoved = shardOf(shards, "5");
+        // When one of them is removed
+        Set<String> newIds = ids(0, 30);
+        newIds.remove("5");
+        Set<Integer> changed = reshard(shards, newIds, SHARD_SIZE);
+        // Then only the shard it belonged to changes
+        Assert.assertEquals(Collections.singleton(shardOfRemoved), changed);
+        Assert.assertEquals(newIds, union(shards));
+    }
+
+    @Test
+    public void reshard_idReplaced_reusesFreedSlot() {
+        // Given full shards
+        List<Set<String>> shards = new ArrayList<>();
+        reshard(shards, ids(0, 20), SHARD_SIZE);
+        int shardOfRemoved = shardOf(shards, "3");
+        // When an id gets replaced by a new one
+        Set<String> newIds = ids(0, 20);
+        newIds.remove("3");
+        newIds.add("new");
+        Set<Integer> changed = reshard(shards, newIds, SHARD_SIZE);
+        // Then the new id takes the freed slot and no other shard changes
+        Assert.assertEquals(Collections.singleton(shardOfRemoved), changed);
+        Assert.assertEquals(shardOfRemoved, shardOf(shards, "new"));
+        Assert.assertEquals(2, shards.size());
+    }
+
+    @Test
+    public void reshard_existingIds_keepTheirShard() {
+        // Given ids that are already assigned
+        List<Set<String>> shards = new ArrayList<>();
+        reshard(shards, ids(0, 20), SHARD_SIZE);
+        int shardOfKept = shardOf(shards, "15");
+        // When most of the ids change
+        Set<String> newIds = ids(15, 40);
+        reshard(shards, newIds, SHARD_SIZE);
+        // Then the remaining ones stay where they were
+        Assert.assertEquals(shardOfKept, shardOf(shards, "15"));
+        Assert.assertEquals(newIds, union(shards));
+    }
+
+    @Test
+    public void reshard_allRemoved_emptiesShards() {
+        List<Set<String>> shards = new ArrayList<>();
+        reshard(shards, ids(0, 15), SHARD_SIZE);
+        Set<Integer> changed = reshard(shards, new HashSet<>(), SHARD_SIZE);
+        Assert.assertEquals(new HashSet<>(Arrays.asList(0, 1)), changed);
+        Assert.assertTrue(union(shards).isEmpty());
+    }
+
+    private static Set<String> ids(int from, int to) {
+        Set<String> ids = new HashSet<>();
+        for (int i = from; i < to; i++) ids.add(String.valueOf(i));
+        return ids;
+    }
+
+    private static Set<String> union(List<Set<String>> shards) {
+        Set<String> union = new HashSet<>();
+        for (Set<String> shard : shards) union.addAll(shard);
+        return union;
+    }
+
+    private static int shardOf(List<Set<String>> shards, String id) {
+        for (int i = 0; i < shards.size(); i++) {
+            if (shards.get(i).contains(id)) return i;
+        }
+        return -1;
+    }
+}
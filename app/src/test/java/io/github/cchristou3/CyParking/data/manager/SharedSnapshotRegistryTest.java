@@ -0,0 +1,156 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.github.cchristou3.CyParking.data.manager.SharedSnapshotRegistry.GRACE_PERIOD_MILLIS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link SharedSnapshotRegistry} class.
+ * The snapshots are strings, delivered by a fake Firestore listener per key,
+ * and the registry's tasks run on a {@link FakeScheduler}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SharedSnapshotRegistryTest {
+
+    private static final String KEY = "bookings/1";
+
+    private FakeScheduler scheduler;
+    private SharedSnapshotRegistry registry;
+    // The listeners attached to "Firestore", in order
+    private List<EventListener<String>> attached;
+    private int detachCount;
+
+    @Before
+    public void setUp() {
+        scheduler = new FakeScheduler();
+        registry = new SharedSnapshotRegistry(scheduler);
+        attached = new ArrayList<>();
+        detachCount = 0;
+    }
+
+    @Test
+    public void subscribe_sameKey_attachesOnce() {
+        final List<String> first = new ArrayList<>();
+        final List<String> second = new ArrayList<>();
+        subscribe(KEY, first);
+        subscribe(KEY, second);
+        subscribe("bookings/2", new ArrayList<>());
+        assertEquals(2, attached.size());
+        assertEquals(2, registry.getAttachedCount());
+        // Both subscribers of the key receive its snapshots
+        attached.get(0).onEvent("a", null);
+        assertEquals("[a]", first.toString());
+        assertEquals("[a]", second.toString());
+    }
+
+    @Test
+    public void remove_notLastSubscriber_keepsTheListener() {
+        final ListenerRegistration first = subscribe(KEY, new ArrayList<>());
+        subscribe(KEY, new ArrayList<>());
+        first.remove();
+        scheduler.advanceTo(GRACE_PERIOD_MILLIS * 2);
+        assertEquals(0, detachCount);
+        assertEquals(1, registry.getAttachedCount());
+    }
+
+    @Test
+    public void remove_lastSubscriber_detachesAfterTheGracePeriod() {
+        subscribe(KEY, new ArrayList<>()).remove();
+        scheduler.advanceTo(GRACE_PERIOD_MILLIS - 1);
+        assertEquals(0, detachCount);
+        scheduler.advanceTo(GRACE_PERIOD_MILLIS);
+        assertEquals(1, detachCount);
+        assertEquals(0, registry.getAttachedCount());
+    }
+
+    @Test
+    public void subscribe_withinTheGracePeriod_keepsTheListener() {
+        subscribe(KEY, new ArrayList<>()).remove();
+        scheduler.advanceTo(GRACE_PERIOD_MILLIS / 2);
+        subscribe(KEY, new ArrayList<>());
+        scheduler.advanceTo(GRACE_PERIOD_MILLIS * 2);
+        assertEquals(0, detachCount);
+        assertEquals(1, attached.size());
+    }
+
+    @Test
+    public void subscribe_afterASnapshot_replaysItAsynchronously() {
+        subscribe(KEY, new ArrayList<>());
+        attached.get(0).onEvent("a", null);
+        final List<String> late = new ArrayList<>();
+        subscribe(KEY, late);
+        assertTrue(late.isEmpty()); // Not during the call
+        scheduler.advanceTo(0);
+        assertEquals("[a]", late.toString());
+    }
+
+    @Test
+    public void replay_readsTheLatestSnapshotWhenItRuns() {
+        subscribe(KEY, new ArrayList<>());
+        attached.get(0).onEvent("a", null);
+        final List<String> late = new ArrayList<>();
+        subscribe(KEY, late);
+        // A newer snapshot arrives before the replay runs
+        attached.get(0).onEvent("b", null);
+        scheduler.advanceTo(0);
+        assertEquals("[b]", late.toString());
+    }
+
+    @Test
+    public void replay_subscriberRemovedMeanwhile_isSkipped() {
+        subscribe(KEY, new ArrayList<>());
+        attached.get(0).onEvent("a", null);
+        final List<String> late = new ArrayList<>();
+        subscribe(KEY, late).remove();
+        scheduler.advanceTo(0);
+        assertTrue(late.isEmpty());
+    }
+
+    @Test
+    public void error_detachesAndForwardsIt() {
+        final List<String> first = new ArrayList<>();
+        final FirebaseFirestoreException[] received = new FirebaseFirestoreException[1];
+        subscribe(KEY, first);
+        registry.subscribe(KEY, (String value, FirebaseFirestoreException error) -> received[0] = error, this::attach);
+        attached.get(0).onEvent("a", null);
+        attached.get(0).onEvent(null, Mockito.mock(FirebaseFirestoreException.class));
+        assertNotNull(received[0]);
+        assertEquals(1, detachCount);
+        assertEquals(0, registry.getAttachedCount());
+        // The next subscriber attaches a new listener, without a replay of the stale snapshot
+        final List<String> next = new ArrayList<>();
+        subscribe(KEY, next);
+        scheduler.advanceTo(0);
+        assertEquals(2, attached.size());
+        assertTrue(next.isEmpty());
+    }
+
+    @NonNull
+    private ListenerRegistration subscribe(@NonNull String key, @NonNull List<String> received) {
+        return registry.subscribe(key, (String value, FirebaseFirestoreException error) -> {
+            if (value != null) received.add(value);
+        }, this::attach);
+    }
+
+    @NonNull
+    private ListenerRegistration attach(@NonNull EventListener<String> sharedListener) {
+        attached.add(sharedListener);
+        return () -> detachCount++;
+    }
+}
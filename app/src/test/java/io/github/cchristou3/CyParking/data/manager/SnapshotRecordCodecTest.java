@@ -0,0 +1,93 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import com.google.firebase.firestore.DocumentChange;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link SnapshotRecordCodec} class.
+ */
+public class SnapshotRecordCodecTest {
+
+    @Test
+    public void readAll_writtenRecords_returnsSameRecords() throws IOException {
+        final Map<String, Object> coordinates = new HashMap<>();
+        coordinates.put("latitude", 35.1);
+        coordinates.put("longitude", 33.3);
+        final Map<String, Object> data = new HashMap<>();
+        data.put("lotName", "Λευκωσία Central");
+        data.put("capacity", 120);
+        data.put("coordinates", coordinates);
+        data.put("isOpen", true);
+        data.put("photo", null);
+        data.put("slotOfferList", Arrays.asList(1.5, 2L, "three"));
+        final List<SnapshotRecord> records = Arrays.asList(
+                new SnapshotRecord(0L, "lots", Collections.singletonList(
+                        new SnapshotRecord.Change(DocumentChange.Type.ADDED, "a", data))),
+                new SnapshotRecord(1500L, "lots", Arrays.asList(
+                        new SnapshotRecord.Change(DocumentChange.Type.MODIFIED, "a", data),
+                        new SnapshotRecord.Change(DocumentChange.Type.REMOVED, "b", null))),
+                new SnapshotRecord(1500L, "public_parking", Collections.emptyList()));
+
+        final List<SnapshotRecord> read = roundTrip(records);
+
+        assertEquals(3, read.size());
+        assertEquals(1500L, read.get(1).getOffsetMillis());
+        assertEquals("public_parking", read.get(2).getStream());
+        assertTrue(read.get(2).getChanges().isEmpty());
+        final SnapshotRecord.Change added = read.get(0).getChanges().get(0);
+        assertEquals(DocumentChange.Type.ADDED, added.getType());
+        assertEquals("a", added.getDocId());
+        assertEquals("Λευκωσία Central", added.getData().get("lotName"));
+        assertEquals(120L, added.getData().get("capacity")); // Read back as a long
+        assertEquals(coordinates, added.getData().get("coordinates"));
+        assertEquals(true, added.getData().get("isOpen"));
+        assertTrue(added.getData().containsKey("photo"));
+        assertEquals(Arrays.asList(1.5, 2L, "three"), added.getData().get("slotOfferList"));
+        final SnapshotRecord.Change removed = read.get(1).getChanges().get(1);
+        assertEquals(DocumentChange.Type.REMOVED, removed.getType());
+        assertNull(removed.getData());
+    }
+
+    @Test
+    public void writeAll_manySimilarRecords_isCompact() throws IOException {
+        final List<SnapshotRecord> records = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final Map<String, Object> data = new HashMap<>();
+            data.put("availableSpaces", i % 50);
+            data.put("lotName", "Lot " + (i % 10));
+            records.add(new SnapshotRecord(i * 20L, "lots", Collections.singletonList(
+                    new SnapshotRecord.Change(DocumentChange.Type.MODIFIED, "lot" + (i % 10), data))));
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SnapshotRecordCodec.writeAll(out, records);
+        // A few bytes per record, thanks to the varints and the compression
+        assertTrue(out.size() < 1000 * 16);
+        assertEquals(records.size(), SnapshotRecordCodec.readAll(new ByteArrayInputStream(out.toByteArray())).size());
+    }
+
+    @Test(expected = IOException.class)
+    public void readAll_notRecording_throws() throws IOException {
+        SnapshotRecordCodec.readAll(new ByteArrayInputStream(new byte[]{1, 2, 3, 4}));
+    }
+
+    private static List<SnapshotRecord> roundTrip(List<SnapshotRecord> records) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SnapshotRecordCodec.writeAll(out, records);
+        return SnapshotRecordCodec.readAll(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link SnapshotReplayer} class.
+ */
+public class SnapshotReplayerTest {
+
+    // Recorded at 1000, 1100, 1100 and 3000 milliseconds
+    private static final long[] OFFSETS = {1000L, 1100L, 1100L, 3000L};
+
+    private FakeScheduler scheduler;
+    private SnapshotReplayer replayer;
+    private List<Long> deliveryTimes;
+
+    @Before
+    public void setUp() {
+        scheduler = new FakeScheduler();
+        final List<SnapshotRecord> records = new ArrayList<>();
+        for (long offset : OFFSETS) {
+            records.add(new SnapshotRecord(offset, "lots", Collections.emptyList()));
+        }
+        replayer = new SnapshotReplayer(records, scheduler);
+        deliveryTimes = new ArrayList<>();
+    }
+
+    @Test
+    public void start_originalSpeed_keepsTiming() {
+        scheduler.advanceTo(500L);
+        replayer.start(1f, record -> deliveryTimes.add(scheduler.now()));
+        scheduler.advanceTo(10_000L);
+        assertEquals(listOf(500L, 600L, 600L, 2500L), deliveryTimes);
+        assertFalse(replayer.isReplaying());
+    }
+
+    @Test
+    public void start_acceleratedSpeed_scalesTiming() {
+        replayer.start(10f, record -> deliveryTimes.add(scheduler.now()));
+        scheduler.advanceTo(10_000L);
+        assertEquals(listOf(0L, 10L, 10L, 200L), deliveryTimes);
+    }
+
+    @Test
+    public void start_asFastAsPossible_deliversOnePerTurn() {
+        replayer.start(SnapshotReplayer.AS_FAST_AS_POSSIBLE, record -> deliveryTimes.add(scheduler.now()));
+        assertEquals(1, scheduler.getPendingCount()); // A single delivery scheduled at a time
+        scheduler.advanceTo(0L);
+        assertEquals(listOf(0L, 0L, 0L, 0L), deliveryTimes);
+    }
+
+    @Test
+    public void stop_dropsRemainingRecords() {
+        replayer.start(1f, record -> deliveryTimes.add(scheduler.now()));
+        scheduler.advanceTo(150L);
+        assertTrue(replayer.isReplaying());
+        replayer.stop();
+        scheduler.advanceTo(10_000L);
+        assertEquals(3, deliveryTimes.size());
+        assertFalse(replayer.isReplaying());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void start_notPositiveSpeed_throws() {
+        replayer.start(0f, record -> { });
+    }
+
+    private static List<Long> listOf(Long... values) {
+        final List<Long> list = new ArrayList<>();
+        Collections.addAll(list, values);
+        return list;
+    }
+}
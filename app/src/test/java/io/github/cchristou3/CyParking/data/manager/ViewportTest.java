@@ -0,0 +1,49 @@
+package io.github.cchristou3.CyParking.data.manager;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Unit tests for the {@link Viewport} class.
+ */
+public class ViewportTest {
+
+    private final Viewport nicosia = new Viewport(35.15, 33.35, 35.20, 33.40);
+
+    @Test
+    public void contains_positionInside_returnsTrue() {
+        Assert.assertTrue(nicosia.contains(35.18561, 33.38231));
+    }
+
+    @Test
+    public void contains_positionOutside_returnsFalse() {
+        Assert.assertFalse(nicosia.contains(35.21, 33.38));
+        Assert.assertFalse(nicosia.contains(35.18, 33.41));
+    }
+
+    @Test
+    public void expandedBy_addsMarginOnEachSide() {
+        Viewport expanded = nicosia.expandedBy(0.5);
+        Assert.assertTrue(expanded.contains(35.224, 33.424));
+        Assert.assertTrue(expanded.contains(35.126, 33.326));
+        Assert.assertFalse(expanded.contains(35.226, 33.38));
+        Assert.assertTrue(expanded.contains(nicosia));
+        Assert.assertFalse(nicosia.contains(expanded));
+    }
+
+    @Test
+    public void contains_acrossTheAntimeridian() {
+        Viewport fiji = new Viewport(-20, 175, -15, -175);
+        Assert.assertTrue(fiji.contains(-17, 179));
+        Assert.assertTrue(fiji.contains(-17, -178));
+        Assert.assertFalse(fiji.contains(-17, 0));
+        Assert.assertTrue(fiji.expandedBy(0.5).contains(-17, 171));
+    }
+
+    @Test
+    public void expandedBy_beyondTheWholeWorld_coversAllLongitudes() {
+        Viewport world = new Viewport(-10, -150, 10, 150).expandedBy(0.5);
+        Assert.assertTrue(world.contains(0, 180));
+        Assert.assertTrue(world.contains(0, -180));
+    }
+}
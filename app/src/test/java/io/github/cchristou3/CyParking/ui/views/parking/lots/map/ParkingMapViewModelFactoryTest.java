@@ -1,6 +1,9 @@
 package io.github.cchristou3.CyParking.ui.views.parking.lots.map;
 
+import android.content.Context;
+
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import io.github.cchristou3.CyParking.ui.views.parking.slots.booking.BookingViewModel;
 
@@ -15,10 +18,10 @@ import static org.hamcrest.MatcherAssert.assertThat;
 public class ParkingMapViewModelFactoryTest {
     @Test(expected = IllegalArgumentException.class)
     public void create_wrongClass_throwsException() {
-        new ParkingMapViewModelFactory().create(BookingViewModel.class);
+        new ParkingMapViewModelFactory(Mockito.mock(Context.class)).create(BookingViewModel.class);
     }
 
     public void create_correctClass_returnsNonNull() {
-        assertThat(new ParkingMapViewModelFactory().create(ParkingMapViewModel.class), is(not(nullValue())));
+        assertThat(new ParkingMapViewModelFactory(Mockito.mock(Context.class)).create(ParkingMapViewModel.class), is(not(nullValue())));
     }
 }
\ No newline at end of file
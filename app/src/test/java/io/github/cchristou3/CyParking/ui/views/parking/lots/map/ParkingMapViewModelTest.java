@@ -1,25 +1,34 @@
 package io.github.cchristou3.CyParking.ui.views.parking.lots.map;
 
+import android.os.Looper;
 import android.view.View;
 
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 
+import io.github.cchristou3.CyParking.apiClient.local.LotSnapshotStore;
+import io.github.cchristou3.CyParking.apiClient.model.data.parking.Parking;
 import io.github.cchristou3.CyParking.apiClient.model.data.parking.lot.ParkingLot;
 import io.github.cchristou3.CyParking.apiClient.model.data.user.LoggedInUser;
+import io.github.cchristou3.CyParking.apiClient.model.mapper.ParkingLotMapper;
 import io.github.cchristou3.CyParking.apiClient.remote.repository.ParkingMapRepository;
+import io.github.cchristou3.CyParking.data.manager.LotChange;
 import io.github.cchristou3.CyParking.ui.InstantTaskRuler;
 
 import static io.github.cchristou3.CyParking.ui.LiveDataTestUtil.getOrAwaitValue;
@@ -29,6 +38,7 @@ import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
 
 /**
  * Unit tests for the {@link ParkingMapViewModel} class.
@@ -36,15 +46,19 @@ import static org.mockito.Mockito.when;
 @RunWith(AndroidJUnit4.class)
 public class ParkingMapViewModelTest extends InstantTaskRuler {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     // Subject under test
     private ParkingMapViewModel parkingMapViewModel;
 
     @Before
-    public void setUp() {
+    public void setUp() throws IOException {
         ParkingMapRepository mockRepo = Mockito.mock(ParkingMapRepository.class);
         CollectionReference mockRef = Mockito.mock(CollectionReference.class);
         when(mockRepo.getParkingLotsRef()).thenReturn(mockRef);
-        parkingMapViewModel = new ParkingMapViewModel(mockRepo);
+        parkingMapViewModel = new ParkingMapViewModel(mockRepo,
+                new LotSnapshotStore(temporaryFolder.newFile()));
     }
 
     @Test
@@ -120,24 +134,54 @@ public class ParkingMapViewModelTest extends InstantTaskRuler {
     }
 
     @Test
-    public void updateDocumentState_setsNewValue() throws InterruptedException {
+    public void updateDocumentState_setsDeserializedChanges() throws InterruptedException {
         // Given the View got new DocumentChange instances
         int amount = 3;
-        DocumentChange documentChange = Mockito.mock(DocumentChange.class);
         List<DocumentChange> changes = new ArrayList<>();
         for (int i = 0; i < amount; i++) {
-            changes.add(documentChange);
+            changes.add(mockLotChange(Integer.toString(i), DocumentChange.Type.ADDED));
         }
+        changes.add(mockLotChange("2", DocumentChange.Type.REMOVED));
         // when the view updates the livedata via updateDocumentState
         parkingMapViewModel.updateDocumentState(changes);
-        // Then calling getDocumentChangesState should return the same value
-        assertThat(getOrAwaitValue(parkingMapViewModel.getDocumentChangesState()),
-                is(changes));
+        // Then getDocumentChangesState should contain the same changes, deserialized
+        List<LotChange> lotChanges = awaitDocumentChanges();
+        assertThat(lotChanges.size(), is(changes.size()));
         for (int i = 0; i < amount; i++) {
-            assertThat(getOrAwaitValue(parkingMapViewModel.getDocumentChangesState())
-                            .get(i),
-                    is(documentChange));
+            assertThat(lotChanges.get(i).getDocId(), is(Integer.toString(i)));
+            assertThat(lotChanges.get(i).getLot().getLotName(), is("Lot " + i));
         }
+        assertThat(lotChanges.get(amount).getLot(), is(nullValue()));
+        // And the same lots should be indexed
+        assertThat(parkingMapViewModel.getLotIndex().size(), is(amount - 1));
+    }
+
+    /**
+     * Runs the main looper until the ViewModel posts the deserialized changes.
+     */
+    private List<LotChange> awaitDocumentChanges() throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 2000;
+        while (parkingMapViewModel.getDocumentChangesState().getValue() == null
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+        return getOrAwaitValue(parkingMapViewModel.getDocumentChangesState());
+    }
+
+    private static DocumentChange mockLotChange(String docId, DocumentChange.Type type) {
+        ParkingLot lot = new ParkingLot();
+        lot.setLotName("Lot " + docId);
+        lot.setCoordinates(new Parking.Coordinates(35.17, 33.36));
+        lot.setAvailability(new ParkingLot.Availability(10, 5));
+        lot.setSlotOfferList(new ArrayList<>());
+        QueryDocumentSnapshot document = Mockito.mock(QueryDocumentSnapshot.class);
+        when(document.getId()).thenReturn(docId);
+        when(document.getData()).thenReturn(ParkingLotMapper.toMap(lot));
+        DocumentChange documentChange = Mockito.mock(DocumentChange.class);
+        when(documentChange.getDocument()).thenReturn(document);
+        when(documentChange.getType()).thenReturn(type);
+        return documentChange;
     }
 
     @Test
@@ -0,0 +1,81 @@
+package io.github.cchristou3.CyParking.geo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: compare the per-pair haversine with the batch kernel,
+ * when looking for the lots that are nearby the user.
+ * <p>
+ * The points are spread uniformly over a 20km square around the origin,
+ * thus a small fraction of them is within the 1km radius, as with the lots of a city.
+ * <p>
+ * Run via: ./gradlew :geo:jmh
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DistanceKernelBenchmark {
+
+    private static final double LAT = 35.18561, LNG = 33.38231;
+    private static final double RADIUS = 1000;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private GeoPoints points;
+    private int[] indices;
+    private double[] distances;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        latitudes = new double[size];
+        longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            latitudes[i] = LAT + (random.nextDouble() - 0.5) * 0.18;
+            longitudes[i] = LNG + (random.nextDouble() - 0.5) * 0.22;
+        }
+        points = new GeoPoints(latitudes, longitudes);
+        indices = new int[size];
+        distances = new double[size];
+    }
+
+    /**
+     * The previous approach: a full haversine per lot.
+     */
+    @Benchmark
+    public int perPairHaversine() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (GeoDistance.haversine(LAT, LNG, latitudes[i], longitudes[i]) <= RADIUS) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public void batchHaversine(Blackhole blackhole) {
+        DistanceKernel.distances(LAT, LNG, points, distances);
+        blackhole.consume(distances);
+    }
+
+    @Benchmark
+    public int within() {
+        return DistanceKernel.within(LAT, LNG, RADIUS, points, indices, distances);
+    }
+}
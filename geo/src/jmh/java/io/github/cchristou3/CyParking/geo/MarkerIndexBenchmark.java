@@ -0,0 +1,136 @@
+package io.github.cchristou3.CyParking.geo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: compare the lookups of the {@link MarkerIndex} with the linear scans
+ * that the MarkerManager used to do over its Marker -> ParkingLot map:
+ * <p> - containsValue, when adding a lot.
+ * <p> - A scan for the lot's document id, when updating a lot.
+ * <p> - A scan for the lot's coordinates, when a marker gets tapped.
+ * <p>
+ * The lots are spread uniformly over the same area. Half of the taps miss every lot.
+ * <p>
+ * Run via: ./gradlew :geo:jmh
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MarkerIndexBenchmark {
+
+    private static final int QUERIES = 1024; // Power of two
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    // The previous approach. Look up: marker -> lot
+    private Map<Object, Lot> scanned;
+    private MarkerIndex<String, Object, Lot> indexed;
+    private Lot[] queries;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        final Lot[] lots = new Lot[size];
+        scanned = new ConcurrentHashMap<>(size);
+        indexed = new MarkerIndex<>();
+        for (int i = 0; i < size; i++) {
+            lots[i] = new Lot("doc" + i, 35.0 + random.nextDouble(), 33.0 + random.nextDouble());
+            final Object marker = new Object();
+            scanned.put(marker, lots[i]);
+            indexed.put(lots[i].id, marker, lots[i], lots[i].latitude, lots[i].longitude);
+        }
+        queries = new Lot[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            final Lot lot = lots[random.nextInt(size)];
+            queries[i] = i % 2 == 0 ? lot : new Lot(lot.id, lot.latitude + 0.5, lot.longitude);
+        }
+    }
+
+    private Lot nextQuery() {
+        return queries[next++ & (QUERIES - 1)];
+    }
+
+    @Benchmark
+    public boolean containsValue_scan() {
+        return scanned.containsValue(nextQuery());
+    }
+
+    @Benchmark
+    public boolean containsValue_indexed() {
+        final Lot query = nextQuery();
+        return query.equals(indexed.getValue(indexed.getMarker(query.id)));
+    }
+
+    @Benchmark
+    public Object findById_scan() {
+        final Lot query = nextQuery();
+        for (Map.Entry<Object, Lot> entry : scanned.entrySet()) {
+            if (entry.getValue().id.equals(query.id)) return entry.getKey();
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Object findById_indexed() {
+        return indexed.getMarker(nextQuery().id);
+    }
+
+    @Benchmark
+    public Object findByPosition_scan() {
+        final Lot query = nextQuery();
+        for (Map.Entry<Object, Lot> entry : scanned.entrySet()) {
+            final Lot lot = entry.getValue();
+            if (lot.latitude == query.latitude && lot.longitude == query.longitude) return entry.getKey();
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Object findByPosition_indexed() {
+        final Lot query = nextQuery();
+        return indexed.getMarkerAt(query.latitude, query.longitude);
+    }
+
+    /**
+     * Purpose: a synthetic lot, equal to another one of the same id and coordinates.
+     */
+    private static final class Lot {
+        private final String id;
+        private final double latitude;
+        private final double longitude;
+
+        private Lot(String id, double latitude, double longitude) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Lot && ((Lot) obj).id.equals(id)
+                    && ((Lot) obj).latitude == latitude && ((Lot) obj).longitude == longitude;
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.cchristou3.CyParking.geo;
+
+import static io.github.cchristou3.CyParking.geo.GeoDistance.METERS_PER_DEGREE;
+import static io.github.cchristou3.CyParking.geo.GeoDistance.haversine;
+import static io.github.cchristou3.CyParking.geo.GeoDistance.wrap;
+
+/**
+ * Purpose: compute the distances from a single origin to many {@link GeoPoints} at once.
+ * <p>
+ * The origin's trigonometry is computed once per call and the points' once per {@link GeoPoints},
+ * leaving a single sine pair and arc sine per pair of points.
+ * <p>
+ * {@link #within(double, double, double, GeoPoints, int[], double[])} goes further:
+ * <p> - Points outside the bounding box of the search circle are skipped with two comparisons.
+ * <p> - For radii up to {@link #FAST_PATH_MAX_RADIUS}, away from the poles, the rest are measured on a plane
+ * (equirectangular projection), without any trigonometry.
+ * <p> - Only the points whose planar distance is within {@link #BORDERLINE_TOLERANCE} of the radius
+ * are measured again with the haversine formula, which has the final say.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public final class DistanceKernel {
+
+    /**
+     * The largest radius, in meters, for which the planar distances are used.
+     * Within it, they deviate from the haversine ones far less than {@link #BORDERLINE_TOLERANCE}.
+     */
+    public static final double FAST_PATH_MAX_RADIUS = 10_000;
+    /**
+     * The relative distance from the radius, within which a point is considered borderline.
+     */
+    public static final double BORDERLINE_TOLERANCE = 1e-3;
+    /**
+     * The latitude, in degrees, beyond which the plane deviates too much, thus the planar distances are not used.
+     */
+    public static final double MAX_PLANAR_LATITUDE = 85;
+
+    private DistanceKernel() {
+        // No instances
+    }
+
+    /**
+     * Computes the haversine distance from the given origin to each of the given points.
+     *
+     * @param originLatitude  The latitude of the origin.
+     * @param originLongitude The longitude of the origin.
+     * @param points          The points to measure.
+     * @param outDistances    Receives the distance of each point, in meters, at the point's index.
+     * @throws IllegalArgumentException If the output array is shorter than the points.
+     */
+    public static void distances(double originLatitude, double originLongitude,
+                                 GeoPoints points, double[] outDistances) throws IllegalArgumentException {
+        final int size = points.size();
+        if (outDistances.length < size) {
+            throw new IllegalArgumentException("The output array must fit all the points.");
+        }
+        final double phi0 = Math.toRadians(originLatitude);
+        final double cosPhi0 = Math.cos(phi0);
+        final double[] phis = points.phis, cosPhis = points.cosPhis, longitudes = points.longitudes;
+        for (int i = 0; i < size; i++) {
+            outDistances[i] = haversine(phi0, cosPhi0, phis[i], cosPhis[i],
+                    Math.toRadians(longitudes[i] - originLongitude));
+        }
+    }
+
+    /**
+     * Finds the points that are at most the given radius away from the given origin.
+     *
+     * @param originLatitude  The latitude of the origin.
+     * @param originLongitude The longitude of the origin.
+     * @param radiusInMeters  The radius of the search circle.
+     * @param points          The points to search.
+     * @param outIndices      Receives the indices of the points within the radius, in ascending order.
+     * @param outDistances    Receives the distances of those points, in meters, in the same order.
+     *                        The borderline ones are exact; the rest are planar approximations.
+     *                        May be null, if the distances are not needed.
+     * @return The number of points within the radius.
+     * @throws IllegalArgumentException If an output array is shorter than the points.
+     */
+    public static int within(double originLatitude, double originLongitude, double radiusInMeters,
+                             GeoPoints points, int[] outIndices, double[] outDistances)
+            throws IllegalArgumentException {
+        final int size = points.size();
+        if (outIndices.length < size || (outDistances != null && outDistances.length < size)) {
+            throw new IllegalArgumentException("The output arrays must fit all the points.");
+        }
+        final double phi0 = Math.toRadians(originLatitude);
+        final double cosPhi0 = Math.cos(phi0);
+        // The bounding box of the search circle, in degrees
+        final double angularRadius = radiusInMeters / GeoDistance.EARTH_RADIUS;
+        final double latitudeSpan = Math.toDegrees(angularRadius);
+        final double sinLongitudeSpan = Math.sin(angularRadius) / cosPhi0;
+        final double longitudeSpan = (angularRadius >= Math.PI / 2 || sinLongitudeSpan >= 1)
+                ? 180 // Contains a pole
+                : Math.toDegrees(Math.asin(sinLongitudeSpan));
+
+        final boolean isPlanar = radiusInMeters <= FAST_PATH_MAX_RADIUS
+                && Math.abs(originLatitude) + latitudeSpan <= MAX_PLANAR_LATITUDE;
+        final double band = radiusInMeters * BORDERLINE_TOLERANCE;
+        final double[] latitudes = points.latitudes, longitudes = points.longitudes,
+                phis = points.phis, cosPhis = points.cosPhis;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            final double deltaLatitude = latitudes[i] - originLatitude;
+            if (Math.abs(deltaLatitude) > latitudeSpan) continue;
+            final double deltaLongitude = wrap(longitudes[i] - originLongitude);
+            if (Math.abs(deltaLongitude) > longitudeSpan) continue;
+
+            double distance;
+            if (isPlanar) {
+                final double x = deltaLongitude * (cosPhi0 + cosPhis[i]) / 2;
+                distance = Math.sqrt(x * x + deltaLatitude * deltaLatitude) * METERS_PER_DEGREE;
+                if (distance > radiusInMeters + band) continue;
+                if (distance >= radiusInMeters - band) { // Borderline
+                    distance = haversine(phi0, cosPhi0, phis[i], cosPhis[i], Math.toRadians(deltaLongitude));
+                }
+            } else {
+                distance = haversine(phi0, cosPhi0, phis[i], cosPhis[i], Math.toRadians(deltaLongitude));
+            }
+            if (distance > radiusInMeters) continue;
+            outIndices[count] = i;
+            if (outDistances != null) outDistances[count] = distance;
+            count++;
+        }
+        return count;
+    }
+}
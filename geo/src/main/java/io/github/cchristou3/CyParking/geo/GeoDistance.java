@@ -0,0 +1,94 @@
+package io.github.cchristou3.CyParking.geo;
+
+/**
+ * Purpose: compute distances between two points on the Earth's surface,
+ * given as latitude / longitude degrees.
+ * <p>
+ * The methods work on primitives only, so that they can be invoked in tight loops
+ * without allocating any objects. For many points and a single origin,
+ * see {@link DistanceKernel}.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ */
+public final class GeoDistance {
+
+    /**
+     * The mean radius of the Earth, in meters.
+     */
+    public static final double EARTH_RADIUS = 6371e3;
+    /**
+     * The length of a degree of latitude, in meters.
+     */
+    public static final double METERS_PER_DEGREE = EARTH_RADIUS * Math.PI / 180;
+
+    private GeoDistance() {
+        // No instances
+    }
+
+    /**
+     * Calculates the great-circle distance between the two given points (haversine formula).
+     * Reference: http://www.movable-type.co.uk/scripts/latlong.html
+     *
+     * @param latitude1  The latitude of the first point.
+     * @param longitude1 The longitude of the first point.
+     * @param latitude2  The latitude of the second point.
+     * @param longitude2 The longitude of the second point.
+     * @return The distance between the two points in meters.
+     */
+    public static double haversine(double latitude1, double longitude1, double latitude2, double longitude2) {
+        final double phi1 = Math.toRadians(latitude1);
+        final double phi2 = Math.toRadians(latitude2);
+        return haversine(phi1, Math.cos(phi1), phi2, Math.cos(phi2),
+                Math.toRadians(longitude2 - longitude1));
+    }
+
+    /**
+     * Calculates the approximate distance between the two given points,
+     * by projecting them on a plane (equirectangular projection).
+     * Cheaper than {@link #haversine(double, double, double, double)}, and within
+     * a fraction of a meter of it for points that are a few kilometers apart.
+     *
+     * @param latitude1  The latitude of the first point.
+     * @param longitude1 The longitude of the first point.
+     * @param latitude2  The latitude of the second point.
+     * @param longitude2 The longitude of the second point.
+     * @return The approximate distance between the two points in meters.
+     */
+    public static double equirectangular(double latitude1, double longitude1, double latitude2, double longitude2) {
+        final double x = wrap(longitude2 - longitude1) * Math.cos(Math.toRadians((latitude1 + latitude2) / 2));
+        final double y = latitude2 - latitude1;
+        return Math.sqrt(x * x + y * y) * METERS_PER_DEGREE;
+    }
+
+    /**
+     * Haversine of two points whose latitudes are already in radians, along with their cosines.
+     *
+     * @param phi1        The latitude of the first point, in radians.
+     * @param cosPhi1     The cosine of the first latitude.
+     * @param phi2        The latitude of the second point, in radians.
+     * @param cosPhi2     The cosine of the second latitude.
+     * @param deltaLambda The longitude difference, in radians.
+     * @return The distance between the two points in meters.
+     */
+    static double haversine(double phi1, double cosPhi1, double phi2, double cosPhi2, double deltaLambda) {
+        final double sinHalfDeltaPhi = Math.sin((phi2 - phi1) / 2);
+        final double sinHalfDeltaLambda = Math.sin(deltaLambda / 2);
+        final double a = sinHalfDeltaPhi * sinHalfDeltaPhi
+                + cosPhi1 * cosPhi2 * sinHalfDeltaLambda * sinHalfDeltaLambda;
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Wraps the given longitude difference into [-180, 180] degrees,
+     * so that points on either side of the antimeridian are close.
+     *
+     * @param deltaLongitude A longitude difference, in degrees.
+     * @return The equivalent difference within [-180, 180].
+     */
+    static double wrap(double deltaLongitude) {
+        if (deltaLongitude > 180) return deltaLongitude - 360;
+        if (deltaLongitude < -180) return deltaLongitude + 360;
+        return deltaLongitude;
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.cchristou3.CyParking.geo;
+
+/**
+ * Purpose: hold many points in parallel primitive arrays, along with the values
+ * that every distance computation needs (latitude in radians and its cosine),
+ * so that they are computed once per point rather than once per pair.
+ * <p>
+ * Instances are immutable, thus they can be shared across threads.
+ *
+ * @author Charalambos Christou
+ * @version 1.0 18/10/21
+ * @see DistanceKernel
+ */
+public final class GeoPoints {
+
+    final double[] latitudes;
+    final double[] longitudes;
+    final double[] phis; // Latitudes in radians
+    final double[] cosPhis;
+
+    /**
+     * Public Constructor.
+     * The given arrays are copied.
+     *
+     * @param latitudes  The latitudes of the points, in degrees.
+     * @param longitudes The longitudes of the points, in degrees.
+     * @throws IllegalArgumentException If the arrays are not of the same length.
+     */
+    public GeoPoints(double[] latitudes, double[] longitudes) throws IllegalArgumentException {
+        this(latitudes, longitudes, latitudes.length);
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("The latitudes and longitudes must be as many as the points.");
+        }
+    }
+
+    /**
+     * Public Constructor.
+     * The first {@code count} values of the given arrays are copied.
+     *
+     * @param latitudes  The latitudes of the points, in degrees.
+     * @param longitudes The longitudes of the points, in degrees.
+     * @param count      The number of points.
+     * @throws IllegalArgumentException If any of the arrays holds less than {@code count} values.
+     */
+    public GeoPoints(double[] latitudes, double[] longitudes, int count) throws IllegalArgumentException {
+        if (count < 0 || latitudes.length < count || longitudes.length < count) {
+            throw new IllegalArgumentException("The latitudes and longitudes must be as many as the points.");
+        }
+        this.latitudes = new double[count];
+        this.longitudes = new double[count];
+        this.phis = new double[count];
+        this.cosPhis = new double[count];
+        System.arraycopy(latitudes, 0, this.latitudes, 0, count);
+        System.arraycopy(longitudes, 0, this.longitudes, 0, count);
+        for (int i = 0; i < count; i++) {
+            phis[i] = Math.toRadians(latitudes[i]);
+            cosPhis[i] = Math.cos(phis[i]);
+        }
+    }
+
+    /**
+     * Access the number of points.
+     *
+     * @return The number of points.
+     */
+    public int size() {
+        return latitudes.length;
+    }
+
+    /**
+     * Access the latitude of the given point.
+     *
+     * @param index The index of the point.
+     * @return The latitude in degrees.
+     */
+    public double latitudeAt(int index) {
+        return latitudes[index];
+    }
+
+    /**
+     * Access the longitude of the given point.
+     *
+     * @param index The index of the point.
+     * @return The longitude in degrees.
+     */
+    public double longitudeAt(int index) {
+        return longitudes[index];
+    }
+}
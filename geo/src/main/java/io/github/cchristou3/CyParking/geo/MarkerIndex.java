@@ -0,0 +1,211 @@
+package io.github.cchristou3.CyParking.geo;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Purpose: associate markers with their values and
+ * look them up in constant time by any of the following keys:
+ * <p> - The marker itself.
+ * <p> - The key of its value (e.g. a document id).
+ * <p> - Its position, quantized to {@link #QUANTIZATION_FACTOR} of a degree.
+ * <p>
+ * All three indexes are kept consistent on every put, replace and remove.
+ * The class does not depend on the Maps SDK, so that it can be exercised
+ * and benchmarked on the JVM (see the MarkerIndexBenchmark of the jmh source set).
+ *
+ * @param <K> The type of the keys of the values.
+ * @param <M> The type of the markers.
+ * @param <V> The type of the values associated with the markers.
+ * @author Charalambos Christou
+ * @version 3.0 18/10/21
+ */
+public class MarkerIndex<K, M, V> {
+
+    /**
+     * Positions are rounded to the 5th decimal digit (roughly 1.1 metres).
+     */
+    public static final double QUANTIZATION_FACTOR = 1e5;
+
+    private final Map<M, Entry<M, V>> mEntriesByMarker = new ConcurrentHashMap<>();
+    private final Map<K, Entry<M, V>> mEntriesById = new ConcurrentHashMap<>();
+    private final Map<Long, Entry<M, V>> mEntriesByPosition = new ConcurrentHashMap<>();
+
+    /**
+     * Packs the quantized latitude and longitude into a single key.
+     *
+     * @param latitude  The latitude of a position.
+     * @param longitude The longitude of a position.
+     * @return The key of the position.
+     */
+    static long positionKeyOf(double latitude, double longitude) {
+        long lat = Math.round(latitude * QUANTIZATION_FACTOR);
+        long lng = Math.round(longitude * QUANTIZATION_FACTOR);
+        return (lat << 32) | (lng & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Associates the given marker with the given id, value and position.
+     * If an entry with the same id already exists, it is replaced.
+     *
+     * @param id        The key of the value.
+     * @param marker    The marker of the value.
+     * @param value     The value to be associated with the marker.
+     * @param latitude  The latitude of the marker.
+     * @param longitude The longitude of the marker.
+     */
+    public void put(@NonNull K id, @NonNull M marker, @NonNull V value,
+                    double latitude, double longitude) {
+        remove(id);
+        final Entry<M, V> entry = new Entry<>(marker, value, positionKeyOf(latitude, longitude));
+        mEntriesById.put(id, entry);
+        mEntriesByMarker.put(marker, entry);
+        mEntriesByPosition.put(entry.positionKey, entry);
+    }
+
+    /**
+     * Replaces the value of the entry with the given id.
+     * If the position changed, the position index gets updated as well.
+     *
+     * @param id        The key of the value.
+     * @param value     The new value.
+     * @param latitude  The (new) latitude of the value.
+     * @param longitude The (new) longitude of the value.
+     * @return The marker of the entry. Null, if there is no entry with the given id.
+     */
+    @Nullable
+    public M replace(@NonNull K id, @NonNull V value, double latitude, double longitude) {
+        final Entry<M, V> entry = mEntriesById.get(id);
+        if (entry == null) return null;
+        entry.value = value;
+        final long positionKey = positionKeyOf(latitude, longitude);
+        if (positionKey != entry.positionKey) {
+            removePosition(entry);
+            entry.positionKey = positionKey;
+            mEntriesByPosition.put(positionKey, entry);
+        }
+        return entry.marker;
+    }
+
+    /**
+     * Removes the entry with the given id from all indexes.
+     *
+     * @param id The key of the value.
+     * @return The marker of the removed entry. Null, if there is no entry with the given id.
+     */
+    @Nullable
+    public M remove(@NonNull K id) {
+        final Entry<M, V> entry = mEntriesById.remove(id);
+        if (entry == null) return null;
+        mEntriesByMarker.remove(entry.marker);
+        removePosition(entry);
+        return entry.marker;
+    }
+
+    /**
+     * Removes the given entry from the position index, unless another entry
+     * was placed on the same position afterwards.
+     *
+     * @param entry The entry to be removed.
+     */
+    private void removePosition(@NonNull Entry<M, V> entry) {
+        if (mEntriesByPosition.get(entry.positionKey) == entry) {
+            mEntriesByPosition.remove(entry.positionKey);
+        }
+    }
+
+    /**
+     * Access the marker of the given id.
+     *
+     * @param id The key of the value.
+     * @return The marker of the value. Null, if there is no entry with the given id.
+     */
+    @Nullable
+    public M getMarker(@NonNull K id) {
+        final Entry<M, V> entry = mEntriesById.get(id);
+        return entry == null ? null : entry.marker;
+    }
+
+    /**
+     * Access the marker placed on the given position.
+     *
+     * @param latitude  The latitude of the position.
+     * @param longitude The longitude of the position.
+     * @return The marker on that position. Null, if there is none.
+     */
+    @Nullable
+    public M getMarkerAt(double latitude, double longitude) {
+        final Entry<M, V> entry = mEntriesByPosition.get(positionKeyOf(latitude, longitude));
+        return entry == null ? null : entry.marker;
+    }
+
+    /**
+     * Access the value associated with the given marker.
+     *
+     * @param marker The marker of the value.
+     * @return The value of the marker. Null, if the marker is not indexed.
+     */
+    @Nullable
+    public V getValue(@Nullable M marker) {
+        if (marker == null) return null;
+        final Entry<M, V> entry = mEntriesByMarker.get(marker);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * Check whether an entry with the given id exists.
+     *
+     * @param id The key of a value.
+     * @return True, if it exists. Otherwise, false.
+     */
+    public boolean containsId(@NonNull K id) {
+        return mEntriesById.containsKey(id);
+    }
+
+    /**
+     * Access all the indexed markers.
+     *
+     * @return A view of all the markers.
+     */
+    @NonNull
+    public Set<M> markers() {
+        return mEntriesByMarker.keySet();
+    }
+
+    /**
+     * Removes all entries from all indexes.
+     */
+    public void clear() {
+        mEntriesById.clear();
+        mEntriesByMarker.clear();
+        mEntriesByPosition.clear();
+    }
+
+    /**
+     * Access the number of entries.
+     *
+     * @return The number of indexed markers.
+     */
+    public int size() {
+        return mEntriesById.size();
+    }
+
+    /**
+     * Purpose: hold the keys and the value of a single marker.
+     */
+    private static final class Entry<M, V> {
+        private final M marker;
+        private V value;
+        private long positionKey;
+
+        private Entry(M marker, V value, long positionKey) {
+            this.marker = marker;
+            this.value = value;
+            this.positionKey = positionKey;
+        }
+    }
+}
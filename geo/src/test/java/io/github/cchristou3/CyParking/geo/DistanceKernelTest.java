@@ -0,0 +1,96 @@
+package io.github.cchristou3.CyParking.geo;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/*
+ * Unit tests for the {@link DistanceKernel} and {@link GeoDistance} classes.
+ */
+public class DistanceKernelTest {
+
+    private static final double LAT = 35.18561, LNG = 33.38231;
+
+    @Test
+    public void haversine_knownDistance() {
+        // Nicosia -> Limassol, ~62km
+        double distance = GeoDistance.haversine(35.1856, 33.3823, 34.7071, 33.0226);
+        Assert.assertEquals(62_000, distance, 1_000);
+        Assert.assertEquals(0.0, GeoDistance.haversine(LAT, LNG, LAT, LNG), 0.0);
+    }
+
+    @Test
+    public void equirectangular_closeToHaversine_forShortDistances() {
+        double exact = GeoDistance.haversine(LAT, LNG, LAT + 0.006, LNG + 0.007);
+        Assert.assertEquals(exact, GeoDistance.equirectangular(LAT, LNG, LAT + 0.006, LNG + 0.007), 0.01);
+    }
+
+    @Test
+    public void distances_matchTheSinglePairHaversine() {
+        GeoPoints points = randomPoints(new Random(1), 500, LAT, LNG, 0.5);
+        double[] distances = new double[points.size()];
+        DistanceKernel.distances(LAT, LNG, points, distances);
+        for (int i = 0; i < points.size(); i++) {
+            Assert.assertEquals(GeoDistance.haversine(LAT, LNG, points.latitudeAt(i), points.longitudeAt(i)),
+                    distances[i], 1e-6);
+        }
+    }
+
+    @Test
+    public void within_selectsExactlyThePointsTheHaversineSelects() {
+        Random random = new Random(7);
+        double[][] origins = {{LAT, LNG}, {0, 0}, {64.1466, -21.9426}, {-33.86, 151.21}, {84.5, 10}, {89.99, 0}};
+        double[] radii = {1000, 2500, 10_000, 50_000};
+        for (double[] origin : origins) {
+            for (double radius : radii) {
+                double spread = 2 * radius / GeoDistance.METERS_PER_DEGREE;
+                GeoPoints points = randomPoints(random, 2_000, origin[0], origin[1], spread);
+                assertSameAsHaversine(origin[0], origin[1], radius, points);
+            }
+        }
+    }
+
+    @Test
+    public void within_acrossTheAntimeridian() {
+        GeoPoints points = new GeoPoints(new double[]{-17, -17, -17}, new double[]{179.995, -179.995, 170});
+        int[] indices = new int[3];
+        double[] distances = new double[3];
+        int count = DistanceKernel.within(-17, 179.999, 2_000, points, indices, distances);
+        Assert.assertEquals(2, count);
+        Assert.assertEquals(0, indices[0]);
+        Assert.assertEquals(1, indices[1]);
+        Assert.assertEquals(GeoDistance.haversine(-17, 179.999, -17, -179.995), distances[1], 0.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void points_ofDifferentLengths_throw() {
+        new GeoPoints(new double[2], new double[3]);
+    }
+
+    private static void assertSameAsHaversine(double lat, double lng, double radius, GeoPoints points) {
+        int[] indices = new int[points.size()];
+        double[] distances = new double[points.size()];
+        int count = DistanceKernel.within(lat, lng, radius, points, indices, distances);
+        int expected = 0;
+        for (int i = 0; i < points.size(); i++) {
+            double exact = GeoDistance.haversine(lat, lng, points.latitudeAt(i), points.longitudeAt(i));
+            if (exact > radius) continue;
+            Assert.assertTrue("Missing point " + i + " around " + lat + "," + lng, expected < count);
+            Assert.assertEquals(i, indices[expected]);
+            Assert.assertEquals(exact, distances[expected], exact * DistanceKernel.BORDERLINE_TOLERANCE);
+            expected++;
+        }
+        Assert.assertEquals(expected, count);
+    }
+
+    private static GeoPoints randomPoints(Random random, int count, double lat, double lng, double spread) {
+        double[] lats = new double[count], lngs = new double[count];
+        for (int i = 0; i < count; i++) {
+            lats[i] = Math.max(-90, Math.min(90, lat + (random.nextDouble() - 0.5) * 2 * spread));
+            double longitude = lng + (random.nextDouble() - 0.5) * 2 * spread / Math.max(0.05, Math.cos(Math.toRadians(lat)));
+            lngs[i] = ((longitude + 540) % 360) - 180;
+        }
+        return new GeoPoints(lats, lngs);
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.cchristou3.CyParking.geo;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+ * Unit tests for the {@link MarkerIndex} class.
+ */
+public class MarkerIndexTest {
+
+    private MarkerIndex<String, Object, String> index;
+    private Object marker;
+
+    @Before
+    public void setUp() {
+        index = new MarkerIndex<>();
+        marker = new Object();
+        index.put("id", marker, "lot", 35.18561, 33.38231);
+    }
+
+    @Test
+    public void put_allIndexesReturnTheMarker() {
+        Assert.assertSame(marker, index.getMarker("id"));
+        Assert.assertSame(marker, index.getMarkerAt(35.18561, 33.38231));
+        Assert.assertEquals("lot", index.getValue(marker));
+        Assert.assertEquals(1, index.size());
+    }
+
+    @Test
+    public void put_sameId_replacesPreviousEntry() {
+        Object newMarker = new Object();
+        index.put("id", newMarker, "newLot", 35.2, 33.4);
+        Assert.assertEquals(1, index.size());
+        Assert.assertNull(index.getValue(marker));
+        Assert.assertNull(index.getMarkerAt(35.18561, 33.38231));
+        Assert.assertSame(newMarker, index.getMarkerAt(35.2, 33.4));
+    }
+
+    @Test
+    public void getMarkerAt_withinQuantization_returnsMarker() {
+        Assert.assertSame(marker, index.getMarkerAt(35.185612, 33.382308));
+    }
+
+    @Test
+    public void getMarkerAt_otherPosition_returnsNull() {
+        Assert.assertNull(index.getMarkerAt(35.18571, 33.38231));
+    }
+
+    @Test
+    public void replace_updatesValueAndPosition() {
+        Assert.assertSame(marker, index.replace("id", "updatedLot", 35.19, 33.39));
+        Assert.assertEquals("updatedLot", index.getValue(marker));
+        Assert.assertNull(index.getMarkerAt(35.18561, 33.38231));
+        Assert.assertSame(marker, index.getMarkerAt(35.19, 33.39));
+    }
+
+    @Test
+    public void replace_unknownId_returnsNull() {
+        Assert.assertNull(index.replace("unknown", "lot", 0, 0));
+        Assert.assertEquals(1, index.size());
+    }
+
+    @Test
+    public void remove_clearsAllIndexes() {
+        Assert.assertSame(marker, index.remove("id"));
+        Assert.assertFalse(index.containsId("id"));
+        Assert.assertNull(index.getValue(marker));
+        Assert.assertNull(index.getMarkerAt(35.18561, 33.38231));
+        Assert.assertTrue(index.markers().isEmpty());
+    }
+
+    @Test
+    public void remove_samePositionAsAnother_keepsTheOther() {
+        // Given two lots on the same position
+        Object other = new Object();
+        index.put("other", other, "otherLot", 35.18561, 33.38231);
+        // When the first one is removed
+        index.remove("id");
+        // Then the position still resolves to the other one
+        Assert.assertSame(other, index.getMarkerAt(35.18561, 33.38231));
+    }
+
+    @Test
+    public void positionKeyOf_negativeCoordinates_areDistinct() {
+        Assert.assertNotEquals(MarkerIndex.positionKeyOf(-35.1, 33.1), MarkerIndex.positionKeyOf(35.1, 33.1));
+        Assert.assertNotEquals(MarkerIndex.positionKeyOf(35.1, -33.1), MarkerIndex.positionKeyOf(35.1, 33.1));
+    }
+}